@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Compares the JSON results of a benchmark run with a baseline produced the
+ * same way, and reports every benchmark whose score or normalized allocation
+ * rate got worse by more than a threshold. Usage:</p>
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar net.sourceforge.stripes.benchmark.BaselineComparator \
+ *     baselines/baseline.json target/benchmark-results.json [threshold percent]
+ * </pre>
+ *
+ * <p>
+ * The threshold defaults to {@value #DEFAULT_THRESHOLD} percent. The exit
+ * status is 1 if any benchmark regressed, which makes the comparator usable
+ * as a build step.</p>
+ */
+public final class BaselineComparator {
+
+    /**
+     * The default regression threshold, in percent.
+     */
+    public static final double DEFAULT_THRESHOLD = 10;
+
+    /**
+     * The name of the secondary metric in which the GC profiler reports the
+     * bytes allocated per operation.
+     */
+    public static final String ALLOCATION_METRIC = "\u00b7gc.alloc.rate.norm";
+
+    private BaselineComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.json> <results.json> [threshold percent]");
+            System.exit(2);
+        }
+
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> results = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : results.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println("NEW        " + entry.getKey());
+                continue;
+            }
+
+            JsonNode after = entry.getValue();
+            boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+            regressions += compare(entry.getKey(), "score",
+                    before.path("primaryMetric"), after.path("primaryMetric"),
+                    higherIsBetter, threshold);
+            regressions += compare(entry.getKey(), "allocation",
+                    before.path("secondaryMetrics").path(ALLOCATION_METRIC),
+                    after.path("secondaryMetrics").path(ALLOCATION_METRIC),
+                    false, threshold);
+        }
+
+        System.out.println(regressions + " regression(s) of more than " + threshold + "%");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    /**
+     * Compares one metric and prints the outcome; returns 1 if it regressed.
+     */
+    private static int compare(String benchmark, String metric, JsonNode before, JsonNode after,
+            boolean higherIsBetter, double threshold) {
+        if (before.isMissingNode() || after.isMissingNode()) {
+            return 0;
+        }
+
+        double old = before.path("score").asDouble();
+        double now = after.path("score").asDouble();
+        double change = old == 0 ? 0 : (now - old) * 100 / old;
+        boolean regressed = higherIsBetter ? change < -threshold : change > threshold;
+
+        System.out.println(String.format("%-10s %s %s: %.3f -> %.3f %s (%+.1f%%)",
+                regressed ? "REGRESSED" : "ok", benchmark, metric, old, now,
+                after.path("scoreUnit").asText(), change));
+        return regressed ? 1 : 0;
+    }
+
+    /**
+     * Reads a JMH JSON result file into a map keyed by benchmark name and
+     * parameters.
+     */
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<String, JsonNode>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(key.indexOf(":") < 0 ? ":" : ",")
+                        .append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
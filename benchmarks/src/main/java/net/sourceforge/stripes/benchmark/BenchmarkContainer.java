@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.sourceforge.stripes.controller.DispatcherServlet;
+import net.sourceforge.stripes.controller.StripesFilter;
+import net.sourceforge.stripes.mock.MockRoundtrip;
+import net.sourceforge.stripes.mock.MockServletContext;
+
+/**
+ * Sets up the mock container the benchmarks run their requests through: a
+ * {@link MockServletContext} with the {@link StripesFilter} and the
+ * {@link DispatcherServlet}, configured to find the ActionBeans of the
+ * benchmark.
+ */
+public final class BenchmarkContainer {
+
+    /**
+     * The context path of the benchmark container.
+     */
+    public static final String CONTEXT_NAME = "bench";
+
+    private BenchmarkContainer() {
+    }
+
+    /**
+     * Creates a servlet context with the default benchmark configuration.
+     *
+     * @return a new, initialized, MockServletContext
+     */
+    public static MockServletContext createServletContext() {
+        return createServletContext(new HashMap<String, String>());
+    }
+
+    /**
+     * Creates a servlet context with the default benchmark configuration plus
+     * the StripesFilter init-params given, which take precedence.
+     *
+     * @param params additional StripesFilter init-params
+     * @return a new, initialized, MockServletContext
+     */
+    public static MockServletContext createServletContext(Map<String, String> params) {
+        Map<String, String> filterParams = new HashMap<String, String>();
+        filterParams.put("ActionResolver.Packages", "net.sourceforge.stripes.benchmark.action");
+        filterParams.put("LocalePicker.Locales", "en_US");
+        filterParams.put("Stripes.EncryptionKey", "Stripes benchmark key");
+        filterParams.putAll(params);
+
+        return new MockServletContext(CONTEXT_NAME)
+                .addFilter(StripesFilter.class, "StripesFilter", filterParams)
+                .setServlet(DispatcherServlet.class, "StripesDispatcher", null);
+    }
+
+    /**
+     * Executes a request with the parameters given as name/value pairs.
+     *
+     * @param trip the roundtrip to execute
+     * @param event the event to fire, or null for the default event
+     * @param params alternating parameter names and values
+     * @return the roundtrip, once executed
+     * @throws Exception if the request fails
+     */
+    public static MockRoundtrip execute(MockRoundtrip trip, String event, String... params)
+            throws Exception {
+        for (int i = 0; i < params.length; i += 2) {
+            trip.addParameter(params[i], params[i + 1]);
+        }
+
+        if (event == null) {
+            trip.execute();
+        } else {
+            trip.execute(event);
+        }
+
+        return trip;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>
+ * Runs the benchmarks with the GC profiler, so that the allocation rate of
+ * every benchmark is reported next to its latency, and writes the results as
+ * JSON so they can be compared with a baseline by
+ * {@link BaselineComparator}. Usage:</p>
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar [include regexp] [result file]
+ * </pre>
+ *
+ * <p>
+ * The include pattern defaults to all Stripes benchmarks and the result file
+ * to {@code target/benchmark-results.json}. To pass other options to JMH run
+ * {@code org.openjdk.jmh.Main} from the same jar instead.</p>
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * The pattern matching every Stripes benchmark.
+     */
+    public static final String ALL_BENCHMARKS = "net\\.sourceforge\\.stripes\\.benchmark\\..*";
+
+    /**
+     * The file results are written to unless another is given.
+     */
+    public static final String DEFAULT_RESULT_FILE = "target/benchmark-results.json";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ALL_BENCHMARKS)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(args.length > 1 ? args[1] : DEFAULT_RESULT_FILE)
+                .build();
+
+        new Runner(options).run();
+    }
+}
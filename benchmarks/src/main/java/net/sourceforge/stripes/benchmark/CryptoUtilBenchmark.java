@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.stripes.mock.MockServletContext;
+import net.sourceforge.stripes.util.CryptoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link CryptoUtil}, which encrypts the source page of every form
+ * and every encrypted field, and decrypts them on every submit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoUtilBenchmark {
+
+    @Param({"16", "256"})
+    public int length;
+
+    private MockServletContext context;
+    private String plainText;
+    private String cipherText;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContainer.createServletContext();
+
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        plainText = builder.toString();
+        cipherText = CryptoUtil.encrypt(plainText);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return CryptoUtil.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return CryptoUtil.decrypt(cipherText);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.stripes.benchmark.action.OrderActionBean;
+import net.sourceforge.stripes.controller.ActionResolver;
+import net.sourceforge.stripes.controller.AnnotatedClassActionResolver;
+import net.sourceforge.stripes.controller.StripesFilter;
+import net.sourceforge.stripes.controller.UrlBindingFactory;
+import net.sourceforge.stripes.mock.MockRoundtrip;
+import net.sourceforge.stripes.mock.MockServletContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks full round trips through the {@link StripesFilter} and the
+ * DispatcherServlet, from URL resolution through binding, type conversion and
+ * validation to the execution of the Resolution. Each benchmark exercises one
+ * kind of parameter so that a regression can be traced to the code that binds
+ * it; {@link #emptyRoundtrip()} is the cost of the lifecycle itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    private MockServletContext context;
+    private ActionResolver actionResolver;
+    private UrlBindingFactory urlBindingFactory;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContainer.createServletContext();
+        actionResolver = StripesFilter.getConfiguration().getActionResolver();
+        urlBindingFactory = ((AnnotatedClassActionResolver) actionResolver).getUrlBindingFactory();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private MockRoundtrip roundtrip(String event, String... params) throws Exception {
+        return BenchmarkContainer.execute(new MockRoundtrip(context, OrderActionBean.class),
+                event, params);
+    }
+
+    @Benchmark
+    public Object urlResolution() {
+        return urlBindingFactory.getBindingPrototype("/bench/order/42/save");
+    }
+
+    @Benchmark
+    public Object actionBeanTypeResolution() {
+        return actionResolver.getActionBeanType("/bench/order/42/save");
+    }
+
+    @Benchmark
+    public MockRoundtrip emptyRoundtrip() throws Exception {
+        return roundtrip(null);
+    }
+
+    @Benchmark
+    public MockRoundtrip cleanUrlRoundtrip() throws Exception {
+        return BenchmarkContainer.execute(new MockRoundtrip(context, "/bench/order/42/view"), null);
+    }
+
+    @Benchmark
+    public MockRoundtrip flatBinding() throws Exception {
+        return roundtrip(null,
+                "id", "42",
+                "name", "Benchmark order",
+                "quantity", "12",
+                "gift", "true");
+    }
+
+    @Benchmark
+    public MockRoundtrip nestedBinding() throws Exception {
+        return roundtrip(null,
+                "customer.name", "Jane Doe",
+                "customer.email", "jane@example.com",
+                "customer.address.street", "1 Main Street",
+                "customer.address.city", "Springfield",
+                "customer.address.zip", "12345");
+    }
+
+    @Benchmark
+    public MockRoundtrip indexedBinding() throws Exception {
+        return roundtrip(null,
+                "lines[0].sku", "ABC-0001", "lines[0].quantity", "1", "lines[0].price", "9.99",
+                "lines[1].sku", "ABC-0002", "lines[1].quantity", "2", "lines[1].price", "19.99",
+                "lines[2].sku", "ABC-0003", "lines[2].quantity", "3", "lines[2].price", "29.99",
+                "lines[3].sku", "ABC-0004", "lines[3].quantity", "4", "lines[3].price", "39.99");
+    }
+
+    @Benchmark
+    public MockRoundtrip mapBinding() throws Exception {
+        return roundtrip(null,
+                "attributes['color']", "red",
+                "attributes['size']", "XL",
+                "attributes['material']", "cotton",
+                "attributes['origin']", "PT");
+    }
+
+    @Benchmark
+    public MockRoundtrip typeConversion() throws Exception {
+        return roundtrip(null,
+                "id", "42",
+                "quantity", "1,000",
+                "price", "1234.56",
+                "shipDate", "2015-06-30",
+                "status", "SHIPPED",
+                "gift", "on");
+    }
+
+    @Benchmark
+    public MockRoundtrip validationPasses() throws Exception {
+        return roundtrip("save",
+                "name", "Benchmark order",
+                "quantity", "12",
+                "price", "10.00",
+                "customer.name", "Jane Doe",
+                "lines[0].sku", "ABC-0001", "lines[0].quantity", "1");
+    }
+
+    @Benchmark
+    public MockRoundtrip validationFails() throws Exception {
+        return roundtrip("save",
+                "name", "x",
+                "quantity", "not a number",
+                "price", "-1",
+                "customer.email", "not an email",
+                "lines[0].sku", "bad sku", "lines[0].quantity", "0");
+    }
+}
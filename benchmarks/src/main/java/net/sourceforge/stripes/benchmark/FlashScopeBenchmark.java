@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.stripes.benchmark.action.OrderActionBean;
+import net.sourceforge.stripes.controller.StripesConstants;
+import net.sourceforge.stripes.mock.MockHttpSession;
+import net.sourceforge.stripes.mock.MockRoundtrip;
+import net.sourceforge.stripes.mock.MockServletContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the redirect-after-post pattern: a request that puts the
+ * ActionBean and a message in flash scope and redirects, followed by the
+ * request that picks the flash scope up again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlashScopeBenchmark {
+
+    /**
+     * The container, shared by all threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Container {
+
+        MockServletContext context;
+
+        @Setup
+        public void setUp() {
+            context = BenchmarkContainer.createServletContext();
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    /**
+     * The session of a single user, one per thread.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+
+        MockHttpSession session;
+
+        @Setup
+        public void setUp(Container container) {
+            session = new MockHttpSession(container.context);
+        }
+    }
+
+    @Benchmark
+    public MockRoundtrip redirectWithFlash(Container container, Session session) throws Exception {
+        MockRoundtrip trip = new MockRoundtrip(container.context, OrderActionBean.class,
+                session.session);
+        BenchmarkContainer.execute(trip, "flash", "id", "42", "name", "Benchmark order");
+
+        String redirect = trip.getRedirectUrl();
+        String key = StripesConstants.URL_KEY_FLASH_SCOPE_ID + "=";
+        String flashKey = redirect.substring(redirect.indexOf(key) + key.length());
+        if (flashKey.indexOf('&') >= 0) {
+            flashKey = flashKey.substring(0, flashKey.indexOf('&'));
+        }
+
+        MockRoundtrip next = new MockRoundtrip(container.context, OrderActionBean.class,
+                session.session);
+        return BenchmarkContainer.execute(next, null,
+                StripesConstants.URL_KEY_FLASH_SCOPE_ID, flashKey);
+    }
+}
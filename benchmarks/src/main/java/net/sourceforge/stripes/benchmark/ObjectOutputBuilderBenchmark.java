@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.benchmark;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.stripes.action.JsonBuilder;
+import net.sourceforge.stripes.ajax.JavaScriptBuilder;
+import net.sourceforge.stripes.benchmark.action.Address;
+import net.sourceforge.stripes.benchmark.action.Customer;
+import net.sourceforge.stripes.benchmark.action.LineItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the serialization of an object graph with {@link JsonBuilder}
+ * and {@link JavaScriptBuilder}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObjectOutputBuilderBenchmark {
+
+    /**
+     * The root of the graph serialized: a customer and its order lines.
+     */
+    public static class Order {
+
+        private Customer customer;
+        private List<LineItem> lines = new ArrayList<LineItem>();
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public List<LineItem> getLines() {
+            return lines;
+        }
+    }
+
+    @Param({"10", "100"})
+    public int lines;
+
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        Address address = new Address();
+        address.setStreet("1 Main Street");
+        address.setCity("Springfield");
+        address.setZip("12345");
+
+        order = new Order();
+        order.customer = new Customer();
+        order.customer.setName("Jane \"JD\" Doe");
+        order.customer.setEmail("jane@example.com");
+        order.customer.setAddress(address);
+
+        for (int i = 0; i < lines; i++) {
+            LineItem line = new LineItem();
+            line.setSku("ABC-" + (1000 + i));
+            line.setQuantity(i + 1);
+            line.setPrice(new BigDecimal("9.99").multiply(BigDecimal.valueOf(i + 1)));
+            order.lines.add(line);
+        }
+    }
+
+    @Benchmark
+    public String javaScriptBuilder() {
+        StringWriter writer = new StringWriter();
+        new JavaScriptBuilder(order).build(writer);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String jsonBuilder() throws Exception {
+        StringWriter writer = new StringWriter();
+        new JsonBuilder(order).build(writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.benchmark.action;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.ActionBeanContext;
+import net.sourceforge.stripes.action.DefaultHandler;
+import net.sourceforge.stripes.action.ForwardResolution;
+import net.sourceforge.stripes.action.RedirectResolution;
+import net.sourceforge.stripes.action.Resolution;
+import net.sourceforge.stripes.action.SimpleMessage;
+import net.sourceforge.stripes.action.UrlBinding;
+import net.sourceforge.stripes.validation.EmailTypeConverter;
+import net.sourceforge.stripes.validation.Validate;
+import net.sourceforge.stripes.validation.ValidateNestedProperties;
+
+/**
+ * The ActionBean driven by the dispatch benchmarks. It has flat, nested,
+ * indexed and map properties of the types most often bound from requests, a
+ * validated {@code save} event and a {@code flash} event that redirects with
+ * the bean and a message in flash scope.
+ */
+@UrlBinding("/bench/order/{id}/{$event}")
+public class OrderActionBean implements ActionBean {
+
+    /**
+     * The statuses an order can be in.
+     */
+    public enum Status {
+
+        NEW, PAID, SHIPPED, CANCELLED
+    }
+
+    private ActionBeanContext context;
+    private Long id;
+    @Validate(required = true, on = "save", minlength = 3, maxlength = 50)
+    private String name;
+    @Validate(on = "save", minvalue = 1, maxvalue = 1000)
+    private int quantity;
+    @Validate(on = "save", minvalue = 0)
+    private BigDecimal price;
+    private Date shipDate;
+    private Status status;
+    private boolean gift;
+    @ValidateNestedProperties({
+        @Validate(field = "name", required = true, on = "save"),
+        @Validate(field = "email", converter = EmailTypeConverter.class)
+    })
+    private Customer customer;
+    @ValidateNestedProperties({
+        @Validate(field = "sku", required = true, on = "save", mask = "[A-Z]{3}-[0-9]{4}"),
+        @Validate(field = "quantity", minvalue = 1)
+    })
+    private List<LineItem> lines;
+    private Map<String, String> attributes;
+
+    @Override
+    public ActionBeanContext getContext() {
+        return context;
+    }
+
+    @Override
+    public void setContext(ActionBeanContext context) {
+        this.context = context;
+    }
+
+    @DefaultHandler
+    public Resolution view() {
+        return new ForwardResolution("/order.jsp");
+    }
+
+    public Resolution save() {
+        return new ForwardResolution("/order.jsp");
+    }
+
+    public Resolution flash() {
+        getContext().getMessages().add(new SimpleMessage("Order {0} saved.", id));
+        return new RedirectResolution(OrderActionBean.class).flash(this);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public Date getShipDate() {
+        return shipDate;
+    }
+
+    public void setShipDate(Date shipDate) {
+        this.shipDate = shipDate;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public boolean isGift() {
+        return gift;
+    }
+
+    public void setGift(boolean gift) {
+        this.gift = gift;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public void setCustomer(Customer customer) {
+        this.customer = customer;
+    }
+
+    public List<LineItem> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<LineItem> lines) {
+        this.lines = lines;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(Map<String, String> attributes) {
+        this.attributes = attributes;
+    }
+}
@@ -41,8 +41,27 @@ import java.lang.annotation.Target;
  * immediately expire the document.</li>
  * <li>{@code @HttpCache(expires=600)} - Caching is allowed. The document
  * expires in 10 minutes.</li>
+ * <li>{@code @HttpCache(server=true, expires=600)} - In addition to the above,
+ * the rendered response is cached on the server for 10 minutes and served
+ * (or answered with 304 Not Modified) without binding or invoking the
+ * handler.</li>
  * </ul>
  *
+ * <p>
+ * When {@link #server()} is true, successful responses to GET requests are
+ * stored, fully rendered, in the
+ * {@link net.sourceforge.stripes.controller.HttpResponseCache}. Responses are
+ * keyed on the ActionBean, the event, the requested path, the remote user,
+ * the session, the request parameters, the locale and the values of the
+ * request headers listed in {@link #vary()}, so a cached response is never
+ * served to another user. {@code allow=false} disables server-side caching as
+ * well. Cached responses carry a strong ETag and a Last-Modified
+ * date, and conditional requests that match them are answered with 304 before
+ * binding and validation take place. ActionBeans that change the underlying
+ * data should evict the stale responses through
+ * {@link net.sourceforge.stripes.controller.HttpResponseCache#invalidate(Class)}.
+ * </p>
+ *
  * @author Ben Gunter
  * @since Stripes 1.5
  */
@@ -73,4 +92,25 @@ public @interface HttpCache {
      * @return The number of seconds that the response should expire.
      */
     int expires() default DEFAULT_EXPIRES;
+
+    /**
+     * Indicates whether the rendered response should also be cached on the
+     * server. If {@link #expires()} is greater than zero it is used as the
+     * number of seconds the response stays in the server-side cache; otherwise
+     * the default time to live of the
+     * {@link net.sourceforge.stripes.controller.HttpResponseCache} is used.
+     *
+     * @return Whether the response should be cached on the server.
+     */
+    boolean server() default false;
+
+    /**
+     * The names of the request headers whose values distinguish otherwise
+     * identical requests in the server-side cache (e.g. {@code Accept}). The
+     * headers are also sent back in a Vary header. Ignored unless
+     * {@link #server()} is true.
+     *
+     * @return The request headers the server-side cache varies on.
+     */
+    String[] vary() default {};
 }
@@ -18,9 +18,9 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 
-import net.sourceforge.stripes.controller.StripesFilter;
 import net.sourceforge.stripes.format.Formatter;
 import net.sourceforge.stripes.util.UrlBuilder;
+import net.sourceforge.stripes.util.UrlTemplate;
 
 /**
  * <p>
@@ -72,7 +72,7 @@ public abstract class OnwardResolution<T extends OnwardResolution<T>> implements
      * @param beanType a Class that represents an ActionBean
      */
     public OnwardResolution(Class<? extends ActionBean> beanType) {
-        this(StripesFilter.getConfiguration().getActionResolver().getUrlBinding(beanType));
+        this(UrlTemplate.getUrlBinding(beanType));
     }
 
     /**
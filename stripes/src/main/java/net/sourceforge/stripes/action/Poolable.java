@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.action;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Marks an ActionBean whose instances may be reused across requests. By
+ * default a new instance of an ActionBean is created for every request, which
+ * means running its constructor and every
+ * {@link net.sourceforge.stripes.controller.ObjectPostProcessor} (e.g. Spring
+ * injection) each time. Instances of poolable ActionBeans are instead taken
+ * from a pool when a request references them and returned to it when the
+ * request completes, so that construction and injection happen once per
+ * pooled instance.</p>
+ *
+ * <p>
+ * Before an instance is returned to the pool every one of its fields is reset
+ * to the value it held right after it was created and injected. The contents
+ * of collections, maps and arrays held in fields are restored too, so field
+ * initializers such as {@code List<Item> items = new ArrayList<Item>()} are
+ * safe. State held elsewhere, e.g. inside other objects referenced by the bean,
+ * is not restored, so poolable beans must implement {@link ResettableActionBean}
+ * and clear that state in {@link ResettableActionBean#reset()}. Instances of
+ * classes that do not implement it are never pooled.</p>
+ *
+ * <p>
+ * An instance that is still referenced when the request completes by the
+ * flash scope of the request (e.g. because it was flashed before a redirect),
+ * or by the session attribute named after its binding path, is not returned
+ * to the pool. Other references are not looked for, so a poolable instance
+ * must not be stored anywhere else that outlives the request.</p>
+ *
+ * <p>
+ * A pooled instance must not be used once the dispatch that took it has
+ * completed, e.g. by filters that decorate the page afterwards. It is
+ * removed from the request attributes when it is returned to the pool, so
+ * {@code MockRoundtrip.getActionBean()} cannot be used to inspect it after the
+ * request. This annotation has no effect on {@link SessionScope} beans.</p>
+ *
+ * @since Stripes 1.7
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Documented
+public @interface Poolable {
+
+    /**
+     * The maximum number of idle instances kept in the pool. Instances
+     * returned to a full pool are discarded. Defaults to 64.
+     *
+     * @return the maximum number of idle instances
+     */
+    int maxIdle() default 64;
+}
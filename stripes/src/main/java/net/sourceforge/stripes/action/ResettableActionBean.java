@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.action;
+
+/**
+ * <p>
+ * An ActionBean that can clear its own per-request state. {@link Poolable}
+ * ActionBeans must implement this interface; instances of poolable classes
+ * that do not are never pooled.</p>
+ *
+ * <p>
+ * The pool restores the fields of a bean before returning it, but only one
+ * level deep: objects the bean refers to are not copied, so any state they
+ * hold would leak into the next request. {@link #reset()} is the place to
+ * clear that state, or to replace such objects with new ones.</p>
+ *
+ * @since Stripes 1.7
+ */
+public interface ResettableActionBean extends ActionBean {
+
+    /**
+     * Clears all state left by a request, including state held by objects the
+     * bean refers to. Called after the fields of the bean have been restored
+     * and before it is returned to the pool. If this method throws an
+     * exception the instance is discarded.
+     */
+    void reset();
+}
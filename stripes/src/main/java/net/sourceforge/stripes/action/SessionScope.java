@@ -69,6 +69,20 @@ import java.lang.annotation.Documented;
  * fields submitted in the request into the next request by writing hidden form
  * fields.</p>
  *
+ * <p>
+ * Several requests from the same user (e.g. parallel AJAX calls) may reference
+ * the same session scope bean at once. By default they share the bean without
+ * any coordination, exactly as in earlier versions of Stripes. The
+ * {@link #concurrency()} attribute can instead guard the bean with a lock from
+ * the start of the request until its event has been handled, and selects what
+ * happens when a second request arrives while the bean is in use: it can wait
+ * its turn, be rejected with a 429 (Too Many Requests) status, or be handed a
+ * private copy of the bean that replaces the shared one when the event has
+ * been handled. The lock is released before the view is rendered. Setting {@link #passivate()} causes the bean to be stored
+ * in serialized, compressed form when the container passivates the session,
+ * e.g. when it swaps idle sessions out to disk, and restored by the next
+ * request that uses it.</p>
+ *
  * @see net.sourceforge.stripes.validation.ValidationErrorHandler
  * @author Tim Fennell
  */
@@ -76,4 +90,44 @@ import java.lang.annotation.Documented;
 @Target({ElementType.TYPE})
 @Documented
 public @interface SessionScope {
+
+    /**
+     * The policies that may be applied when a request references a session
+     * scope bean that is already in use by another request.
+     *
+     * @since Stripes 1.7
+     */
+    enum Concurrency {
+        /** Share the bean between concurrent requests without locking it. */
+        NONE,
+        /** Wait for the other request to finish with the bean. */
+        SERIALIZE,
+        /** Reject the request with a 429 (Too Many Requests) status. */
+        REJECT,
+        /**
+         * Use a serialized copy of the bean and replace the shared bean with
+         * it when the request completes. Requires the bean to be Serializable.
+         */
+        CLONE
+    }
+
+    /**
+     * How to handle concurrent requests that reference the bean. Defaults to
+     * {@link Concurrency#NONE}.
+     *
+     * @return the concurrency policy for the bean
+     * @since Stripes 1.7
+     */
+    Concurrency concurrency() default Concurrency.NONE;
+
+    /**
+     * If true the bean is replaced in the session by its serialized,
+     * compressed form when the container passivates the session. Requires
+     * the bean to be Serializable.
+     *
+     * @return true if the bean should be compressed when the session is
+     * passivated
+     * @since Stripes 1.7
+     */
+    boolean passivate() default false;
 }
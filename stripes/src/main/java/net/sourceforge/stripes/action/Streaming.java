@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.action;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import net.sourceforge.stripes.controller.multipart.StreamingMultipartWrapper;
+
+/**
+ * <p>
+ * Marks an ActionBean whose event handlers consume multipart file uploads as a
+ * stream, in the order in which the parts arrive, instead of having them
+ * written to temporary files and bound before the handler runs. Multipart
+ * requests to such ActionBeans are always parsed by the
+ * {@link StreamingMultipartWrapper} in streaming mode, regardless of which
+ * MultipartWrapper is configured.</p>
+ *
+ * <p>
+ * Only the regular parameters that precede the first file part are bound, so
+ * forms posting to a streaming ActionBean should place their file inputs last.
+ * The handler reads the files like this:</p>
+ *
+ * <pre>
+ * Iterator&lt;FileBean&gt; parts = StreamingMultipartWrapper.findWrapper(getContext().getRequest()).getFileParts();
+ * while (parts.hasNext()) {
+ *     FileBean part = parts.next();
+ *     InputStream in = part.getInputStream();
+ *     // consume the stream
+ * }
+ * </pre>
+ *
+ * @since Stripes 1.7
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+@Documented
+public @interface Streaming {
+}
@@ -30,6 +30,7 @@ import net.sourceforge.stripes.tag.ErrorsTag;
 import net.sourceforge.stripes.util.HtmlUtil;
 import net.sourceforge.stripes.util.Log;
 import net.sourceforge.stripes.validation.ValidationError;
+import net.sourceforge.stripes.validation.ValidationErrors;
 
 /**
  * A resolution that streams a simple HTML response to the client detailing the
@@ -128,10 +129,11 @@ public class ValidationErrorReportResolution implements Resolution {
         PrintWriter writer = response.getWriter();
         writer.write(header);
 
-        for (List<ValidationError> list : getContext().getValidationErrors().values()) {
+        ValidationErrors errors = getContext().getValidationErrors();
+        for (List<ValidationError> list : errors.values()) {
             for (ValidationError fieldError : list) {
                 writer.write(openElement);
-                writer.write(HtmlUtil.encode(fieldError.getMessage(locale)));
+                writer.write(HtmlUtil.encode(errors.getMessage(fieldError, locale)));
                 writer.write(closeElement);
             }
         }
@@ -19,15 +19,20 @@ import net.sourceforge.stripes.util.Log;
 import net.sourceforge.stripes.util.ReflectUtil;
 
 import java.beans.PropertyDescriptor;
-import java.io.StringWriter;
+import java.io.CharArrayWriter;
+import java.io.IOException;
 import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
+import java.util.WeakHashMap;
 import java.lang.reflect.Method;
 import java.lang.reflect.Array;
 import net.sourceforge.stripes.action.ObjectOutputBuilder;
@@ -47,6 +52,17 @@ import net.sourceforge.stripes.action.ObjectOutputBuilder;
  * var myObject = eval(generatedFragment);
  * </pre>
  *
+ * <p>
+ * The builder streams its output: each object is written to the Writer as a
+ * variable declaration as soon as it is reached, and the references between
+ * objects are written as assignments once the object referred to has been
+ * declared. Objects are tracked by identity, so distinct objects that are
+ * equal (or share an identity hash code) are never confused, and the
+ * JavaBean properties of each class are only introspected once. Each
+ * declaration is held back until it is complete, so a property that cannot be
+ * translated because of an exception is logged and left out without
+ * corrupting the output.</p>
+ *
  * @author Tim Fennell
  * @author Rick Grashel
  * @since Stripes 1.1
@@ -59,19 +75,51 @@ public class JavaScriptBuilder extends ObjectOutputBuilder<JavaScriptBuilder> {
     private static final Log log = Log.getInstance(JavaScriptBuilder.class);
 
     /**
-     * Holds the set of objects that have been visited during conversion.
+     * The prefix of the names of the variables objects are declared as.
+     */
+    private static final String VARIABLE_PREFIX = "_sj_";
+
+    /**
+     * The readable JavaBean properties of every class, in introspection order.
+     * Both the classes and their accessors are held weakly, since the
+     * accessors refer back to the class, so that the cache does not keep
+     * classes or their class loader from being unloaded.
+     */
+    private static final Map<Class<?>, WeakReference<Accessor[]>> accessors
+            = Collections.synchronizedMap(new WeakHashMap<Class<?>, WeakReference<Accessor[]>>());
+
+    /**
+     * True if a subclass overrides {@link #getScalarAsString(Object)}, in which
+     * case {@link #writeScalar(Object, Writer)} delegates to it.
+     */
+    private final boolean customScalars = overridesScalarAsString(getClass());
+
+    /**
+     * Holds the objects that have been visited during conversion, mapped to
+     * the number of the variable each was declared as.
+     */
+    private IdentityHashMap<Object, Integer> visited;
+
+    /**
+     * The number of the last variable declared.
      */
-    private Set<Integer> visitedIdentities = new HashSet<Integer>();
+    private int variables;
 
     /**
-     * Holds a map of name to JSON value for JS Objects and Arrays.
+     * Holds the properties of each class that are not excluded by type.
      */
-    private Map<String, String> objectValues = new HashMap<String, String>();
+    private IdentityHashMap<Class<?>, Accessor[]> plans;
 
     /**
-     * Holds a map of object.property = object.
+     * The writer being built to.
      */
-    private Map<String, String> assignments = new HashMap<String, String>();
+    private Writer writer;
+
+    /**
+     * The declaration or assignment being written, which is copied to the
+     * writer once it is complete.
+     */
+    private Declaration out;
 
     /**
      * Constructs a new JavaScriptBuilder to build JS for the root object
@@ -98,39 +146,42 @@ public class JavaScriptBuilder extends ObjectOutputBuilder<JavaScriptBuilder> {
             // If for some reason a caller provided us with a simple scalar object, then
             // convert it and short-circuit return
             if (isScalarType(getRootObject())) {
-                writer.write(getScalarAsString(getRootObject()));
+                writeScalar(getRootObject(), writer);
                 writer.write(";\n");
                 return;
             }
 
-            buildNode(getRootVariableName(), getRootObject(), "");
+            this.writer = writer;
+            this.out = new Declaration();
+            this.visited = new IdentityHashMap<Object, Integer>();
+            this.variables = 0;
+            this.plans = new IdentityHashMap<Class<?>, Accessor[]>();
 
             writer.write("var ");
             writer.write(getRootVariableName());
             writer.write(";\n");
 
-            for (Map.Entry<String, String> entry : objectValues.entrySet()) {
-                writer.append("var ");
-                writer.append(entry.getKey());
-                writer.append(" = ");
-                writer.append(entry.getValue());
-                writer.append(";\n");
+            Integer root = buildNode(getRootObject(), getExcludedProperties().isEmpty() ? null : "");
+            if (root != null) {
+                out.write(getRootVariableName());
+                out.write(" = ");
+                writeVariable(root);
+                out.write(";\n");
+                flush();
             }
 
-            for (Map.Entry<String, String> entry : assignments.entrySet()) {
-                writer.append(entry.getKey());
-                writer.append(" = ");
-                writer.append(entry.getValue());
-                writer.append(";\n");
-            }
-
-            writer.append(getRootVariableName()).append(";\n");
+            writer.write(getRootVariableName());
+            writer.write(";\n");
         } catch (Exception e) {
             throw new StripesRuntimeException("Could not build JavaScript for object. An "
                     + "exception was thrown while trying to convert a property from Java to "
                     + "JavaScript. The object being converted is: " + getRootObject(), e);
+        } finally {
+            this.writer = null;
+            this.out = null;
+            this.visited = null;
+            this.plans = null;
         }
-
     }
 
     /**
@@ -142,158 +193,206 @@ public class JavaScriptBuilder extends ObjectOutputBuilder<JavaScriptBuilder> {
      * @since Stripes 1.2 (thanks to Sergey Pariev)
      */
     public static String quote(String string) {
-        if (string == null || string.length() == 0) {
-            return "\"\"";
+        StringBuilder sb = new StringBuilder(string == null ? 2 : string.length() + 10);
+        try {
+            quote(string, sb);
+        } catch (IOException e) {
+            // Cannot happen with a StringBuilder
+            throw new StripesRuntimeException(e);
         }
+        return sb.toString();
+    }
 
-        char c;
-        int len = string.length();
-        StringBuilder sb = new StringBuilder(len + 10);
-
-        sb.append('"');
+    /**
+     * Quotes the supplied String, escaping all characters that could be
+     * problematic when eval()'ing the String in JavaScript, and appends the
+     * result to the Appendable supplied. Runs of characters that need no
+     * escaping are written to Writers in a single call.
+     *
+     * @param string a String to be escaped and quoted
+     * @param out the Appendable to append the quoted String to
+     * @throws IOException if the Appendable throws one
+     * @since Stripes 1.7
+     */
+    public static void quote(String string, Appendable out) throws IOException {
+        out.append('"');
+        int len = string == null ? 0 : string.length();
+        int start = 0;
         for (int i = 0; i < len; ++i) {
-            c = string.charAt(i);
+            char c = string.charAt(i);
+            if (c >= ' ' && c != '"' && c != '\\') {
+                continue;
+            }
+
+            append(string, start, i, out);
+            start = i + 1;
             switch (c) {
                 case '\\':
                 case '"':
-                    sb.append('\\').append(c);
+                    out.append('\\').append(c);
                     break;
                 case '\b':
-                    sb.append("\\b");
+                    out.append("\\b");
                     break;
                 case '\t':
-                    sb.append("\\t");
+                    out.append("\\t");
                     break;
                 case '\n':
-                    sb.append("\\n");
+                    out.append("\\n");
                     break;
                 case '\f':
-                    sb.append("\\f");
+                    out.append("\\f");
                     break;
                 case '\r':
-                    sb.append("\\r");
+                    out.append("\\r");
                     break;
                 default:
-                    if (c < ' ') {
-                        // The following takes lower order chars and creates unicode style
-                        // char literals for them (e.g. \u00F3)
-                        sb.append("\\u");
-                        String hex = Integer.toHexString(c);
-                        int pad = 4 - hex.length();
-                        for (int j = 0; j < pad; ++j) {
-                            sb.append("0");
-                        }
-                        sb.append(hex);
-                    } else {
-                        sb.append(c);
-                    }
+                    // The following takes lower order chars and creates unicode style
+                    // char literals for them (e.g. \u00F3)
+                    out.append("\\u00");
+                    out.append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
             }
         }
 
-        sb.append('"');
-        return sb.toString();
+        append(string, start, len, out);
+        out.append('"');
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Appends a range of a String, using Writer.write() to avoid creating a
+     * substring when the Appendable is a Writer.
+     */
+    private static void append(String string, int start, int end, Appendable out) throws IOException {
+        if (start < end) {
+            if (out instanceof Writer) {
+                ((Writer) out).write(string, start, end - start);
+            } else {
+                out.append(string, start, end);
+            }
+        }
     }
 
     /**
-     * Determines the type of the object being translated and dispatches to the
-     * build*Node() method. Generates the temporary name of the object being
-     * translated, checks to ensure that the object has not already been
-     * translated, and ensure that the object is correctly inserted into the set
-     * of assignments.
+     * Translates an object unless it has been translated already or its type
+     * is excluded. Dispatches to the build*Node() method for the type of the
+     * object, each of which writes the declaration of the object's variable
+     * followed by the objects it refers to. If the declaration cannot be
+     * completed, nothing of it is written and the exception is rethrown.
      *
-     * @param name The name that should appear on the left hand side of the
-     * assignment statement once a value for the object has been generated.
      * @param in The object being translated.
+     * @param propertyPrefix The path to the object from the root, or null if no
+     * properties are excluded and so paths are not needed.
+     * @return the number of the variable the object is declared as, or null if
+     * the object is excluded
      */
-    void buildNode(String name, Object in, String propertyPrefix) throws Exception {
-        int systemId = System.identityHashCode(in);
-        String targetName = "_sj_" + systemId;
-
-        if (this.visitedIdentities.contains(systemId)) {
-            this.assignments.put(name, targetName);
+    Integer buildNode(Object in, String propertyPrefix) throws IOException {
+        Integer id = this.visited.get(in);
+        if (id != null) {
+            return id;
         } else if (isExcludedType(in.getClass())) {
             // Do nothing, it's being excluded!!
-        } else {
-            this.visitedIdentities.add(systemId);
+            return null;
+        }
+
+        id = ++this.variables;
+        this.visited.put(in, id);
 
-            if (Collection.class.isAssignableFrom(in.getClass())) {
-                buildCollectionNode(targetName, (Collection<?>) in, propertyPrefix);
+        try {
+            if (in instanceof Collection) {
+                buildCollectionNode(id, (Collection<?>) in, propertyPrefix);
             } else if (in.getClass().isArray()) {
-                buildArrayNode(targetName, in, propertyPrefix);
-            } else if (Map.class.isAssignableFrom(in.getClass())) {
-                buildMapNode(targetName, (Map<?, ?>) in, propertyPrefix);
+                buildArrayNode(id, in, propertyPrefix);
+            } else if (in instanceof Map) {
+                buildMapNode(id, (Map<?, ?>) in, propertyPrefix);
             } else {
-                buildObjectNode(targetName, in, propertyPrefix);
+                buildObjectNode(id, in, propertyPrefix);
             }
-
-            this.assignments.put(name, targetName);
+        } catch (RuntimeException e) {
+            this.out.reset();
+            this.visited.remove(in);
+            throw e;
         }
+
+        return id;
     }
 
     /**
      * <p>
      * Processes a Java Object that conforms to JavaBean conventions. Scalar
-     * properties of the object are converted to a JSON format object
-     * declaration which is inserted into the "objectValues" instance level map.
-     * Nested non-scalar objects are processed separately and then setup for
-     * re-attachment using the instance level "assignments" map.</p>
+     * properties of the object are written as a JSON format object
+     * declaration. Nested non-scalar objects are processed once the
+     * declaration is complete and then attached using assignments.</p>
      *
      * <p>
      * In most cases just the JavaBean properties will be translated. In the
      * case of Java 5 enums, two additional properties will be translated, one
      * each for the enum's 'ordinal' and 'name' properties.</p>
      *
-     * @param targetName The generated name assigned to the Object being
-     * translated
+     * @param id The number of the variable the Object is declared as
      * @param in The Object who's JavaBean properties are to be translated
      */
-    void buildObjectNode(String targetName, Object in, String propertyPrefix) throws Exception {
-        StringBuilder out = new StringBuilder();
-        out.append("{");
-        PropertyDescriptor[] props = ReflectUtil.getPropertyDescriptors(in.getClass());
+    void buildObjectNode(int id, Object in, String propertyPrefix) throws IOException {
+        List<Object> children = null;
+        boolean first = true;
+
+        writeDeclaration(id, '{');
+        for (Accessor property : getPlan(in.getClass())) {
+            String fullPropertyName = null;
+            if (propertyPrefix != null) {
+                fullPropertyName = propertyPrefix.length() > 0
+                        ? propertyPrefix + '.' + property.name : property.name;
+                if (getExcludedProperties().contains(fullPropertyName)) {
+                    continue;
+                }
+            }
 
-        for (PropertyDescriptor property : props) {
+            Object value;
             try {
-                Method readMethod = property.getReadMethod();
-                String fullPropertyName = (propertyPrefix != null && propertyPrefix.length() > 0 ? propertyPrefix + '.' : "")
-                        + property.getName();
-                if ((readMethod != null) && !getExcludedProperties().contains(fullPropertyName)) {
-                    Object value = property.getReadMethod().invoke(in);
-
-                    if (isExcludedType(property.getPropertyType())) {
-                        continue;
-                    }
+                value = property.readMethod.invoke(in);
+            } catch (Exception e) {
+                log.warn(e, "Could not translate property [", property.name, "] of type [",
+                        property.type.getName(), "] due to an exception.");
+                continue;
+            }
 
-                    if (isScalarType(value)) {
-                        if (out.length() > 1) {
-                            out.append(", ");
-                        }
-                        out.append(property.getName());
-                        out.append(":");
-                        out.append(getScalarAsString(value));
-                    } else {
-                        buildNode(targetName + "." + property.getName(), value, fullPropertyName);
+            if (isScalarType(value)) {
+                int mark = out.size();
+                try {
+                    if (!first) {
+                        out.write(", ");
                     }
+                    out.write(property.name);
+                    out.write(':');
+                    writeScalar(value, out);
+                    first = false;
+                } catch (RuntimeException e) {
+                    out.truncate(mark);
+                    log.warn(e, "Could not translate property [", property.name, "] of type [",
+                            property.type.getName(), "] due to an exception.");
                 }
-            } catch (Exception e) {
-                log.warn(e, "Could not translate property [", property.getName(), "] of type [",
-                        property.getPropertyType().getName(), "] due to an exception.");
+            } else {
+                children = defer(children, property.name, value, fullPropertyName);
             }
         }
 
         // Do something a little extra for enums
-        if (Enum.class.isAssignableFrom(in.getClass())) {
+        if (in instanceof Enum) {
             Enum<?> e = (Enum<?>) in;
 
-            if (out.length() > 1) {
-                out.append(", ");
+            if (!first) {
+                out.write(", ");
             }
-            out.append("ordinal:").append(getScalarAsString(e.ordinal()));
-            out.append(", name:").append(getScalarAsString(e.name()));
+            out.write("ordinal:");
+            writeScalar(e.ordinal(), out);
+            out.write(", name:");
+            writeScalar(e.name(), out);
         }
 
-        out.append("}");
-        this.objectValues.put(targetName, out.toString());
+        out.write("};\n");
+        flush();
+        buildChildren(id, children, false);
     }
 
     /**
@@ -301,81 +400,226 @@ public class JavaScriptBuilder extends ObjectOutputBuilder<JavaScriptBuilder> {
      * used to define the properties of the JavaScript object. As such it is
      * assumed that the keys are either primitives, Strings or toString()
      * cleanly. The values of the map are used to generate the values of the
-     * object properties. Scalar values are inserted directly into the JSON
+     * object properties. Scalar values are written directly into the JSON
      * representation, while complex types are converted separately and then
      * attached using assignments.
      *
-     * @param targetName The generated name assigned to the Map being translated
+     * @param id The number of the variable the Map is declared as
      * @param in The Map being translated
      */
-    void buildMapNode(String targetName, Map<?, ?> in, String propertyPrefix) throws Exception {
-        StringBuilder out = new StringBuilder();
-        out.append("{");
+    void buildMapNode(int id, Map<?, ?> in, String propertyPrefix) throws IOException {
+        List<Object> children = null;
+        boolean first = true;
 
+        writeDeclaration(id, '{');
         for (Map.Entry<?, ?> entry : in.entrySet()) {
             String propertyName = getScalarAsString(entry.getKey());
             Object value = entry.getValue();
+            String fullPropertyName = propertyPrefix == null ? null
+                    : propertyPrefix + '[' + propertyName + ']';
 
-            if (getExcludedProperties().contains(propertyPrefix + '[' + propertyName + ']')) {
+            if (fullPropertyName != null && getExcludedProperties().contains(fullPropertyName)) {
                 // Do nothing, it's being excluded!!
             } else if (isScalarType(value)) {
-                if (out.length() > 1) {
-                    out.append(", ");
+                if (!first) {
+                    out.write(", ");
                 }
-                out.append(propertyName);
-                out.append(":");
-                out.append(getScalarAsString(value));
+                first = false;
+                out.write(propertyName);
+                out.write(':');
+                writeScalar(value, out);
             } else {
-                buildNode(targetName + "[" + propertyName + "]", value, propertyPrefix + "[" + propertyName + "]");
+                children = defer(children, propertyName, value, fullPropertyName);
             }
         }
 
-        out.append("}");
-        this.objectValues.put(targetName, out.toString());
+        out.write("};\n");
+        flush();
+        buildChildren(id, children, true);
     }
 
     /**
      * Builds a JavaScript array node from a Java array. Scalar values are
-     * inserted directly into the array definition. Complex values are processed
-     * separately - they are inserted into the JSON array as null to maintain
-     * ordering, and re-attached later using assignments.
+     * written directly into the array definition. Complex values are processed
+     * separately - they are written into the JSON array as null to maintain
+     * ordering, and attached later using assignments.
      *
-     * @param targetName The generated name of the array node being translated.
+     * @param id The number of the variable the array is declared as
      * @param in The Array being translated.
      */
-    void buildArrayNode(String targetName, Object in, String propertyPrefix) throws Exception {
-        StringBuilder out = new StringBuilder();
-        out.append("[");
-
+    void buildArrayNode(int id, Object in, String propertyPrefix) throws IOException {
         int length = Array.getLength(in);
+        List<Object> children = null;
+
+        writeDeclaration(id, '[');
         for (int i = 0; i < length; i++) {
-            Object value = Array.get(in, i);
+            children = buildElement(i, Array.get(in, i), propertyPrefix, children);
+        }
+        out.write("];\n");
+        flush();
+        buildChildren(id, children, true);
+    }
 
-            if (getExcludedProperties().contains(propertyPrefix + '[' + i + ']')) {
-                // It's being excluded but we should leave a placeholder in the array
-                out.append("null");
-            } else if (isScalarType(value)) {
-                out.append(getScalarAsString(value));
-            } else {
-                out.append("null");
-                buildNode(targetName + "[" + i + "]", value, propertyPrefix + "[" + i + "]");
+    /**
+     * Builds an object node that is of type collection. The collection is
+     * written out in exactly the same way as an array, without copying it to
+     * one first.
+     */
+    void buildCollectionNode(int id, Collection<?> in, String propertyPrefix) throws IOException {
+        List<Object> children = null;
+
+        writeDeclaration(id, '[');
+        Iterator<?> iterator = in.iterator();
+        for (int i = 0; iterator.hasNext(); i++) {
+            children = buildElement(i, iterator.next(), propertyPrefix, children);
+        }
+        out.write("];\n");
+        flush();
+        buildChildren(id, children, true);
+    }
+
+    /**
+     * Writes an element of an array or collection, deferring complex values.
+     */
+    private List<Object> buildElement(int i, Object value, String propertyPrefix,
+            List<Object> children) throws IOException {
+        if (i > 0) {
+            out.write(", ");
+        }
+
+        String fullPropertyName = propertyPrefix == null ? null : propertyPrefix + '[' + i + ']';
+        if (fullPropertyName != null && getExcludedProperties().contains(fullPropertyName)) {
+            // It's being excluded but we should leave a placeholder in the array
+            out.write("null");
+        } else if (isScalarType(value)) {
+            writeScalar(value, out);
+        } else {
+            out.write("null");
+            children = defer(children, String.valueOf(i), value, fullPropertyName);
+        }
+
+        return children;
+    }
+
+    /**
+     * Writes "var _sj_N = " followed by the opening character of the literal.
+     */
+    private void writeDeclaration(int id, char open) throws IOException {
+        out.write("var ");
+        writeVariable(id);
+        out.write(" = ");
+        out.write(open);
+    }
+
+    /**
+     * Writes the name of the numbered variable.
+     */
+    private void writeVariable(int id) throws IOException {
+        out.write(VARIABLE_PREFIX);
+        out.write(Integer.toString(id));
+    }
+
+    /**
+     * Remembers a complex value to translate once the declaration of its owner
+     * has been written. Children are kept as triples of key, value and path.
+     */
+    private static List<Object> defer(List<Object> children, String key, Object value, String path) {
+        if (children == null) {
+            children = new ArrayList<Object>();
+        }
+        children.add(key);
+        children.add(value);
+        children.add(path);
+        return children;
+    }
+
+    /**
+     * Writes the completed declaration or assignment to the writer.
+     */
+    private void flush() throws IOException {
+        out.writeTo(writer);
+        out.reset();
+    }
+
+    /**
+     * Translates the complex values of a node and assigns them to it, using
+     * either dot or bracket notation. Values that cannot be translated because
+     * of an exception are logged and left out.
+     */
+    private void buildChildren(int id, List<Object> children, boolean brackets) throws IOException {
+        if (children == null) {
+            return;
+        }
+
+        for (int i = 0; i < children.size(); i += 3) {
+            String key = (String) children.get(i);
+            Object value = children.get(i + 1);
+            Integer child;
+            try {
+                child = buildNode(value, (String) children.get(i + 2));
+            } catch (RuntimeException e) {
+                log.warn(e, "Could not translate property [", key, "] of type [",
+                        value.getClass().getName(), "] due to an exception.");
+                continue;
             }
 
-            if (i != length - 1) {
-                out.append(", ");
+            if (child != null) {
+                writeVariable(id);
+                out.write(brackets ? "[" : ".");
+                out.write(key);
+                if (brackets) {
+                    out.write(']');
+                }
+                out.write(" = ");
+                writeVariable(child);
+                out.write(";\n");
+                flush();
             }
         }
+    }
 
-        out.append("]");
-        this.objectValues.put(targetName, out.toString());
+    /**
+     * Returns the properties of a class whose types are not excluded.
+     */
+    private Accessor[] getPlan(Class<?> type) {
+        Accessor[] plan = this.plans.get(type);
+        if (plan == null) {
+            List<Accessor> included = new ArrayList<Accessor>();
+            for (Accessor accessor : getAccessors(type)) {
+                if (!isExcludedType(accessor.type)) {
+                    included.add(accessor);
+                }
+            }
+            plan = included.toArray(new Accessor[included.size()]);
+            this.plans.put(type, plan);
+        }
+        return plan;
     }
 
     /**
-     * Builds an object node that is of type collection. Simply converts the
-     * collection to an array, and delegates to buildArrayNode().
+     * Returns the readable JavaBean properties of a class, introspecting the
+     * class if they are not cached.
      */
-    void buildCollectionNode(String targetName, Collection<?> in, String propertyPrefix) throws Exception {
-        buildArrayNode(targetName, in.toArray(), propertyPrefix);
+    private static Accessor[] getAccessors(Class<?> type) {
+        Accessor[] cached = null;
+        WeakReference<Accessor[]> ref = accessors.get(type);
+        if (ref != null) {
+            cached = ref.get();
+        }
+
+        if (cached == null) {
+            List<Accessor> list = new ArrayList<Accessor>();
+            for (PropertyDescriptor property : ReflectUtil.getPropertyDescriptors(type)) {
+                if (property.getReadMethod() != null) {
+                    list.add(new Accessor(property.getName(), property.getReadMethod(),
+                            property.getPropertyType()));
+                }
+            }
+            cached = list.toArray(new Accessor[list.size()]);
+            accessors.put(type, new WeakReference<Accessor[]>(cached));
+        }
+
+        return cached;
     }
 
     /**
@@ -403,4 +647,72 @@ public class JavaScriptBuilder extends ObjectOutputBuilder<JavaScriptBuilder> {
             return in.toString();
         }
     }
+
+    /**
+     * Writes the value of a scalar type to the writer, in the same form as
+     * {@link #getScalarAsString(Object)} returns it. This is the method used
+     * while building; subclasses that change how scalars are written should
+     * override it, but overriding only {@code getScalarAsString()} still works
+     * as it always has.
+     *
+     * @param in - Scalar type of object
+     * @param writer - the writer to write to
+     * @throws IOException if the writer throws one
+     * @since Stripes 1.7
+     */
+    protected void writeScalar(Object in, Writer writer) throws IOException {
+        if (customScalars) {
+            writer.write(getScalarAsString(in));
+        } else if (in == null) {
+            writer.write("null");
+        } else if (in instanceof String) {
+            quote((String) in, writer);
+        } else if (in instanceof Character) {
+            quote(in.toString(), writer);
+        } else if (in instanceof Date) {
+            writer.write("new Date(");
+            writer.write(Long.toString(((Date) in).getTime()));
+            writer.write(')');
+        } else {
+            writer.write(in.toString());
+        }
+    }
+
+    /**
+     * Returns true if the type overrides getScalarAsString().
+     */
+    private static boolean overridesScalarAsString(Class<?> type) {
+        try {
+            return type.getMethod("getScalarAsString", Object.class).getDeclaringClass()
+                    != JavaScriptBuilder.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A character buffer that can be cut back to an earlier size.
+     */
+    private static final class Declaration extends CharArrayWriter {
+
+        void truncate(int size) {
+            this.count = Math.min(this.count, size);
+        }
+    }
+
+    /**
+     * A readable JavaBean property.
+     */
+    private static final class Accessor {
+
+        final String name;
+        final Method readMethod;
+        final Class<?> type;
+
+        Accessor(String name, Method readMethod, Class<?> type) {
+            this.name = name;
+            this.readMethod = readMethod;
+            this.type = type;
+        }
+    }
 }
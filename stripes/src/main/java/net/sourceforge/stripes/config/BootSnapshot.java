@@ -0,0 +1,444 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sourceforge.stripes.util.Log;
+import net.sourceforge.stripes.util.ReflectUtil;
+import net.sourceforge.stripes.util.ResolverUtil;
+
+/**
+ * <p>
+ * Remembers the results of classpath scans between boots. Scanning a package
+ * for implementations of a type means loading and examining every class in
+ * it, and Stripes does so several times while initializing: once for the
+ * ActionBeans and once for each kind of extension. When a boot snapshot file is
+ * configured with {@value #FILE}, the names of the classes found by each scan
+ * are written to it once the configuration has been initialized, and again
+ * when a component whose initialization was deferred has scanned, and later
+ * boots load the classes named in the file instead of scanning. The file is
+ * replaced atomically, so a boot never reads a partly written file.</p>
+ *
+ * <p>
+ * The file is keyed by a fingerprint of the classpath: the contents of every
+ * {@code META-INF/MANIFEST.MF} visible to the class loader, plus the names,
+ * sizes and modification times of the jars and class files under the scanned
+ * packages. If the fingerprint differs, or a class named in the file cannot be
+ * loaded or is not of the type looked for, the packages are scanned as usual
+ * and the file is rewritten. Only packages in directories and jar files on
+ * the file system can be fingerprinted; if a package is found anywhere else
+ * (for example a {@code vfs:} or {@code wsjar:} URL), the snapshot is
+ * neither read nor written and every boot scans. The
+ * snapshot only replaces scanning; URL bindings, event handlers and
+ * validation metadata are still built from the classes found.</p>
+ *
+ * @since Stripes 1.7
+ */
+public class BootSnapshot {
+
+    private static final Log log = Log.getInstance(BootSnapshot.class);
+
+    /**
+     * The Configuration Key for the path of the boot snapshot file. No snapshot
+     * is used unless it is set.
+     */
+    public static final String FILE = "BootSnapshot.File";
+
+    /**
+     * Identifies boot snapshot files, and their format.
+     */
+    private static final int MAGIC = 0x53425331;
+
+    private final File file;
+    private final ClassLoader classLoader;
+
+    /* Scan results loaded from the file, or null if not loaded (yet). */
+    private Map<String, List<String>> loaded;
+
+    /* Scan results of this boot, by scan key. */
+    private final Map<String, List<String>> recorded = new ConcurrentHashMap<String, List<String>>();
+    private volatile boolean changed;
+
+    /**
+     * Creates a snapshot stored in the file supplied, for classes loaded by the
+     * class loader supplied.
+     *
+     * @param file the file the snapshot is read from and written to
+     * @param classLoader the class loader that scans and loads classes
+     */
+    public BootSnapshot(File file, ClassLoader classLoader) {
+        this.file = file;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Returns the file the snapshot is read from and written to.
+     *
+     * @return the snapshot file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Finds the classes that implement or extend the type supplied in the
+     * packages supplied (including subpackages), using the snapshot if it holds
+     * the result of the same scan and scanning otherwise.
+     *
+     * @param <T> the type looked for
+     * @param parent the type looked for
+     * @param packageNames the packages to look in
+     * @return the classes found
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Set<Class<? extends T>> findImplementations(Class<T> parent, String... packageNames) {
+        String key = getKey(parent, packageNames);
+
+        List<String> names = getLoaded().get(key);
+        if (names != null) {
+            try {
+                Set<Class<? extends T>> classes = new HashSet<Class<? extends T>>();
+                for (String name : names) {
+                    Class<?> type = Class.forName(name, false, classLoader);
+                    if (!parent.isAssignableFrom(type)) {
+                        throw new ClassCastException(name + " is not a " + parent.getName());
+                    }
+                    classes.add((Class<? extends T>) type);
+                }
+                recorded.put(key, names);
+                return classes;
+            } catch (Throwable t) {
+                log.info("Boot snapshot ", file, " names a class that cannot be loaded (", t,
+                        "). Scanning for implementations of ", parent.getSimpleName(), " instead.");
+            }
+        }
+
+        ResolverUtil<T> resolver = new ResolverUtil<T>();
+        resolver.setClassLoader(classLoader);
+        resolver.findImplementations(parent, packageNames);
+        Set<Class<? extends T>> classes = resolver.getClasses();
+
+        List<String> found = new ArrayList<String>(classes.size());
+        for (Class<?> type : classes) {
+            found.add(type.getName());
+        }
+        Collections.sort(found);
+        recorded.put(key, found);
+        changed = true;
+        return classes;
+    }
+
+    /**
+     * Writes the results of the scans of this boot, and those read from the
+     * file that have not been repeated yet, to the snapshot file, unless all
+     * of them came from the file in the first place. The results are written
+     * to a temporary file that then replaces the snapshot file. Failures are
+     * logged but not thrown, since the snapshot is only an optimization.
+     */
+    public synchronized void save() {
+        if (!changed) {
+            return;
+        }
+        changed = false;
+
+        File temp = null;
+        try {
+            Map<String, List<String>> entries = new ConcurrentHashMap<String, List<String>>(getLoaded());
+            entries.putAll(recorded);
+            Set<String> packages = getPackages(entries.keySet());
+            String fingerprint = fingerprint(classLoader, packages);
+            if (fingerprint == null) {
+                log.info("Not writing boot snapshot ", file, " since the classpath cannot be fingerprinted.");
+                return;
+            }
+
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Could not create directory " + dir);
+            }
+
+            temp = File.createTempFile(file.getName(), ".tmp", dir);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(temp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeUTF(fingerprint);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, List<String>> entry : entries.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    for (String name : entry.getValue()) {
+                        out.writeUTF(name);
+                    }
+                }
+            } finally {
+                out.close();
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                log.debug("Cannot replace ", file, " atomically: ", e);
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            log.info("Wrote boot snapshot ", file, " with ", entries.size(), " scan results");
+        } catch (Exception e) {
+            log.warn(e, "Could not write boot snapshot ", file);
+            changed = true;
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the scan results in the snapshot file, reading them the first
+     * time. The results are empty if the file does not exist, cannot be read or
+     * was written for a different classpath.
+     */
+    private synchronized Map<String, List<String>> getLoaded() {
+        if (loaded == null) {
+            loaded = Collections.emptyMap();
+            if (file.isFile()) {
+                try {
+                    loaded = read();
+                } catch (Exception e) {
+                    log.warn(e, "Could not read boot snapshot ", file, ". Scanning instead.");
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Reads the snapshot file, returning no results if its fingerprint does
+     * not match the classpath.
+     */
+    private Map<String, List<String>> read() throws IOException {
+        Map<String, List<String>> entries = new ConcurrentHashMap<String, List<String>>();
+        String fingerprint;
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a boot snapshot file");
+            }
+            fingerprint = in.readUTF();
+            for (int i = in.readInt(); i > 0; i--) {
+                String key = in.readUTF();
+                String[] names = new String[in.readInt()];
+                for (int j = 0; j < names.length; j++) {
+                    names[j] = in.readUTF();
+                }
+                entries.put(key, Collections.unmodifiableList(Arrays.asList(names)));
+            }
+        } finally {
+            in.close();
+        }
+
+        String current = fingerprint(classLoader, getPackages(entries.keySet()));
+        if (current == null) {
+            log.info("Not using boot snapshot ", file, " since the classpath cannot be fingerprinted.",
+                    " Scanning instead.");
+            return Collections.emptyMap();
+        } else if (!fingerprint.equals(current)) {
+            log.info("The classpath has changed since boot snapshot ", file,
+                    " was written. Scanning instead.");
+            return Collections.emptyMap();
+        }
+
+        log.info("Using boot snapshot ", file, " with ", entries.size(), " scan results");
+        return entries;
+    }
+
+    /**
+     * Returns the key of the scan for implementations of a type in some
+     * packages.
+     */
+    private static String getKey(Class<?> parent, String... packageNames) {
+        StringBuilder key = new StringBuilder(parent.getName()).append(':');
+        if (packageNames != null) {
+            for (int i = 0; i < packageNames.length; i++) {
+                if (i > 0) {
+                    key.append(',');
+                }
+                key.append(packageNames[i]);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the packages scanned by the scans with the keys supplied.
+     */
+    private static Set<String> getPackages(Collection<String> keys) {
+        Set<String> packages = new TreeSet<String>();
+        for (String key : keys) {
+            String list = key.substring(key.indexOf(':') + 1);
+            if (list.length() > 0) {
+                packages.addAll(Arrays.asList(list.split(",")));
+            }
+        }
+        return packages;
+    }
+
+    /**
+     * Computes a fingerprint of the classpath from the manifests visible to the
+     * class loader and the locations of the packages supplied.
+     *
+     * @param classLoader the class loader to fingerprint
+     * @param packages the packages whose locations are included
+     * @return a hex encoded digest, or null if a package is at a location that
+     * is not on the file system and so cannot be fingerprinted
+     * @throws IOException if the classpath cannot be read
+     */
+    static String fingerprint(ClassLoader classLoader, Collection<String> packages) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        byte[] buffer = new byte[4096];
+        for (URL url : Collections.list(classLoader.getResources("META-INF/MANIFEST.MF"))) {
+            update(digest, url.toString());
+            InputStream in = url.openStream();
+            try {
+                for (int n; (n = in.read(buffer)) > 0;) {
+                    digest.update(buffer, 0, n);
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        for (String pkg : new TreeSet<String>(packages)) {
+            update(digest, pkg);
+            for (URL url : Collections.list(classLoader.getResources(pkg.replace('.', '/')))) {
+                update(digest, url.toString());
+                File location = getLocation(url);
+                if (location == null) {
+                    log.info("Cannot fingerprint package ", pkg, " at ", url,
+                            "; the boot snapshot will not be used.");
+                    return null;
+                }
+                fingerprint(digest, location);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Returns the directory or jar file a package URL points into, or null if
+     * it is not on the file system.
+     */
+    private static File getLocation(URL url) {
+        String spec = url.toString();
+        if (spec.startsWith("jar:")) {
+            int bang = spec.indexOf("!/");
+            spec = bang < 0 ? spec.substring(4) : spec.substring(4, bang);
+        }
+        if (spec.startsWith("file:")) {
+            try {
+                return new File(new URL(spec).toURI());
+            } catch (Exception e) {
+                log.debug("Cannot fingerprint ", url, ": ", e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the names, sizes and modification times of a file, or of all the
+     * files under a directory, to a digest.
+     */
+    private static void fingerprint(MessageDigest digest, File location) {
+        if (location.isDirectory()) {
+            String[] children = location.list();
+            if (children != null) {
+                Arrays.sort(children);
+                for (String child : children) {
+                    fingerprint(digest, new File(location, child));
+                }
+            }
+        } else {
+            update(digest, location.getName() + ':' + location.length() + ':'
+                    + location.lastModified());
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        try {
+            digest.update(value.getBytes("UTF-8"));
+            digest.update((byte) 0);
+        } catch (IOException e) {
+            // UTF-8 is always supported
+        }
+    }
+
+    /**
+     * Creates the snapshot configured for a bootstrap property resolver, or
+     * returns null if none is configured.
+     *
+     * @param bootstrap the resolver to read {@value #FILE} from
+     * @return a BootSnapshot, or null
+     */
+    static BootSnapshot create(BootstrapPropertyResolver bootstrap) {
+        String path = bootstrap.getProperty(FILE);
+        if (path == null || path.trim().length() == 0) {
+            return null;
+        }
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = ReflectUtil.class.getClassLoader();
+        }
+        return new BootSnapshot(new File(path.trim()), classLoader);
+    }
+}
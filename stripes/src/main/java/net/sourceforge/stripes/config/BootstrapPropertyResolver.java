@@ -50,6 +50,8 @@ public class BootstrapPropertyResolver {
     private static final Log log = Log.getInstance(BootstrapPropertyResolver.class);
 
     private FilterConfig filterConfig;
+    private BootSnapshot bootSnapshot;
+    private boolean bootSnapshotCreated;
 
     /**
      * The Configuration Key for looking up the comma separated list of VFS
@@ -91,6 +93,43 @@ public class BootstrapPropertyResolver {
         return this.filterConfig;
     }
 
+    /**
+     * Returns the {@link BootSnapshot} configured with {@value BootSnapshot#FILE},
+     * or null if none is configured.
+     *
+     * @return the boot snapshot, or null
+     * @since Stripes 1.7
+     */
+    public synchronized BootSnapshot getBootSnapshot() {
+        if (!this.bootSnapshotCreated) {
+            this.bootSnapshot = BootSnapshot.create(this);
+            this.bootSnapshotCreated = true;
+        }
+        return this.bootSnapshot;
+    }
+
+    /**
+     * Finds the classes that implement or extend the type supplied in the
+     * packages supplied (including subpackages). Uses the {@link BootSnapshot}
+     * if one is configured, and a {@link ResolverUtil} otherwise.
+     *
+     * @param <T> the type looked for
+     * @param parent the type looked for
+     * @param packageNames the packages to look in
+     * @return the classes found
+     * @since Stripes 1.7
+     */
+    public <T> Set<Class<? extends T>> findImplementations(Class<T> parent, String... packageNames) {
+        BootSnapshot snapshot = getBootSnapshot();
+        if (snapshot != null) {
+            return snapshot.findImplementations(parent, packageNames);
+        }
+
+        ResolverUtil<T> resolver = new ResolverUtil<T>();
+        resolver.findImplementations(parent, packageNames);
+        return resolver.getClasses();
+    }
+
     /**
      * Add {@link VFS} implementations that are specified in the filter
      * configuration.
@@ -173,10 +212,8 @@ public class BootstrapPropertyResolver {
             }
         } else {
             // we didn't find it in web.xml so now we check any extension packages
-            ResolverUtil<T> resolver = new ResolverUtil<T>();
             String[] packages = StringUtil.standardSplit(getProperty(PACKAGES));
-            resolver.findImplementations(targetType, packages);
-            Set<Class<? extends T>> classes = resolver.getClasses();
+            Set<Class<? extends T>> classes = findImplementations(targetType, packages);
             removeDontAutoloadClasses(classes);
             removeAbstractClasses(classes);
             if (classes.size() == 1) {
@@ -232,10 +269,8 @@ public class BootstrapPropertyResolver {
      * @return a List of classes found
      */
     public <T> List<Class<? extends T>> getClassPropertyList(Class<T> targetType) {
-        ResolverUtil<T> resolver = new ResolverUtil<T>();
         String[] packages = StringUtil.standardSplit(getProperty(PACKAGES));
-        resolver.findImplementations(targetType, packages);
-        Set<Class<? extends T>> classes = resolver.getClasses();
+        Set<Class<? extends T>> classes = findImplementations(targetType, packages);
         removeDontAutoloadClasses(classes);
         removeAbstractClasses(classes);
         return new ArrayList<Class<? extends T>>(classes);
@@ -23,6 +23,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 import javax.servlet.ServletContext;
 
@@ -40,6 +45,7 @@ import net.sourceforge.stripes.controller.LifecycleStage;
 import net.sourceforge.stripes.controller.NameBasedActionResolver;
 import net.sourceforge.stripes.controller.ObjectFactory;
 import net.sourceforge.stripes.controller.ObjectPostProcessor;
+import net.sourceforge.stripes.controller.WizardStateStore;
 import net.sourceforge.stripes.controller.multipart.DefaultMultipartWrapperFactory;
 import net.sourceforge.stripes.controller.multipart.MultipartWrapperFactory;
 import net.sourceforge.stripes.exception.DefaultExceptionHandler;
@@ -111,6 +117,11 @@ public class DefaultConfiguration implements Configuration {
     private ExceptionHandler exceptionHandler;
     private MultipartWrapperFactory multipartWrapperFactory;
     private ValidationMetadataProvider validationMetadataProvider;
+    private WizardStateStore wizardStateStore;
+
+    /* Initialization of components deferred by the staged bootstrap until first use. */
+    private volatile BootstrapStep deferredExceptionHandler;
+    private volatile BootstrapStep deferredMultipartWrapperFactory;
 
     /**
      * Gratefully accepts the BootstrapPropertyResolver handed to the
@@ -124,9 +135,21 @@ public class DefaultConfiguration implements Configuration {
      * Creates and stores instances of the objects of the type that the
      * Configuration is responsible for providing, except where subclasses have
      * already provided instances.
+     *
+     * <p>
+     * Components are normally initialized one after another on the calling
+     * thread. If {@link #initStagedBootstrap()} returns true they are instead
+     * initialized in stages: the ObjectFactory first, then the components that
+     * do not depend on one another concurrently, then the
+     * ValidationMetadataProvider and interceptors (which need the
+     * ActionResolver) concurrently. The ExceptionHandler and
+     * MultipartWrapperFactory, which are not needed until a request fails or
+     * uploads a file, are initialized when first asked for. The time taken to
+     * initialize each component is logged in either case.</p>
      */
-    @SuppressWarnings("unchecked")
     public void init() {
+        long start = System.nanoTime();
+        ForkJoinPool pool = null;
         try {
             Boolean debugMode = initDebugMode();
             if (debugMode != null) {
@@ -135,126 +158,337 @@ public class DefaultConfiguration implements Configuration {
                 this.debugMode = false;
             }
 
-            this.objectFactory = initObjectFactory();
-            if (this.objectFactory == null) {
-                this.objectFactory = new DefaultObjectFactory();
-                this.objectFactory.init(this);
+            Boolean staged = initStagedBootstrap();
+            if (staged != null && staged) {
+                pool = createBootstrapPool();
             }
-            if (this.objectFactory instanceof DefaultObjectFactory) {
-                List<Class<? extends ObjectPostProcessor>> classes = getBootstrapPropertyResolver()
-                        .getClassPropertyList(ObjectPostProcessor.class);
-                List<ObjectPostProcessor> instances = new ArrayList<ObjectPostProcessor>();
-                for (Class<? extends ObjectPostProcessor> clazz : classes) {
-                    log.debug("Instantiating object post-processor ", clazz);
-                    instances.add(this.objectFactory.newInstance(clazz));
+
+            runSteps(null, new BootstrapStep("ObjectFactory") {
+                @Override
+                void init() throws Exception {
+                    initObjectFactoryStep();
                 }
-                for (ObjectPostProcessor pp : instances) {
-                    ((DefaultObjectFactory) this.objectFactory).addPostProcessor(pp);
+            });
+
+            BootstrapStep actionResolverStep = new BootstrapStep("ActionResolver") {
+                @Override
+                void init() throws Exception {
+                    actionResolver = initActionResolver();
+                    if (actionResolver == null) {
+                        actionResolver = new NameBasedActionResolver();
+                        actionResolver.init(DefaultConfiguration.this);
+                    }
                 }
+            };
+            BootstrapStep actionBeanPropertyBinderStep = new BootstrapStep("ActionBeanPropertyBinder") {
+                @Override
+                void init() throws Exception {
+                    actionBeanPropertyBinder = initActionBeanPropertyBinder();
+                    if (actionBeanPropertyBinder == null) {
+                        actionBeanPropertyBinder = new DefaultActionBeanPropertyBinder();
+                        actionBeanPropertyBinder.init(DefaultConfiguration.this);
+                    }
+                }
+            };
+            BootstrapStep actionBeanContextFactoryStep = new BootstrapStep("ActionBeanContextFactory") {
+                @Override
+                void init() throws Exception {
+                    actionBeanContextFactory = initActionBeanContextFactory();
+                    if (actionBeanContextFactory == null) {
+                        actionBeanContextFactory = new DefaultActionBeanContextFactory();
+                        actionBeanContextFactory.init(DefaultConfiguration.this);
+                    }
+                }
+            };
+            BootstrapStep typeConverterFactoryStep = new BootstrapStep("TypeConverterFactory") {
+                @Override
+                void init() throws Exception {
+                    typeConverterFactory = initTypeConverterFactory();
+                    if (typeConverterFactory == null) {
+                        typeConverterFactory = new DefaultTypeConverterFactory();
+                        typeConverterFactory.init(DefaultConfiguration.this);
+                    }
+                }
+            };
+            BootstrapStep localizationBundleFactoryStep = new BootstrapStep("LocalizationBundleFactory") {
+                @Override
+                void init() throws Exception {
+                    localizationBundleFactory = initLocalizationBundleFactory();
+                    if (localizationBundleFactory == null) {
+                        localizationBundleFactory = new DefaultLocalizationBundleFactory();
+                        localizationBundleFactory.init(DefaultConfiguration.this);
+                    }
+                }
+            };
+            BootstrapStep localePickerStep = new BootstrapStep("LocalePicker") {
+                @Override
+                void init() throws Exception {
+                    localePicker = initLocalePicker();
+                    if (localePicker == null) {
+                        localePicker = new DefaultLocalePicker();
+                        localePicker.init(DefaultConfiguration.this);
+                    }
+                }
+            };
+            BootstrapStep formatterFactoryStep = new BootstrapStep("FormatterFactory") {
+                @Override
+                void init() throws Exception {
+                    formatterFactory = initFormatterFactory();
+                    if (formatterFactory == null) {
+                        formatterFactory = new DefaultFormatterFactory();
+                        formatterFactory.init(DefaultConfiguration.this);
+                    }
+                }
+            };
+            BootstrapStep tagErrorRendererFactoryStep = new BootstrapStep("TagErrorRendererFactory") {
+                @Override
+                void init() throws Exception {
+                    tagErrorRendererFactory = initTagErrorRendererFactory();
+                    if (tagErrorRendererFactory == null) {
+                        tagErrorRendererFactory = new DefaultTagErrorRendererFactory();
+                        tagErrorRendererFactory.init(DefaultConfiguration.this);
+                    }
+                }
+            };
+            BootstrapStep populationStrategyStep = new BootstrapStep("PopulationStrategy") {
+                @Override
+                void init() throws Exception {
+                    populationStrategy = initPopulationStrategy();
+                    if (populationStrategy == null) {
+                        populationStrategy = new BeanFirstPopulationStrategy();
+                        populationStrategy.init(DefaultConfiguration.this);
+                    }
+                }
+            };
+            BootstrapStep exceptionHandlerStep = new BootstrapStep("ExceptionHandler") {
+                @Override
+                void init() throws Exception {
+                    exceptionHandler = initExceptionHandler();
+                    if (exceptionHandler == null) {
+                        exceptionHandler = new DefaultExceptionHandler();
+                        exceptionHandler.init(DefaultConfiguration.this);
+                    }
+                }
+            };
+            BootstrapStep multipartWrapperFactoryStep = new BootstrapStep("MultipartWrapperFactory") {
+                @Override
+                void init() throws Exception {
+                    multipartWrapperFactory = initMultipartWrapperFactory();
+                    if (multipartWrapperFactory == null) {
+                        multipartWrapperFactory = new DefaultMultipartWrapperFactory();
+                        multipartWrapperFactory.init(DefaultConfiguration.this);
+                    }
+                }
+            };
+            BootstrapStep validationMetadataProviderStep = new BootstrapStep("ValidationMetadataProvider") {
+                @Override
+                void init() throws Exception {
+                    validationMetadataProvider = initValidationMetadataProvider();
+                    if (validationMetadataProvider == null) {
+                        validationMetadataProvider = new DefaultValidationMetadataProvider();
+                        validationMetadataProvider.init(DefaultConfiguration.this);
+                    }
+                }
+            };
+            BootstrapStep wizardStateStoreStep = new BootstrapStep("WizardStateStore") {
+                @Override
+                void init() throws Exception {
+                    wizardStateStore = initWizardStateStore();
+                }
+            };
+            BootstrapStep interceptorsStep = new BootstrapStep("Interceptors") {
+                @Override
+                void init() throws Exception {
+                    initInterceptorsStep();
+                }
+            };
+
+            if (pool == null) {
+                runSteps(null, actionResolverStep, actionBeanPropertyBinderStep,
+                        actionBeanContextFactoryStep, typeConverterFactoryStep,
+                        localizationBundleFactoryStep, localePickerStep, formatterFactoryStep,
+                        tagErrorRendererFactoryStep, populationStrategyStep, exceptionHandlerStep,
+                        multipartWrapperFactoryStep, validationMetadataProviderStep,
+                        wizardStateStoreStep, interceptorsStep);
+            } else {
+                this.deferredExceptionHandler = exceptionHandlerStep;
+                this.deferredMultipartWrapperFactory = multipartWrapperFactoryStep;
+
+                runSteps(pool, actionResolverStep, actionBeanPropertyBinderStep,
+                        actionBeanContextFactoryStep, typeConverterFactoryStep,
+                        localizationBundleFactoryStep, localePickerStep, formatterFactoryStep,
+                        tagErrorRendererFactoryStep, populationStrategyStep, wizardStateStoreStep);
+                runSteps(pool, validationMetadataProviderStep, interceptorsStep);
             }
-
-            this.actionResolver = initActionResolver();
-            if (this.actionResolver == null) {
-                this.actionResolver = new NameBasedActionResolver();
-                this.actionResolver.init(this);
-            }
-
-            this.actionBeanPropertyBinder = initActionBeanPropertyBinder();
-            if (this.actionBeanPropertyBinder == null) {
-                this.actionBeanPropertyBinder = new DefaultActionBeanPropertyBinder();
-                this.actionBeanPropertyBinder.init(this);
+        } catch (Exception e) {
+            throw new StripesRuntimeException("Problem instantiating default configuration objects.", e);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
             }
+        }
 
-            this.actionBeanContextFactory = initActionBeanContextFactory();
-            if (this.actionBeanContextFactory == null) {
-                this.actionBeanContextFactory = new DefaultActionBeanContextFactory();
-                this.actionBeanContextFactory.init(this);
-            }
+        log.info("Initialized configuration in ", (System.nanoTime() - start) / 1000000, "ms",
+                pool == null ? "" : " (staged)");
+    }
 
-            this.typeConverterFactory = initTypeConverterFactory();
-            if (this.typeConverterFactory == null) {
-                this.typeConverterFactory = new DefaultTypeConverterFactory();
-                this.typeConverterFactory.init(this);
+    /**
+     * Initializes the ObjectFactory and its post-processors.
+     */
+    private void initObjectFactoryStep() throws Exception {
+        this.objectFactory = initObjectFactory();
+        if (this.objectFactory == null) {
+            this.objectFactory = new DefaultObjectFactory();
+            this.objectFactory.init(this);
+        }
+        if (this.objectFactory instanceof DefaultObjectFactory) {
+            List<Class<? extends ObjectPostProcessor>> classes = getBootstrapPropertyResolver()
+                    .getClassPropertyList(ObjectPostProcessor.class);
+            List<ObjectPostProcessor> instances = new ArrayList<ObjectPostProcessor>();
+            for (Class<? extends ObjectPostProcessor> clazz : classes) {
+                log.debug("Instantiating object post-processor ", clazz);
+                instances.add(this.objectFactory.newInstance(clazz));
             }
-
-            this.localizationBundleFactory = initLocalizationBundleFactory();
-            if (this.localizationBundleFactory == null) {
-                this.localizationBundleFactory = new DefaultLocalizationBundleFactory();
-                this.localizationBundleFactory.init(this);
+            for (ObjectPostProcessor pp : instances) {
+                ((DefaultObjectFactory) this.objectFactory).addPostProcessor(pp);
             }
+        }
+    }
 
-            this.localePicker = initLocalePicker();
-            if (this.localePicker == null) {
-                this.localePicker = new DefaultLocalePicker();
-                this.localePicker.init(this);
-            }
+    /**
+     * Initializes the core and configured interceptors and warns about
+     * interceptors configured more than once.
+     */
+    private void initInterceptorsStep() {
+        Map<LifecycleStage, Collection<Interceptor>> merged
+                = new HashMap<LifecycleStage, Collection<Interceptor>>();
+        this.interceptors = merged;
 
-            this.formatterFactory = initFormatterFactory();
-            if (this.formatterFactory == null) {
-                this.formatterFactory = new DefaultFormatterFactory();
-                this.formatterFactory.init(this);
-            }
+        Map<LifecycleStage, Collection<Interceptor>> map = initCoreInterceptors();
+        if (map != null) {
+            mergeInterceptorMaps(merged, map);
+        }
+        map = initInterceptors();
+        if (map != null) {
+            mergeInterceptorMaps(merged, map);
+        }
 
-            this.tagErrorRendererFactory = initTagErrorRendererFactory();
-            if (this.tagErrorRendererFactory == null) {
-                this.tagErrorRendererFactory = new DefaultTagErrorRendererFactory();
-                this.tagErrorRendererFactory.init(this);
+        // do a quick check to see if any interceptor classes are configured more than once
+        for (Map.Entry<LifecycleStage, Collection<Interceptor>> entry : merged.entrySet()) {
+            Set<Class<? extends Interceptor>> classes = new HashSet<Class<? extends Interceptor>>();
+            Collection<Interceptor> interceptors = entry.getValue();
+            if (interceptors == null) {
+                continue;
             }
 
-            this.populationStrategy = initPopulationStrategy();
-            if (this.populationStrategy == null) {
-                this.populationStrategy = new BeanFirstPopulationStrategy();
-                this.populationStrategy.init(this);
+            for (Interceptor interceptor : interceptors) {
+                Class<? extends Interceptor> clazz = interceptor.getClass();
+                if (classes.contains(clazz)) {
+                    log.warn("Interceptor ", clazz,
+                            " is configured to run more than once for ", entry.getKey());
+                } else {
+                    classes.add(clazz);
+                }
             }
+        }
+    }
 
-            this.exceptionHandler = initExceptionHandler();
-            if (this.exceptionHandler == null) {
-                this.exceptionHandler = new DefaultExceptionHandler();
-                this.exceptionHandler.init(this);
-            }
+    /**
+     * Creates the pool used by the staged bootstrap. Its threads use the
+     * context class loader of the thread initializing the configuration, so
+     * that classpath scanning sees the same classes as it would on that
+     * thread.
+     */
+    private static ForkJoinPool createBootstrapPool() {
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                        ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+                        };
+                        thread.setName("stripes-bootstrap-" + thread.getPoolIndex());
+                        thread.setContextClassLoader(loader);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, null, false);
+    }
 
-            this.multipartWrapperFactory = initMultipartWrapperFactory();
-            if (this.multipartWrapperFactory == null) {
-                this.multipartWrapperFactory = new DefaultMultipartWrapperFactory();
-                this.multipartWrapperFactory.init(this);
+    /**
+     * Runs the steps supplied, one after another if the pool is null or
+     * concurrently on the pool otherwise, and waits for them all to finish.
+     * The first exception thrown by a step is rethrown.
+     */
+    private static void runSteps(ForkJoinPool pool, BootstrapStep... steps) throws Exception {
+        if (pool == null) {
+            for (BootstrapStep step : steps) {
+                step.call();
             }
+            return;
+        }
 
-            this.validationMetadataProvider = initValidationMetadataProvider();
-            if (this.validationMetadataProvider == null) {
-                this.validationMetadataProvider = new DefaultValidationMetadataProvider();
-                this.validationMetadataProvider.init(this);
-            }
+        List<ForkJoinTask<Object>> tasks = new ArrayList<ForkJoinTask<Object>>(steps.length);
+        for (BootstrapStep step : steps) {
+            tasks.add(pool.submit(step));
+        }
 
-            this.interceptors = new HashMap<LifecycleStage, Collection<Interceptor>>();
-            Map<LifecycleStage, Collection<Interceptor>> map = initCoreInterceptors();
-            if (map != null) {
-                mergeInterceptorMaps(this.interceptors, map);
-            }
-            map = initInterceptors();
-            if (map != null) {
-                mergeInterceptorMaps(this.interceptors, map);
+        Exception failure = null;
+        for (ForkJoinTask<Object> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
             }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
 
-            // do a quick check to see if any interceptor classes are configured more than once
-            for (Map.Entry<LifecycleStage, Collection<Interceptor>> entry : this.interceptors.entrySet()) {
-                Set<Class<? extends Interceptor>> classes = new HashSet<Class<? extends Interceptor>>();
-                Collection<Interceptor> interceptors = entry.getValue();
-                if (interceptors == null) {
-                    continue;
+    /**
+     * Initializes a step that was deferred by the staged bootstrap, if it has
+     * not been initialized already, then saves the {@link BootSnapshot} so
+     * that it includes any classpath scan the step made.
+     */
+    private void runDeferredStep(BootstrapStep step) {
+        synchronized (step) {
+            if (!step.done) {
+                try {
+                    step.call();
+                } catch (Exception e) {
+                    throw new StripesRuntimeException("Problem instantiating default configuration objects.", e);
                 }
+                step.done = true;
 
-                for (Interceptor interceptor : interceptors) {
-                    Class<? extends Interceptor> clazz = interceptor.getClass();
-                    if (classes.contains(clazz)) {
-                        log.warn("Interceptor ", clazz,
-                                " is configured to run more than once for ", entry.getKey());
-                    } else {
-                        classes.add(clazz);
-                    }
+                BootSnapshot snapshot = this.resolver == null ? null : this.resolver.getBootSnapshot();
+                if (snapshot != null) {
+                    snapshot.save();
                 }
             }
-        } catch (Exception e) {
-            throw new StripesRuntimeException("Problem instantiating default configuration objects.", e);
+        }
+    }
+
+    /**
+     * The initialization of one component, which logs the time it takes.
+     */
+    private abstract static class BootstrapStep implements Callable<Object> {
+
+        private final String name;
+        private boolean done;
+
+        BootstrapStep(String name) {
+            this.name = name;
+        }
+
+        abstract void init() throws Exception;
+
+        public Object call() throws Exception {
+            long start = System.nanoTime();
+            init();
+            log.debug("Initialized ", name, " in ", (System.nanoTime() - start) / 100000 / 10.0, "ms");
+            return null;
         }
     }
 
@@ -298,6 +532,17 @@ public class DefaultConfiguration implements Configuration {
         return null;
     }
 
+    /**
+     * Allows subclasses to have components initialized in stages, concurrently
+     * where possible, instead of one after another. See {@link #init()}.
+     *
+     * @return true to use the staged bootstrap, or null for the default (false)
+     * @since Stripes 1.7
+     */
+    protected Boolean initStagedBootstrap() {
+        return null;
+    }
+
     /**
      * Returns an instance of {@link ObjectFactory} that is used throughout
      * Stripes to instantiate classes.
@@ -498,6 +743,11 @@ public class DefaultConfiguration implements Configuration {
      * {@link net.sourceforge.stripes.exception.DefaultExceptionHandler}.
      */
     public ExceptionHandler getExceptionHandler() {
+        BootstrapStep deferred = this.deferredExceptionHandler;
+        if (deferred != null) {
+            runDeferredStep(deferred);
+            this.deferredExceptionHandler = null;
+        }
         return this.exceptionHandler;
     }
 
@@ -519,6 +769,11 @@ public class DefaultConfiguration implements Configuration {
      * @return MultipartWrapperFactory an instance of the wrapper factory
      */
     public MultipartWrapperFactory getMultipartWrapperFactory() {
+        BootstrapStep deferred = this.deferredMultipartWrapperFactory;
+        if (deferred != null) {
+            runDeferredStep(deferred);
+            this.deferredMultipartWrapperFactory = null;
+        }
         return this.multipartWrapperFactory;
     }
 
@@ -552,6 +807,30 @@ public class DefaultConfiguration implements Configuration {
         return null;
     }
 
+    /**
+     * Returns the {@link WizardStateStore} in which wizard forms keep the
+     * fields they carry forward. Unless a subclass has picked an
+     * implementation, returns null and the fields are carried in the page.
+     * This is not part of the {@link Configuration} interface, so that existing
+     * implementations of it keep working; Stripes looks the store up only on
+     * configurations that extend this class.
+     *
+     * @since Stripes 1.7
+     */
+    public WizardStateStore getWizardStateStore() {
+        return this.wizardStateStore;
+    }
+
+    /**
+     * Allows subclasses to initialize a {@link WizardStateStore}.
+     *
+     * @return The initialized wizard state store, or null to carry wizard
+     * fields in the page
+     */
+    protected WizardStateStore initWizardStateStore() {
+        return null;
+    }
+
     /**
      * Returns a list of interceptors that should be executed around the
      * lifecycle stage indicated. By default returns a single element list
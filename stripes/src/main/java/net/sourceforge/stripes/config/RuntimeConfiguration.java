@@ -26,6 +26,7 @@ import net.sourceforge.stripes.controller.ActionResolver;
 import net.sourceforge.stripes.controller.Interceptor;
 import net.sourceforge.stripes.controller.LifecycleStage;
 import net.sourceforge.stripes.controller.ObjectFactory;
+import net.sourceforge.stripes.controller.WizardStateStore;
 import net.sourceforge.stripes.controller.multipart.MultipartWrapperFactory;
 import net.sourceforge.stripes.exception.ExceptionHandler;
 import net.sourceforge.stripes.exception.StripesRuntimeException;
@@ -73,6 +74,12 @@ public class RuntimeConfiguration extends DefaultConfiguration {
      */
     public static final String DEBUG_MODE = "Stripes.DebugMode";
 
+    /**
+     * The Configuration Key for enabling the staged, concurrent initialization
+     * of components.
+     */
+    public static final String STAGED_BOOTSTRAP = "Stripes.StagedBootstrap";
+
     /**
      * The Configuration Key for looking up the name of the ObjectFactory class
      */
@@ -150,6 +157,12 @@ public class RuntimeConfiguration extends DefaultConfiguration {
      */
     public static final String VALIDATION_METADATA_PROVIDER = "ValidationMetadataProvider.Class";
 
+    /**
+     * The Configuration Key for looking up the name of the WizardStateStore
+     * class
+     */
+    public static final String WIZARD_STATE_STORE = "WizardStateStore.Class";
+
     /**
      * The Configuration Key for looking up the comma separated list of core
      * interceptor classes.
@@ -176,6 +189,16 @@ public class RuntimeConfiguration extends DefaultConfiguration {
         }
     }
 
+    /**
+     * Looks for a true/false value in config.
+     * @return The staged bootstrap setting, or null if not configured
+     */
+    @Override
+    protected Boolean initStagedBootstrap() {
+        String value = getBootstrapPropertyResolver().getProperty(STAGED_BOOTSTRAP);
+        return value == null ? null : Boolean.valueOf(value.trim());
+    }
+
     /**
      * Looks for a class name in config and uses that to create the component.
      * @return The initialized object factory for this runtime configuration
@@ -293,6 +316,17 @@ public class RuntimeConfiguration extends DefaultConfiguration {
         return initializeComponent(ValidationMetadataProvider.class, VALIDATION_METADATA_PROVIDER);
     }
 
+    /**
+     * Looks for a class name in config and uses that to create the component.
+     *
+     * @return The wizard state store for this runtime configuration, or null
+     * if none is configured
+     */
+    @Override
+    protected WizardStateStore initWizardStateStore() {
+        return initializeComponent(WizardStateStore.class, WIZARD_STATE_STORE);
+    }
+
     /**
      * Looks for a list of class names separated by commas under the
      * configuration key {@link #CORE_INTERCEPTOR_LIST}. White space surrounding
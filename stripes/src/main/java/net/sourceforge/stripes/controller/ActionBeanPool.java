@@ -0,0 +1,456 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.Poolable;
+import net.sourceforge.stripes.action.ResettableActionBean;
+import net.sourceforge.stripes.util.Log;
+import net.sourceforge.stripes.util.ReflectUtil;
+
+/**
+ * <p>
+ * Keeps idle instances of {@link Poolable} ActionBeans so that they can be
+ * reused by later requests instead of being created and injected again. Each
+ * ActionBean class has its own lock-free pool.</p>
+ *
+ * <p>
+ * A request takes an instance by calling
+ * {@link #checkout(HttpServletRequest, String, Class, Poolable)}, which
+ * registers the {@link Checkout} with the request. The checkouts taken while
+ * processing a request are released, returning the instances to their pools,
+ * by the {@link DispatcherServlet} and the {@link StripesFilter} when the
+ * request completes. Released instances have every field reset to the value
+ * it held right after the instance was created, and then
+ * {@link ResettableActionBean#reset()} called. Only classes implementing
+ * {@link ResettableActionBean} are pooled.</p>
+ *
+ * <p>
+ * An instance that is still referenced when it is released by the flash scope
+ * of the request (e.g. because it was flashed before a redirect) or by the
+ * session attribute named after its binding path is left to the garbage
+ * collector rather than returned to the pool. Only the places Stripes itself
+ * stores ActionBeans in are checked, so that releasing costs the same however
+ * large the session is; applications must not keep pooled instances
+ * anywhere else.</p>
+ *
+ * @since Stripes 1.7
+ */
+public class ActionBeanPool {
+
+    private static final Log log = Log.getInstance(ActionBeanPool.class);
+
+    /* The request attribute holding the checkouts taken by the request. */
+    private static final String REQ_ATTR_CHECKOUTS = ActionBeanPool.class.getName() + ".Checkouts";
+
+    private final ConcurrentMap<Class<? extends ActionBean>, Pool> pools
+            = new ConcurrentHashMap<Class<? extends ActionBean>, Pool>();
+
+    /**
+     * Takes an idle instance of the supplied ActionBean class from its pool
+     * and registers the checkout with the request. If the pool is empty the
+     * checkout holds no bean, and the caller is expected to create one and
+     * hand it to {@link Checkout#setBean(ActionBean)}. Classes that do not
+     * implement {@link ResettableActionBean} are not pooled, and null is
+     * returned for them.
+     *
+     * @param request the current request
+     * @param bindingPath the binding path under which the bean is stored in
+     * the request
+     * @param type the ActionBean class
+     * @param poolable the Poolable annotation of the class
+     * @return the checkout, registered with the request, or null if the
+     * class cannot be pooled
+     */
+    public Checkout checkout(HttpServletRequest request, String bindingPath,
+            Class<? extends ActionBean> type, Poolable poolable) {
+        Pool pool = this.pools.get(type);
+        if (pool == null) {
+            Pool created = new Pool(type, poolable.maxIdle());
+            pool = this.pools.putIfAbsent(type, created);
+            if (pool == null) {
+                pool = created;
+                if (!pool.resettable) {
+                    log.warn("ActionBean ", type.getName(), " is @Poolable but does not implement ",
+                            ResettableActionBean.class.getSimpleName(), ". It will not be pooled.");
+                }
+            }
+        }
+        if (!pool.resettable) {
+            return null;
+        }
+
+        Checkout checkout = new Checkout(pool, request, bindingPath, pool.take());
+        getCheckouts(request, true).add(checkout);
+        return checkout;
+    }
+
+    /**
+     * Returns the number of idle instances of the supplied ActionBean class.
+     *
+     * @param type the ActionBean class
+     * @return the number of idle instances in its pool
+     */
+    public int getIdleCount(Class<? extends ActionBean> type) {
+        Pool pool = this.pools.get(type);
+        return pool == null ? 0 : pool.idleCount.get();
+    }
+
+    /**
+     * Returns the checkouts registered with the request, optionally creating
+     * the list if there is none yet.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Checkout> getCheckouts(HttpServletRequest request, boolean create) {
+        List<Checkout> checkouts = (List<Checkout>) request.getAttribute(REQ_ATTR_CHECKOUTS);
+        if (checkouts == null && create) {
+            checkouts = new ArrayList<Checkout>(2);
+            request.setAttribute(REQ_ATTR_CHECKOUTS, checkouts);
+        }
+        return checkouts;
+    }
+
+    /**
+     * Returns the number of checkouts currently held by the request. Used as a
+     * mark before processing a request so that only the checkouts taken during
+     * processing are released afterwards.
+     *
+     * @param request the current request
+     * @return the number of checkouts held by the request
+     */
+    public static int getCheckoutCount(HttpServletRequest request) {
+        List<Checkout> checkouts = getCheckouts(request, false);
+        return checkouts == null ? 0 : checkouts.size();
+    }
+
+    /**
+     * Removes the checkouts taken after the supplied mark from the request and
+     * returns them, so that they can be released later, e.g. once asynchronous
+     * processing completes.
+     *
+     * @param request the current request
+     * @param mark a value previously returned by {@link #getCheckoutCount(HttpServletRequest)}
+     * @return the detached checkouts, possibly empty
+     */
+    public static List<Checkout> detachCheckouts(HttpServletRequest request, int mark) {
+        List<Checkout> checkouts = getCheckouts(request, false);
+        if (checkouts == null || checkouts.size() <= mark) {
+            return Collections.emptyList();
+        }
+
+        List<Checkout> tail = checkouts.subList(mark, checkouts.size());
+        List<Checkout> detached = new ArrayList<Checkout>(tail);
+        tail.clear();
+        return detached;
+    }
+
+    /**
+     * Releases the checkouts taken after the supplied mark.
+     *
+     * @param request the current request
+     * @param mark a value previously returned by {@link #getCheckoutCount(HttpServletRequest)}
+     */
+    public static void releaseCheckouts(HttpServletRequest request, int mark) {
+        releaseCheckouts(detachCheckouts(request, mark));
+    }
+
+    /**
+     * Releases the supplied checkouts, most recently taken first.
+     *
+     * @param checkouts the checkouts to release
+     */
+    public static void releaseCheckouts(List<Checkout> checkouts) {
+        for (int i = checkouts.size() - 1; i >= 0; i--) {
+            try {
+                checkouts.get(i).release();
+            } catch (RuntimeException e) {
+                log.error(e, "Could not return pooled ActionBean ", checkouts.get(i).bindingPath,
+                        " to its pool");
+            }
+        }
+    }
+
+    /**
+     * The idle instances of one ActionBean class, and the fields reset on
+     * their return.
+     */
+    private static final class Pool {
+
+        final Queue<Instance> idle = new ConcurrentLinkedQueue<Instance>();
+        final AtomicInteger idleCount = new AtomicInteger();
+        final int maxIdle;
+        final boolean resettable;
+        final Field[] fields;
+
+        Pool(Class<? extends ActionBean> type, int maxIdle) {
+            this.maxIdle = maxIdle;
+            this.resettable = ResettableActionBean.class.isAssignableFrom(type);
+
+            List<Field> instanceFields = new ArrayList<Field>();
+            for (Field field : ReflectUtil.getFields(type)) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    instanceFields.add(field);
+                }
+            }
+            this.fields = instanceFields.toArray(new Field[instanceFields.size()]);
+        }
+
+        /** Returns an idle instance, or null if there is none. */
+        Instance take() {
+            Instance instance = this.idle.poll();
+            if (instance != null) {
+                this.idleCount.decrementAndGet();
+            }
+            return instance;
+        }
+
+        /** Resets the instance and returns it to the pool, unless the pool is full. */
+        void offer(Instance instance) {
+            if (this.idleCount.incrementAndGet() > this.maxIdle || !instance.reset()) {
+                this.idleCount.decrementAndGet();
+            } else {
+                this.idle.offer(instance);
+            }
+        }
+    }
+
+    /**
+     * A pooled ActionBean together with the values its fields held when it
+     * was created. The contents of collections, maps and arrays are copied,
+     * as they may be modified in place during a request.
+     */
+    private static final class Instance {
+
+        final ActionBean bean;
+        final Field[] fields;
+        final Object[] values;
+        final Object[] contents;
+
+        Instance(ActionBean bean, Field[] fields) throws IllegalAccessException {
+            this.bean = bean;
+            this.fields = fields;
+            this.values = new Object[fields.length];
+            this.contents = new Object[fields.length];
+
+            for (int i = 0; i < fields.length; i++) {
+                Object value = fields[i].get(bean);
+                this.values[i] = value;
+                if (value instanceof Collection<?>) {
+                    this.contents[i] = new ArrayList<Object>((Collection<?>) value);
+                } else if (value instanceof Map<?, ?>) {
+                    this.contents[i] = new LinkedHashMap<Object, Object>((Map<?, ?>) value);
+                } else if (value != null && value.getClass().isArray()) {
+                    int length = Array.getLength(value);
+                    Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+                    System.arraycopy(value, 0, copy, 0, length);
+                    this.contents[i] = copy;
+                }
+            }
+        }
+
+        /**
+         * Restores every field and calls the reset hook of the bean, returning
+         * false if that could not be done.
+         */
+        @SuppressWarnings("unchecked")
+        boolean reset() {
+            try {
+                for (int i = 0; i < this.fields.length; i++) {
+                    Object value = this.values[i];
+                    if (!Modifier.isFinal(this.fields[i].getModifiers())) {
+                        this.fields[i].set(this.bean, value);
+                    }
+
+                    Object content = this.contents[i];
+                    if (value instanceof Collection<?>) {
+                        Collection<Object> collection = (Collection<Object>) value;
+                        if (!sameElements(collection, (List<Object>) content)) {
+                            collection.clear();
+                            collection.addAll((List<Object>) content);
+                        }
+                    } else if (value instanceof Map<?, ?>) {
+                        Map<Object, Object> map = (Map<Object, Object>) value;
+                        if (!map.equals(content)) {
+                            map.clear();
+                            map.putAll((Map<Object, Object>) content);
+                        }
+                    } else if (content != null) {
+                        System.arraycopy(content, 0, value, 0, Array.getLength(content));
+                    }
+                }
+                ((ResettableActionBean) this.bean).reset();
+                return true;
+            } catch (Exception e) {
+                log.warn(e, "Could not reset pooled ActionBean ", this.bean.getClass().getName(),
+                        ". The instance will be discarded.");
+                return false;
+            }
+        }
+
+        /** Returns true if the collection holds the same elements, in the same order. */
+        private static boolean sameElements(Collection<Object> collection, List<Object> elements) {
+            if (collection.size() != elements.size()) {
+                return false;
+            }
+
+            Iterator<Object> iterator = collection.iterator();
+            for (Object element : elements) {
+                Object other = iterator.next();
+                if (element == null ? other != null : !element.equals(other)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns true if the flash scope of the request, directly or from a
+     * collection or map, or the session attribute named after the binding
+     * path still refers to the bean.
+     */
+    private static boolean isReferenced(HttpServletRequest request, String bindingPath,
+            ActionBean bean) {
+        FlashScope flash = FlashScope.getCurrent(request, false);
+        if (flash != null && refersTo(flash, bean)) {
+            return true;
+        }
+
+        HttpSession session = request.getSession(false);
+        return session != null && session.getAttribute(bindingPath) == bean;
+    }
+
+    /** Returns true if the value is the bean, or a collection or map holding it. */
+    private static boolean refersTo(Object value, ActionBean bean) {
+        if (value == bean) {
+            return true;
+        }
+
+        Collection<?> elements = value instanceof Collection<?> ? (Collection<?>) value
+                : value instanceof Map<?, ?> ? ((Map<?, ?>) value).values() : null;
+        if (elements != null) {
+            for (Object element : elements) {
+                if (element == bean) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A pooled ActionBean taken by a request. Releasing the checkout removes
+     * the bean from the request attributes and returns it to its pool, unless
+     * something else still refers to it.
+     */
+    public static final class Checkout {
+
+        private final Pool pool;
+        private final HttpServletRequest request;
+        private final String bindingPath;
+        private Instance instance;
+        private boolean released;
+
+        Checkout(Pool pool, HttpServletRequest request, String bindingPath, Instance instance) {
+            this.pool = pool;
+            this.request = request;
+            this.bindingPath = bindingPath;
+            this.instance = instance;
+        }
+
+        /**
+         * Returns the pooled bean, or null if the pool was empty and no bean
+         * has been set yet.
+         * @return the pooled bean, or null
+         */
+        public ActionBean getBean() {
+            return this.instance == null ? null : this.instance.bean;
+        }
+
+        /**
+         * Sets a newly created bean, recording the values of its fields so
+         * that they can be restored when the bean is returned to the pool.
+         * @param bean the newly created bean
+         */
+        public void setBean(ActionBean bean) {
+            try {
+                this.instance = new Instance(bean, this.pool.fields);
+            } catch (IllegalAccessException e) {
+                log.warn(e, "Could not record the state of ActionBean ", bean.getClass().getName(),
+                        ". It will not be pooled.");
+                this.instance = null;
+                this.released = true;
+            }
+        }
+
+        /**
+         * Returns the binding path under which the bean is stored in the
+         * request.
+         * @return the binding path of the bean
+         */
+        public String getBindingPath() {
+            return this.bindingPath;
+        }
+
+        /**
+         * Removes the bean from the request, both under its binding path and
+         * as the ActionBean of the request, and returns it to its pool unless
+         * the flash scope of the request or the session still refers to it.
+         * Calling this method more than once has no effect.
+         */
+        public void release() {
+            if (this.released || this.instance == null) {
+                return;
+            }
+            this.released = true;
+
+            ActionBean bean = this.instance.bean;
+            if (this.request.getAttribute(this.bindingPath) == bean) {
+                this.request.removeAttribute(this.bindingPath);
+            }
+            if (this.request.getAttribute(StripesConstants.REQ_ATTR_ACTION_BEAN) == bean) {
+                this.request.removeAttribute(StripesConstants.REQ_ATTR_ACTION_BEAN);
+            }
+
+            if (isReferenced(this.request, this.bindingPath, bean)) {
+                log.debug("Pooled ActionBean ", this.bindingPath,
+                        " is still referenced and will not be returned to its pool");
+                return;
+            }
+            this.pool.offer(this.instance);
+        }
+    }
+}
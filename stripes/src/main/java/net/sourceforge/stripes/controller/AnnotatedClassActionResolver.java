@@ -18,6 +18,7 @@ import net.sourceforge.stripes.action.ActionBean;
 import net.sourceforge.stripes.action.ActionBeanContext;
 import net.sourceforge.stripes.action.DefaultHandler;
 import net.sourceforge.stripes.action.HandlesEvent;
+import net.sourceforge.stripes.action.Poolable;
 import net.sourceforge.stripes.action.SessionScope;
 import net.sourceforge.stripes.config.BootstrapPropertyResolver;
 import net.sourceforge.stripes.config.Configuration;
@@ -27,12 +28,12 @@ import net.sourceforge.stripes.exception.StripesRuntimeException;
 import net.sourceforge.stripes.exception.StripesServletException;
 import net.sourceforge.stripes.util.HttpUtil;
 import net.sourceforge.stripes.util.Log;
-import net.sourceforge.stripes.util.ResolverUtil;
 import net.sourceforge.stripes.util.StringUtil;
 
 import javax.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -93,6 +94,11 @@ public class AnnotatedClassActionResolver implements ActionResolver {
      */
     private UrlBindingFactory urlBindingFactory = new UrlBindingFactory();
 
+    /**
+     * Holds idle instances of {@link Poolable} ActionBeans.
+     */
+    private final ActionBeanPool actionBeanPool = new ActionBeanPool();
+
     /**
      * Maps action bean classes simple name to action bean class
      */
@@ -164,6 +170,17 @@ public class AnnotatedClassActionResolver implements ActionResolver {
         return urlBindingFactory;
     }
 
+    /**
+     * Get the {@link ActionBeanPool} holding idle instances of
+     * {@link Poolable} ActionBeans.
+     *
+     * @return the ActionBean pool of this resolver
+     * @since Stripes 1.7
+     */
+    public ActionBeanPool getActionBeanPool() {
+        return actionBeanPool;
+    }
+
     /**
      * Adds an ActionBean class to the set that this resolver can resolve.
      * Identifies the URL binding and the events managed by the class and stores
@@ -199,7 +216,7 @@ public class AnnotatedClassActionResolver implements ActionResolver {
             proto.initDefaultValueWithDefaultHandlerIfNeeded(this);
         }
 
-        if (log.getRealLog().isDebugEnabled()) {
+        if (log.isDebugEnabled()) {
             // Print out the event mappings nicely
             for (Map.Entry<String, Method> entry : classMappings.entrySet()) {
                 String event = entry.getKey();
@@ -385,33 +402,74 @@ public class AnnotatedClassActionResolver implements ActionResolver {
      * ActionBean binding
      */
     public ActionBean getActionBean(ActionBeanContext context, String path) throws StripesServletException {
+        ActionBean bean = findActionBean(context, path);
+        if (bean == null) {
+            throw new ActionBeanNotFoundException(path, new RegisteredBeans(getUrlBindingFactory()));
+        }
+        return bean;
+    }
+
+    /**
+     * Does the same as {@link #getActionBean(ActionBeanContext, String)}, but
+     * returns null instead of throwing an exception when no ActionBean is bound
+     * to the path supplied. This is cheaper for requests to unknown URLs (e.g.
+     * from crawlers), for which the exception and its message need never be
+     * built.
+     *
+     * @param context the current ActionBeanContext
+     * @param path a URL to which an ActionBean is bound, or a path starting
+     * with the URL to which an ActionBean has been bound.
+     * @return the ActionBean bound to the path, or null if there is none
+     * @throws StripesServletException if an ActionBean is bound to the path but
+     * cannot be supplied
+     * @since Stripes 1.7
+     */
+    public ActionBean findActionBean(ActionBeanContext context, String path) throws StripesServletException {
         Class<? extends ActionBean> beanClass = getActionBeanType(path);
         ActionBean bean;
 
         if (beanClass == null) {
-            throw new ActionBeanNotFoundException(path, getUrlBindingFactory().getPathMap());
+            return null;
         }
 
         String bindingPath = getUrlBinding(beanClass);
         try {
             HttpServletRequest request = context.getRequest();
 
-            if (beanClass.isAnnotationPresent(SessionScope.class)) {
-                bean = (ActionBean) request.getSession().getAttribute(bindingPath);
+            SessionScope sessionScope = beanClass.getAnnotation(SessionScope.class);
+            if (sessionScope != null) {
+                // The lease guards the bean against concurrent requests until this one completes
+                SessionScopeManager.Lease lease = SessionScopeManager.getInstance()
+                        .acquire(request, bindingPath, sessionScope);
+                bean = lease.getBean();
 
                 if (bean == null) {
                     bean = makeNewActionBean(beanClass, context);
-                    request.getSession().setAttribute(bindingPath, bean);
+                    lease.setBean(bean);
                 }
             } else {
                 bean = (ActionBean) request.getAttribute(bindingPath);
                 if (bean == null) {
-                    bean = makeNewActionBean(beanClass, context);
+                    // The checkout returns the bean to the pool when the request completes
+                    Poolable poolable = beanClass.getAnnotation(Poolable.class);
+                    ActionBeanPool.Checkout checkout = poolable == null ? null
+                            : this.actionBeanPool.checkout(request, bindingPath, beanClass, poolable);
+                    if (checkout == null) {
+                        bean = makeNewActionBean(beanClass, context);
+                    } else {
+                        bean = checkout.getBean();
+                        if (bean == null) {
+                            bean = makeNewActionBean(beanClass, context);
+                            checkout.setBean(bean);
+                        }
+                    }
                     request.setAttribute(bindingPath, bean);
                 }
             }
 
             setActionBeanContext(bean, context);
+        } catch (SessionScopeConflictException e) {
+            throw e;
         } catch (Exception e) {
             StripesServletException sse = new StripesServletException(
                     "Could not create instance of ActionBean type [" + beanClass.getName() + "].", e);
@@ -742,7 +800,8 @@ public class AnnotatedClassActionResolver implements ActionResolver {
 
     /**
      * Helper method to find implementations of ActionBean in the packages
-     * specified in Configuration using the {@link ResolverUtil} class.
+     * specified in Configuration using
+     * {@link BootstrapPropertyResolver#findImplementations(Class, String...)}.
      *
      * @return a set of Class objects that represent subclasses of ActionBean
      */
@@ -760,9 +819,7 @@ public class AnnotatedClassActionResolver implements ActionResolver {
         }
 
         String[] pkgs = StringUtil.standardSplit(packages);
-        ResolverUtil<ActionBean> resolver = new ResolverUtil<ActionBean>();
-        resolver.findImplementations(ActionBean.class, pkgs);
-        return resolver.getClasses();
+        return bootstrap.findImplementations(ActionBean.class, pkgs);
     }
 
     /**
@@ -776,4 +833,27 @@ public class AnnotatedClassActionResolver implements ActionResolver {
     public Class<? extends ActionBean> getActionBeanByName(String actionBeanName) {
         return actionBeansByName.get(actionBeanName);
     }
-}
\ No newline at end of file
+
+    /**
+     * A read-only view of the URL bindings of a {@link UrlBindingFactory} that
+     * only copies them when it is first read. Used to build the message of
+     * {@link ActionBeanNotFoundException}s lazily.
+     */
+    private static class RegisteredBeans extends AbstractMap<String, Class<? extends ActionBean>> {
+
+        private final UrlBindingFactory factory;
+        private Map<String, Class<? extends ActionBean>> pathMap;
+
+        RegisteredBeans(UrlBindingFactory factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Class<? extends ActionBean>>> entrySet() {
+            if (this.pathMap == null) {
+                this.pathMap = Collections.unmodifiableMap(this.factory.getPathMap());
+            }
+            return this.pathMap.entrySet();
+        }
+    }
+}
@@ -19,6 +19,8 @@ import net.sourceforge.stripes.action.ActionBeanContext;
 import net.sourceforge.stripes.action.FileBean;
 import net.sourceforge.stripes.action.Wizard;
 import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.controller.metrics.Metrics;
+import net.sourceforge.stripes.controller.metrics.MetricsSink;
 import net.sourceforge.stripes.exception.BindingDeniedException;
 import net.sourceforge.stripes.exception.StripesRuntimeException;
 import net.sourceforge.stripes.util.CollectionUtil;
@@ -26,10 +28,15 @@ import net.sourceforge.stripes.util.CryptoUtil;
 import net.sourceforge.stripes.util.HtmlUtil;
 import net.sourceforge.stripes.util.Log;
 import net.sourceforge.stripes.util.bean.BeanUtil;
+import net.sourceforge.stripes.util.bean.ExpressionDepthException;
 import net.sourceforge.stripes.util.bean.ExpressionException;
 import net.sourceforge.stripes.util.bean.NoSuchPropertyException;
+import net.sourceforge.stripes.util.bean.NodeEvaluation;
+import net.sourceforge.stripes.util.bean.NodeType;
+import net.sourceforge.stripes.util.bean.ParseException;
 import net.sourceforge.stripes.util.bean.PropertyExpression;
 import net.sourceforge.stripes.util.bean.PropertyExpressionEvaluation;
+import net.sourceforge.stripes.validation.BatchTypeConverter;
 import net.sourceforge.stripes.validation.ScopedLocalizableError;
 import net.sourceforge.stripes.validation.TypeConverter;
 import net.sourceforge.stripes.validation.TypeConverterFactory;
@@ -39,7 +46,9 @@ import net.sourceforge.stripes.validation.ValidationMetadata;
 import net.sourceforge.stripes.validation.expression.ExpressionValidator;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.lang.reflect.Array;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -50,6 +59,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -140,6 +150,7 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
         // Converted values for all fields are accumulated in this map to make post-conversion
         // validation go a little easier
         Map<ParameterName, List<Object>> allConvertedFields = new TreeMap<ParameterName, List<Object>>();
+        RequestLimits limits = RequestLimits.getInstance();
 
         // First we bind all the regular parameters
         for (Map.Entry<ParameterName, String[]> entry : parameters.entrySet()) {
@@ -156,8 +167,8 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
                     ValidationMetadata validationInfo = validationInfos.get(name.getStrippedName());
                     PropertyExpressionEvaluation eval;
                     try {
-                        eval = new PropertyExpressionEvaluation(PropertyExpression
-                                .getExpression(pname), bean);
+                        eval = new PropertyExpressionEvaluation(getExpression(pname, limits),
+                                bean);
                     } catch (Exception e) {
                         if (pname.equals(context.getEventName())) {
                             continue;
@@ -172,6 +183,7 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
                     if (!isBindingAllowed(eval)) {
                         continue;
                     }
+                    checkListIndexes(eval, limits);
 
                     if (type == null
                             && (validationInfo == null || validationInfo.converter() == null)) {
@@ -212,6 +224,8 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
                         bindNullValue(bean, name.getName(), type);
                     }
                 }
+            } catch (RequestLimitExceededException e) {
+                throw e;
             } catch (Exception e) {
                 handlePropertyBindingError(bean, name, convertedValues, e, fieldErrors);
             }
@@ -282,6 +296,46 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
         return allowed;
     }
 
+    /**
+     * Parses a request parameter name into a property expression, refusing
+     * names that are nested more deeply than the configured limit. Parsing
+     * stops as soon as the limit is passed.
+     *
+     * @param name the name of the request parameter
+     * @param limits the limits of the current request
+     * @return the parsed expression
+     * @throws ParseException if the name is not a valid expression
+     * @throws RequestLimitExceededException if the name is nested too deeply
+     */
+    protected PropertyExpression getExpression(String name, RequestLimits limits)
+            throws ParseException {
+        try {
+            return PropertyExpression.getExpression(name, limits.getMaxExpressionDepth());
+        } catch (ExpressionDepthException e) {
+            throw new RequestLimitExceededException(RequestLimits.MAX_EXPRESSION_DEPTH,
+                    e.getMaxDepth(), HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that binding the expression will not grow any List beyond the
+     * configured maximum index. Lists are grown to fit the index they are set
+     * at, so an expression like {@code items[9999999]} would otherwise
+     * allocate a list of ten million nulls.
+     *
+     * @param eval the evaluation of the expression about to be bound
+     * @param limits the limits of the current request
+     * @throws RequestLimitExceededException if an index is too large
+     */
+    protected void checkListIndexes(PropertyExpressionEvaluation eval, RequestLimits limits) {
+        for (NodeEvaluation node = eval.getRootNode(); node != null; node = node.getNext()) {
+            Object key = node.getNode().getTypedValue();
+            if (node.getType() == NodeType.ListEntry && key instanceof Integer) {
+                limits.checkListIndex((Integer) key, eval.getExpression().getSource());
+            }
+        }
+    }
+
     /**
      * Invoked whenever an exception is thrown when attempting to bind a
      * property to an ActionBean. By default logs some information about the
@@ -384,6 +438,19 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
     protected void bindNonNullValue(ActionBean bean,
             PropertyExpressionEvaluation propertyEvaluation, List<Object> valueOrValues,
             Class targetType, Class scalarType) throws Exception {
+        // Arrays converted in one go can be bound as they are if the types match, and
+        // primitive properties can be set from their first element without boxing
+        if (valueOrValues instanceof ArrayValues) {
+            Object array = ((ArrayValues) valueOrValues).array;
+            Class<?> componentType = array.getClass().getComponentType();
+            if (targetType.isArray() && targetType.getComponentType() == componentType) {
+                propertyEvaluation.setValue(array);
+                return;
+            } else if (targetType == componentType && bindPrimitive(propertyEvaluation, array)) {
+                return;
+            }
+        }
+
         Class valueType = valueOrValues.iterator().next().getClass();
 
         // If the target type is an array, set it as one, otherwise set as scalar
@@ -411,6 +478,28 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
         }
     }
 
+    /**
+     * Sets a primitive property to the first element of an array of the same
+     * primitive type, without boxing it.
+     *
+     * @return false if the array is not an int[], long[], double[] or boolean[]
+     */
+    private static boolean bindPrimitive(PropertyExpressionEvaluation propertyEvaluation,
+            Object array) throws Exception {
+        if (array instanceof int[]) {
+            propertyEvaluation.setInt(((int[]) array)[0]);
+        } else if (array instanceof long[]) {
+            propertyEvaluation.setLong(((long[]) array)[0]);
+        } else if (array instanceof double[]) {
+            propertyEvaluation.setDouble(((double[]) array)[0]);
+        } else if (array instanceof boolean[]) {
+            propertyEvaluation.setBoolean(((boolean[]) array)[0]);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Internal helper method that determines what to do when no value was
      * supplied for a given form field (but the field was present on the page).
@@ -440,13 +529,27 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
      */
     @SuppressWarnings("unchecked")
     protected SortedMap<ParameterName, String[]> getParameters(ActionBean bean) {
-        Map<String, String[]> requestParameters = bean.getContext().getRequest().getParameterMap();
+        HttpServletRequest request = bean.getContext().getRequest();
         Map<String, ValidationMetadata> validations = StripesFilter.getConfiguration()
                 .getValidationMetadataProvider().getValidationMetadata(bean.getClass());
-        SortedMap<ParameterName, String[]> parameters = new TreeMap<ParameterName, String[]>();
 
+        // Use the request's parameter index unless something between us and the Stripes
+        // wrapper has changed the parameters
+        Map<String, String[]> requestParameters = request.getParameterMap();
+        StripesRequestWrapper wrapper = StripesRequestWrapper.findStripesWrapper(request);
+        if (requestParameters == wrapper.getParameterMap()) {
+            TreeMap<ParameterName, String[]> parameters = new TreeMap<ParameterName, String[]>(
+                    wrapper.getParameterIndex().getSortedParameters());
+            for (Map.Entry<ParameterName, String[]> entry : parameters.entrySet()) {
+                ValidationMetadata validation = validations.get(entry.getKey().getStrippedName());
+                entry.setValue(trim(entry.getValue(), validation));
+            }
+            return parameters;
+        }
+
+        SortedMap<ParameterName, String[]> parameters = new TreeMap<ParameterName, String[]>();
         for (Map.Entry<String, String[]> entry : requestParameters.entrySet()) {
-            ParameterName paramName = new ParameterName(entry.getKey().trim());
+            ParameterName paramName = ParameterIndex.getParameterName(entry.getKey().trim());
             ValidationMetadata validation = validations.get(paramName.getStrippedName());
             parameters.put(paramName, trim(entry.getValue(), validation));
         }
@@ -518,7 +621,8 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
                         String[] values = trim(request.getParameterValues(propertyName), validationInfo);
 
                         // Decrypt encrypted fields before checking for null
-                        if (validationInfo.encrypted()) {
+                        if (validationInfo.encrypted() && values != null) {
+                            values = values.clone();
                             for (int i = 0, n = values.length; i < n; i++) {
                                 if (values[i] != null) {
                                     values[i] = CryptoUtil.decrypt(values[i]);
@@ -827,9 +931,23 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
             returnType = scalarType;
         }
 
-        log.debug("Converting ", values.length, " value(s) using ", (converter != null
-                ? "converter " + converter.getClass().getName()
-                : "Constructor(String) if available"));
+        if (log.isDebugEnabled()) {
+            log.debug("Converting ", values.length, " value(s) using ", (converter != null
+                    ? "converter " + converter.getClass().getName()
+                    : "Constructor(String) if available"));
+        }
+
+        // Values bound into arrays, collections and primitive properties are converted in one
+        // go, and without boxing, if possible
+        if (converter instanceof BatchTypeConverter && returnType == scalarType
+                && (declaredType.isArray() || declaredType.isPrimitive()
+                || Collection.class.isAssignableFrom(declaredType))) {
+            List<Object> converted = convertAll(propertyName, values, (BatchTypeConverter<?>) converter,
+                    returnType, validationInfo, errors);
+            if (converted != null) {
+                return converted;
+            }
+        }
 
         for (String value : values) {
             if (validationInfo != null && validationInfo.encrypted()) {
@@ -837,6 +955,7 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
             }
 
             if (value != null && value.length() > 0) {
+                int errorCount = errors.size();
                 try {
                     Object retval = null;
                     if (converter != null) {
@@ -863,8 +982,13 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
                         error.setFieldName(propertyName.getStrippedName());
                         error.setFieldValue(value);
                     }
+
+                    if (errors.size() > errorCount) {
+                        recordConverterFailure(returnType, converter);
+                    }
                 } catch (Exception e) {
                     log.warn(e, "Looks like type converter ", converter, " threw an exception.");
+                    recordConverterFailure(returnType, converter);
                 }
             }
         }
@@ -872,6 +996,51 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
         return returns;
     }
 
+    /**
+     * Converts all the values of a parameter with a single call to a
+     * {@link BatchTypeConverter}, returning a list backed by the primitive
+     * array it produces. Returns null if the converter fails, in which case the
+     * values are converted one at a time instead.
+     */
+    private List<Object> convertAll(ParameterName propertyName, String[] values,
+            BatchTypeConverter<?> converter, Class<?> returnType,
+            ValidationMetadata validationInfo, List<ValidationError> errors) {
+        if (validationInfo != null && validationInfo.encrypted()) {
+            String[] decrypted = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                decrypted[i] = CryptoUtil.decrypt(values[i]);
+            }
+            values = decrypted;
+        }
+
+        int errorCount = errors.size();
+        Object array;
+        try {
+            array = converter.convertAll(values, errors);
+        } catch (Exception e) {
+            log.warn(e, "Looks like type converter ", converter, " threw an exception.");
+            errors.subList(errorCount, errors.size()).clear();
+            return null;
+        }
+
+        for (int i = errorCount; i < errors.size(); i++) {
+            errors.get(i).setFieldName(propertyName.getStrippedName());
+            recordConverterFailure(returnType, converter);
+        }
+
+        return new ArrayValues(array);
+    }
+
+    /**
+     * Reports a failed conversion to the metrics sink, if there is one.
+     */
+    private void recordConverterFailure(Class<?> type, TypeConverter<?> converter) {
+        MetricsSink metrics = Metrics.getSink(this.configuration);
+        if (metrics != null) {
+            metrics.converterFailed(type, converter == null ? null : converter.getClass());
+        }
+    }
+
     /**
      * Inspects the given {@link ValidationMetadata} object to determine if the
      * given {@code values} should be trimmed. If so, then the trimmed values
@@ -887,13 +1056,19 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
      */
     protected String[] trim(String[] values, ValidationMetadata meta) {
         if (values != null && values.length > 0 && (meta == null || meta.trim())) {
-            String[] copy = new String[values.length];
+            String[] copy = null;
             for (int i = 0; i < values.length; i++) {
                 if (values[i] != null) {
-                    copy[i] = values[i].trim();
+                    String trimmed = values[i].trim();
+                    if (copy == null && trimmed != values[i]) {
+                        copy = values.clone();
+                    }
+                    if (copy != null) {
+                        copy[i] = trimmed;
+                    }
                 }
             }
-            return copy;
+            return copy == null ? values : copy;
         } else {
             return values;
         }
@@ -938,4 +1113,30 @@ public class DefaultActionBeanPropertyBinder implements ActionBeanPropertyBinder
             return this.hasNonEmptyValues;
         }
     }
+
+    /**
+     * A read-only List view of an array produced by a {@link BatchTypeConverter}.
+     * Values are boxed only when they are read, which bindNonNullValue avoids
+     * altogether for array properties of the same primitive type.
+     */
+    private static final class ArrayValues extends AbstractList<Object> implements RandomAccess {
+
+        private final Object array;
+        private final int size;
+
+        ArrayValues(Object array) {
+            this.array = array;
+            this.size = Array.getLength(array);
+        }
+
+        @Override
+        public Object get(int index) {
+            return Array.get(this.array, index);
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+    }
 }
@@ -14,6 +14,10 @@
  */
 package net.sourceforge.stripes.controller;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.lang.annotation.Annotation;
 
 import net.sourceforge.stripes.action.*;
@@ -38,7 +42,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -221,9 +224,11 @@ public class DispatcherHelper {
                     }
                 }
 
-                log.debug("Resolved event: ", context.getEventName(), "; will invoke: ",
-                        bean.getClass().getSimpleName(), ".", handler.getName(), "() with ",
-                        "request method [", context.getRequest().getMethod(), "]");
+                if (log.isDebugEnabled()) {
+                    log.debug("Resolved event: ", context.getEventName(), "; will invoke: ",
+                            bean.getClass().getSimpleName(), ".", handler.getName(), "() with ",
+                            "request method [", context.getRequest().getMethod(), "]");
+                }
 
                 ctx.setHandler(handler);
                 return null;
@@ -465,52 +470,11 @@ public class DispatcherHelper {
                 if (validationErrors != null && !validationErrors.isEmpty()) {
                     log.debug("(", ctx.getActionBean().getClass(), ") Found validation errors : ", ctx.getLifecycleStage().name());
 
-                    Map< Object, Object> jsonErrorMap = new HashMap< Object, Object>();
-
-                    // First, append the global errors -- if any
-                    List< String> jsonGlobalErrors = new ArrayList< String>();
-
-                    if (!validationErrors.hasFieldErrors()) {
-                        List< ValidationError> globalErrors = validationErrors.get(ValidationErrors.GLOBAL_ERROR);
-
-                        for (ValidationError validationError : globalErrors) {
-                            jsonGlobalErrors.add(validationError.getMessage(Locale.getDefault()));
-                        }
-
-                    }
-
-                    jsonErrorMap.put("globalErrors", jsonGlobalErrors);
-
-                    ArrayList< Map< String, Object>> allFieldErrors = new ArrayList< Map< String, Object>>();
-
-                    // Next, append the field errors -- if any
-                    if (validationErrors.hasFieldErrors()) {
-                        for (String fieldName : validationErrors.keySet()) {
-                            if (!fieldName.equals(ValidationErrors.GLOBAL_ERROR)) {
-                                List< ValidationError> fieldValidationErrors = validationErrors.get(fieldName);
-                                Map< String, Object> fieldErrors = new HashMap< String, Object>();
-                                fieldErrors.put("fieldName", fieldName);
-                                fieldErrors.put("fieldValue", fieldValidationErrors.get(0).getFieldValue());
-
-                                List< String> fieldErrorMessages = new ArrayList< String>();
-                                for (ValidationError validationError : fieldValidationErrors) {
-                                    fieldErrorMessages.add(validationError.getMessage(Locale.getDefault()));
-                                }
-
-                                fieldErrors.put("errorMessages", fieldErrorMessages);
-
-                                allFieldErrors.add(fieldErrors);
-                            }
-                        }
-
-                        jsonErrorMap.put("fieldErrors", allFieldErrors);
-                    }
-
-                    JsonBuilder jsonBuilder = new JsonBuilder(jsonErrorMap);
+                    String json = buildValidationErrorsJson(validationErrors, Locale.getDefault());
 
                     log.debug("(", ctx.getActionBean().getClass(), ") Returning validation error resolution : ", ctx.getLifecycleStage().name());
 
-                    return new ErrorResolution(HttpServletResponse.SC_BAD_REQUEST, jsonBuilder.build());
+                    return new ErrorResolution(HttpServletResponse.SC_BAD_REQUEST, json);
                 }
             } else {
 
@@ -656,9 +620,12 @@ public class DispatcherHelper {
                             throw new StripesServletException(msg);
                         }
                     } else {
-                        log.debug("Invoking the handler method [" + handler.getName() + "] in ActionBean ["
-                                + bean.getClass().getName() + "] for eventName ["
-                                + ctx.getActionBeanContext().getEventName() + "] with request method [" + requestMethod + "]");
+                        if (log.isDebugEnabled()) {
+                            log.debug("Invoking the handler method [", handler.getName(), "] in ActionBean [",
+                                    bean.getClass().getName(), "] for eventName [",
+                                    ctx.getActionBeanContext().getEventName(), "] with request method [",
+                                    requestMethod, "]");
+                        }
                     }
                 }
 
@@ -740,31 +707,91 @@ public class DispatcherHelper {
     }
 
     /**
-     * Log validation errors at DEBUG to help during development.
+     * Writes the validation errors of a RestActionBean as JSON. Field errors
+     * are reported when present, otherwise the global errors are. The JSON is
+     * streamed straight from the errors, so no intermediate maps are built, and
+     * messages are localized through {@link ValidationErrors#getMessage} so
+     * that templates shared by many errors are only resolved once.
      *
-     * @param context Action bean context object.
+     * @param errors the validation errors to report
+     * @param locale the locale to render messages in
+     * @return the JSON document
+     * @throws IOException if the JSON cannot be generated
      */
-    public static final void logValidationErrors(ActionBeanContext context) {
-        StringBuilder buf = new StringBuilder("The following validation errors need to be fixed:");
-
-        for (List<ValidationError> list : context.getValidationErrors().values()) {
-            for (ValidationError error : list) {
-                String fieldName = error.getFieldName();
-                if (ValidationErrors.GLOBAL_ERROR.equals(fieldName)) {
-                    fieldName = "GLOBAL";
+    static String buildValidationErrorsJson(ValidationErrors errors, Locale locale) throws IOException {
+        StringWriter out = new StringWriter(256);
+        JsonGenerator json = new JsonFactory().createJsonGenerator(out);
+        json.writeStartObject();
+
+        json.writeArrayFieldStart("globalErrors");
+        if (!errors.hasFieldErrors()) {
+            List<ValidationError> globalErrors = errors.get(ValidationErrors.GLOBAL_ERROR);
+            if (globalErrors != null) {
+                for (ValidationError error : globalErrors) {
+                    json.writeString(errors.getMessage(error, locale));
                 }
+            }
+        }
+        json.writeEndArray();
 
-                String message;
-                try {
-                    message = error.getMessage(Locale.getDefault());
-                } catch (MissingResourceException e) {
-                    message = "(missing resource)";
+        if (errors.hasFieldErrors()) {
+            json.writeArrayFieldStart("fieldErrors");
+            for (Map.Entry<String, List<ValidationError>> entry : errors.entrySet()) {
+                List<ValidationError> fieldErrors = entry.getValue();
+                if (ValidationErrors.GLOBAL_ERROR.equals(entry.getKey()) || fieldErrors.isEmpty()) {
+                    continue;
                 }
 
-                buf.append("\n    -> [").append(fieldName).append("] ").append(message);
+                json.writeStartObject();
+                json.writeStringField("fieldName", entry.getKey());
+                json.writeStringField("fieldValue", fieldErrors.get(0).getFieldValue());
+                json.writeArrayFieldStart("errorMessages");
+                for (ValidationError error : fieldErrors) {
+                    json.writeString(errors.getMessage(error, locale));
+                }
+                json.writeEndArray();
+                json.writeEndObject();
             }
+            json.writeEndArray();
         }
 
-        log.debug(buf);
+        json.writeEndObject();
+        json.close();
+        return out.toString();
+    }
+
+    /**
+     * Log validation errors at DEBUG to help during development.
+     *
+     * @param context Action bean context object.
+     */
+    public static final void logValidationErrors(final ActionBeanContext context) {
+        // Localizing every message is expensive, so it is only done if the message will be logged
+        log.debug(new Log.MessageSupplier() {
+            public Object get() {
+                StringBuilder buf = new StringBuilder("The following validation errors need to be fixed:");
+
+                ValidationErrors errors = context.getValidationErrors();
+                for (List<ValidationError> list : errors.values()) {
+                    for (ValidationError error : list) {
+                        String fieldName = error.getFieldName();
+                        if (ValidationErrors.GLOBAL_ERROR.equals(fieldName)) {
+                            fieldName = "GLOBAL";
+                        }
+
+                        String message;
+                        try {
+                            message = errors.getMessage(error, Locale.getDefault());
+                        } catch (MissingResourceException e) {
+                            message = "(missing resource)";
+                        }
+
+                        buf.append("\n    -> [").append(fieldName).append("] ").append(message);
+                    }
+                }
+
+                return buf;
+            }
+        });
     }
 }
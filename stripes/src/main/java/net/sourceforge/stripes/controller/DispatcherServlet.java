@@ -32,6 +32,7 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.jsp.JspFactory;
 import javax.servlet.jsp.PageContext;
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
 import java.util.Stack;
 
 /**
@@ -102,12 +103,16 @@ public class DispatcherServlet extends HttpServlet {
         ///////////////////////////////////////////////////////////////////////
         // Here beings the real processing of the request!
         ///////////////////////////////////////////////////////////////////////
-        log.trace("Dispatching request to URL: ", HttpUtil.getRequestedPath(request));
+        if (log.isTraceEnabled()) {
+            log.trace("Dispatching request to URL: ", HttpUtil.getRequestedPath(request));
+        }
 
         PageContext pageContext = null;
         final ExecutionContext ctx = new ExecutionContext();
 
         boolean async = false;
+        final int leaseMark = SessionScopeManager.getLeaseCount(request);
+        final int checkoutMark = ActionBeanPool.getCheckoutCount(request);
 
         try {
             final Configuration config = StripesFilter.getConfiguration();
@@ -189,6 +194,10 @@ public class DispatcherServlet extends HttpServlet {
                     async = true;
                     final PageContext pc = pageContext;
                     final AsyncResponse asyncResponse = (AsyncResponse) resolution;
+                    final List<SessionScopeManager.Lease> leases
+                            = SessionScopeManager.detachLeases(request, leaseMark);
+                    final List<ActionBeanPool.Checkout> checkouts
+                            = ActionBeanPool.detachCheckouts(request, checkoutMark);
                     asyncResponse.setCleanupCallback(new Runnable() {
                         @Override
                         public void run() {
@@ -198,9 +207,14 @@ public class DispatcherServlet extends HttpServlet {
                                 DispatcherHelper.setPageContext(null);
                             }
                             requestComplete(ctx);
+                            SessionScopeManager.releaseLeases(leases);
+                            ActionBeanPool.releaseCheckouts(checkouts);
                             restoreActionBean(request);
                         }
                     });
+                } else {
+                    // Session scope beans are not locked while the view renders
+                    SessionScopeManager.releaseLeases(request, leaseMark);
                 }
                 executeResolution(ctx, resolution);
             }
@@ -226,6 +240,8 @@ public class DispatcherServlet extends HttpServlet {
                     DispatcherHelper.setPageContext(null);
                 }
                 requestComplete(ctx);
+                SessionScopeManager.releaseLeases(request, leaseMark);
+                ActionBeanPool.releaseCheckouts(request, checkoutMark);
                 restoreActionBean(request);
             }
         }
@@ -14,15 +14,34 @@
  */
 package net.sourceforge.stripes.controller;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.servlet.http.HttpSession;
 
 import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.ActionBeanContext;
 import net.sourceforge.stripes.action.HttpCache;
 import net.sourceforge.stripes.action.Resolution;
+import net.sourceforge.stripes.config.ConfigurableComponent;
+import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.controller.HttpResponseCache.CachedResponse;
+import net.sourceforge.stripes.controller.HttpResponseCache.Header;
+import net.sourceforge.stripes.util.HttpUtil;
 import net.sourceforge.stripes.util.Log;
 
 /**
@@ -31,11 +50,24 @@ import net.sourceforge.stripes.util.Log;
  * {@link HttpCache} is found, then the appropriate response headers are set to
  * control client-side caching.
  *
+ * <p>
+ * If the annotation enables server-side caching ({@link HttpCache#server()}),
+ * successful responses to GET requests are captured as they are rendered and
+ * stored in the {@link HttpResponseCache}. Subsequent matching requests are
+ * answered from the cache as soon as the handler has been resolved, before
+ * binding and validation, with a 304 if the client already holds the response
+ * and with the stored response otherwise. Because a cached response is served
+ * before later interceptors run, it is only ever served to the user and
+ * session it was rendered for: the remote user and the session id are part of
+ * the cache key. Responses that set cookies, create a session, send errors or
+ * redirects, or are larger than {@link HttpResponseCache#getMaxEntrySize()}
+ * are never cached.</p>
+ *
  * @author Ben Gunter
  * @since Stripes 1.5
  */
-@Intercepts(LifecycleStage.ResolutionExecution)
-public class HttpCacheInterceptor implements Interceptor {
+@Intercepts({LifecycleStage.HandlerResolution, LifecycleStage.ResolutionExecution})
+public class HttpCacheInterceptor implements Interceptor, ConfigurableComponent {
 
     private static final Log logger = Log.getInstance(HttpCacheInterceptor.class);
 
@@ -81,7 +113,34 @@ public class HttpCacheInterceptor implements Interceptor {
      */
     private static final HttpCache NULL_CACHE = CacheKey.class.getAnnotation(HttpCache.class);
 
+    private HttpResponseCache responseCache;
+
+    /**
+     * Looks up the {@link HttpResponseCache} of the configuration once, so
+     * that responses are cached in it without a lookup on every request.
+     *
+     * @param configuration the Stripes configuration
+     */
+    public void init(Configuration configuration) throws Exception {
+        this.responseCache = HttpResponseCache.getInstance(configuration);
+    }
+
+    /**
+     * Returns the response cache of the configuration this interceptor belongs
+     * to, or of the current configuration if it was never initialized.
+     *
+     * @return the response cache
+     */
+    protected HttpResponseCache getResponseCache() {
+        return responseCache != null ? responseCache : HttpResponseCache.getInstance();
+    }
+
     public Resolution intercept(ExecutionContext ctx) throws Exception {
+        if (ctx.getLifecycleStage() == LifecycleStage.HandlerResolution) {
+            Resolution resolution = ctx.proceed();
+            return resolution != null ? resolution : getCachedResolution(ctx);
+        }
+
         final ActionBean actionBean = ctx.getActionBean();
         final Method handler = ctx.getHandler();
         if (actionBean != null && handler != null) {
@@ -105,12 +164,394 @@ public class HttpCacheInterceptor implements Interceptor {
                     response.setHeader("Cache-control", "no-store, no-cache, must-revalidate");
                     response.setHeader("Pragma", "no-cache");
                 }
+
+                if (isServerCacheable(ctx, annotation)) {
+                    if (annotation.vary().length > 0) {
+                        response.setHeader("Vary", join(annotation.vary()));
+                    }
+                    if (ctx.isResolutionFromHandler()
+                            && !(ctx.getResolution() instanceof AsyncResponse)) {
+                        return executeAndCache(ctx, annotation);
+                    }
+                }
             }
         }
 
         return ctx.proceed();
     }
 
+    /**
+     * Returns true if the annotation allows caching, enables server-side
+     * caching and the request is a GET.
+     */
+    protected boolean isServerCacheable(ExecutionContext ctx, HttpCache annotation) {
+        return annotation != null && annotation.allow() && annotation.server()
+                && "GET".equals(ctx.getActionBeanContext().getRequest().getMethod());
+    }
+
+    /**
+     * Called once the handler has been resolved. If a fresh response for the
+     * request is in the {@link HttpResponseCache}, returns a resolution that
+     * answers with a 304 or replays the cached response, so that binding,
+     * validation and the handler are skipped.
+     *
+     * @param ctx the current execution context
+     * @return a resolution serving the cached response, or null
+     */
+    protected Resolution getCachedResolution(ExecutionContext ctx) {
+        final ActionBean actionBean = ctx.getActionBean();
+        final Method handler = ctx.getHandler();
+        if (actionBean == null || handler == null) {
+            return null;
+        }
+
+        final HttpCache annotation = getAnnotation(handler, actionBean.getClass());
+        if (!isServerCacheable(ctx, annotation)) {
+            return null;
+        }
+
+        final CachedResponse cached = getResponseCache().get(
+                getCacheKey(ctx, annotation));
+        if (cached == null) {
+            return null;
+        }
+
+        logger.debug("Serving ", actionBean.getClass().getSimpleName(), ".",
+                handler.getName(), "() from the server-side cache");
+        return new Resolution() {
+            public void execute(HttpServletRequest request, HttpServletResponse response)
+                    throws Exception {
+                if (isNotModified(request, cached)) {
+                    cached.writeNotModified(response);
+                } else {
+                    cached.writeTo(response);
+                }
+            }
+        };
+    }
+
+    /**
+     * Executes the resolution with the response captured, stores the response
+     * in the {@link HttpResponseCache} if it is cacheable, and then sends it
+     * (or a 304 if the client already holds it).
+     */
+    private Resolution executeAndCache(ExecutionContext ctx, HttpCache annotation)
+            throws Exception {
+        final ActionBeanContext abc = ctx.getActionBeanContext();
+        final HttpServletRequest request = abc.getRequest();
+        final HttpServletResponse response = abc.getResponse();
+        final HttpResponseCache cache = getResponseCache();
+        final String key = getCacheKey(ctx, annotation);
+        final boolean hadSession = request.getSession(false) != null;
+
+        CapturingResponse capture = new CapturingResponse(response, cache.getMaxEntrySize());
+        abc.setResponse(capture);
+        Resolution resolution;
+        try {
+            resolution = ctx.proceed();
+        } finally {
+            abc.setResponse(response);
+        }
+
+        byte[] body = capture.getBody();
+        if (body == null) {
+            return resolution;
+        }
+
+        // A session created while rendering means the response may hold state of that session
+        if (capture.isCacheable() && (hadSession || request.getSession(false) == null)) {
+            long ttl = annotation.expires() > 0 ? annotation.expires() * 1000L
+                    : cache.getDefaultTtl();
+            CachedResponse cached = new CachedResponse(ctx.getActionBean().getClass(),
+                    abc.getEventName(), HttpServletResponse.SC_OK, capture.getContentType(),
+                    capture.getHeaders(), body, ttl);
+            cache.put(key, cached);
+            logger.debug("Cached response of ", cached.getSize(), " bytes for ",
+                    cached.getBeanClass().getSimpleName(), ".", ctx.getHandler().getName(), "()");
+
+            if (isNotModified(request, cached)) {
+                cached.writeNotModified(response);
+                return resolution;
+            }
+            response.setHeader("ETag", cached.getETag());
+            response.setDateHeader("Last-Modified", cached.getLastModified());
+        }
+
+        response.getOutputStream().write(body);
+        return resolution;
+    }
+
+    /**
+     * Returns true if the conditional headers of the request match the cached
+     * response.
+     */
+    private boolean isNotModified(HttpServletRequest request, CachedResponse cached) {
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            ifModifiedSince = -1;
+        }
+        return cached.isNotModified(request.getHeader("If-None-Match"), ifModifiedSince);
+    }
+
+    /**
+     * Builds the key under which the response to the current request is
+     * cached: the ActionBean class and handler, the requested path, the remote
+     * user, the session id, the request parameters, the locale and the values
+     * of the headers listed in {@link HttpCache#vary()}.
+     *
+     * @param ctx the current execution context
+     * @param annotation the annotation that enabled server-side caching
+     * @return the cache key
+     */
+    protected String getCacheKey(ExecutionContext ctx, HttpCache annotation) {
+        HttpServletRequest request = ctx.getActionBeanContext().getRequest();
+        StringBuilder key = new StringBuilder(128);
+        key.append(ctx.getActionBean().getClass().getName()).append('.')
+                .append(ctx.getHandler().getName()).append('|')
+                .append(HttpUtil.getRequestedPath(request)).append('|')
+                .append(ctx.getActionBeanContext().getLocale());
+
+        HttpSession session = request.getSession(false);
+        appendKeyPart(key.append("|u"), request.getRemoteUser());
+        appendKeyPart(key.append("|s"), session == null ? null : session.getId());
+
+        Map<String, String[]> parameters = new TreeMap<String, String[]>(
+                request.getParameterMap());
+        for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
+            // _sourcePage and friends change on every request without changing the response
+            if (StripesConstants.SPECIAL_URL_KEYS.contains(entry.getKey())) {
+                continue;
+            }
+            appendKeyPart(key.append("|p"), entry.getKey());
+            for (String value : entry.getValue()) {
+                appendKeyPart(key, value);
+            }
+        }
+        for (String header : annotation.vary()) {
+            appendKeyPart(key.append("|h"), header);
+            appendKeyPart(key, request.getHeader(header));
+        }
+
+        return key.toString();
+    }
+
+    /** Appends a length-prefixed part so that different requests cannot share a key. */
+    private static void appendKeyPart(StringBuilder key, String part) {
+        if (part == null) {
+            key.append("-1:");
+        } else {
+            key.append(part.length()).append(':').append(part);
+        }
+    }
+
+    private static String join(String[] values) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(", ");
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Response wrapper that passes status and headers through to the wrapped
+     * response, recording the headers, and buffers the body so that it can be
+     * cached. If the body grows beyond the size limit, or the response sets a
+     * cookie, sends an error or redirects, it becomes uncacheable; oversized
+     * bodies are then written straight through.
+     */
+    private static class CapturingResponse extends HttpServletResponseWrapper {
+
+        private final int maxSize;
+        private final List<Header> headers = new ArrayList<Header>();
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private ServletOutputStream out;
+        private PrintWriter writer;
+        private boolean cacheable = true;
+        private boolean passThrough;
+
+        CapturingResponse(HttpServletResponse response, int maxSize) {
+            super(response);
+            this.maxSize = maxSize;
+        }
+
+        boolean isCacheable() {
+            return cacheable && !passThrough;
+        }
+
+        List<Header> getHeaders() {
+            return headers;
+        }
+
+        /** Returns the buffered body, or null if it was written through. */
+        byte[] getBody() {
+            if (writer != null) {
+                writer.flush();
+            }
+            return passThrough ? null : buffer.toByteArray();
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            if (!passThrough && buffer.size() + len > maxSize) {
+                passThrough = true;
+                getResponse().getOutputStream().write(buffer.toByteArray());
+                buffer = null;
+            }
+            if (passThrough) {
+                getResponse().getOutputStream().write(b, off, len);
+            } else {
+                buffer.write(b, off, len);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (out == null) {
+                out = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        CapturingResponse.this.write(new byte[]{(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        CapturingResponse.this.write(b, off, len);
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                    }
+                };
+            }
+            return out;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(),
+                        getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (passThrough) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (!passThrough) {
+                buffer.reset();
+            }
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            headers.clear();
+            if (!passThrough) {
+                buffer.reset();
+            }
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            super.setStatus(sc);
+            cacheable &= sc == HttpServletResponse.SC_OK;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void setStatus(int sc, String sm) {
+            super.setStatus(sc, sm);
+            cacheable &= sc == HttpServletResponse.SC_OK;
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            cacheable = false;
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            cacheable = false;
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            cacheable = false;
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            cacheable = false;
+            super.addCookie(cookie);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            record(name, value, false);
+            super.setHeader(name, value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            record(name, value, true);
+            super.addHeader(name, value);
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+            record(name, date, false);
+            super.setDateHeader(name, date);
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+            record(name, date, true);
+            super.addDateHeader(name, date);
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            record(name, String.valueOf(value), false);
+            super.setIntHeader(name, value);
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            record(name, String.valueOf(value), true);
+            super.addIntHeader(name, value);
+        }
+
+        private void record(String name, Object value, boolean add) {
+            if ("Set-Cookie".equalsIgnoreCase(name)) {
+                cacheable = false;
+            }
+            headers.add(new Header(name, value, add));
+        }
+    }
+
     /**
      * Look for a {@link HttpCache} annotation on the method first and then on
      * the class and its superclasses.
@@ -0,0 +1,558 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.http.HttpServletResponse;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.HttpCache;
+import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.exception.StripesRuntimeException;
+import net.sourceforge.stripes.util.Log;
+
+/**
+ * <p>
+ * Bounded in-memory cache of fully rendered responses for events annotated
+ * with {@code @HttpCache(server=true)}. Entries are stored and served by the
+ * {@link HttpCacheInterceptor}; ActionBeans use this class to evict responses
+ * that have become stale, for example after handling a write:</p>
+ *
+ * <pre>
+ * HttpResponseCache.getInstance().invalidate(ProductActionBean.class);
+ * </pre>
+ *
+ * <p>
+ * Each {@link Configuration} has its own cache. The cache holds at most
+ * {@value #DEFAULT_MAX_ENTRIES} responses of at most
+ * {@value #DEFAULT_MAX_ENTRY_SIZE} bytes each, and at most
+ * {@value #DEFAULT_MAX_SIZE} bytes of response bodies in total, evicting
+ * expired and then the least recently used responses once it is full.
+ * Responses whose event does not declare {@link HttpCache#expires()} stay
+ * cached for {@value #DEFAULT_TTL} seconds. The limits can be changed with the
+ * {@value #MAX_ENTRIES}, {@value #MAX_ENTRY_SIZE}, {@value #MAX_SIZE} and
+ * {@value #TTL} configuration properties.</p>
+ *
+ * @see HttpCache#server()
+ * @since Stripes 1.7
+ */
+public class HttpResponseCache {
+
+    private static final Log log = Log.getInstance(HttpResponseCache.class);
+
+    /** Configuration key for the maximum number of cached responses. */
+    public static final String MAX_ENTRIES = "HttpCache.MaxEntries";
+
+    /** Configuration key for the maximum size, in bytes, of a cached response body. */
+    public static final String MAX_ENTRY_SIZE = "HttpCache.MaxEntrySize";
+
+    /** Configuration key for the maximum size, in bytes, of all cached response bodies. */
+    public static final String MAX_SIZE = "HttpCache.MaxSize";
+
+    /** Configuration key for the number of seconds a response is cached by default. */
+    public static final String TTL = "HttpCache.DefaultTtl";
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final int DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_SIZE = 32 * 1024 * 1024;
+    public static final int DEFAULT_TTL = 60;
+
+    /** The cache of each configuration, dropped along with the configuration. */
+    private static final Map<Configuration, HttpResponseCache> instances
+            = new WeakHashMap<Configuration, HttpResponseCache>();
+
+    /** The cache used when there is no configuration. */
+    private static HttpResponseCache unconfigured;
+
+    /**
+     * A response header recorded while the response was rendered. The value is
+     * a Long for date headers and a String otherwise.
+     */
+    static final class Header {
+
+        final String name;
+        final Object value;
+        final boolean add;
+
+        Header(String name, Object value, boolean add) {
+            this.name = name;
+            this.value = value;
+            this.add = add;
+        }
+    }
+
+    /**
+     * A fully rendered response: its status, content type, headers and body,
+     * together with the validators (ETag and Last-Modified) sent with it.
+     */
+    public static class CachedResponse {
+
+        private final Class<? extends ActionBean> beanClass;
+        private final String eventName;
+        private final int status;
+        private final String contentType;
+        private final List<Header> headers;
+        private final byte[] body;
+        private final String etag;
+        private final long lastModified;
+        private final long expiresAt;
+        private volatile long lastAccess;
+
+        CachedResponse(Class<? extends ActionBean> beanClass, String eventName, int status,
+                String contentType, List<Header> headers, byte[] body, long ttlMillis) {
+            this.beanClass = beanClass;
+            this.eventName = eventName;
+            this.status = status;
+            this.contentType = contentType;
+            this.headers = new ArrayList<Header>(headers);
+            this.body = body;
+            this.etag = generateETag(body);
+            this.lastModified = System.currentTimeMillis() / 1000 * 1000;
+            this.expiresAt = this.lastModified + Math.max(ttlMillis, 0);
+        }
+
+        /** Returns the ActionBean class that rendered the response. */
+        public Class<? extends ActionBean> getBeanClass() {
+            return beanClass;
+        }
+
+        /** Returns the name of the event that rendered the response. */
+        public String getEventName() {
+            return eventName;
+        }
+
+        /** Returns the strong ETag of the response, including quotes. */
+        public String getETag() {
+            return etag;
+        }
+
+        /** Returns the time the response was rendered, to the second. */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /** Returns the size of the response body in bytes. */
+        public int getSize() {
+            return body.length;
+        }
+
+        /**
+         * Returns true if the response has not yet expired.
+         * @param now the current time in milliseconds
+         */
+        public boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+
+        /**
+         * Returns true if a client holding the values of the supplied
+         * If-None-Match and If-Modified-Since headers has this response already.
+         * If-Modified-Since is only consulted when If-None-Match is absent.
+         *
+         * @param ifNoneMatch the If-None-Match header, or null
+         * @param ifModifiedSince the If-Modified-Since date, or -1
+         */
+        public boolean isNotModified(String ifNoneMatch, long ifModifiedSince) {
+            if (ifNoneMatch != null) {
+                for (String tag : ifNoneMatch.split(",")) {
+                    tag = tag.trim();
+                    if (tag.startsWith("W/")) {
+                        tag = tag.substring(2);
+                    }
+                    if ("*".equals(tag) || etag.equals(tag)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+        }
+
+        /**
+         * Sends the validators of this response and a 304 status, without a body.
+         * @param response the response to write to
+         */
+        public void writeNotModified(HttpServletResponse response) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            writeValidators(response);
+        }
+
+        /**
+         * Replays this response: status, content type, headers and body.
+         * @param response the response to write to
+         * @throws IOException if the body cannot be written
+         */
+        public void writeTo(HttpServletResponse response) throws IOException {
+            response.setStatus(status);
+            if (contentType != null) {
+                response.setContentType(contentType);
+            }
+            for (Header header : headers) {
+                if (header.value instanceof Long) {
+                    if (header.add) {
+                        response.addDateHeader(header.name, (Long) header.value);
+                    } else {
+                        response.setDateHeader(header.name, (Long) header.value);
+                    }
+                } else if (header.add) {
+                    response.addHeader(header.name, String.valueOf(header.value));
+                } else {
+                    response.setHeader(header.name, String.valueOf(header.value));
+                }
+            }
+            writeValidators(response);
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+
+        private void writeValidators(HttpServletResponse response) {
+            response.setHeader("ETag", etag);
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+    }
+
+    /**
+     * A cached response considered for eviction, with its last access time
+     * fixed so that it sorts consistently while other threads use the cache.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        final String key;
+        final CachedResponse response;
+        final long lastAccess;
+
+        Candidate(String key, CachedResponse response) {
+            this.key = key;
+            this.response = response;
+            this.lastAccess = response.lastAccess;
+        }
+
+        public int compareTo(Candidate that) {
+            return lastAccess < that.lastAccess ? -1 : (lastAccess == that.lastAccess ? 0 : 1);
+        }
+    }
+
+    private final int maxEntries;
+    private final int maxEntrySize;
+    private final long maxSize;
+    private final long defaultTtl;
+    private final ConcurrentMap<String, CachedResponse> entries
+            = new ConcurrentHashMap<String, CachedResponse>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /** The size, in bytes, of all cached response bodies. */
+    private final AtomicLong totalSize = new AtomicLong();
+
+    /** Orders accesses to cached responses, for least recently used eviction. */
+    private final AtomicLong accesses = new AtomicLong();
+
+    /**
+     * Returns the cache of the current {@link StripesFilter} configuration.
+     *
+     * @return the response cache
+     */
+    public static HttpResponseCache getInstance() {
+        return getInstance(StripesFilter.getConfiguration());
+    }
+
+    /**
+     * Returns the cache of the given configuration, creating it from the
+     * configuration's properties on first use.
+     *
+     * @param configuration the configuration, or null for a cache with the
+     * default limits
+     * @return the response cache
+     */
+    public static synchronized HttpResponseCache getInstance(Configuration configuration) {
+        HttpResponseCache cache = configuration == null ? unconfigured
+                : instances.get(configuration);
+        if (cache == null) {
+            cache = new HttpResponseCache(
+                    getProperty(configuration, MAX_ENTRIES, DEFAULT_MAX_ENTRIES),
+                    getProperty(configuration, MAX_ENTRY_SIZE, DEFAULT_MAX_ENTRY_SIZE),
+                    getProperty(configuration, TTL, DEFAULT_TTL),
+                    getProperty(configuration, MAX_SIZE, DEFAULT_MAX_SIZE));
+            if (configuration == null) {
+                unconfigured = cache;
+            } else {
+                instances.put(configuration, cache);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Creates a cache with the given bounds and the default time to live.
+     *
+     * @param maxEntries the maximum number of responses to hold
+     * @param maxEntrySize the maximum size of a response body in bytes
+     */
+    public HttpResponseCache(int maxEntries, int maxEntrySize) {
+        this(maxEntries, maxEntrySize, DEFAULT_TTL);
+    }
+
+    /**
+     * Creates a cache with the given bounds.
+     *
+     * @param maxEntries the maximum number of responses to hold
+     * @param maxEntrySize the maximum size of a response body in bytes
+     * @param defaultTtl the number of seconds a response is cached when its
+     * event does not declare {@link HttpCache#expires()}
+     */
+    public HttpResponseCache(int maxEntries, int maxEntrySize, int defaultTtl) {
+        this(maxEntries, maxEntrySize, defaultTtl, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache with the given bounds.
+     *
+     * @param maxEntries the maximum number of responses to hold
+     * @param maxEntrySize the maximum size of a response body in bytes
+     * @param defaultTtl the number of seconds a response is cached when its
+     * event does not declare {@link HttpCache#expires()}
+     * @param maxSize the maximum size of all response bodies together in bytes
+     */
+    public HttpResponseCache(int maxEntries, int maxEntrySize, int defaultTtl, long maxSize) {
+        this.maxEntries = maxEntries;
+        this.maxEntrySize = maxEntrySize;
+        this.defaultTtl = defaultTtl * 1000L;
+        this.maxSize = maxSize;
+    }
+
+    private static int getProperty(Configuration configuration, String key, int defaultValue) {
+        String value = configuration == null || configuration.getBootstrapPropertyResolver() == null
+                ? null : configuration.getBootstrapPropertyResolver().getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            int number = Integer.parseInt(value.trim());
+            if (number <= 0) {
+                throw new NumberFormatException();
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            log.error("Did not understand value of configuration parameter ", key,
+                    " You supplied: ", value, ". Default value of ", defaultValue,
+                    " will be used instead.");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns the maximum size, in bytes, of a response body that will be cached.
+     * @return the maximum body size in bytes
+     */
+    public int getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * Returns the maximum size, in bytes, of all cached response bodies together.
+     * @return the maximum total size in bytes
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of milliseconds a response is cached when its event
+     * does not declare {@link HttpCache#expires()}.
+     * @return the default time to live in milliseconds
+     */
+    public long getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    /**
+     * Returns the fresh response cached under the key, or null if there is none.
+     *
+     * @param key the key built from the request
+     * @return the cached response or null
+     */
+    public CachedResponse get(String key) {
+        CachedResponse response = entries.get(key);
+        if (response != null) {
+            long now = System.currentTimeMillis();
+            if (response.isFresh(now)) {
+                response.lastAccess = accesses.incrementAndGet();
+            } else {
+                remove(key, response);
+                response = null;
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Stores a response under the key, replacing any previous response. If
+     * the cache is then over one of its limits, expired responses and then the
+     * least recently used ones are evicted.
+     *
+     * @param key the key built from the request
+     * @param response the rendered response
+     */
+    public void put(String key, CachedResponse response) {
+        response.lastAccess = accesses.incrementAndGet();
+        totalSize.addAndGet(response.getSize());
+        CachedResponse previous = entries.put(key, response);
+        if (previous != null) {
+            totalSize.addAndGet(-previous.getSize());
+        }
+        if (entries.size() > maxEntries || totalSize.get() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the response cached under the key if it is still the one given,
+     * keeping the total size in step.
+     */
+    private boolean remove(String key, CachedResponse response) {
+        if (entries.remove(key, response)) {
+            totalSize.addAndGet(-response.getSize());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Evicts expired responses and, if that is not enough, the least recently
+     * used responses until the cache is a tenth below the limit it exceeded.
+     * Only one thread evicts at a time; others carry on without waiting.
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            List<Candidate> live = new ArrayList<Candidate>(entries.size());
+            for (Map.Entry<String, CachedResponse> entry : entries.entrySet()) {
+                if (entry.getValue().isFresh(now)) {
+                    live.add(new Candidate(entry.getKey(), entry.getValue()));
+                } else {
+                    remove(entry.getKey(), entry.getValue());
+                }
+            }
+
+            int target = maxEntries - maxEntries / 10;
+            long targetSize = maxSize - maxSize / 10;
+            if (entries.size() > target || totalSize.get() > targetSize) {
+                Collections.sort(live);
+                for (Iterator<Candidate> i = live.iterator(); i.hasNext()
+                        && (entries.size() > target || totalSize.get() > targetSize);) {
+                    Candidate candidate = i.next();
+                    remove(candidate.key, candidate.response);
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Evicts all responses rendered by the given ActionBean class.
+     *
+     * @param beanClass the ActionBean class whose responses are stale
+     * @return the number of responses evicted
+     */
+    public int invalidate(Class<? extends ActionBean> beanClass) {
+        return invalidate(beanClass, null);
+    }
+
+    /**
+     * Evicts all responses rendered by the given event of the given ActionBean
+     * class.
+     *
+     * @param beanClass the ActionBean class whose responses are stale
+     * @param eventName the event whose responses are stale, or null for all
+     * events
+     * @return the number of responses evicted
+     */
+    public int invalidate(Class<? extends ActionBean> beanClass, String eventName) {
+        int count = 0;
+        for (Map.Entry<String, CachedResponse> entry : entries.entrySet()) {
+            CachedResponse response = entry.getValue();
+            if (response.beanClass == beanClass
+                    && (eventName == null || eventName.equals(response.eventName))
+                    && remove(entry.getKey(), response)) {
+                ++count;
+            }
+        }
+        log.debug("Evicted ", count, " cached response(s) of ", beanClass.getSimpleName(),
+                eventName == null ? "" : "." + eventName);
+        return count;
+    }
+
+    /**
+     * Evicts all cached responses.
+     */
+    public void invalidateAll() {
+        for (Map.Entry<String, CachedResponse> entry : entries.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the number of cached responses.
+     * @return the number of cached responses
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the size, in bytes, of all cached response bodies together.
+     * @return the total size in bytes
+     */
+    public long getTotalSize() {
+        return totalSize.get();
+    }
+
+    /**
+     * Generates a strong ETag from the digest of a response body.
+     *
+     * @param body the response body
+     * @return the quoted ETag
+     */
+    public static String generateETag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(body);
+            StringBuilder etag = new StringBuilder(digest.length * 2 + 2).append('"');
+            for (byte b : digest) {
+                etag.append(Character.forDigit((b >> 4) & 0xf, 16))
+                        .append(Character.forDigit(b & 0xf, 16));
+            }
+            return etag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new StripesRuntimeException("MD5 is not available", e);
+        }
+    }
+}
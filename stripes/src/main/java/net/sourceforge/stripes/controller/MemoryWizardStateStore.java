@@ -0,0 +1,345 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.util.Log;
+
+/**
+ * <p>
+ * A {@link WizardStateStore} that keeps wizard state in memory, in a bounded
+ * LRU map whose entries expire a fixed time after they were saved. Each state
+ * belongs to the
+ * session of the request that saved it, and is only loaded for requests in
+ * the same session. The session is recognized by a random token stored in
+ * it rather than by its id, so that states survive a change of session id
+ * such as the one made on login. The bounds are read from the following
+ * configuration properties:</p>
+ *
+ * <ul>
+ * <li>{@value #MAX_ENTRIES} - the maximum number of states held (default
+ * {@value #DEFAULT_MAX_ENTRIES})</li>
+ * <li>{@value #MAX_ENTRIES_PER_SESSION} - the maximum number of states held
+ * for one session; saving another drops the oldest (default
+ * {@value #DEFAULT_MAX_ENTRIES_PER_SESSION})</li>
+ * <li>{@value #MAX_ENTRY_SIZE} - the maximum total length, in characters, of
+ * the names and values of one state; larger states are not stored and the
+ * parameters are carried in the page instead (default
+ * {@value #DEFAULT_MAX_ENTRY_SIZE})</li>
+ * <li>{@value #TIME_TO_LIVE} - the number of seconds a state is kept (default
+ * {@value #DEFAULT_TIME_TO_LIVE})</li>
+ * </ul>
+ *
+ * <p>
+ * State is not shared between servers, so a cluster using this store needs
+ * sticky sessions.</p>
+ *
+ * @since Stripes 1.7
+ */
+public class MemoryWizardStateStore implements WizardStateStore {
+
+    private static final Log log = Log.getInstance(MemoryWizardStateStore.class);
+
+    /** The configuration key for the maximum number of states held. */
+    public static final String MAX_ENTRIES = "WizardStateStore.MaxEntries";
+
+    /** The configuration key for the maximum number of states held per session. */
+    public static final String MAX_ENTRIES_PER_SESSION = "WizardStateStore.MaxEntriesPerSession";
+
+    /** The configuration key for the maximum size of a state, in characters. */
+    public static final String MAX_ENTRY_SIZE = "WizardStateStore.MaxEntrySize";
+
+    /** The configuration key for the number of seconds a state is kept. */
+    public static final String TIME_TO_LIVE = "WizardStateStore.TimeToLive";
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    public static final int DEFAULT_MAX_ENTRIES_PER_SESSION = 20;
+    public static final int DEFAULT_MAX_ENTRY_SIZE = 64 * 1024;
+    public static final int DEFAULT_TIME_TO_LIVE = 30 * 60;
+
+    /** The name of the session attribute holding the token that owns the states of the session. */
+    static final String OWNER_ATTRIBUTE = MemoryWizardStateStore.class.getName() + ".owner";
+
+    private final SecureRandom random = new SecureRandom();
+    private Map<String, State> entries;
+    private ArrayDeque<State> byExpiry;
+    private Map<String, ArrayDeque<String>> keysByOwner;
+    private int maxEntriesPerSession;
+    private int maxEntrySize;
+    private long timeToLive;
+
+    /**
+     * A saved set of parameters, its key, the owner token of the session it
+     * belongs to and the time at which it expires.
+     */
+    private static final class State {
+
+        final String key;
+        final Map<String, String[]> parameters;
+        final String owner;
+        final long expires;
+
+        State(String key, Map<String, String[]> parameters, String owner, long expires) {
+            this.key = key;
+            this.parameters = parameters;
+            this.owner = owner;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Reads the bounds of the store from the configuration.
+     *
+     * @param configuration the Configuration object being used by Stripes
+     */
+    public void init(Configuration configuration) throws Exception {
+        init(getProperty(configuration, MAX_ENTRIES, DEFAULT_MAX_ENTRIES),
+                getProperty(configuration, MAX_ENTRIES_PER_SESSION, DEFAULT_MAX_ENTRIES_PER_SESSION),
+                getProperty(configuration, MAX_ENTRY_SIZE, DEFAULT_MAX_ENTRY_SIZE),
+                getProperty(configuration, TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE));
+    }
+
+    /**
+     * Sets the bounds of the store, discarding any state it holds. The bounds
+     * per session and per state are the defaults.
+     *
+     * @param maxEntries the maximum number of states held
+     * @param timeToLiveSeconds the number of seconds a state is kept
+     */
+    public void init(int maxEntries, int timeToLiveSeconds) {
+        init(maxEntries, DEFAULT_MAX_ENTRIES_PER_SESSION, DEFAULT_MAX_ENTRY_SIZE, timeToLiveSeconds);
+    }
+
+    /**
+     * Sets the bounds of the store, discarding any state it holds.
+     *
+     * @param maxEntries the maximum number of states held
+     * @param maxEntriesPerSession the maximum number of states held for one
+     * session
+     * @param maxEntrySize the maximum total length of the names and values of
+     * one state
+     * @param timeToLiveSeconds the number of seconds a state is kept
+     */
+    public synchronized void init(final int maxEntries, int maxEntriesPerSession, int maxEntrySize,
+            int timeToLiveSeconds) {
+        this.maxEntriesPerSession = maxEntriesPerSession;
+        this.maxEntrySize = maxEntrySize;
+        this.timeToLive = timeToLiveSeconds * 1000L;
+        this.keysByOwner = new HashMap<String, ArrayDeque<String>>();
+        this.byExpiry = new ArrayDeque<State>();
+        this.entries = new LinkedHashMap<String, State>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, State> eldest) {
+                if (size() > maxEntries) {
+                    forget(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static int getProperty(Configuration configuration, String key, int defaultValue) {
+        String value = configuration == null ? null
+                : configuration.getBootstrapPropertyResolver().getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.error("Did not understand value of configuration parameter ", key,
+                    " You supplied: ", value, ". Default value of ", defaultValue,
+                    " will be used instead.");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Stores a copy of the parameters under a new random key, for the session
+     * of the request. If the session already holds the maximum number of
+     * states its oldest state is dropped.
+     *
+     * @param request the current request
+     * @param parameters the parameter names and values to store
+     * @return the key under which the parameters can be loaded, or null if the
+     * request has no session or the parameters are too large to store
+     */
+    public String save(HttpServletRequest request, Map<String, String[]> parameters) {
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return null;
+        }
+
+        int size = 0;
+        Map<String, String[]> copy = new LinkedHashMap<String, String[]>();
+        for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
+            size += entry.getKey().length();
+            for (String value : entry.getValue()) {
+                size += value == null ? 0 : value.length();
+            }
+            copy.put(entry.getKey(), entry.getValue().clone());
+        }
+        if (size > this.maxEntrySize) {
+            log.debug("Wizard state of ", size, " characters exceeds ", MAX_ENTRY_SIZE, " of ",
+                    this.maxEntrySize, " and will be carried in the page.");
+            return null;
+        }
+
+        String owner = getOwner(session, true);
+        String key = randomToken();
+        long now = System.currentTimeMillis();
+        State state = new State(key, Collections.unmodifiableMap(copy), owner, now + this.timeToLive);
+        synchronized (this) {
+            sweep(now);
+
+            ArrayDeque<String> keys = this.keysByOwner.get(owner);
+            if (keys == null) {
+                keys = new ArrayDeque<String>();
+                this.keysByOwner.put(owner, keys);
+            }
+            while (!keys.isEmpty() && keys.size() >= this.maxEntriesPerSession) {
+                this.entries.remove(keys.removeFirst());
+            }
+            keys.addLast(key);
+            this.entries.put(key, state);
+            this.byExpiry.addLast(state);
+        }
+        return key;
+    }
+
+    /**
+     * Drops the states that have expired. States are queued in the order they
+     * were saved, which is the order in which they expire, so only the expired
+     * ones are visited; the queue is compacted when it holds many states that
+     * were already dropped for other reasons. Must be called while holding the
+     * lock on the store.
+     */
+    private void sweep(long now) {
+        while (!this.byExpiry.isEmpty() && this.byExpiry.peekFirst().expires < now) {
+            State state = this.byExpiry.removeFirst();
+            if (this.entries.containsKey(state.key)) {
+                forget(state.key, state);
+                this.entries.remove(state.key);
+            }
+        }
+
+        if (this.byExpiry.size() > 2 * this.entries.size() + 16) {
+            for (Iterator<State> i = this.byExpiry.iterator(); i.hasNext();) {
+                if (!this.entries.containsKey(i.next().key)) {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the token that owns the states of the session, creating it if
+     * asked to and the session does not have one yet.
+     */
+    private String getOwner(HttpSession session, boolean create) {
+        String owner = (String) session.getAttribute(OWNER_ATTRIBUTE);
+        if (owner == null && create) {
+            synchronized (session) {
+                owner = (String) session.getAttribute(OWNER_ATTRIBUTE);
+                if (owner == null) {
+                    owner = randomToken();
+                    session.setAttribute(OWNER_ATTRIBUTE, owner);
+                }
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * Returns 128 random bits as a hex string.
+     */
+    private String randomToken() {
+        byte[] bytes = new byte[16];
+        this.random.nextBytes(bytes);
+        StringBuilder token = new StringBuilder(32);
+        for (byte b : bytes) {
+            token.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return token.toString();
+    }
+
+    /**
+     * Loads the parameters stored under the given key, provided they were
+     * saved in the session of the request. The arrays in the map returned are
+     * shared, and must not be modified.
+     *
+     * @param request the current request
+     * @param key a key previously returned by {@link #save(HttpServletRequest, Map)}
+     * @return the parameters, or null if the key is unknown, has expired or
+     * belongs to another session
+     */
+    public Map<String, String[]> load(HttpServletRequest request, String key) {
+        HttpSession session = request.getSession(false);
+        State state;
+        synchronized (this) {
+            state = this.entries.get(key);
+            if (state != null && state.expires < System.currentTimeMillis()) {
+                forget(key, state);
+                this.entries.remove(key);
+                state = null;
+            }
+        }
+
+        if (state != null && (session == null || !state.owner.equals(getOwner(session, false)))) {
+            log.warn("Wizard state ", key, " was requested outside the session that saved it.");
+            return null;
+        }
+        return state == null ? null : state.parameters;
+    }
+
+    /**
+     * Removes the key of a state that is being dropped from the keys of its
+     * owner. Must be called while holding the lock on the store.
+     */
+    private void forget(String key, State state) {
+        ArrayDeque<String> keys = this.keysByOwner.get(state.owner);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                this.keysByOwner.remove(state.owner);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of states held, including any that have expired but
+     * not yet been removed.
+     *
+     * @return the number of states held
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+}
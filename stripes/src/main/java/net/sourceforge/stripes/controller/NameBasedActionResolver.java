@@ -29,6 +29,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <p>
@@ -135,6 +137,34 @@ public class NameBasedActionResolver extends AnnotatedClassActionResolver {
      */
     private static final Log log = Log.getInstance(NameBasedActionResolver.class);
 
+    /**
+     * Configuration property setting the number of URLs for which the outcome
+     * of {@link #findView(String)} is remembered. Zero disables the cache.
+     */
+    public static final String VIEW_CACHE_SIZE = "ActionResolver.ViewCacheSize";
+
+    /**
+     * Default number of URLs for which the outcome of {@link #findView(String)}
+     * is remembered.
+     */
+    public static final int DEFAULT_VIEW_CACHE_SIZE = 1000;
+
+    /**
+     * Marks URLs for which no view was found in the view cache.
+     */
+    private static final String NO_VIEW = new String("");
+
+    /**
+     * URL bindings mapped to the view found for them, or NO_VIEW. Null if
+     * disabled.
+     */
+    private ConcurrentMap<String, String> viewCache;
+
+    /**
+     * The number of URL bindings the view cache holds before it is emptied.
+     */
+    private int viewCacheSize;
+
     /**
      * First invokes the parent classes init() method and then quietly adds a
      * specialized ActionBean to the set of ActionBeans the resolver is
@@ -148,6 +178,32 @@ public class NameBasedActionResolver extends AnnotatedClassActionResolver {
     public void init(Configuration configuration) throws Exception {
         super.init(configuration);
         addActionBean(DefaultViewActionBean.class);
+
+        this.viewCacheSize = getViewCacheSize(configuration);
+        if (this.viewCacheSize > 0) {
+            this.viewCache = new ConcurrentHashMap<String, String>();
+        }
+    }
+
+    /**
+     * Returns the maximum number of URLs for which the outcome of
+     * {@link #findView(String)} is remembered.
+     */
+    private static int getViewCacheSize(Configuration configuration) {
+        String value = configuration == null ? null
+                : configuration.getBootstrapPropertyResolver().getProperty(VIEW_CACHE_SIZE);
+        if (value == null) {
+            return DEFAULT_VIEW_CACHE_SIZE;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.error("Did not understand value of configuration parameter ", VIEW_CACHE_SIZE,
+                    " You supplied: ", value, ". Default value of ", DEFAULT_VIEW_CACHE_SIZE,
+                    " will be used instead.");
+            return DEFAULT_VIEW_CACHE_SIZE;
+        }
     }
 
     /**
@@ -302,35 +358,48 @@ public class NameBasedActionResolver extends AnnotatedClassActionResolver {
 
     /**
      * <p>
-     * Overridden to trap the exception that is thrown when a URL cannot be
-     * mapped to an ActionBean and then attempt to construct a dummy ActionBean
-     * that will forward the user to an appropriate view. In an exception is
-     * caught then the method
-     * {@link #handleActionBeanNotFound(ActionBeanContext, String)} is invoked
-     * to handle the exception.</p>
+     * Overridden to attempt to construct a dummy ActionBean that will forward
+     * the user to an appropriate view when a URL cannot be mapped to an
+     * ActionBean, or when the ActionBean cannot be supplied. In either case
+     * the method {@link #handleActionBeanNotFound(ActionBeanContext, String)}
+     * is invoked to find the view.</p>
      *
      * @param context the ActionBeanContext of the current request
      * @param urlBinding the urlBinding determined for the current request
      * @return an ActionBean if there is an appropriate way to handle the
-     * request
-     * @throws StripesServletException if no ActionBean or alternate strategy
-     * can be found
+     * request, or null if there is none
+     * @throws StripesServletException if an ActionBean bound to the URL cannot
+     * be supplied and no alternate strategy can be found
      */
     @Override
-    public ActionBean getActionBean(ActionBeanContext context,
+    public ActionBean findActionBean(ActionBeanContext context,
             String urlBinding) throws StripesServletException {
+        ActionBean bean;
         try {
-            return super.getActionBean(context, urlBinding);
+            bean = super.findActionBean(context, urlBinding);
         } catch (StripesServletException sse) {
-            ActionBean bean = handleActionBeanNotFound(context, urlBinding);
-            if (bean != null) {
-                setActionBeanContext(bean, context);
-                assertGetContextWorks(bean);
-                return bean;
-            } else {
+            bean = findDefaultViewActionBean(context, urlBinding);
+            if (bean == null) {
                 throw sse;
             }
+            return bean;
+        }
+
+        return bean != null ? bean : findDefaultViewActionBean(context, urlBinding);
+    }
+
+    /**
+     * Calls {@link #handleActionBeanNotFound(ActionBeanContext, String)} and
+     * prepares the bean it returns, if any.
+     */
+    private ActionBean findDefaultViewActionBean(ActionBeanContext context, String urlBinding)
+            throws StripesServletException {
+        ActionBean bean = handleActionBeanNotFound(context, urlBinding);
+        if (bean != null) {
+            setActionBeanContext(bean, context);
+            assertGetContextWorks(bean);
         }
+        return bean;
     }
 
     /**
@@ -377,27 +446,52 @@ public class NameBasedActionResolver extends AnnotatedClassActionResolver {
      * existence of views prior to manufacturing a resolution in order not to
      * cause confusion when URLs are mistyped.</p>
      *
+     * <p>
+     * The outcome of the search, whether a view was found or not, is
+     * remembered for up to {@value #DEFAULT_VIEW_CACHE_SIZE} URLs (or the
+     * number configured with {@value #VIEW_CACHE_SIZE}), so that repeated
+     * requests to the same URL do not probe the servlet context again. URLs
+     * come from clients and are unbounded, so once the cache is full it is
+     * emptied and starts over rather than tracking which URLs were used last.
+     * Nothing is remembered in debug mode, so that views added while
+     * developing are found straight away.</p>
+     *
      * @param urlBinding the url being accessed by the client in the current
      * request
      * @return a Resolution if a default view can be found, or null otherwise
      * @since Stripes 1.3
      */
     protected Resolution findView(String urlBinding) {
-        List<String> attempts = getFindViewAttempts(urlBinding);
-
-        ServletContext ctx = StripesFilter.getConfiguration()
-                .getBootstrapPropertyResolver().getFilterConfig().getServletContext();
+        Configuration configuration = StripesFilter.getConfiguration();
+        ConcurrentMap<String, String> cache = configuration.isDebugMode() ? null : this.viewCache;
+
+        String view = cache == null ? null : cache.get(urlBinding);
+
+        if (view == null) {
+            view = NO_VIEW;
+            ServletContext ctx = configuration.getBootstrapPropertyResolver()
+                    .getFilterConfig().getServletContext();
+
+            for (String jsp : getFindViewAttempts(urlBinding)) {
+                try {
+                    // This will try /account/ViewAccount.jsp
+                    if (ctx.getResource(jsp) != null) {
+                        view = jsp;
+                        break;
+                    }
+                } catch (MalformedURLException mue) {
+                }
+            }
 
-        for (String jsp : attempts) {
-            try {
-                // This will try /account/ViewAccount.jsp
-                if (ctx.getResource(jsp) != null) {
-                    return new ForwardResolution(jsp);
+            if (cache != null) {
+                if (cache.size() >= this.viewCacheSize) {
+                    cache.clear();
                 }
-            } catch (MalformedURLException mue) {
+                cache.put(urlBinding, view);
             }
         }
-        return null;
+
+        return view == NO_VIEW ? null : new ForwardResolution(view);
     }
 
     /**
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Immutable index of the parameters of a request, built once from the request
+ * parameters and the parameters that Stripes adds to them (URI parameters from
+ * clean URLs and parameters parsed out of multipart or JSON bodies). The index
+ * offers the merged parameters both by name, in the order in which they were
+ * found, and as a map keyed by {@link ParameterName} sorted in binding order.
+ * The {@link StripesRequestWrapper} serves its parameter map from it and the
+ * {@link DefaultActionBeanPropertyBinder} binds from it.</p>
+ *
+ * <p>
+ * {@link ParameterName}s are shared between requests so that the
+ * indexed/stripped form of a name is computed only once rather than once per
+ * request. The shared names are bounded, and are all dropped when the bound is
+ * reached, so that requests with random parameter names can neither fill the
+ * heap nor keep the names of real forms from being shared.</p>
+ *
+ * @since Stripes 1.7
+ */
+public final class ParameterIndex {
+
+    /**
+     * The maximum number of distinct parameter names that will be shared
+     * between requests. When it is reached the shared names are cleared, and
+     * the names in use are shared again as requests arrive.
+     */
+    static final int MAX_SHARED_NAMES = 10000;
+
+    private static final ConcurrentMap<String, ParameterName> sharedNames
+            = new ConcurrentHashMap<String, ParameterName>();
+
+    private final Map<String, String[]> source;
+    private final int sourceSize;
+    private final Map<String, String[]> parameters;
+    private volatile SortedMap<ParameterName, String[]> sortedParameters;
+
+    /**
+     * Returns a ParameterName for the name supplied, sharing instances between
+     * requests where possible.
+     *
+     * @param name a parameter name as it appears in the request
+     * @return the ParameterName for it
+     */
+    public static ParameterName getParameterName(String name) {
+        ParameterName parameterName = sharedNames.get(name);
+        if (parameterName == null) {
+            parameterName = new ParameterName(name);
+            if (sharedNames.size() >= MAX_SHARED_NAMES) {
+                sharedNames.clear();
+            }
+            ParameterName existing = sharedNames.putIfAbsent(name, parameterName);
+            if (existing != null) {
+                parameterName = existing;
+            }
+        }
+        return parameterName;
+    }
+
+    /**
+     * Builds an index over the merged parameters. Values of a name found in
+     * both maps are merged with the Stripes values first, followed by the
+     * request values.
+     *
+     * @param stripesParameters parameters supplied by Stripes (URI and body
+     * parameters), may be null
+     * @param requestParameters the parameters of the underlying request, may be
+     * null
+     */
+    public ParameterIndex(Map<String, String[]> stripesParameters, Map<String, String[]> requestParameters) {
+        this.source = requestParameters;
+        this.sourceSize = requestParameters == null ? 0 : requestParameters.size();
+
+        int size = this.sourceSize + (stripesParameters == null ? 0 : stripesParameters.size());
+        if (size == 0) {
+            this.parameters = Collections.emptyMap();
+            return;
+        }
+
+        Map<String, String[]> merged = new LinkedHashMap<String, String[]>(size * 4 / 3 + 1);
+        if (stripesParameters != null) {
+            for (Map.Entry<String, String[]> entry : stripesParameters.entrySet()) {
+                String[] values = requestParameters == null ? null : requestParameters.get(entry.getKey());
+                merged.put(entry.getKey(), merge(values, entry.getValue()));
+            }
+        }
+        if (requestParameters != null) {
+            for (Map.Entry<String, String[]> entry : requestParameters.entrySet()) {
+                if (!merged.containsKey(entry.getKey())) {
+                    merged.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        this.parameters = Collections.unmodifiableMap(merged);
+    }
+
+    /**
+     * Returns true if this index was built from the request parameter map
+     * supplied, and so is still current. Request parameters can change, for
+     * example on a forward with a query string, in which case the container
+     * supplies a different map.
+     *
+     * @param requestParameters the current parameter map of the request
+     * @return true if the index reflects those parameters
+     */
+    public boolean isBuiltFrom(Map<String, String[]> requestParameters) {
+        return requestParameters == this.source
+                && (requestParameters == null || requestParameters.size() == this.sourceSize);
+    }
+
+    /**
+     * Returns the values of the named parameter, or null if it is absent.
+     *
+     * @param name the parameter name
+     * @return the values or null
+     */
+    public String[] get(String name) {
+        return this.parameters.get(name);
+    }
+
+    /**
+     * Returns an unmodifiable map of all parameters in the order in which they
+     * were found.
+     *
+     * @return the merged parameters
+     */
+    public Map<String, String[]> getParameters() {
+        return this.parameters;
+    }
+
+    /**
+     * Returns an unmodifiable map of all parameters keyed by ParameterName, in
+     * the order of {@link ParameterName#compareTo(ParameterName)} (shorter
+     * names first). Parameter names are trimmed. The map is built on first use.
+     *
+     * @return the merged parameters in binding order
+     */
+    public SortedMap<ParameterName, String[]> getSortedParameters() {
+        SortedMap<ParameterName, String[]> sorted = this.sortedParameters;
+        if (sorted == null) {
+            TreeMap<ParameterName, String[]> map = new TreeMap<ParameterName, String[]>();
+            for (Map.Entry<String, String[]> entry : this.parameters.entrySet()) {
+                map.put(getParameterName(entry.getKey().trim()), entry.getValue());
+            }
+            this.sortedParameters = sorted = Collections.unmodifiableSortedMap(map);
+        }
+        return sorted;
+    }
+
+    /**
+     * Merges request and Stripes supplied values, either of which may be null.
+     */
+    static String[] merge(String[] requestValues, String[] stripesValues) {
+        if (requestValues == null || requestValues.length == 0) {
+            if (stripesValues == null || stripesValues.length == 0) {
+                return null;
+            } else {
+                return stripesValues;
+            }
+        } else if (stripesValues == null || stripesValues.length == 0) {
+            return requestValues;
+        } else {
+            String[] merged = new String[stripesValues.length + requestValues.length];
+            System.arraycopy(stripesValues, 0, merged, 0, stripesValues.length);
+            System.arraycopy(requestValues, 0, merged, stripesValues.length, requestValues.length);
+            return merged;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder("{ ");
+        for (Map.Entry<String, String[]> entry : this.parameters.entrySet()) {
+            if (buf.length() > 2) {
+                buf.append(", ");
+            }
+            buf.append(entry.getKey()).append('=').append(Arrays.toString(entry.getValue()));
+        }
+        return buf.append(" }").toString();
+    }
+}
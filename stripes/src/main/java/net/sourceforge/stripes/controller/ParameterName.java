@@ -55,8 +55,10 @@ public class ParameterName implements Comparable<ParameterName> {
      */
     public ParameterName(String name) {
         this.name = name;
-        Matcher matcher = pattern.matcher(this.name);
-        this.indexed = matcher.find();
+
+        // Only names containing a bracket can be indexed, so skip the regex for the rest
+        Matcher matcher = name.indexOf('[') < 0 ? null : pattern.matcher(this.name);
+        this.indexed = matcher != null && matcher.find();
 
         if (this.indexed) {
             this.strippedName = matcher.replaceAll("");
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import javax.servlet.http.HttpServletResponse;
+import net.sourceforge.stripes.exception.StripesRuntimeException;
+
+/**
+ * Exception that is thrown when a request breaches one of the limits described
+ * by {@link RequestLimits}, for example when it carries too many parameters or
+ * a JSON body that is too large. The exception carries the HTTP status code
+ * that should be sent to the client: 413 (Request Entity Too Large) for
+ * breaches of size limits and 400 (Bad Request) for malformed parameter names.
+ *
+ * @since Stripes 1.7
+ */
+public class RequestLimitExceededException extends StripesRuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String limit;
+    private final long maximum;
+    private final int status;
+
+    /**
+     * Constructs a new exception for the limit that was breached.
+     *
+     * @param limit the configuration key of the limit that was breached
+     * @param maximum the configured value of the limit
+     * @param status the HTTP status code to send to the client
+     * @param detail a short description of what breached the limit
+     */
+    public RequestLimitExceededException(String limit, long maximum, int status, String detail) {
+        super("Request limit " + limit + " exceeded. Limit: " + maximum + ". " + detail);
+        this.limit = limit;
+        this.maximum = maximum;
+        this.status = status;
+    }
+
+    /**
+     * Gets the configuration key of the limit that was breached.
+     *
+     * @return one of the keys defined in {@link RequestLimits}
+     */
+    public String getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the configured value of the limit that was breached.
+     *
+     * @return the value of the limit
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Gets the HTTP status code that should be sent to the client, either
+     * {@link HttpServletResponse#SC_REQUEST_ENTITY_TOO_LARGE} or
+     * {@link HttpServletResponse#SC_BAD_REQUEST}.
+     *
+     * @return the HTTP status code
+     */
+    public int getStatus() {
+        return status;
+    }
+}
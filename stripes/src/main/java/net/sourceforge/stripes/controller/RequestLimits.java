@@ -0,0 +1,270 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import javax.servlet.http.HttpServletResponse;
+import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.util.Log;
+
+/**
+ * <p>
+ * Holds the limits that Stripes applies to incoming requests so that abusive
+ * requests cannot cause unbounded memory or CPU usage while their parameters
+ * are parsed and bound. The limits are read from the bootstrap properties of
+ * the {@link Configuration} using the following keys, with suggested values
+ * in brackets:</p>
+ *
+ * <ul>
+ * <li>{@value #MAX_PARAMETERS} - the maximum number of distinct request
+ * parameters (10000)</li>
+ * <li>{@value #MAX_EXPRESSION_DEPTH} - the maximum number of nodes in a
+ * parameter name such as {@code a.b[0].c} (32)</li>
+ * <li>{@value #MAX_LIST_INDEX} - the largest index that binding will grow a
+ * List to (10000)</li>
+ * <li>{@value #MAX_JSON_BYTES} - the maximum size in bytes of a JSON request
+ * body, counted before it is decoded into characters (2097152)</li>
+ * <li>{@value #MAX_JSON_TOKENS} - the maximum number of tokens in a JSON
+ * request body (100000)</li>
+ * </ul>
+ *
+ * <p>
+ * Every limit is off unless it is configured, so existing applications see
+ * no change in behaviour. A value of zero or less disables the corresponding
+ * limit. The limits are enforced incrementally, as the request is parsed and
+ * bound, and a breach results in a {@link RequestLimitExceededException}.</p>
+ *
+ * @since Stripes 1.7
+ */
+public final class RequestLimits {
+
+    private static final Log log = Log.getInstance(RequestLimits.class);
+
+    /** Configuration key for the maximum number of request parameters. */
+    public static final String MAX_PARAMETERS = "Stripes.MaxParameters";
+
+    /** Configuration key for the maximum depth of a parameter name. */
+    public static final String MAX_EXPRESSION_DEPTH = "Stripes.MaxExpressionDepth";
+
+    /** Configuration key for the largest List index that binding may create. */
+    public static final String MAX_LIST_INDEX = "Stripes.MaxListIndex";
+
+    /** Configuration key for the maximum size, in bytes, of a JSON request body. */
+    public static final String MAX_JSON_BYTES = "Stripes.MaxJsonBytes";
+
+    /** Configuration key for the maximum number of tokens in a JSON request body. */
+    public static final String MAX_JSON_TOKENS = "Stripes.MaxJsonTokens";
+
+    /** Limits are opt-in, so none is applied unless configured. */
+    public static final int DEFAULT_MAX_PARAMETERS = 0;
+    public static final int DEFAULT_MAX_EXPRESSION_DEPTH = 0;
+    public static final int DEFAULT_MAX_LIST_INDEX = 0;
+    public static final int DEFAULT_MAX_JSON_BYTES = 0;
+    public static final int DEFAULT_MAX_JSON_TOKENS = 0;
+
+    /** The limits used when no configuration is available; nothing is limited. */
+    public static final RequestLimits DEFAULTS = new RequestLimits(null,
+            DEFAULT_MAX_PARAMETERS, DEFAULT_MAX_EXPRESSION_DEPTH, DEFAULT_MAX_LIST_INDEX,
+            DEFAULT_MAX_JSON_BYTES, DEFAULT_MAX_JSON_TOKENS);
+
+    /* The limits of the most recently seen configuration. */
+    private static volatile RequestLimits current = DEFAULTS;
+
+    private final Configuration configuration;
+    private final int maxParameters;
+    private final int maxExpressionDepth;
+    private final int maxListIndex;
+    private final int maxJsonBytes;
+    private final int maxJsonTokens;
+
+    /**
+     * Constructs a set of limits. Values of zero or less disable the limit.
+     *
+     * @param maxParameters the maximum number of request parameters
+     * @param maxExpressionDepth the maximum depth of a parameter name
+     * @param maxListIndex the largest List index binding may create
+     * @param maxJsonBytes the maximum size of a JSON body in bytes
+     * @param maxJsonTokens the maximum number of tokens in a JSON body
+     */
+    public RequestLimits(int maxParameters, int maxExpressionDepth, int maxListIndex,
+            int maxJsonBytes, int maxJsonTokens) {
+        this(null, maxParameters, maxExpressionDepth, maxListIndex, maxJsonBytes, maxJsonTokens);
+    }
+
+    private RequestLimits(Configuration configuration, int maxParameters,
+            int maxExpressionDepth, int maxListIndex, int maxJsonBytes, int maxJsonTokens) {
+        this.configuration = configuration;
+        this.maxParameters = maxParameters;
+        this.maxExpressionDepth = maxExpressionDepth;
+        this.maxListIndex = maxListIndex;
+        this.maxJsonBytes = maxJsonBytes;
+        this.maxJsonTokens = maxJsonTokens;
+    }
+
+    /**
+     * Returns the limits of the current {@link StripesFilter} configuration,
+     * or {@link #DEFAULTS} if there is no configuration. The limits are read
+     * from the configuration once and reused until the configuration changes.
+     *
+     * @return the request limits in effect
+     */
+    public static RequestLimits getInstance() {
+        Configuration configuration = StripesFilter.getConfiguration();
+        if (configuration == null) {
+            return DEFAULTS;
+        }
+
+        RequestLimits limits = current;
+        if (limits.configuration != configuration) {
+            limits = new RequestLimits(configuration,
+                    getProperty(configuration, MAX_PARAMETERS, DEFAULT_MAX_PARAMETERS),
+                    getProperty(configuration, MAX_EXPRESSION_DEPTH, DEFAULT_MAX_EXPRESSION_DEPTH),
+                    getProperty(configuration, MAX_LIST_INDEX, DEFAULT_MAX_LIST_INDEX),
+                    getProperty(configuration, MAX_JSON_BYTES, DEFAULT_MAX_JSON_BYTES),
+                    getProperty(configuration, MAX_JSON_TOKENS, DEFAULT_MAX_JSON_TOKENS));
+            current = limits;
+        }
+
+        return limits;
+    }
+
+    /**
+     * Reads an integer limit from configuration, falling back to the default
+     * if the property is absent or invalid.
+     */
+    private static int getProperty(Configuration configuration, String key, int defaultValue) {
+        String value = configuration.getBootstrapPropertyResolver() == null ? null
+                : configuration.getBootstrapPropertyResolver().getProperty(key);
+        if (value == null || value.trim().length() == 0) {
+            return defaultValue;
+        }
+
+        try {
+            int limit = Integer.parseInt(value.trim());
+            log.info("Configured ", key, ": ", limit);
+            return limit;
+        } catch (NumberFormatException e) {
+            log.error("Did not understand value of configuration parameter ", key,
+                    " You supplied: ", value, ". Default value of ", defaultValue,
+                    " will be used instead.");
+            return defaultValue;
+        }
+    }
+
+    /** Returns the maximum number of request parameters, or zero or less if unlimited. */
+    public int getMaxParameters() {
+        return maxParameters;
+    }
+
+    /** Returns the maximum depth of a parameter name, or zero or less if unlimited. */
+    public int getMaxExpressionDepth() {
+        return maxExpressionDepth;
+    }
+
+    /** Returns the largest List index binding may create, or zero or less if unlimited. */
+    public int getMaxListIndex() {
+        return maxListIndex;
+    }
+
+    /** Returns the maximum size of a JSON body in bytes, or zero or less if unlimited. */
+    public int getMaxJsonBytes() {
+        return maxJsonBytes;
+    }
+
+    /** Returns the maximum number of tokens in a JSON body, or zero or less if unlimited. */
+    public int getMaxJsonTokens() {
+        return maxJsonTokens;
+    }
+
+    /**
+     * Checks the number of request parameters seen so far.
+     *
+     * @param count the number of parameters
+     * @throws RequestLimitExceededException if there are too many parameters
+     */
+    public void checkParameterCount(int count) {
+        if (maxParameters > 0 && count > maxParameters) {
+            throw new RequestLimitExceededException(MAX_PARAMETERS, maxParameters,
+                    HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "Request has more than " + maxParameters + " parameters.");
+        }
+    }
+
+    /**
+     * Checks the depth of a parameter name or of a nested JSON structure.
+     *
+     * @param depth the depth reached
+     * @param name the parameter name, used in the error message
+     * @throws RequestLimitExceededException if the name is nested too deeply
+     */
+    public void checkExpressionDepth(int depth, String name) {
+        if (maxExpressionDepth > 0 && depth > maxExpressionDepth) {
+            throw new RequestLimitExceededException(MAX_EXPRESSION_DEPTH, maxExpressionDepth,
+                    HttpServletResponse.SC_BAD_REQUEST,
+                    "Parameter is nested too deeply: " + abbreviate(name));
+        }
+    }
+
+    /**
+     * Checks a List index that binding is about to grow a List to.
+     *
+     * @param index the index in the List
+     * @param name the parameter name, used in the error message
+     * @throws RequestLimitExceededException if the index is too large
+     */
+    public void checkListIndex(int index, String name) {
+        if (maxListIndex > 0 && index > maxListIndex) {
+            throw new RequestLimitExceededException(MAX_LIST_INDEX, maxListIndex,
+                    HttpServletResponse.SC_BAD_REQUEST,
+                    "List index " + index + " is too large in parameter: " + abbreviate(name));
+        }
+    }
+
+    /**
+     * Checks the number of bytes of a JSON body read so far.
+     *
+     * @param bytes the number of bytes read
+     * @throws RequestLimitExceededException if the body is too large
+     */
+    public void checkJsonBytes(long bytes) {
+        if (maxJsonBytes > 0 && bytes > maxJsonBytes) {
+            throw new RequestLimitExceededException(MAX_JSON_BYTES, maxJsonBytes,
+                    HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "JSON request body is larger than " + maxJsonBytes + " bytes.");
+        }
+    }
+
+    /**
+     * Checks the number of tokens of a JSON body read so far.
+     *
+     * @param tokens the number of tokens read
+     * @throws RequestLimitExceededException if the body has too many tokens
+     */
+    public void checkJsonTokens(int tokens) {
+        if (maxJsonTokens > 0 && tokens > maxJsonTokens) {
+            throw new RequestLimitExceededException(MAX_JSON_TOKENS, maxJsonTokens,
+                    HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "JSON request body has more than " + maxJsonTokens + " tokens.");
+        }
+    }
+
+    /** Keeps error messages short when the offending name is huge. */
+    private static String abbreviate(String name) {
+        if (name != null && name.length() > 100) {
+            return name.substring(0, 100) + "...";
+        }
+        return name;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import net.sourceforge.stripes.action.SessionScope;
+import net.sourceforge.stripes.exception.StripesRuntimeException;
+
+/**
+ * Exception that is thrown when a request references a {@link SessionScope}
+ * ActionBean that is already in use by another request, and either the bean's
+ * concurrency policy is {@link SessionScope.Concurrency#REJECT} or the request
+ * waited longer than the configured timeout for the bean to become available.
+ * The default exception handler answers it with a 429 (Too Many Requests)
+ * status.
+ *
+ * @since Stripes 1.7
+ */
+public class SessionScopeConflictException extends StripesRuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The HTTP status code for Too Many Requests, which the Servlet API lacks a constant for. */
+    public static final int SC_TOO_MANY_REQUESTS = 429;
+
+    private final String bindingPath;
+
+    /**
+     * Constructs a new exception for the session scope bean that could not be
+     * acquired.
+     *
+     * @param bindingPath the URL binding of the bean
+     * @param detail a short description of why the bean could not be acquired
+     */
+    public SessionScopeConflictException(String bindingPath, String detail) {
+        super("Session scope ActionBean " + bindingPath + " is in use by another request. " + detail);
+        this.bindingPath = bindingPath;
+    }
+
+    /**
+     * Gets the URL binding of the session scope bean that could not be acquired.
+     *
+     * @return the URL binding of the bean
+     */
+    public String getBindingPath() {
+        return bindingPath;
+    }
+
+    /**
+     * Gets the HTTP status code that should be sent to the client.
+     *
+     * @return {@link #SC_TOO_MANY_REQUESTS}
+     */
+    public int getStatus() {
+        return SC_TOO_MANY_REQUESTS;
+    }
+}
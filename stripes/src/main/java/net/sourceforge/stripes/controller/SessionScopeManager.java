@@ -0,0 +1,612 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionActivationListener;
+import javax.servlet.http.HttpSessionEvent;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.ActionBeanContext;
+import net.sourceforge.stripes.action.SessionScope;
+import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.exception.StripesRuntimeException;
+import net.sourceforge.stripes.util.Log;
+import net.sourceforge.stripes.util.ReflectUtil;
+
+/**
+ * <p>
+ * Coordinates access to {@link SessionScope} ActionBeans by concurrent requests
+ * from the same session. A request that references a session scope bean
+ * obtains a {@link Lease} on it, which is released by the
+ * {@link DispatcherServlet} once the event has been handled, before the view
+ * is rendered, or by the {@link StripesFilter} for beans used outside the
+ * dispatcher.</p>
+ *
+ * <p>
+ * What happens when the bean is already leased depends on the
+ * {@link SessionScope#concurrency()} policy of the bean. By default nothing is
+ * locked and concurrent requests share the bean, as they always have. The
+ * other policies guard the bean with a lock that is kept in the session next
+ * to the bean, so each bean of each session has a lock of its own and the
+ * lock goes away with the session. Beans that are to be passivated (see
+ * {@link SessionScope#passivate()}) are replaced in the session by a
+ * {@link PassivatedActionBean} when the container passivates the session, and
+ * restored when the next lease is taken.</p>
+ *
+ * <p>
+ * The configuration property {@value #LOCK_TIMEOUT} sets the number of
+ * milliseconds a request waits for a bean with the
+ * {@link SessionScope.Concurrency#SERIALIZE} policy before it is rejected
+ * (default {@value #DEFAULT_LOCK_TIMEOUT}, zero or less waits forever).</p>
+ *
+ * @since Stripes 1.7
+ */
+public class SessionScopeManager {
+
+    private static final Log log = Log.getInstance(SessionScopeManager.class);
+
+    /** Configuration key for the time, in milliseconds, to wait for a session scope bean. */
+    public static final String LOCK_TIMEOUT = "SessionScope.LockTimeout";
+
+    public static final int DEFAULT_LOCK_TIMEOUT = 30000;
+
+    /** Appended to the session key of a bean to form the session key of its lock. */
+    private static final String LOCK_SUFFIX = "#" + SessionScopeManager.class.getSimpleName() + ".Lock";
+
+    /** Appended to the session key of a bean to form the session key of its passivator. */
+    private static final String PASSIVATOR_SUFFIX = "#" + SessionScopeManager.class.getSimpleName()
+            + ".Passivator";
+
+    /** Request attribute under which the leases held by a request are stored. */
+    private static final String REQ_ATTR_LEASES = SessionScopeManager.class.getName() + ".Leases";
+
+    /* The manager of the most recently seen configuration. */
+    private static volatile SessionScopeManager current;
+
+    private final Configuration configuration;
+    private final long timeoutMillis;
+
+    /**
+     * Constructs a manager with the given timeout.
+     *
+     * @param timeoutMillis the time to wait for a serialized bean, zero or less
+     * to wait forever
+     */
+    public SessionScopeManager(long timeoutMillis) {
+        this(null, timeoutMillis);
+    }
+
+    private SessionScopeManager(Configuration configuration, long timeoutMillis) {
+        this.configuration = configuration;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Returns the manager for the current configuration, creating it on first
+     * use.
+     *
+     * @return the SessionScopeManager in effect
+     */
+    public static SessionScopeManager getInstance() {
+        Configuration configuration = StripesFilter.getConfiguration();
+        SessionScopeManager manager = current;
+        if (manager == null || manager.configuration != configuration) {
+            synchronized (SessionScopeManager.class) {
+                manager = current;
+                if (manager == null || manager.configuration != configuration) {
+                    manager = new SessionScopeManager(configuration,
+                            getProperty(configuration, LOCK_TIMEOUT, DEFAULT_LOCK_TIMEOUT));
+                    current = manager;
+                }
+            }
+        }
+
+        return manager;
+    }
+
+    /**
+     * Reads an integer property from configuration, falling back to the
+     * default if the property is absent or invalid.
+     */
+    private static int getProperty(Configuration configuration, String key, int defaultValue) {
+        String value = configuration == null || configuration.getBootstrapPropertyResolver() == null
+                ? null : configuration.getBootstrapPropertyResolver().getProperty(key);
+        if (value == null || value.trim().length() == 0) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.error("Did not understand value of configuration parameter ", key,
+                    " You supplied: ", value, ". Default value of ", defaultValue,
+                    " will be used instead.");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Obtains a lease on the session scope bean bound to the supplied path,
+     * waiting for or rejecting the request as dictated by the bean's
+     * concurrency policy. If the request already holds a lease on the bean
+     * that lease is returned. The lease is registered with the request so that
+     * it is released when the request completes.
+     *
+     * @param request the current request
+     * @param bindingPath the URL binding of the bean, used as the session key
+     * @param scope the SessionScope annotation of the bean
+     * @return a lease whose {@link Lease#getBean()} returns the bean, or null if
+     * the bean does not exist yet
+     * @throws SessionScopeConflictException if the bean could not be acquired
+     */
+    public Lease acquire(HttpServletRequest request, String bindingPath, SessionScope scope) {
+        List<Lease> leases = getLeases(request, true);
+        for (Lease lease : leases) {
+            if (lease.bindingPath.equals(bindingPath)) {
+                return lease;
+            }
+        }
+
+        HttpSession session = request.getSession();
+        Semaphore lock = scope.concurrency() == SessionScope.Concurrency.NONE ? null
+                : getLock(session, bindingPath);
+
+        Lease lease = new Lease(session, bindingPath, scope, lock);
+        lease.open(timeoutMillis);
+        leases.add(lease);
+        return lease;
+    }
+
+    /**
+     * Returns the lock guarding the given bean of the given session, creating
+     * it and storing it in the session next to the bean on first use.
+     */
+    private static Semaphore getLock(HttpSession session, String bindingPath) {
+        String key = bindingPath + LOCK_SUFFIX;
+        Object lock = session.getAttribute(key);
+        if (!(lock instanceof BeanLock)) {
+            // Only the creation of a lock is serialized across sessions, and only once per bean
+            synchronized (BeanLock.class) {
+                lock = session.getAttribute(key);
+                if (!(lock instanceof BeanLock)) {
+                    lock = new BeanLock();
+                    session.setAttribute(key, lock);
+                }
+            }
+        }
+        return ((BeanLock) lock).semaphore;
+    }
+
+    /**
+     * Returns the leases registered with the request, optionally creating the
+     * list if there is none yet.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Lease> getLeases(HttpServletRequest request, boolean create) {
+        List<Lease> leases = (List<Lease>) request.getAttribute(REQ_ATTR_LEASES);
+        if (leases == null && create) {
+            leases = new ArrayList<Lease>(2);
+            request.setAttribute(REQ_ATTR_LEASES, leases);
+        }
+        return leases;
+    }
+
+    /**
+     * Returns the number of leases currently held by the request. Used as a
+     * mark before processing a request so that only the leases taken during
+     * processing are released afterwards.
+     *
+     * @param request the current request
+     * @return the number of leases held by the request
+     */
+    public static int getLeaseCount(HttpServletRequest request) {
+        List<Lease> leases = getLeases(request, false);
+        return leases == null ? 0 : leases.size();
+    }
+
+    /**
+     * Removes the leases taken after the supplied mark from the request and
+     * returns them, so that they can be released later, e.g. once asynchronous
+     * processing completes.
+     *
+     * @param request the current request
+     * @param mark a value previously returned by {@link #getLeaseCount(HttpServletRequest)}
+     * @return the detached leases, possibly empty
+     */
+    public static List<Lease> detachLeases(HttpServletRequest request, int mark) {
+        List<Lease> leases = getLeases(request, false);
+        if (leases == null || leases.size() <= mark) {
+            return Collections.emptyList();
+        }
+
+        List<Lease> tail = leases.subList(mark, leases.size());
+        List<Lease> detached = new ArrayList<Lease>(tail);
+        tail.clear();
+        return detached;
+    }
+
+    /**
+     * Releases the leases taken after the supplied mark.
+     *
+     * @param request the current request
+     * @param mark a value previously returned by {@link #getLeaseCount(HttpServletRequest)}
+     */
+    public static void releaseLeases(HttpServletRequest request, int mark) {
+        releaseLeases(detachLeases(request, mark));
+    }
+
+    /**
+     * Releases the supplied leases, most recently acquired first.
+     *
+     * @param leases the leases to release
+     */
+    public static void releaseLeases(List<Lease> leases) {
+        for (int i = leases.size() - 1; i >= 0; i--) {
+            try {
+                leases.get(i).release();
+            } catch (RuntimeException e) {
+                log.error(e, "Could not release session scope ActionBean ", leases.get(i).bindingPath);
+            }
+        }
+    }
+
+    /**
+     * Serializes an object, dropping any reference to an
+     * {@link ActionBeanContext} since contexts hold the request and are reset
+     * on every request anyway.
+     *
+     * @param object the object to serialize
+     * @param compress true to deflate the serialized form
+     * @return the serialized form of the object
+     * @throws IOException if the object cannot be serialized
+     */
+    static byte[] serialize(Object object, boolean compress) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        OutputStream out = compress ? new DeflaterOutputStream(bytes) : bytes;
+        ObjectOutputStream oos = new ObjectOutputStream(out) {
+            {
+                enableReplaceObject(true);
+            }
+
+            @Override
+            protected Object replaceObject(Object obj) throws IOException {
+                return obj instanceof ActionBeanContext ? null : obj;
+            }
+        };
+        oos.writeObject(object);
+        oos.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes an object written by {@link #serialize(Object, boolean)},
+     * resolving classes through the context class loader.
+     *
+     * @param data the serialized form of the object
+     * @param compressed true if the serialized form is deflated
+     * @return the deserialized object
+     * @throws IOException if the object cannot be deserialized
+     * @throws ClassNotFoundException if a class of the object cannot be found
+     */
+    static Object deserialize(byte[] data, boolean compressed)
+            throws IOException, ClassNotFoundException {
+        InputStream in = new ByteArrayInputStream(data);
+        if (compressed) {
+            in = new InflaterInputStream(in);
+        }
+        ObjectInputStream ois = new ObjectInputStream(in) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc)
+                    throws IOException, ClassNotFoundException {
+                try {
+                    return ReflectUtil.findClass(desc.getName());
+                } catch (ClassNotFoundException e) {
+                    return super.resolveClass(desc);
+                }
+            }
+        };
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+
+    /**
+     * The lock of one session scope bean, kept in the session under the key of
+     * the bean followed by a fixed suffix. The semaphore is not
+     * serialized: a session restored from disk or another node starts with the
+     * bean unlocked, since no request of that session can still hold it.
+     */
+    private static final class BeanLock implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient Semaphore semaphore = new Semaphore(1);
+
+        private Object readResolve() {
+            return new BeanLock();
+        }
+    }
+
+    /**
+     * Kept in the session next to a bean that is to be passivated, under the
+     * key of the bean followed by a fixed suffix. When the container passivates
+     * the session, e.g. to swap an idle session out to disk, it replaces the
+     * bean with its compressed, serialized form. Nothing is serialized while
+     * the session stays in memory.
+     */
+    private static final class Passivator implements Serializable, HttpSessionActivationListener {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String bindingPath;
+
+        Passivator(String bindingPath) {
+            this.bindingPath = bindingPath;
+        }
+
+        public void sessionWillPassivate(HttpSessionEvent event) {
+            HttpSession session = event.getSession();
+            Object bean = session.getAttribute(bindingPath);
+            if (bean instanceof ActionBean) {
+                try {
+                    session.setAttribute(bindingPath, new PassivatedActionBean(serialize(bean, true)));
+                } catch (IOException e) {
+                    log.warn("Session scope ActionBean ", bindingPath, " cannot be passivated. ", e);
+                }
+            }
+        }
+
+        public void sessionDidActivate(HttpSessionEvent event) {
+            // The bean is restored by the next lease on it
+        }
+    }
+
+    /**
+     * A request's claim on a session scope ActionBean. For the
+     * {@link SessionScope.Concurrency#SERIALIZE} and
+     * {@link SessionScope.Concurrency#REJECT} policies the lease holds the
+     * bean's lock until it is released; for
+     * {@link SessionScope.Concurrency#CLONE} it holds a private copy of the
+     * bean which replaces the shared bean on release. For
+     * {@link SessionScope.Concurrency#NONE} nothing is locked.
+     */
+    public static final class Lease {
+
+        private final HttpSession session;
+        private final String bindingPath;
+        private final SessionScope.Concurrency policy;
+        private final boolean passivate;
+        private final Semaphore lock;
+        private boolean locked;
+        private boolean copied;
+        private boolean released;
+        private ActionBean bean;
+
+        Lease(HttpSession session, String bindingPath, SessionScope scope, Semaphore lock) {
+            this.session = session;
+            this.bindingPath = bindingPath;
+            this.policy = scope.concurrency();
+            this.passivate = scope.passivate();
+            this.lock = lock;
+        }
+
+        /** Takes the lock as dictated by the policy and reads the bean from the session. */
+        void open(long timeoutMillis) {
+            if (policy == SessionScope.Concurrency.REJECT) {
+                if (!lock.tryAcquire()) {
+                    throw new SessionScopeConflictException(bindingPath,
+                            "The request was rejected as the bean does not allow concurrent access.");
+                }
+                locked = true;
+            } else {
+                lock(timeoutMillis);
+            }
+
+            try {
+                Object attribute = session.getAttribute(bindingPath);
+                if (attribute instanceof PassivatedActionBean) {
+                    // A freshly restored bean is already private to this request
+                    bean = ((PassivatedActionBean) attribute).activate();
+                    if (policy == SessionScope.Concurrency.CLONE) {
+                        copied = true;
+                    } else {
+                        session.setAttribute(bindingPath, bean);
+                    }
+                } else {
+                    bean = (ActionBean) attribute;
+                    if (policy == SessionScope.Concurrency.CLONE) {
+                        ActionBean copy = bean == null ? null : copy(bean);
+                        if (bean == null || copy != null) {
+                            bean = copy;
+                            copied = true;
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                unlock();
+                throw e;
+            }
+
+            // Clones are written back on release, everyone else keeps the lock until then
+            if (copied) {
+                unlock();
+            }
+        }
+
+        /** Acquires the lock, if the policy uses one, waiting at most the supplied time. */
+        private void lock(long timeoutMillis) {
+            if (lock == null) {
+                return;
+            }
+
+            try {
+                if (timeoutMillis <= 0) {
+                    lock.acquire();
+                } else if (!lock.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new SessionScopeConflictException(bindingPath,
+                            "Timed out after " + timeoutMillis + "ms waiting for the bean.");
+                }
+                locked = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SessionScopeConflictException(bindingPath,
+                        "Interrupted while waiting for the bean.");
+            }
+        }
+
+        /** Releases the lock if this lease owns it. */
+        private void unlock() {
+            if (locked) {
+                locked = false;
+                lock.release();
+            }
+        }
+
+        /**
+         * Returns a serialized copy of the bean, or null if the bean is not
+         * Serializable in which case the lease falls back to serializing
+         * access.
+         */
+        private ActionBean copy(ActionBean original) {
+            try {
+                return (ActionBean) deserialize(serialize(original, false), false);
+            } catch (Exception e) {
+                log.warn("Session scope ActionBean ", bindingPath, " cannot be cloned, requests ",
+                        "will be serialized instead. ", e);
+                return null;
+            }
+        }
+
+        /**
+         * Returns the session scope bean, or null if it has not been created
+         * yet.
+         * @return the bean, or null
+         */
+        public ActionBean getBean() {
+            return bean;
+        }
+
+        /**
+         * Sets a newly created bean, storing it in the session unless the
+         * policy defers writing to {@link #release()}.
+         *
+         * @param bean the newly created bean
+         */
+        public void setBean(ActionBean bean) {
+            this.bean = bean;
+            if (!copied) {
+                session.setAttribute(bindingPath, bean);
+            }
+        }
+
+        /**
+         * Returns the URL binding of the bean, which is also its session key.
+         * @return the URL binding of the bean
+         */
+        public String getBindingPath() {
+            return bindingPath;
+        }
+
+        /**
+         * Writes the bean back to the session if this lease holds a private
+         * copy of it, makes sure a bean that is to be passivated has its
+         * passivator, and releases the lock. Calling this method more than
+         * once has no effect.
+         */
+        public void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+
+            try {
+                if (copied) {
+                    lock(0);
+                }
+                if (bean != null && copied) {
+                    session.setAttribute(bindingPath, bean);
+                }
+                if (bean != null && passivate) {
+                    String key = bindingPath + PASSIVATOR_SUFFIX;
+                    if (!(session.getAttribute(key) instanceof Passivator)) {
+                        session.setAttribute(key, new Passivator(bindingPath));
+                    }
+                }
+            } catch (IllegalStateException e) {
+                log.debug("Session was invalidated before session scope ActionBean ", bindingPath,
+                        " could be stored.");
+            } finally {
+                unlock();
+            }
+        }
+    }
+
+    /**
+     * The compact form in which passivated session scope beans are kept in a
+     * passivated session: the bean serialized and deflated.
+     */
+    public static final class PassivatedActionBean implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] data;
+
+        PassivatedActionBean(byte[] data) {
+            this.data = data;
+        }
+
+        /**
+         * Returns the size, in bytes, of the passivated bean.
+         * @return the size in bytes
+         */
+        public int getSize() {
+            return data.length;
+        }
+
+        /**
+         * Restores the live bean from its passivated form.
+         *
+         * @return the bean
+         */
+        public ActionBean activate() {
+            try {
+                return (ActionBean) deserialize(data, true);
+            } catch (Exception e) {
+                throw new StripesRuntimeException("Could not restore passivated session scope "
+                        + "ActionBean.", e);
+            }
+        }
+    }
+}
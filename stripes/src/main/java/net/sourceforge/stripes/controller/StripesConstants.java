@@ -53,6 +53,13 @@ public interface StripesConstants {
      */
     String URL_KEY_FLASH_SCOPE_ID = "__fsk";
 
+    /**
+     * The name of a URL parameter that is used to hold the encrypted key of
+     * the wizard state saved in the {@link WizardStateStore}, if one is
+     * configured.
+     */
+    String URL_KEY_WIZARD_STATE = "__ws";
+
     /**
      * An immutable set of URL keys or request parameters that have special
      * meaning to Stripes and as a result should not be referenced in binding,
@@ -63,6 +70,7 @@ public interface StripesConstants {
             Literal.set(StripesConstants.URL_KEY_SOURCE_PAGE,
                     StripesConstants.URL_KEY_FIELDS_PRESENT,
                     StripesConstants.URL_KEY_FLASH_SCOPE_ID,
+                    StripesConstants.URL_KEY_WIZARD_STATE,
                     StripesConstants.URL_KEY_EVENT_NAME));
     /**
      * The name under which the ActionBean for a request is stored as a request
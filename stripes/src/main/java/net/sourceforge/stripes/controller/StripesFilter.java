@@ -14,9 +14,11 @@
  */
 package net.sourceforge.stripes.controller;
 
+import net.sourceforge.stripes.config.BootSnapshot;
 import net.sourceforge.stripes.config.BootstrapPropertyResolver;
 import net.sourceforge.stripes.config.Configuration;
 import net.sourceforge.stripes.config.RuntimeConfiguration;
+import net.sourceforge.stripes.controller.metrics.Metrics;
 import net.sourceforge.stripes.exception.StripesServletException;
 import net.sourceforge.stripes.util.HttpUtil;
 import net.sourceforge.stripes.util.Log;
@@ -96,6 +98,9 @@ public class StripesFilter implements Filter {
         this.servletContext = filterConfig.getServletContext();
         this.servletContext.setAttribute(StripesFilter.class.getName(), this);
 
+        // Create the metrics sinks now rather than on the first request
+        Metrics.getSink(configuration);
+
         Package pkg = getClass().getPackage();
         log.info("Stripes Initialization Complete. Version: ", pkg.getSpecificationVersion(),
                 ", Build: ", pkg.getImplementationVersion());
@@ -126,6 +131,13 @@ public class StripesFilter implements Filter {
             Configuration configuration = clazz.newInstance();
             configuration.setBootstrapPropertyResolver(bootstrap);
             configuration.init();
+
+            // Remember what was found on the classpath for the next boot
+            BootSnapshot snapshot = bootstrap.getBootSnapshot();
+            if (snapshot != null) {
+                snapshot.save();
+            }
+
             return configuration;
         } catch (Exception e) {
             log.fatal(e,
@@ -185,7 +197,9 @@ public class StripesFilter implements Filter {
         // Wrap pretty much everything in a try/catch so that we can funnel even the most
         // bizarre or unexpected exceptions into the exception handler
         try {
-            log.trace("Intercepting request to URL: ", HttpUtil.getRequestedPath(httpRequest));
+            if (log.isTraceEnabled()) {
+                log.trace("Intercepting request to URL: ", HttpUtil.getRequestedPath(httpRequest));
+            }
 
             if (initial) {
 
@@ -230,6 +244,10 @@ public class StripesFilter implements Filter {
                 // Once the request is processed, clean up thread locals
                 StripesFilter.initialInvocation.remove();
 
+                // Release session scope and pooled beans used outside of the dispatcher, e.g. by useActionBean
+                SessionScopeManager.releaseLeases(httpRequest, 0);
+                ActionBeanPool.releaseCheckouts(httpRequest, 0);
+
                 flashOutbound(httpRequest);
             } else {
                 // restore URI parameters to their previous state
@@ -293,10 +311,11 @@ public class StripesFilter implements Filter {
 
     /**
      * Calls the cleanup() method on the log to release resources held by
-     * commons logging.
+     * commons logging, and shuts down any metrics sinks.
      */
     public void destroy() {
         this.servletContext.removeAttribute(StripesFilter.class.getName());
+        Metrics.shutdown(configuration);
         Log.cleanup();
         Introspector.flushCaches(); // Not 100% sure this is necessary, but it doesn't  hurt
     }
@@ -22,7 +22,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -34,10 +33,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
 import net.sourceforge.stripes.action.FileBean;
+import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.config.DefaultConfiguration;
 import net.sourceforge.stripes.controller.json.JsonContentTypeRequestWrapper;
 import net.sourceforge.stripes.controller.multipart.MultipartWrapper;
 import net.sourceforge.stripes.exception.StripesServletException;
 import net.sourceforge.stripes.exception.UrlBindingConflictException;
+import net.sourceforge.stripes.util.CryptoUtil;
 
 /**
  * HttpServletRequestWrapper that is used to make the file upload functionality
@@ -139,6 +141,41 @@ public class StripesRequestWrapper extends HttpServletRequestWrapper {
         } else {
             this.parameterMap = new MergedParameterMap(this);
         }
+
+        restoreWizardState();
+    }
+
+    /**
+     * If the request carries the key of a wizard state saved in the
+     * {@link WizardStateStore}, loads the saved parameters and merges into the
+     * parameter map those that were not submitted with the request.
+     *
+     * @throws StripesServletException if the request carries a key that
+     * cannot be decrypted, or whose state has expired
+     */
+    protected void restoreWizardState() throws StripesServletException {
+        String token = getParameter(StripesConstants.URL_KEY_WIZARD_STATE);
+        if (token == null || token.length() == 0) {
+            return;
+        }
+
+        Configuration configuration = StripesFilter.getConfiguration();
+        WizardStateStore store = configuration instanceof DefaultConfiguration
+                ? ((DefaultConfiguration) configuration).getWizardStateStore() : null;
+        if (store == null) {
+            throw new StripesServletException("The request carries wizard state, but no "
+                    + "WizardStateStore is configured.");
+        }
+
+        String key = CryptoUtil.decrypt(token);
+        Map<String, String[]> state = key == null ? null : store.load(this, key);
+        if (state == null) {
+            throw new StripesServletException("The wizard state carried by the request could "
+                    + "not be found. It may have expired, in which case the wizard must be "
+                    + "started again.");
+        }
+
+        this.parameterMap.mergeWizardState(state);
     }
 
     /**
@@ -159,6 +196,16 @@ public class StripesRequestWrapper extends HttpServletRequestWrapper {
         }
     }
 
+    /**
+     * Returns the wrapper that parsed the body of this request, or null if the
+     * body was not parsed (i.e. the request is neither multipart nor JSON).
+     *
+     * @return the content type specific request wrapper, or null
+     */
+    public ContentTypeRequestWrapper getContentTypeRequestWrapper() {
+        return this.contentTypeRequestWrapper;
+    }
+
     /**
      * Returns true if this request is wrapping a multipart request, false
      * otherwise.
@@ -239,6 +286,17 @@ public class StripesRequestWrapper extends HttpServletRequestWrapper {
         return this.parameterMap;
     }
 
+    /**
+     * Returns the index of all parameters of the request, including URI
+     * parameters and parameters parsed from the request body. The index is
+     * built once and reused until the parameters change.
+     *
+     * @return the parameter index for the request
+     */
+    public ParameterIndex getParameterIndex() {
+        return getParameterMap().getIndex();
+    }
+
     /**
      * Extract new URI parameters from the URI of the given {@code request} and
      * merge them with the previous URI parameters.
@@ -338,46 +396,11 @@ public class StripesRequestWrapper extends HttpServletRequestWrapper {
  */
 class MergedParameterMap implements Map<String, String[]> {
 
-    class Entry implements Map.Entry<String, String[]> {
-
-        private String key;
-
-        Entry(String key) {
-            this.key = key;
-        }
-
-        public String getKey() {
-            return key;
-        }
-
-        public String[] getValue() {
-            return get(key);
-        }
-
-        public String[] setValue(String[] value) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            Entry that = (Entry) obj;
-            return this.key == that.key;
-        }
-
-        @Override
-        public int hashCode() {
-            return key.hashCode();
-        }
-
-        @Override
-        public String toString() {
-            return "" + key + "=" + Arrays.deepToString(getValue());
-        }
-    }
-
     private HttpServletRequestWrapper request;
     private Map<String, String[]> uriParams;
     private Stack<Map<String, String[]>> uriParamStack;
+    private ParameterIndex index;
+    private Stack<ParameterIndex> indexStack;
 
     MergedParameterMap(HttpServletRequestWrapper request) {
         this.request = request;
@@ -400,10 +423,12 @@ class MergedParameterMap implements Map<String, String[]> {
         Map<String, String[]> multipartParams = null;
         Enumeration<?> names = contentTypeRequestWrapper.getParameterNames();
         if (names != null && names.hasMoreElements()) {
+            RequestLimits limits = RequestLimits.getInstance();
             multipartParams = new LinkedHashMap<String, String[]>();
             while (names.hasMoreElements()) {
                 String name = (String) names.nextElement();
                 multipartParams.put(name, contentTypeRequestWrapper.getParameterValues(name));
+                limits.checkParameterCount(multipartParams.size());
             }
         }
 
@@ -415,43 +440,55 @@ class MergedParameterMap implements Map<String, String[]> {
         }
     }
 
+    /**
+     * Returns the index of the merged parameters, building it if this is the
+     * first call or if the parameters of the wrapped request have changed.
+     *
+     * @throws RequestLimitExceededException if there are more parameters than
+     * {@link RequestLimits#MAX_PARAMETERS} allows
+     */
+    ParameterIndex getIndex() {
+        Map<String, String[]> requestParams = getParameterMap();
+        ParameterIndex current = this.index;
+        if (current == null || !current.isBuiltFrom(requestParams)) {
+            RequestLimits.getInstance().checkParameterCount(
+                    requestParams.size() + this.uriParams.size());
+            current = new ParameterIndex(this.uriParams, requestParams);
+            this.index = current;
+        }
+        return current;
+    }
+
     public void clear() {
         throw new UnsupportedOperationException();
     }
 
     public boolean containsKey(Object key) {
-        return getParameterMap().containsKey(key) || uriParams.containsKey(key);
+        return getIndex().getParameters().containsKey(key);
     }
 
     public boolean containsValue(Object value) {
-        return getParameterMap().containsValue(value) || uriParams.containsValue(value);
+        return getIndex().getParameters().containsValue(value);
     }
 
     public Set<Map.Entry<String, String[]>> entrySet() {
-        Set<Map.Entry<String, String[]>> entries = new LinkedHashSet<Map.Entry<String, String[]>>();
-        for (String key : keySet()) {
-            entries.add(new Entry(key));
-        }
-        return entries;
+        return getIndex().getParameters().entrySet();
     }
 
     public String[] get(Object key) {
         if (key == null) {
             return null;
         } else {
-            return mergeParameters(getParameterMap().get(key), uriParams.get(key));
+            return getIndex().getParameters().get(key);
         }
     }
 
     public boolean isEmpty() {
-        return getParameterMap().isEmpty() && uriParams.isEmpty();
+        return getIndex().getParameters().isEmpty();
     }
 
     public Set<String> keySet() {
-        Set<String> merged = new LinkedHashSet<String>();
-        merged.addAll(uriParams.keySet());
-        merged.addAll(getParameterMap().keySet());
-        return merged;
+        return getIndex().getParameters().keySet();
     }
 
     public String[] put(String key, String[] value) {
@@ -467,23 +504,19 @@ class MergedParameterMap implements Map<String, String[]> {
     }
 
     public int size() {
-        return keySet().size();
+        return getIndex().getParameters().size();
     }
 
     public Collection<String[]> values() {
-        Set<String> keys = keySet();
-        List<String[]> merged = new ArrayList<String[]>(keys.size());
-        for (String key : keys) {
-            merged.add(mergeParameters(getParameterMap().get(key), uriParams.get(key)));
-        }
-        return merged;
+        return getIndex().getParameters().values();
     }
 
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder("{ ");
         for (Map.Entry<String, String[]> entry : entrySet()) {
-            buf.append(entry).append(", ");
+            buf.append(entry.getKey()).append('=').append(Arrays.deepToString(entry.getValue()))
+                    .append(", ");
         }
         if (buf.toString().endsWith(", ")) {
             buf.setLength(buf.length() - 2);
@@ -492,6 +525,23 @@ class MergedParameterMap implements Map<String, String[]> {
         return buf.toString();
     }
 
+    /**
+     * Merges the parameters of a saved wizard state into the URI parameters,
+     * skipping any that are present in the request already.
+     */
+    void mergeWizardState(Map<String, String[]> state) {
+        Map<String, String[]> requestParams = getParameterMap();
+        Map<String, String[]> merged = new LinkedHashMap<String, String[]>(this.uriParams);
+        for (Map.Entry<String, String[]> entry : state.entrySet()) {
+            String name = entry.getKey();
+            if (!merged.containsKey(name) && !requestParams.containsKey(name)) {
+                merged.put(name, entry.getValue());
+            }
+        }
+        this.uriParams = merged;
+        this.index = null;
+    }
+
     /**
      * Get the parameter map from the request that is wrapped by the
      * {@link StripesRequestWrapper}.
@@ -503,15 +553,21 @@ class MergedParameterMap implements Map<String, String[]> {
 
     /**
      * Extract new URI parameters from the URI of the given {@code request} and
-     * merge them with the previous URI parameters.
+     * merge them with the previous URI parameters. If there are no new URI
+     * parameters the current index remains valid and is kept.
      */
     void pushUriParameters(HttpServletRequestWrapper request) {
         if (this.uriParamStack == null) {
             this.uriParamStack = new Stack<Map<String, String[]>>();
+            this.indexStack = new Stack<ParameterIndex>();
         }
         Map<String, String[]> map = getUriParameters(request);
         this.uriParamStack.push(this.uriParams);
-        this.uriParams = mergeParameters(new LinkedHashMap<String, String[]>(this.uriParams), map);
+        this.indexStack.push(this.index);
+        if (map != null && !map.isEmpty()) {
+            this.uriParams = mergeParameters(new LinkedHashMap<String, String[]>(this.uriParams), map);
+            this.index = null;
+        }
     }
 
     /**
@@ -520,9 +576,11 @@ class MergedParameterMap implements Map<String, String[]> {
      */
     void popUriParameters() {
         if (this.uriParamStack == null || this.uriParamStack.isEmpty()) {
-            this.uriParams = null;
+            this.uriParams = Collections.emptyMap();
+            this.index = null;
         } else {
             this.uriParams = this.uriParamStack.pop();
+            this.index = this.indexStack.pop();
         }
     }
 
@@ -626,19 +684,6 @@ class MergedParameterMap implements Map<String, String[]> {
      * @return the merged parameter values
      */
     String[] mergeParameters(String[] requestParams, String[] uriParams) {
-        if (requestParams == null || requestParams.length == 0) {
-            if (uriParams == null || uriParams.length == 0) {
-                return null;
-            } else {
-                return uriParams;
-            }
-        } else if (uriParams == null || uriParams.length == 0) {
-            return requestParams;
-        } else {
-            String[] merged = new String[uriParams.length + requestParams.length];
-            System.arraycopy(uriParams, 0, merged, 0, uriParams.length);
-            System.arraycopy(requestParams, 0, merged, uriParams.length, requestParams.length);
-            return merged;
-        }
+        return ParameterIndex.merge(requestParams, uriParams);
     }
 }
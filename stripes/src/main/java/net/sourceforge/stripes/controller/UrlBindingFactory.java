@@ -212,7 +212,9 @@ public class UrlBindingFactory {
             }
         }
 
-        log.debug("Matched @", maxIndex, " ", uri, " to ", prototype == null ? conflicts : prototype);
+        if (log.isDebugEnabled()) {
+            log.debug("Matched @", maxIndex, " ", uri, " to ", prototype == null ? conflicts : prototype);
+        }
         if (prototype == null) {
             throw new UrlBindingConflictException(uri, conflicts);
         }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+
+import net.sourceforge.stripes.config.ConfigurableComponent;
+
+/**
+ * <p>
+ * Keeps the parameters carried forward by {@link net.sourceforge.stripes.action.Wizard}
+ * forms on the server, so that pages do not have to re-emit every previously
+ * submitted parameter as a hidden field. When a store is configured (using
+ * the {@code WizardStateStore.Class} configuration property) the wizard fields
+ * of a form are saved in the store and the page carries a single encrypted
+ * token in the {@value StripesConstants#URL_KEY_WIZARD_STATE} parameter.
+ * When the form is submitted the {@link StripesRequestWrapper} loads the
+ * stored parameters and merges them with the submitted ones, so binding and
+ * validation see the same parameters as if they had been carried in the
+ * page.</p>
+ *
+ * <p>
+ * Keys returned by {@link #save(HttpServletRequest, Map)} are encrypted by
+ * Stripes before being written to the page, so they cannot be forged, but
+ * they should still be unpredictable and must not be reused for different
+ * state. A state must only be loaded by the user who saved it, e.g. by tying
+ * it to the session of the request that saved it. Implementations must be
+ * thread-safe, and are expected to bound the amount of state they hold, in
+ * total and per user.</p>
+ *
+ * @see MemoryWizardStateStore
+ * @since Stripes 1.7
+ */
+public interface WizardStateStore extends ConfigurableComponent {
+
+    /**
+     * Stores a set of request parameters.
+     *
+     * @param request the request whose page will carry the key
+     * @param parameters the parameter names and values to store; the store
+     * must not keep a reference to the map or its arrays
+     * @return the key under which the parameters can be loaded, or null if the
+     * store declines to keep them, in which case they are carried in the page
+     * as hidden fields
+     */
+    String save(HttpServletRequest request, Map<String, String[]> parameters);
+
+    /**
+     * Loads the parameters stored under the given key. The same key may be
+     * loaded more than once, e.g. when the user goes back a step.
+     *
+     * @param request the request carrying the key
+     * @param key a key previously returned by {@link #save(HttpServletRequest, Map)}
+     * @return the parameters, or null if the key is unknown, has expired or
+     * may not be loaded by the request
+     */
+    Map<String, String[]> load(HttpServletRequest request, String key);
+}
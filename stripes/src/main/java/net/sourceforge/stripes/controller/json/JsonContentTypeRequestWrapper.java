@@ -15,17 +15,23 @@
  */
 package net.sourceforge.stripes.controller.json;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 import net.sourceforge.stripes.controller.ContentTypeRequestWrapper;
+import net.sourceforge.stripes.controller.RequestLimitExceededException;
+import net.sourceforge.stripes.controller.RequestLimits;
 import net.sourceforge.stripes.exception.StripesRuntimeException;
 import net.sourceforge.stripes.util.Log;
 
@@ -41,55 +47,155 @@ public class JsonContentTypeRequestWrapper implements ContentTypeRequestWrapper
 
     private Map< String, Set<String>> parameters = new HashMap< String, Set<String>>();
 
+    private final RequestLimits limits;
+    private int tokens;
+
+    /**
+     * Constructs a wrapper that enforces the {@link RequestLimits} of the
+     * current configuration.
+     */
+    public JsonContentTypeRequestWrapper() {
+        this(RequestLimits.getInstance());
+    }
+
+    /**
+     * Constructs a wrapper that enforces the supplied limits while parsing.
+     *
+     * @param limits - The limits on body size, tokens, nesting and parameters
+     */
+    public JsonContentTypeRequestWrapper(RequestLimits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Parses the JSON body of the request into parameters. The body is read as
+     * a stream of tokens and the {@link RequestLimits} are checked as it is
+     * read, so an oversized or deeply nested body is rejected without ever
+     * being held in memory as a whole.
+     *
+     * @param request - The request whose body should be parsed
+     * @throws IOException if the body cannot be read or is not valid JSON
+     * @throws RequestLimitExceededException if the body breaches a limit
+     */
     public void build(HttpServletRequest request) throws IOException {
 
         log.debug("build() called.");
 
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode rootNode = mapper.readTree(request.getReader());
+        limits.checkJsonBytes(request.getContentLength());
 
-        if (rootNode.isArray()) {
-            throw new StripesRuntimeException("The JSON requests bodies must start with an object brace and not an array.");
+        String encoding = request.getCharacterEncoding();
+        JsonParser parser = new JsonFactory().createJsonParser(new InputStreamReader(
+                new LimitedInputStream(request.getInputStream(), limits),
+                encoding != null ? encoding : "UTF-8"));
+        try {
+            JsonToken token = nextToken(parser);
+            if (token == JsonToken.START_ARRAY) {
+                throw new StripesRuntimeException("The JSON requests bodies must start with an object brace and not an array.");
+            }
+            if (token != null) {
+                processValue(parser, token, null, 0);
+            }
+        } finally {
+            parser.close();
         }
-
-        processNode(rootNode, null);
     }
 
     /**
-     * This method will take a JSON node and process its conversion into a
-     * parameter name and values.
+     * This method will take the JSON value starting at the current token and
+     * process its conversion into parameter names and values.
      *
-     * @param node - The JSON node to process.
-     * @param parent - The parent path of this JSON node
+     * @param parser - The parser positioned on the first token of the value
+     * @param token - The first token of the value
+     * @param parent - The parent path of this JSON value
+     * @param depth - The number of nodes in the parent path
      */
-    private void processNode(JsonNode node, String parent) {
-
-        log.debug("Processing node (", node.toString(), ")");
-
-        if (node.isArray()) {
-            for (int i = 0; i < node.size(); ++i) {
-                String currentPath = parent + "[" + i + "]";
-                JsonNode childNode = node.get(i);
-                processNode(childNode, currentPath);
+    private void processValue(JsonParser parser, JsonToken token, String parent, int depth)
+            throws IOException {
+
+        if (token == JsonToken.START_ARRAY) {
+            int i = 0;
+            for (token = nextToken(parser); token != JsonToken.END_ARRAY; token = nextToken(parser)) {
+                String currentPath = parent + "[" + i++ + "]";
+                limits.checkExpressionDepth(depth + 1, currentPath);
+                processValue(parser, token, currentPath, depth + 1);
             }
-        } else if (node.isObject()) {
-            for (Iterator<String> i = node.fieldNames(); i.hasNext();) {
-                String childFieldName = i.next();
-                JsonNode childNode = node.get(childFieldName);
+        } else if (token == JsonToken.START_OBJECT) {
+            for (token = nextToken(parser); token != JsonToken.END_OBJECT; token = nextToken(parser)) {
+                String childFieldName = parser.getCurrentName();
                 String currentPath = (parent != null ? parent + "." + childFieldName : childFieldName);
-                processNode(childNode, currentPath);
+                limits.checkExpressionDepth(depth + 1, currentPath);
+                processValue(parser, nextToken(parser), currentPath, depth + 1);
             }
         } else {
             String name = parent;
+            String value = parser.getText();
             Set<String> parameterValues = parameters.get(name);
             if (parameterValues == null) {
                 parameterValues = new HashSet<String>();
+                parameters.put(name, parameterValues);
+                limits.checkParameterCount(parameters.size());
+            }
+            parameterValues.add(value);
+
+            log.debug("Adding parameter ", name, "=", value);
+        }
+    }
+
+    /**
+     * Advances the parser, counting tokens against the configured limit.
+     */
+    private JsonToken nextToken(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token != null) {
+            limits.checkJsonTokens(++tokens);
+        }
+        return token;
+    }
+
+    /**
+     * Stream that counts the bytes read from the request body and checks them
+     * against the configured JSON body limit.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private final RequestLimits limits;
+        private long count;
+
+        LimitedInputStream(InputStream in, RequestLimits limits) {
+            super(in);
+            this.limits = limits;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                limits.checkJsonBytes(++count);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+                limits.checkJsonBytes(count);
             }
-            parameterValues.add(node.asText());
+            return read;
+        }
 
-            log.debug("Adding parameter (name=", name, ",value=", node.asText(), ")");
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            limits.checkJsonBytes(count);
+            return skipped;
+        }
 
-            parameters.put(name, parameterValues);
+        @Override
+        public boolean markSupported() {
+            return false;
         }
     }
 
@@ -102,18 +208,7 @@ public class JsonContentTypeRequestWrapper implements ContentTypeRequestWrapper
 
         log.debug("Returning parameter names to a caller.");
 
-        return new Enumeration<String>() {
-
-            Iterator<String> iterator = parameters.keySet().iterator();
-
-            public boolean hasMoreElements() {
-                return iterator.hasNext();
-            }
-
-            public String nextElement() {
-                return iterator.next();
-            }
-        };
+        return Collections.enumeration(parameters.keySet());
     }
 
     /**
@@ -133,7 +228,7 @@ public class JsonContentTypeRequestWrapper implements ContentTypeRequestWrapper
             returnValues = values.toArray(new String[values.size()]);
         }
 
-        log.debug("Returning parameter value (", returnValues, ") for name (", name, ") to a caller.");
+        log.debug("Returning parameter values ", returnValues, " for name ", name);
 
         return returnValues;
     }
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A lock-free histogram of latencies, recorded in nanoseconds. Values are
+ * counted in log-linear buckets in the manner of an HDR histogram: every power
+ * of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so that any
+ * recorded value is known to within about six percent regardless of its
+ * magnitude. Values that need more than {@value #MAX_EXPONENT} + 1 bits
+ * (roughly thirty-six minutes or more) are counted together in an overflow
+ * bucket.</p>
+ *
+ * <p>
+ * Recording a value costs a handful of atomic increments and never allocates,
+ * which makes it safe to call from every request. Reads are not atomic with
+ * respect to concurrent writes, so a percentile computed while values are
+ * being recorded may be off by the values recorded during the read.</p>
+ *
+ * @since Stripes 1.7
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of linear sub-buckets each power of two is divided into.
+     */
+    public static final int SUB_BUCKETS = 16;
+
+    /**
+     * The exponent of the largest power of two, in nanoseconds, that is still
+     * divided into sub-buckets.
+     */
+    public static final int MAX_EXPONENT = 40;
+
+    private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values are counted as
+     * zero
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        buckets.incrementAndGet(indexOf(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return the number of latencies recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the mean of the latencies recorded, in nanoseconds, or zero if
+     * nothing has been recorded.
+     *
+     * @return the mean latency in nanoseconds
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Returns the largest latency recorded, in nanoseconds.
+     *
+     * @return the largest latency in nanoseconds, or zero if nothing has
+     * been recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the latency, in nanoseconds, below which the given percentage of
+     * the recorded latencies fall. The value returned is the upper bound of the
+     * bucket holding the percentile, and is never more than {@link #getMax()}.
+     *
+     * @param percentile a percentage between 0 and 100
+     * @return the latency at the percentile, or zero if nothing has been
+     * recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        double clamped = Math.min(100, Math.max(0, percentile));
+        long target = Math.max(1, (long) Math.ceil(total * clamped / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Returns a summary of the histogram with latencies in microseconds.
+     *
+     * @return a snapshot of the histogram in microseconds
+     */
+    public LatencySummary getSummary() {
+        return new LatencySummary(getCount(),
+                toMicros(getMean()),
+                toMicros(getValueAtPercentile(50)),
+                toMicros(getValueAtPercentile(90)),
+                toMicros(getValueAtPercentile(99)),
+                toMicros(getValueAtPercentile(99.9)),
+                toMicros(getMax()));
+    }
+
+    /**
+     * Discards all recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Returns the index of the bucket that counts the given value.
+     */
+    static int indexOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest value counted by the bucket at the given index.
+     */
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    private static double toMicros(double nanos) {
+        return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
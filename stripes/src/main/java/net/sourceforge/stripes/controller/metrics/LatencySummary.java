@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * An immutable snapshot of a {@link LatencyHistogram}, with all latencies in
+ * microseconds. Summaries are what {@link RequestMetricsMXBean} exposes over
+ * JMX, where they appear as composite data.
+ *
+ * @since Stripes 1.7
+ */
+public class LatencySummary {
+
+    private final long count;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+    /**
+     * Constructs a summary from its values.
+     *
+     * @param count the number of latencies recorded
+     * @param mean the mean latency
+     * @param p50 the median latency
+     * @param p90 the 90th percentile latency
+     * @param p99 the 99th percentile latency
+     * @param p999 the 99.9th percentile latency
+     * @param max the largest latency recorded
+     */
+    @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "p999", "max"})
+    public LatencySummary(long count, double mean, double p50, double p90, double p99,
+            double p999, double max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return the number of latencies recorded
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean latency in microseconds.
+     *
+     * @return the mean latency in microseconds
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Returns the median latency in microseconds.
+     *
+     * @return the median latency in microseconds
+     */
+    public double getP50() {
+        return p50;
+    }
+
+    /**
+     * Returns the 90th percentile latency in microseconds.
+     *
+     * @return the 90th percentile latency in microseconds
+     */
+    public double getP90() {
+        return p90;
+    }
+
+    /**
+     * Returns the 99th percentile latency in microseconds.
+     *
+     * @return the 99th percentile latency in microseconds
+     */
+    public double getP99() {
+        return p99;
+    }
+
+    /**
+     * Returns the 99.9th percentile latency in microseconds.
+     *
+     * @return the 99.9th percentile latency in microseconds
+     */
+    public double getP999() {
+        return p999;
+    }
+
+    /**
+     * Returns the largest latency recorded in microseconds.
+     *
+     * @return the largest latency in microseconds
+     */
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencySummary{count=" + count + ", mean=" + mean + "us, p50=" + p50
+                + "us, p90=" + p90 + "us, p99=" + p99 + "us, p999=" + p999
+                + "us, max=" + max + "us}";
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import net.sourceforge.stripes.action.Resolution;
+import net.sourceforge.stripes.config.BootstrapPropertyResolver;
+import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.controller.ExecutionContext;
+import net.sourceforge.stripes.controller.LifecycleStage;
+import net.sourceforge.stripes.controller.StripesFilter;
+import net.sourceforge.stripes.util.Log;
+
+/**
+ * <p>
+ * Looks up the {@link MetricsSink} of a {@link Configuration}. Sinks are
+ * created the first time they are asked for and are kept until
+ * {@link #shutdown(Configuration)} is called, which the StripesFilter does when
+ * it is destroyed.</p>
+ *
+ * <p>
+ * When metrics are disabled {@link #getSink()} returns null, so that
+ * instrumented code pays for no more than a null check:</p>
+ *
+ * <pre>
+ * MetricsSink metrics = Metrics.getSink();
+ * if (metrics != null) {
+ *     metrics.converterFailed(type, converter.getClass());
+ * }
+ * </pre>
+ *
+ * @since Stripes 1.7
+ */
+public final class Metrics {
+
+    private static final Log log = Log.getInstance(Metrics.class);
+
+    /**
+     * The configuration key that enables the built-in {@link RequestMetrics}
+     * sink. Set it to false to disable all sinks, including those found in the
+     * Extension.Packages.
+     */
+    public static final String ENABLED = "Metrics.Enabled";
+
+    /**
+     * The configuration key listing additional {@link MetricsSink} classes.
+     */
+    public static final String SINKS = "Metrics.Sinks";
+
+    /* The sinks of every live configuration, null values meaning disabled. */
+    private static final Map<Configuration, MetricsSink> sinks
+            = new WeakHashMap<Configuration, MetricsSink>();
+
+    /* The most recently looked up configuration and its sink. */
+    private static volatile Entry current = new Entry(null, null);
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the sink of the current configuration.
+     *
+     * @return the sink, or null if metrics are disabled
+     */
+    public static MetricsSink getSink() {
+        return getSink(StripesFilter.getConfiguration());
+    }
+
+    /**
+     * Returns the sink of the configuration given, creating it if necessary.
+     *
+     * @param configuration the configuration, possibly null
+     * @return the sink, or null if metrics are disabled
+     */
+    public static MetricsSink getSink(Configuration configuration) {
+        if (configuration == null) {
+            return null;
+        }
+
+        Entry entry = current;
+        if (entry.configuration != configuration) {
+            synchronized (sinks) {
+                MetricsSink sink;
+                if (sinks.containsKey(configuration)) {
+                    sink = sinks.get(configuration);
+                } else {
+                    sink = createSink(configuration);
+                    sinks.put(configuration, sink);
+                }
+                entry = new Entry(configuration, sink);
+                current = entry;
+            }
+        }
+
+        return entry.sink;
+    }
+
+    /**
+     * Destroys the sink of the configuration given, if it has one.
+     *
+     * @param configuration the configuration being shut down
+     */
+    public static void shutdown(Configuration configuration) {
+        MetricsSink sink;
+        synchronized (sinks) {
+            sink = sinks.remove(configuration);
+            if (current.configuration == configuration) {
+                current = new Entry(null, null);
+            }
+        }
+
+        if (sink != null) {
+            try {
+                sink.destroy();
+            } catch (Exception e) {
+                log.warn(e, "Could not destroy metrics sink ", sink);
+            }
+        }
+    }
+
+    /**
+     * Creates the sinks configured for the configuration given.
+     */
+    private static MetricsSink createSink(Configuration configuration) {
+        BootstrapPropertyResolver bootstrap = configuration.getBootstrapPropertyResolver();
+        if (bootstrap == null) {
+            return null;
+        }
+
+        String enabled = bootstrap.getProperty(ENABLED);
+        if (enabled != null && "false".equalsIgnoreCase(enabled.trim())) {
+            return null;
+        }
+
+        Set<Class<? extends MetricsSink>> classes = new LinkedHashSet<Class<? extends MetricsSink>>();
+        if (enabled != null && "true".equalsIgnoreCase(enabled.trim())) {
+            classes.add(RequestMetrics.class);
+        }
+        classes.addAll(bootstrap.getClassPropertyList(SINKS, MetricsSink.class));
+
+        List<MetricsSink> created = new ArrayList<MetricsSink>();
+        for (Class<? extends MetricsSink> clazz : classes) {
+            try {
+                MetricsSink sink = configuration.getObjectFactory() == null
+                        ? clazz.getDeclaredConstructor().newInstance()
+                        : configuration.getObjectFactory().newInstance(clazz);
+                sink.init(configuration);
+                created.add(sink);
+                log.info("Recording request metrics with ", clazz.getName());
+            } catch (Exception e) {
+                log.error(e, "Could not create metrics sink ", clazz.getName(), ". It will be ignored.");
+            }
+        }
+
+        if (created.isEmpty()) {
+            return null;
+        } else if (created.size() == 1) {
+            return created.get(0);
+        } else {
+            return new CompositeSink(created.toArray(new MetricsSink[created.size()]));
+        }
+    }
+
+    /**
+     * A configuration and its sink, published together.
+     */
+    private static final class Entry {
+
+        final Configuration configuration;
+        final MetricsSink sink;
+
+        Entry(Configuration configuration, MetricsSink sink) {
+            this.configuration = configuration;
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * Passes every measurement on to several sinks.
+     */
+    private static final class CompositeSink implements MetricsSink {
+
+        private final MetricsSink[] delegates;
+
+        CompositeSink(MetricsSink[] delegates) {
+            this.delegates = delegates;
+        }
+
+        @Override
+        public void init(Configuration configuration) {
+        }
+
+        @Override
+        public void stageCompleted(ExecutionContext context, LifecycleStage stage, long nanos) {
+            for (MetricsSink delegate : delegates) {
+                delegate.stageCompleted(context, stage, nanos);
+            }
+        }
+
+        @Override
+        public void requestCompleted(ExecutionContext context, long nanos) {
+            for (MetricsSink delegate : delegates) {
+                delegate.requestCompleted(context, nanos);
+            }
+        }
+
+        @Override
+        public void validationErrors(ExecutionContext context, LifecycleStage stage, int count) {
+            for (MetricsSink delegate : delegates) {
+                delegate.validationErrors(context, stage, count);
+            }
+        }
+
+        @Override
+        public void converterFailed(Class<?> targetType, Class<?> converterType) {
+            for (MetricsSink delegate : delegates) {
+                delegate.converterFailed(targetType, converterType);
+            }
+        }
+
+        @Override
+        public void resolutionExecuted(ExecutionContext context, Resolution resolution) {
+            for (MetricsSink delegate : delegates) {
+                delegate.resolutionExecuted(context, resolution);
+            }
+        }
+
+        @Override
+        public void destroy() {
+            for (MetricsSink delegate : delegates) {
+                try {
+                    delegate.destroy();
+                } catch (Exception e) {
+                    log.warn(e, "Could not destroy metrics sink ", delegate);
+                }
+            }
+        }
+    }
+}
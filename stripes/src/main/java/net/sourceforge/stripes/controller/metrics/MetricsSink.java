@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller.metrics;
+
+import net.sourceforge.stripes.action.Resolution;
+import net.sourceforge.stripes.config.ConfigurableComponent;
+import net.sourceforge.stripes.controller.ExecutionContext;
+import net.sourceforge.stripes.controller.LifecycleStage;
+
+/**
+ * <p>
+ * Receives measurements of the request processing lifecycle. Sinks are called
+ * by the {@link ExecutionContext} as each {@link LifecycleStage} completes,
+ * independently of (and including the time spent in) any
+ * {@link net.sourceforge.stripes.controller.Interceptor}s, and by the property
+ * binder when a type converter fails.</p>
+ *
+ * <p>
+ * Sinks are configured by listing their classes under
+ * {@link Metrics#SINKS} in web.xml, or by placing them in one of the
+ * Extension.Packages; the built-in {@link RequestMetrics} sink is added when
+ * {@link Metrics#ENABLED} is true. When no sink is configured nothing is
+ * measured at all. Implementations are shared by all requests and so must be
+ * thread safe, and they should be fast: every method is called on the request
+ * thread.</p>
+ *
+ * @since Stripes 1.7
+ */
+public interface MetricsSink extends ConfigurableComponent {
+
+    /**
+     * Called when a lifecycle stage completes, whether normally or by throwing
+     * an exception.
+     *
+     * @param context the execution context of the request
+     * @param stage the stage that completed
+     * @param nanos the time spent in the stage, including interceptors
+     */
+    void stageCompleted(ExecutionContext context, LifecycleStage stage, long nanos);
+
+    /**
+     * Called when a request completes, after the
+     * {@link LifecycleStage#RequestComplete} stage.
+     *
+     * @param context the execution context of the request
+     * @param nanos the time elapsed since the start of
+     * {@link LifecycleStage#RequestInit}
+     */
+    void requestCompleted(ExecutionContext context, long nanos);
+
+    /**
+     * Called when validation errors are added to the request. Errors produced
+     * by type conversion and the validations declared with
+     * {@link net.sourceforge.stripes.validation.Validate} are reported for
+     * {@link LifecycleStage#BindingAndValidation}, errors produced by
+     * {@link net.sourceforge.stripes.validation.ValidationMethod}s for
+     * {@link LifecycleStage#CustomValidation}.
+     *
+     * @param context the execution context of the request
+     * @param stage the stage during which the errors were added
+     * @param count the number of errors added, always more than zero
+     */
+    void validationErrors(ExecutionContext context, LifecycleStage stage, int count);
+
+    /**
+     * Called when a type converter fails to convert a value, either by
+     * producing validation errors or by throwing an exception.
+     *
+     * @param targetType the type the value was being converted to
+     * @param converterType the type of the converter, or null if the value was
+     * being converted using a String constructor
+     */
+    void converterFailed(Class<?> targetType, Class<?> converterType);
+
+    /**
+     * Called when a Resolution has been executed.
+     *
+     * @param context the execution context of the request
+     * @param resolution the resolution that was executed
+     */
+    void resolutionExecuted(ExecutionContext context, Resolution resolution);
+
+    /**
+     * Called when the StripesFilter is destroyed so the sink can release any
+     * resources it holds.
+     */
+    void destroy();
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.FilterConfig;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.ActionBeanContext;
+import net.sourceforge.stripes.action.Resolution;
+import net.sourceforge.stripes.config.BootstrapPropertyResolver;
+import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.controller.ExecutionContext;
+import net.sourceforge.stripes.controller.LifecycleStage;
+import net.sourceforge.stripes.util.Log;
+
+/**
+ * <p>
+ * The built-in {@link MetricsSink}. Keeps a {@link LatencyHistogram} for whole
+ * requests, for each {@link LifecycleStage}, for each ActionBean class and for
+ * each event of each ActionBean class (default handlers that are not bound to
+ * a named event are keyed by method name), and counts the validation errors
+ * reported during binding and during custom validation, converter failures and
+ * executed resolutions by type.</p>
+ *
+ * <p>
+ * On initialization the sink registers itself with the platform MBeanServer
+ * under the name
+ * {@code net.sourceforge.stripes:type=RequestMetrics,context=<context path>}
+ * and it unregisters itself when destroyed. The sink is enabled by setting
+ * {@link Metrics#ENABLED} to true.</p>
+ *
+ * @since Stripes 1.7
+ */
+public class RequestMetrics implements MetricsSink, RequestMetricsMXBean {
+
+    private static final Log log = Log.getInstance(RequestMetrics.class);
+
+    /**
+     * The domain of the ObjectNames under which instances are registered.
+     */
+    public static final String JMX_DOMAIN = "net.sourceforge.stripes";
+
+    /**
+     * The name of the counter of validation errors reported during
+     * {@link LifecycleStage#BindingAndValidation}: type conversion errors as
+     * well as the errors of the validations declared with
+     * {@link net.sourceforge.stripes.validation.Validate}.
+     */
+    public static final String BINDING_AND_VALIDATION_ERRORS = "BindingAndValidationErrors";
+
+    /**
+     * The name of the counter of validation errors reported during
+     * {@link LifecycleStage#CustomValidation} by
+     * {@link net.sourceforge.stripes.validation.ValidationMethod}s.
+     */
+    public static final String CUSTOM_VALIDATION_ERRORS = "CustomValidationErrors";
+
+    /**
+     * The name of the counter of converter failures; failures are also counted
+     * per target type under this name followed by a colon and the type name.
+     */
+    public static final String CONVERTER_FAILURES = "ConverterFailures";
+
+    /**
+     * The prefix of the counters of executed resolutions, which are followed
+     * by a colon and the resolution class name.
+     */
+    public static final String RESOLUTIONS = "Resolutions";
+
+    private static final LifecycleStage[] STAGES = LifecycleStage.values();
+
+    private final LatencyHistogram requests = new LatencyHistogram();
+    private final LatencyHistogram[] stages = new LatencyHistogram[STAGES.length];
+    private final ConcurrentMap<Class<?>, LatencyHistogram> beans
+            = new ConcurrentHashMap<Class<?>, LatencyHistogram>();
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, LatencyHistogram>> events
+            = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, LatencyHistogram>>();
+    private final AtomicLong bindingAndValidationErrors = new AtomicLong();
+    private final AtomicLong customValidationErrors = new AtomicLong();
+    private final AtomicLong converterFailures = new AtomicLong();
+    private final ConcurrentMap<Class<?>, AtomicLong> converterFailuresByType
+            = new ConcurrentHashMap<Class<?>, AtomicLong>();
+    private final ConcurrentMap<Class<?>, AtomicLong> resolutions
+            = new ConcurrentHashMap<Class<?>, AtomicLong>();
+
+    private ObjectName objectName;
+
+    /**
+     * Constructs a new, empty, set of metrics.
+     */
+    public RequestMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Registers the sink with the platform MBeanServer. Failure to register is
+     * logged rather than thrown, since metrics are not worth failing startup
+     * over.
+     *
+     * @param configuration the Configuration being used by Stripes
+     */
+    @Override
+    public void init(Configuration configuration) {
+        String base = JMX_DOMAIN + ":type=RequestMetrics,context="
+                + ObjectName.quote(getContextPath(configuration));
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(base);
+            for (int instance = 2; objectName == null; instance++) {
+                try {
+                    server.registerMBean(this, name);
+                    objectName = name;
+                } catch (InstanceAlreadyExistsException e) {
+                    name = new ObjectName(base + ",instance=" + instance);
+                }
+            }
+            log.info("Registered request metrics as ", objectName);
+        } catch (Exception e) {
+            log.warn(e, "Could not register request metrics with the platform MBeanServer.");
+        }
+    }
+
+    /**
+     * Unregisters the sink from the platform MBeanServer.
+     */
+    @Override
+    public void destroy() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (Exception e) {
+                log.debug(e, "Could not unregister ", objectName);
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * Returns the name the sink is registered under, or null if it is not
+     * registered.
+     *
+     * @return the ObjectName of the MBean, or null
+     */
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public void stageCompleted(ExecutionContext context, LifecycleStage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void requestCompleted(ExecutionContext context, long nanos) {
+        requests.record(nanos);
+
+        ActionBean bean = context.getActionBean();
+        if (bean != null) {
+            Class<?> beanClass = bean.getClass();
+            LatencyHistogram histogram = beans.get(beanClass);
+            if (histogram == null) {
+                histogram = putIfAbsent(beans, beanClass, new LatencyHistogram());
+            }
+            histogram.record(nanos);
+
+            // Default handlers that do not handle a named event are keyed by method name
+            ActionBeanContext actionBeanContext = context.getActionBeanContext();
+            String event = actionBeanContext == null ? null : actionBeanContext.getEventName();
+            if (event == null && context.getHandler() != null) {
+                event = context.getHandler().getName();
+            }
+            if (event != null) {
+                ConcurrentMap<String, LatencyHistogram> beanEvents = events.get(beanClass);
+                if (beanEvents == null) {
+                    beanEvents = putIfAbsent(events, beanClass,
+                            new ConcurrentHashMap<String, LatencyHistogram>());
+                }
+                histogram = beanEvents.get(event);
+                if (histogram == null) {
+                    histogram = putIfAbsent(beanEvents, event, new LatencyHistogram());
+                }
+                histogram.record(nanos);
+            }
+        }
+    }
+
+    @Override
+    public void validationErrors(ExecutionContext context, LifecycleStage stage, int count) {
+        if (stage == LifecycleStage.BindingAndValidation) {
+            bindingAndValidationErrors.addAndGet(count);
+        } else {
+            customValidationErrors.addAndGet(count);
+        }
+    }
+
+    @Override
+    public void converterFailed(Class<?> targetType, Class<?> converterType) {
+        converterFailures.incrementAndGet();
+        increment(converterFailuresByType, targetType);
+    }
+
+    @Override
+    public void resolutionExecuted(ExecutionContext context, Resolution resolution) {
+        increment(resolutions, resolution.getClass());
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requests.getCount();
+    }
+
+    @Override
+    public LatencySummary getRequestLatency() {
+        return requests.getSummary();
+    }
+
+    @Override
+    public Map<String, LatencySummary> getStageLatencies() {
+        Map<String, LatencySummary> summaries = new TreeMap<String, LatencySummary>();
+        for (LifecycleStage stage : STAGES) {
+            summaries.put(stage.name(), stages[stage.ordinal()].getSummary());
+        }
+        return summaries;
+    }
+
+    @Override
+    public Map<String, LatencySummary> getActionBeanLatencies() {
+        Map<String, LatencySummary> summaries = new TreeMap<String, LatencySummary>();
+        for (Map.Entry<Class<?>, LatencyHistogram> entry : beans.entrySet()) {
+            summaries.put(entry.getKey().getName(), entry.getValue().getSummary());
+        }
+        return summaries;
+    }
+
+    @Override
+    public Map<String, LatencySummary> getEventLatencies() {
+        Map<String, LatencySummary> summaries = new TreeMap<String, LatencySummary>();
+        for (Map.Entry<Class<?>, ConcurrentMap<String, LatencyHistogram>> bean : events.entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> event : bean.getValue().entrySet()) {
+                summaries.put(bean.getKey().getName() + "#" + event.getKey(),
+                        event.getValue().getSummary());
+            }
+        }
+        return summaries;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new TreeMap<String, Long>();
+        counters.put(BINDING_AND_VALIDATION_ERRORS, bindingAndValidationErrors.get());
+        counters.put(CUSTOM_VALIDATION_ERRORS, customValidationErrors.get());
+        counters.put(CONVERTER_FAILURES, converterFailures.get());
+        for (Map.Entry<Class<?>, AtomicLong> entry : converterFailuresByType.entrySet()) {
+            counters.put(CONVERTER_FAILURES + ":" + entry.getKey().getName(), entry.getValue().get());
+        }
+        for (Map.Entry<Class<?>, AtomicLong> entry : resolutions.entrySet()) {
+            counters.put(RESOLUTIONS + ":" + entry.getKey().getName(), entry.getValue().get());
+        }
+        return counters;
+    }
+
+    /**
+     * Returns the histogram of a lifecycle stage.
+     *
+     * @param stage the lifecycle stage
+     * @return the histogram of the stage
+     */
+    public LatencyHistogram getStageHistogram(LifecycleStage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * Returns the histogram of requests to an ActionBean class.
+     *
+     * @param beanClass the ActionBean class
+     * @return the histogram, or null if no request to the class has completed
+     */
+    public LatencyHistogram getActionBeanHistogram(Class<? extends ActionBean> beanClass) {
+        return beans.get(beanClass);
+    }
+
+    /**
+     * Returns the histogram of requests to an event of an ActionBean class.
+     *
+     * @param beanClass the ActionBean class
+     * @param event the name of the event
+     * @return the histogram, or null if no request for the event has completed
+     */
+    public LatencyHistogram getEventHistogram(Class<? extends ActionBean> beanClass, String event) {
+        Map<String, LatencyHistogram> beanEvents = events.get(beanClass);
+        return beanEvents == null ? null : beanEvents.get(event);
+    }
+
+    @Override
+    public void reset() {
+        requests.reset();
+        for (LatencyHistogram stage : stages) {
+            stage.reset();
+        }
+        beans.clear();
+        events.clear();
+        bindingAndValidationErrors.set(0);
+        customValidationErrors.set(0);
+        converterFailures.set(0);
+        converterFailuresByType.clear();
+        resolutions.clear();
+    }
+
+    private static <K> void increment(ConcurrentMap<K, AtomicLong> counters, K key) {
+        AtomicLong counter = counters.get(key);
+        if (counter == null) {
+            counter = putIfAbsent(counters, key, new AtomicLong());
+        }
+        counter.incrementAndGet();
+    }
+
+    private static <K, V> V putIfAbsent(ConcurrentMap<K, V> map, K key, V value) {
+        V existing = map.putIfAbsent(key, value);
+        return existing == null ? value : existing;
+    }
+
+    private static String getContextPath(Configuration configuration) {
+        BootstrapPropertyResolver bootstrap = configuration == null ? null
+                : configuration.getBootstrapPropertyResolver();
+        FilterConfig filterConfig = bootstrap == null ? null : bootstrap.getFilterConfig();
+        String path = filterConfig == null || filterConfig.getServletContext() == null ? null
+                : filterConfig.getServletContext().getContextPath();
+        return path == null || path.length() == 0 ? "/" : path;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link RequestMetrics}. All latencies are in
+ * microseconds.
+ *
+ * @since Stripes 1.7
+ */
+public interface RequestMetricsMXBean {
+
+    /**
+     * Returns the number of requests completed.
+     *
+     * @return the number of requests completed
+     */
+    long getRequestCount();
+
+    /**
+     * Returns the latency of whole requests.
+     *
+     * @return the summary of the request latencies
+     */
+    LatencySummary getRequestLatency();
+
+    /**
+     * Returns the latency of each lifecycle stage, keyed by stage name.
+     *
+     * @return the latency summaries keyed by stage name
+     */
+    Map<String, LatencySummary> getStageLatencies();
+
+    /**
+     * Returns the latency of whole requests, keyed by ActionBean class name.
+     *
+     * @return the latency summaries keyed by ActionBean class name
+     */
+    Map<String, LatencySummary> getActionBeanLatencies();
+
+    /**
+     * Returns the latency of whole requests, keyed by ActionBean class name
+     * and event name separated by a hash.
+     *
+     * @return the latency summaries keyed by ActionBean class and event name
+     */
+    Map<String, LatencySummary> getEventLatencies();
+
+    /**
+     * Returns the binding and validation error, converter failure and
+     * resolution counters, keyed by counter name.
+     *
+     * @return the counters keyed by counter name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Discards everything recorded so far.
+     */
+    void reset();
+}
@@ -14,8 +14,11 @@
  */
 package net.sourceforge.stripes.controller.multipart;
 
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.Streaming;
 import net.sourceforge.stripes.controller.FileUploadLimitExceededException;
 import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.util.HttpUtil;
 import net.sourceforge.stripes.util.Log;
 import net.sourceforge.stripes.exception.StripesRuntimeException;
 
@@ -29,9 +32,16 @@ import java.util.regex.Matcher;
  * <p>
  * Default implementation of a factory for MultipartWrappers. Looks up a class
  * name in Configuration under the key specified by {@link #WRAPPER_CLASS_NAME}.
- * If no class name is configured, defaults to the {@link CosMultipartWrapper}.
- * An additional configuration parameter is supported to specify the maximum
- * post size allowable.</p>
+ * If no class name is configured, defaults to the {@link CommonsMultipartWrapper},
+ * the {@link CosMultipartWrapper} or the {@link StreamingMultipartWrapper}, in
+ * that order, depending on which libraries are available. Additional
+ * configuration parameters are supported to specify the maximum post size
+ * allowable and the size up to which the StreamingMultipartWrapper keeps
+ * uploaded files in memory.</p>
+ *
+ * <p>
+ * Requests to ActionBeans annotated with {@link Streaming} are always handled
+ * by a StreamingMultipartWrapper in streaming mode.</p>
  *
  * @author Tim Fennell
  * @since Stripes 1.4
@@ -50,13 +60,20 @@ public class DefaultMultipartWrapperFactory implements MultipartWrapperFactory {
      */
     public static final String[] BUNDLED_IMPLEMENTATIONS = {
         "net.sourceforge.stripes.controller.multipart.CommonsMultipartWrapper",
-        "net.sourceforge.stripes.controller.multipart.CosMultipartWrapper"};
+        "net.sourceforge.stripes.controller.multipart.CosMultipartWrapper",
+        "net.sourceforge.stripes.controller.multipart.StreamingMultipartWrapper"};
 
     /**
      * Key used to lookup the name of the maximum post size.
      */
     public static final String MAX_POST = "FileUpload.MaximumPostSize";
 
+    /**
+     * Key used to lookup the size up to which the StreamingMultipartWrapper
+     * keeps uploaded files in memory.
+     */
+    public static final String IN_MEMORY_THRESHOLD = "FileUpload.InMemoryThreshold";
+
     private static final Log log = Log.getInstance(DefaultMultipartWrapperFactory.class);
 
     // Instance level fields
@@ -64,6 +81,7 @@ public class DefaultMultipartWrapperFactory implements MultipartWrapperFactory {
     private Class<? extends MultipartWrapper> multipartClass;
     private long maxPostSizeInBytes = 1024 * 1024 * 10; // Defaults to 10MB
     private File temporaryDirectory;
+    private int inMemoryThreshold = StreamingMultipartWrapper.DEFAULT_IN_MEMORY_THRESHOLD;
 
     /**
      * Get the configuration object that was passed into
@@ -132,32 +150,64 @@ public class DefaultMultipartWrapperFactory implements MultipartWrapperFactory {
         }
 
         // See if a maximum post size was configured
-        String limit = config.getBootstrapPropertyResolver().getProperty(MAX_POST);
-        if (limit != null) {
-            Pattern pattern = Pattern.compile("([\\d,]+)([kKmMgG]?).*");
-            Matcher matcher = pattern.matcher(limit);
-            if (!matcher.matches()) {
-                log.error("Did not understand value of configuration parameter ", MAX_POST,
-                        " You supplied: ", limit, ". Valid values are any string of numbers ",
-                        "optionally followed by (case insensitive) [k|kb|m|mb|g|gb]. ",
-                        "Default value of ", this.maxPostSizeInBytes, " bytes will be used instead.");
-            } else {
-                String digits = matcher.group(1);
-                String suffix = matcher.group(2).toLowerCase();
-                long number = Long.parseLong(digits);
-
-                if ("k".equals(suffix)) {
-                    number = number * 1024;
-                } else if ("m".equals(suffix)) {
-                    number = number * 1024 * 1024;
-                } else if ("g".equals(suffix)) {
-                    number = number * 1024 * 1024 * 1024;
-                }
+        this.maxPostSizeInBytes = getSizeProperty(MAX_POST, this.maxPostSizeInBytes);
 
-                this.maxPostSizeInBytes = number;
-                log.info("Configured file upload post size limit: ", number, " bytes.");
-            }
+        // And the in-memory threshold for the streaming wrapper
+        this.inMemoryThreshold = (int) Math.min(Integer.MAX_VALUE,
+                getSizeProperty(IN_MEMORY_THRESHOLD, this.inMemoryThreshold));
+    }
+
+    /**
+     * Reads a size from configuration. Valid values are any string of numbers
+     * optionally followed by (case insensitive) [k|kb|m|mb|g|gb].
+     *
+     * @param key the configuration key
+     * @param defaultValue the value to use if the property is absent or invalid
+     * @return the size in bytes
+     */
+    protected long getSizeProperty(String key, long defaultValue) {
+        String limit = configuration.getBootstrapPropertyResolver().getProperty(key);
+        if (limit == null) {
+            return defaultValue;
         }
+
+        Pattern pattern = Pattern.compile("([\\d,]+)([kKmMgG]?).*");
+        Matcher matcher = pattern.matcher(limit);
+        if (!matcher.matches()) {
+            log.error("Did not understand value of configuration parameter ", key,
+                    " You supplied: ", limit, ". Valid values are any string of numbers ",
+                    "optionally followed by (case insensitive) [k|kb|m|mb|g|gb]. ",
+                    "Default value of ", defaultValue, " bytes will be used instead.");
+            return defaultValue;
+        }
+
+        String digits = matcher.group(1);
+        String suffix = matcher.group(2).toLowerCase();
+        long number = Long.parseLong(digits);
+
+        if ("k".equals(suffix)) {
+            number = number * 1024;
+        } else if ("m".equals(suffix)) {
+            number = number * 1024 * 1024;
+        } else if ("g".equals(suffix)) {
+            number = number * 1024 * 1024 * 1024;
+        }
+
+        log.info("Configured ", key, ": ", number, " bytes.");
+        return number;
+    }
+
+    /**
+     * Returns true if the request is bound to an ActionBean annotated with
+     * {@link Streaming}.
+     *
+     * @param request the multipart request
+     * @return true if the request's file parts should be streamed
+     */
+    protected boolean isStreaming(HttpServletRequest request) {
+        Class<? extends ActionBean> beanType = getConfiguration().getActionResolver()
+                .getActionBeanType(HttpUtil.getRequestedPath(request));
+        return beanType != null && beanType.isAnnotationPresent(Streaming.class);
     }
 
     /**
@@ -174,8 +224,13 @@ public class DefaultMultipartWrapperFactory implements MultipartWrapperFactory {
      */
     public MultipartWrapper wrap(HttpServletRequest request) throws IOException, FileUploadLimitExceededException {
         try {
+            boolean streaming = isStreaming(request);
             MultipartWrapper wrapper = getConfiguration().getObjectFactory().newInstance(
-                    this.multipartClass);
+                    streaming ? StreamingMultipartWrapper.class : this.multipartClass);
+            if (wrapper instanceof StreamingMultipartWrapper) {
+                ((StreamingMultipartWrapper) wrapper).setInMemoryThreshold(this.inMemoryThreshold);
+                ((StreamingMultipartWrapper) wrapper).setStreaming(streaming);
+            }
             wrapper.build(request, this.temporaryDirectory, this.maxPostSizeInBytes);
             return wrapper;
         } catch (IOException ioe) {
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller.multipart;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Minimal, allocation-conscious reader for a multipart/form-data request body.
+ * Parts are read one at a time, in the order in which they arrive, through an
+ * {@link InputStream} that ends at the next boundary. Nothing is written to
+ * disk; it is up to the caller to decide what to do with the content of each
+ * part.
+ *
+ * @since Stripes 1.7
+ */
+class MultipartStream {
+
+    /**
+     * Thrown when more than the allowed number of bytes are read from the
+     * request body.
+     */
+    static class SizeLimitExceededException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+        private final long maximum;
+        private final long actual;
+
+        SizeLimitExceededException(long maximum, long actual) {
+            super("Posted content length of " + actual + " exceeds limit of " + maximum);
+            this.maximum = maximum;
+            this.actual = actual;
+        }
+
+        long getMaximum() {
+            return maximum;
+        }
+
+        long getActual() {
+            return actual;
+        }
+    }
+
+    /**
+     * The maximum number of bytes allowed for the headers of a single part.
+     */
+    private static final int MAX_HEADER_SIZE = 10240;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte DASH = '-';
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private final long maxPostSize;
+    private int head;
+    private int tail;
+    /** Positions in front of this index have been checked and do not start a delimiter. */
+    private int scanned;
+    /** Position of the delimiter found in the buffer, or -1 if none was found yet. */
+    private int found = -1;
+    private long bytesRead;
+    private boolean eof;
+    private boolean finished;
+    private PartInputStream currentPart;
+
+    /**
+     * Creates a reader for the body supplied.
+     *
+     * @param in the request body
+     * @param boundary the boundary from the request's Content-Type header
+     * @param bufferSize the size of the read buffer
+     * @param maxPostSize the number of bytes beyond which reading fails
+     */
+    MultipartStream(InputStream in, String boundary, int bufferSize, long maxPostSize) {
+        this.in = in;
+        this.maxPostSize = maxPostSize;
+        this.delimiter = toAscii("\r\n--" + boundary);
+        this.buffer = new byte[Math.max(bufferSize, this.delimiter.length * 2 + 4)];
+
+        // Prime the buffer with a CRLF so the first boundary looks like every other delimiter
+        this.buffer[0] = CR;
+        this.buffer[1] = LF;
+        this.tail = 2;
+    }
+
+    /**
+     * Extracts the boundary from a multipart Content-Type header.
+     *
+     * @param contentType the Content-Type header of the request
+     * @return the boundary, or null if none is declared
+     */
+    static String getBoundary(String contentType) {
+        String boundary = getHeaderParameter(contentType, "boundary");
+        return (boundary == null || boundary.length() == 0) ? null : boundary;
+    }
+
+    /**
+     * Returns the value of a parameter in a header value such as
+     * {@code form-data; name="foo"; filename="bar.txt"}.
+     *
+     * @param header the header value
+     * @param parameter the lower case name of the parameter
+     * @return the unquoted value or null if the parameter is not present
+     */
+    static String getHeaderParameter(String header, String parameter) {
+        if (header == null) {
+            return null;
+        }
+
+        int length = header.length();
+        int index = header.indexOf(';');
+        while (index >= 0 && index < length) {
+            int start = index + 1;
+            while (start < length && header.charAt(start) == ' ') {
+                ++start;
+            }
+
+            int equals = header.indexOf('=', start);
+            if (equals < 0) {
+                return null;
+            }
+
+            String name = header.substring(start, equals).trim().toLowerCase(Locale.ENGLISH);
+            int valueStart = equals + 1;
+            int valueEnd;
+            String value;
+            if (valueStart < length && header.charAt(valueStart) == '"') {
+                valueEnd = header.indexOf('"', valueStart + 1);
+                if (valueEnd < 0) {
+                    valueEnd = length;
+                }
+                value = header.substring(valueStart + 1, valueEnd);
+                valueEnd = header.indexOf(';', valueEnd);
+            } else {
+                valueEnd = header.indexOf(';', valueStart);
+                value = header.substring(valueStart, valueEnd < 0 ? length : valueEnd).trim();
+            }
+
+            if (name.equals(parameter)) {
+                return value;
+            }
+            index = valueEnd;
+        }
+
+        return null;
+    }
+
+    /**
+     * Advances to the next part, discarding any unread content of the current
+     * part (or the preamble, the first time this is called).
+     *
+     * @return true if there is another part to read, false at the end of the
+     * body
+     * @throws IOException if the body cannot be read or is malformed
+     */
+    boolean nextPart() throws IOException {
+        if (this.finished) {
+            return false;
+        }
+
+        if (this.currentPart == null) {
+            this.currentPart = new PartInputStream();
+        }
+        this.currentPart.drain();
+
+        // After the delimiter comes either "--" (end of body) or optional whitespace and CRLF
+        int b1 = readByte();
+        int b2 = readByte();
+        if (b1 == DASH && b2 == DASH) {
+            this.finished = true;
+            return false;
+        }
+        while (b1 == ' ' || b1 == '\t') {
+            b1 = b2;
+            b2 = readByte();
+        }
+        if (b1 != CR || b2 != LF) {
+            throw new IOException("Malformed multipart body: boundary not followed by CRLF.");
+        }
+
+        this.currentPart = null;
+        return true;
+    }
+
+    /**
+     * Reads the headers of the current part. Must be called directly after
+     * {@link #nextPart()} returns true.
+     *
+     * @return a map of lower case header name to header value
+     * @throws IOException if the headers cannot be read
+     */
+    Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        byte[] line = new byte[256];
+        int total = 0;
+
+        while (true) {
+            int length = 0;
+            int b;
+            while ((b = readByte()) != LF) {
+                if (b < 0) {
+                    throw new IOException("Malformed multipart body: unexpected end of part headers.");
+                }
+                if (++total > MAX_HEADER_SIZE) {
+                    throw new IOException("Multipart part headers exceed " + MAX_HEADER_SIZE + " bytes.");
+                }
+                if (length == line.length) {
+                    byte[] grown = new byte[line.length * 2];
+                    System.arraycopy(line, 0, grown, 0, length);
+                    line = grown;
+                }
+                line[length++] = (byte) b;
+            }
+            if (length > 0 && line[length - 1] == CR) {
+                --length;
+            }
+            if (length == 0) {
+                return headers;
+            }
+
+            String header = new String(line, 0, length, "UTF-8");
+            int colon = header.indexOf(':');
+            if (colon > 0) {
+                headers.put(header.substring(0, colon).trim().toLowerCase(Locale.ENGLISH),
+                        header.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    /**
+     * Returns a stream over the content of the current part. The stream ends at
+     * the next boundary. Must be called after {@link #readHeaders()}.
+     *
+     * @return the content of the current part
+     */
+    InputStream getPartStream() {
+        if (this.currentPart == null) {
+            this.currentPart = new PartInputStream();
+        }
+        return this.currentPart;
+    }
+
+    /**
+     * Returns the number of bytes read from the underlying stream so far.
+     * @return the number of bytes read
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    private int readByte() throws IOException {
+        if (this.head == this.tail && !fill()) {
+            return -1;
+        }
+        return this.buffer[this.head++] & 0xff;
+    }
+
+    /**
+     * Moves unread bytes to the front of the buffer and reads more data after
+     * them.
+     *
+     * @return false if no more data could be read
+     */
+    private boolean fill() throws IOException {
+        if (this.eof) {
+            return false;
+        }
+
+        if (this.head > 0) {
+            System.arraycopy(this.buffer, this.head, this.buffer, 0, this.tail - this.head);
+            this.tail -= this.head;
+            this.scanned = Math.max(0, this.scanned - this.head);
+            if (this.found >= 0) {
+                this.found -= this.head;
+            }
+            this.head = 0;
+        }
+
+        int count = this.in.read(this.buffer, this.tail, this.buffer.length - this.tail);
+        if (count < 0) {
+            this.eof = true;
+            return false;
+        }
+
+        this.bytesRead += count;
+        if (this.maxPostSize >= 0 && this.bytesRead > this.maxPostSize) {
+            throw new SizeLimitExceededException(this.maxPostSize, this.bytesRead);
+        }
+        this.tail += count;
+        return true;
+    }
+
+    /**
+     * Returns the position of the delimiter in the unread part of the buffer,
+     * or -1 if it is not (completely) present. Positions checked by an earlier
+     * call are not searched again; when -1 is returned, every byte in front of
+     * {@link #scanned} is known to be part content.
+     */
+    private int findDelimiter() {
+        if (this.found >= 0) {
+            return this.found;
+        }
+
+        int last = this.tail - this.delimiter.length;
+        int i = Math.max(this.scanned, this.head);
+        outer:
+        for (; i <= last; ++i) {
+            for (int j = 0; j < this.delimiter.length; ++j) {
+                if (this.buffer[i + j] != this.delimiter[j]) {
+                    continue outer;
+                }
+            }
+            this.scanned = i;
+            this.found = i;
+            return i;
+        }
+        this.scanned = i;
+        return -1;
+    }
+
+    /**
+     * Consumes the delimiter found by {@link #findDelimiter()}.
+     */
+    private void skipDelimiter() {
+        this.head = this.found + this.delimiter.length;
+        this.scanned = this.head;
+        this.found = -1;
+    }
+
+    private static byte[] toAscii(String s) {
+        try {
+            return s.getBytes("ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Stream over the content of one part. Reads directly out of the shared
+     * buffer and stops in front of the next delimiter.
+     */
+    private class PartInputStream extends InputStream {
+
+        private boolean done;
+        private final byte[] one = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            int count = read(one, 0, 1);
+            return count < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (this.done) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+
+            while (true) {
+                int position = findDelimiter();
+                int available;
+                if (position >= 0) {
+                    available = position - head;
+                    if (available == 0) {
+                        skipDelimiter();
+                        this.done = true;
+                        return -1;
+                    }
+                } else {
+                    // Bytes that can't be the start of a delimiter are safe to hand out
+                    available = scanned - head;
+                }
+
+                if (available > 0) {
+                    int count = Math.min(available, len);
+                    System.arraycopy(buffer, head, b, off, count);
+                    head += count;
+                    return count;
+                }
+
+                if (!fill()) {
+                    throw new IOException("Malformed multipart body: unexpected end of stream in part.");
+                }
+            }
+        }
+
+        @Override
+        public int available() {
+            if (this.done) {
+                return 0;
+            }
+            int position = findDelimiter();
+            return Math.max(0, (position >= 0 ? position : scanned) - head);
+        }
+
+        @Override
+        public void close() throws IOException {
+            drain();
+        }
+
+        void drain() throws IOException {
+            byte[] skip = new byte[4096];
+            while (read(skip, 0, skip.length) >= 0) {
+                // discard
+            }
+        }
+    }
+}
@@ -0,0 +1,565 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller.multipart;
+
+import net.sourceforge.stripes.action.FileBean;
+import net.sourceforge.stripes.action.Streaming;
+import net.sourceforge.stripes.controller.ContentTypeRequestWrapper;
+import net.sourceforge.stripes.controller.FileUploadLimitExceededException;
+import net.sourceforge.stripes.controller.StripesRequestWrapper;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Implementation of MultipartWrapper that parses the request body itself,
+ * without any third party library and without the Servlet 3 part API (which
+ * lets the container spool parts to disk).</p>
+ *
+ * <p>
+ * In the default, buffered, mode the whole body is parsed when the wrapper is
+ * built. File parts no larger than the {@link #setInMemoryThreshold(int)
+ * in-memory threshold} are kept in memory and never touch the disk; only larger
+ * parts are written to the temporary directory. The resulting {@link FileBean}s
+ * behave exactly like those of the other wrappers.</p>
+ *
+ * <p>
+ * In {@link #setStreaming(boolean) streaming} mode, which is used for
+ * ActionBeans annotated with {@link Streaming}, the body is only parsed up to
+ * the first file part when the wrapper is built. The regular parameters that
+ * precede it are available for binding as usual, but no file parameters are
+ * bound. Instead the event handler consumes the file parts, in the order in
+ * which they arrive, through {@link #getFileParts()}. Each FileBean returned
+ * streams its content directly off the request body, can be read only once, and
+ * is skipped if the handler moves on to the next part without reading it.
+ * Regular parameters that arrive after a file part are not bound; they are
+ * collected as they are encountered and can be read from
+ * {@link #getParameterValues(String)} once the parts have been consumed.</p>
+ *
+ * @since Stripes 1.7
+ */
+public class StreamingMultipartWrapper implements MultipartWrapper {
+
+    private static final Pattern WINDOWS_PATH_PREFIX_PATTERN = Pattern.compile("(?i:^[A-Z]:\\\\)");
+
+    /**
+     * Default size, in bytes, up to which file parts are kept in memory.
+     */
+    public static final int DEFAULT_IN_MEMORY_THRESHOLD = 10240;
+
+    private int inMemoryThreshold = DEFAULT_IN_MEMORY_THRESHOLD;
+    private boolean streaming;
+    private String charset;
+    private File tempDirectory;
+    private MultipartStream stream;
+    private Map<String, List<String>> parameters = new LinkedHashMap<String, List<String>>();
+    private Map<String, FileBean> files = new LinkedHashMap<String, FileBean>();
+    private FileBean pendingPart;
+    private boolean partsStarted;
+
+    /**
+     * Looks up the StreamingMultipartWrapper that parsed the current request.
+     *
+     * @param request the current request
+     * @return the wrapper, or null if the request was not parsed by a
+     * StreamingMultipartWrapper
+     */
+    public static StreamingMultipartWrapper findWrapper(ServletRequest request) {
+        ContentTypeRequestWrapper wrapper = StripesRequestWrapper.findStripesWrapper(request)
+                .getContentTypeRequestWrapper();
+        if (wrapper instanceof StreamingMultipartWrapper) {
+            return (StreamingMultipartWrapper) wrapper;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Sets the size, in bytes, up to which file parts are kept in memory in
+     * buffered mode. Larger file parts are written to the temporary directory.
+     *
+     * @param inMemoryThreshold the size in bytes
+     */
+    public void setInMemoryThreshold(int inMemoryThreshold) {
+        this.inMemoryThreshold = inMemoryThreshold;
+    }
+
+    /**
+     * Returns the size, in bytes, up to which file parts are kept in memory.
+     * @return the in-memory threshold in bytes
+     */
+    public int getInMemoryThreshold() {
+        return inMemoryThreshold;
+    }
+
+    /**
+     * Switches streaming mode on or off. Must be called before
+     * {@link #build(HttpServletRequest, File, long)}.
+     *
+     * @param streaming true to stream file parts to the event handler
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Returns true if this wrapper is in streaming mode.
+     * @return true if file parts are streamed to the event handler
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void build(HttpServletRequest request) {
+        throw new UnsupportedOperationException("Multipart wrappers cannot use this build() method.  They must use the one in the build() interface.");
+    }
+
+    /**
+     * Pseudo-constructor that allows the class to perform any initialization
+     * necessary.
+     *
+     * @param request an HttpServletRequest that has a content-type of
+     * multipart.
+     * @param tempDir a File representing the temporary directory that can be
+     * used to store file parts as they are uploaded if this is desirable
+     * @param maxPostSize the size in bytes beyond which the request should not
+     * be read, and a FileUploadLimitExceeded exception should be thrown
+     * @throws IOException if a problem occurs processing the request of storing
+     * temporary files
+     * @throws FileUploadLimitExceededException if the POST content is longer
+     * than the maxPostSize supplied.
+     */
+    public void build(HttpServletRequest request, File tempDir, long maxPostSize)
+            throws IOException, FileUploadLimitExceededException {
+        this.charset = request.getCharacterEncoding();
+        this.tempDirectory = tempDir;
+
+        int contentLength = request.getContentLength();
+        if (maxPostSize >= 0 && contentLength > maxPostSize) {
+            throw new FileUploadLimitExceededException(maxPostSize, contentLength);
+        }
+
+        String boundary = MultipartStream.getBoundary(request.getContentType());
+        if (boundary == null) {
+            throw new IOException("Multipart request does not declare a boundary.");
+        }
+
+        try {
+            this.stream = new MultipartStream(request.getInputStream(), boundary, 8192, maxPostSize);
+            if (this.streaming) {
+                this.pendingPart = readUntilFilePart();
+            } else {
+                FileBean file;
+                while ((file = readUntilFilePart()) != null) {
+                    this.files.put(getFieldName(file), file);
+                }
+            }
+        } catch (MultipartStream.SizeLimitExceededException slee) {
+            throw new FileUploadLimitExceededException(slee.getMaximum(), slee.getActual());
+        }
+    }
+
+    /**
+     * Fetches the names of all non-file parameters in the request. Directly
+     * analogous to the method of the same name in HttpServletRequest when the
+     * request is non-multipart.
+     *
+     * @return an Enumeration of all non-file parameter names in the request
+     */
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(this.parameters.keySet());
+    }
+
+    /**
+     * Fetches all values of a specific parameter in the request. To simulate
+     * the HTTP request style, the array should be null for non-present
+     * parameters, and values in the array should never be null - the empty
+     * String should be used when there is value.
+     *
+     * @param name the name of the request parameter
+     * @return an array of non-null parameters or null
+     */
+    public String[] getParameterValues(String name) {
+        List<String> values = this.parameters.get(name);
+        return values == null ? null : values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Fetches the names of all file parameters in the request. In streaming
+     * mode file parameters are not bound, so this is always empty.
+     *
+     * @return the names of all file parameters in the request.
+     */
+    public Enumeration<String> getFileParameterNames() {
+        return Collections.enumeration(this.files.keySet());
+    }
+
+    /**
+     * Returns the FileBean for the named file parameter, or null if there is no
+     * file parameter with that name or it was submitted empty. Always returns
+     * null in streaming mode.
+     *
+     * @param name the name of the file parameter
+     * @return a FileBean object wrapping the uploaded file
+     */
+    public FileBean getFileParameterValue(String name) {
+        return this.files.get(name);
+    }
+
+    /**
+     * <p>
+     * Returns the file parts of a streaming request in arrival order. Reading
+     * the next part skips whatever has not been read of the previous one, so
+     * each FileBean must be consumed before moving on. The iterator may only be
+     * obtained once.</p>
+     *
+     * <p>
+     * In buffered mode this simply iterates over the already parsed files.</p>
+     *
+     * @return an iterator over the uploaded files
+     */
+    public Iterator<FileBean> getFileParts() {
+        if (!this.streaming) {
+            return Collections.unmodifiableCollection(this.files.values()).iterator();
+        }
+
+        if (this.partsStarted) {
+            throw new IllegalStateException("The file parts of a streaming multipart request can only be read once.");
+        }
+        this.partsStarted = true;
+
+        return new Iterator<FileBean>() {
+            private boolean first = true;
+
+            public boolean hasNext() {
+                if (!this.first && pendingPart == null && stream != null) {
+                    try {
+                        pendingPart = readUntilFilePart();
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Could not read the next part of the multipart request.", e);
+                    }
+                }
+                this.first = false;
+                return pendingPart != null;
+            }
+
+            public FileBean next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                FileBean part = pendingPart;
+                pendingPart = null;
+                return part;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Reads parts, storing regular parameters as they go, until the next
+     * non-empty file part is found.
+     *
+     * @return the next file part, or null when the end of the body is reached
+     */
+    protected FileBean readUntilFilePart() throws IOException {
+        while (this.stream.nextPart()) {
+            Map<String, String> headers = this.stream.readHeaders();
+            String disposition = headers.get("content-disposition");
+            String name = MultipartStream.getHeaderParameter(disposition, "name");
+            String filename = MultipartStream.getHeaderParameter(disposition, "filename");
+
+            if (filename == null) {
+                String value = readString(this.stream.getPartStream());
+                List<String> values = this.parameters.get(name);
+                if (values == null) {
+                    values = new ArrayList<String>(1);
+                    this.parameters.put(name, values);
+                }
+                values.add(value);
+            } else if (filename.length() > 0) {
+                String contentType = headers.get("content-type");
+                if (this.streaming) {
+                    return new StreamingFileBean(name, contentType, getBaseName(filename), this.charset,
+                            this.stream.getPartStream());
+                } else {
+                    return bufferFile(name, contentType, getBaseName(filename), this.stream.getPartStream());
+                }
+            }
+        }
+
+        this.stream = null;
+        return null;
+    }
+
+    /**
+     * Reads a file part into memory, switching over to a temporary file if
+     * the part is larger than the in-memory threshold.
+     */
+    private FileBean bufferFile(String name, String contentType, String filename, InputStream in)
+            throws IOException {
+        ByteArrayOutputStream memory = new ByteArrayOutputStream(Math.min(this.inMemoryThreshold, 8192));
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            memory.write(buffer, 0, count);
+            if (memory.size() > this.inMemoryThreshold) {
+                File file = File.createTempFile("stripes-upload-", ".tmp", this.tempDirectory);
+                OutputStream out = new FileOutputStream(file);
+                try {
+                    memory.writeTo(out);
+                    memory = null;
+                    while ((count = in.read(buffer)) >= 0) {
+                        out.write(buffer, 0, count);
+                    }
+                } finally {
+                    out.close();
+                }
+                return new FieldFileBean(name, file, contentType, filename, this.charset);
+            }
+        }
+
+        return new InMemoryFileBean(name, memory.toByteArray(), contentType, filename, this.charset);
+    }
+
+    private String readString(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, count);
+        }
+        return out.toString(this.charset == null ? "ISO-8859-1" : this.charset);
+    }
+
+    private static String getFieldName(FileBean file) {
+        return ((NamedPart) file).getFieldName();
+    }
+
+    /**
+     * Attempts to ensure the file name is just the basename with no path
+     * included.
+     */
+    private static String getBaseName(String filename) {
+        int index;
+        if (WINDOWS_PATH_PREFIX_PATTERN.matcher(filename).find()) {
+            index = filename.lastIndexOf('\\');
+        } else {
+            index = filename.lastIndexOf('/');
+        }
+        if (index >= 0 && index + 1 < filename.length() - 1) {
+            filename = filename.substring(index + 1);
+        }
+        return filename;
+    }
+
+    /**
+     * Implemented by the FileBeans created by this wrapper so the field name of
+     * a part is known.
+     */
+    private interface NamedPart {
+
+        String getFieldName();
+    }
+
+    /**
+     * FileBean for a part that was spooled to a temporary file.
+     */
+    private static class FieldFileBean extends FileBean implements NamedPart {
+
+        private final String fieldName;
+
+        FieldFileBean(String fieldName, File file, String contentType, String filename, String charset) {
+            super(file, contentType, filename, charset);
+            this.fieldName = fieldName;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+    }
+
+    /**
+     * FileBean for a part that is held entirely in memory.
+     */
+    private static class InMemoryFileBean extends FileBean implements NamedPart {
+
+        private final String fieldName;
+        private byte[] content;
+
+        InMemoryFileBean(String fieldName, byte[] content, String contentType, String filename, String charset) {
+            super(null, contentType, filename, charset);
+            this.fieldName = fieldName;
+            this.content = content;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        @Override
+        public long getSize() {
+            return content == null ? 0 : content.length;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (content == null) {
+                throw new IOException("The uploaded file " + getFileName() + " has already been saved or deleted.");
+            }
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void save(File toFile) throws IOException {
+            OutputStream out = new FileOutputStream(toFile);
+            try {
+                out.write(getContent());
+            } finally {
+                out.close();
+            }
+            delete();
+        }
+
+        @Override
+        public void delete() throws IOException {
+            content = null;
+        }
+
+        private byte[] getContent() throws IOException {
+            if (content == null) {
+                throw new IOException("The uploaded file " + getFileName() + " has already been saved or deleted.");
+            }
+            return content;
+        }
+    }
+
+    /**
+     * FileBean that streams its content directly from the request body.
+     */
+    private static class StreamingFileBean extends FileBean implements NamedPart {
+
+        private final String fieldName;
+        private InputStream in;
+        private long size;
+
+        StreamingFileBean(String fieldName, String contentType, String filename, String charset, InputStream in) {
+            super(null, contentType, filename, charset);
+            this.fieldName = fieldName;
+            this.in = in;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        /**
+         * Returns the number of bytes read from the part so far, since the size
+         * of a streamed part is not known until it has been read completely.
+         *
+         * @return the number of bytes read so far
+         */
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (this.in == null) {
+                throw new IOException("The streamed file " + getFileName() + " can only be read once.");
+            }
+
+            final InputStream source = this.in;
+            this.in = null;
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    int b = source.read();
+                    if (b >= 0) {
+                        ++size;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int count = source.read(b, off, len);
+                    if (count > 0) {
+                        size += count;
+                    }
+                    return count;
+                }
+
+                @Override
+                public int available() throws IOException {
+                    return source.available();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    source.close();
+                }
+            };
+        }
+
+        @Override
+        public void save(File toFile) throws IOException {
+            InputStream source = getInputStream();
+            try {
+                OutputStream out = new FileOutputStream(toFile);
+                try {
+                    byte[] buffer = new byte[8192];
+                    int count;
+                    while ((count = source.read(buffer)) >= 0) {
+                        out.write(buffer, 0, count);
+                    }
+                } finally {
+                    out.close();
+                }
+            } finally {
+                source.close();
+            }
+        }
+
+        @Override
+        public void delete() throws IOException {
+            if (this.in != null) {
+                this.in.close();
+                this.in = null;
+            }
+        }
+    }
+}
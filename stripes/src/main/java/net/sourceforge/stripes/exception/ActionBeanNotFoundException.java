@@ -14,6 +14,8 @@
  */
 package net.sourceforge.stripes.exception;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.Map;
 
 import net.sourceforge.stripes.action.ActionBean;
@@ -29,6 +31,11 @@ public class ActionBeanNotFoundException extends StripesServletException {
 
     private static final long serialVersionUID = 1L;
 
+    /* The URL requested and the beans registered, from which the message is built when needed. */
+    private final String requestedUrl;
+    private transient Map<String, Class<? extends ActionBean>> registeredBeans;
+    private String message;
+
     /**
      * Constructs an action bean not found exception with the passed message.
      * 
@@ -36,6 +43,7 @@ public class ActionBeanNotFoundException extends StripesServletException {
      */
     public ActionBeanNotFoundException(String message) {
         super(message);
+        this.requestedUrl = null;
     }
 
     /**
@@ -47,6 +55,7 @@ public class ActionBeanNotFoundException extends StripesServletException {
      */
     public ActionBeanNotFoundException(String message, Throwable cause) {
         super(message, cause);
+        this.requestedUrl = null;
     }
 
     /**
@@ -56,6 +65,7 @@ public class ActionBeanNotFoundException extends StripesServletException {
      */
     public ActionBeanNotFoundException(Throwable cause) {
         super(cause);
+        this.requestedUrl = null;
     }
 
     /**
@@ -67,7 +77,9 @@ public class ActionBeanNotFoundException extends StripesServletException {
      */
     public ActionBeanNotFoundException(String requestedUrl,
             Map<String, Class<? extends ActionBean>> registeredBeans) {
-        super(buildMessage(requestedUrl, registeredBeans));
+        super((String) null);
+        this.requestedUrl = requestedUrl;
+        this.registeredBeans = registeredBeans;
     }
 
     /**
@@ -80,7 +92,38 @@ public class ActionBeanNotFoundException extends StripesServletException {
      */
     public ActionBeanNotFoundException(String requestedUrl,
             Map<String, Class<? extends ActionBean>> registeredBeans, Throwable cause) {
-        super(buildMessage(requestedUrl, registeredBeans), cause);
+        super(null, cause);
+        this.requestedUrl = requestedUrl;
+        this.registeredBeans = registeredBeans;
+    }
+
+    /**
+     * Returns the message of the exception. When the exception was constructed
+     * from a URL and the registered beans, the message is only built the first
+     * time it is asked for, because listing every registered bean is costly
+     * and the message of a not-found exception is often never read.
+     *
+     * @return the message of the exception
+     */
+    @Override
+    public synchronized String getMessage() {
+        if (this.requestedUrl == null) {
+            return super.getMessage();
+        }
+        if (this.message == null) {
+            this.message = buildMessage(this.requestedUrl, this.registeredBeans);
+            this.registeredBeans = null;
+        }
+        return this.message;
+    }
+
+    /**
+     * Builds the message before serializing, since the registered beans are
+     * not serialized.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getMessage();
+        out.defaultWriteObject();
     }
 
     /**
@@ -16,13 +16,24 @@ package net.sourceforge.stripes.exception;
 
 import java.beans.PropertyDescriptor;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.text.DecimalFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -30,6 +41,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import net.sourceforge.stripes.action.ActionBean;
 import net.sourceforge.stripes.action.ActionBeanContext;
+import net.sourceforge.stripes.action.ErrorResolution;
 import net.sourceforge.stripes.action.FileBean;
 import net.sourceforge.stripes.action.ForwardResolution;
 import net.sourceforge.stripes.action.Resolution;
@@ -38,10 +50,14 @@ import net.sourceforge.stripes.config.Configuration;
 import net.sourceforge.stripes.controller.DispatcherHelper;
 import net.sourceforge.stripes.controller.ExecutionContext;
 import net.sourceforge.stripes.controller.FileUploadLimitExceededException;
+import net.sourceforge.stripes.controller.RequestLimitExceededException;
+import net.sourceforge.stripes.controller.RequestLimits;
+import net.sourceforge.stripes.controller.SessionScopeConflictException;
 import net.sourceforge.stripes.controller.StripesConstants;
 import net.sourceforge.stripes.controller.StripesRequestWrapper;
 import net.sourceforge.stripes.util.Log;
 import net.sourceforge.stripes.util.ReflectUtil;
+import net.sourceforge.stripes.util.StringUtil;
 import net.sourceforge.stripes.validation.LocalizableError;
 
 /**
@@ -55,7 +71,8 @@ import net.sourceforge.stripes.validation.LocalizableError;
  * <li>Methods must be public</li>
  * <li>Methods must be non-abstract</li>
  * <li>Methods must have exactly three parameters</li>
- * <li>The first parameter type must be Throwable or a subclass thereof</li>
+ * <li>The first parameter type must be Throwable or a subclass thereof, or an
+ * interface implemented by exceptions (e.g. a marker interface)</li>
  * <li>The second and third arguments must be of type HttpServletRequest and
  * HttpServletResponse respectively</li>
  * <li>Methods may <i>optionally</i> return a Resolution in which case the
@@ -72,6 +89,25 @@ import net.sourceforge.stripes.validation.LocalizableError;
  * acceptable to the container.</p>
  *
  * <p>
+ * The search starts with the exception's own class and moves up through its
+ * super-classes; at each level a handler for the class itself is preferred over
+ * handlers for the interfaces it implements. The handler resolved for each
+ * exception class is cached, so the search happens once per class.</p>
+ *
+ * <p>
+ * Exceptions that are expected in large numbers when something goes wrong,
+ * for example timeouts from a downstream service, can be listed in the
+ * {@value #QUIET_EXCEPTIONS} configuration parameter. When such an exception
+ * (or a subclass of it, or one wrapped in a {@link ServletException}) is not
+ * handled, it is rethrown and its stack trace logged at most
+ * {@value #QUIET_LOG_LIMIT} times a minute (default
+ * {@value #DEFAULT_QUIET_LOG_LIMIT}). Beyond that the request is ended here
+ * with a 500 (Internal Server Error) response and the exception is not
+ * rethrown, so that the container does not log it either. How many were
+ * suppressed is logged when the next one occurs after the minute is
+ * over.</p>
+ *
+ * <p>
  * The following are examples of method signatures that might be added by
  * subclasses:</p>
  *
@@ -87,11 +123,40 @@ import net.sourceforge.stripes.validation.LocalizableError;
 public class DefaultExceptionHandler implements ExceptionHandler {
 
     private static final Log log = Log.getInstance(DefaultExceptionHandler.class);
+
+    /**
+     * Configuration key for a comma separated list of exception class names
+     * whose stack traces are logged at a limited rate when unhandled.
+     *
+     * @since Stripes 1.7
+     */
+    public static final String QUIET_EXCEPTIONS = "ExceptionHandler.QuietExceptions";
+
+    /**
+     * Configuration key for the number of times a minute an unhandled quiet
+     * exception is logged with its stack trace.
+     *
+     * @since Stripes 1.7
+     */
+    public static final String QUIET_LOG_LIMIT = "ExceptionHandler.QuietLogLimit";
+
+    /**
+     * The default number of times a minute a quiet exception is logged.
+     */
+    public static final int DEFAULT_QUIET_LOG_LIMIT = 1;
+
+    private static final String UNHANDLED_MESSAGE = "Unhandled exception in exception handler.";
+
     private Configuration configuration;
 
     /* A cache of exception types handled mapped to proxy objects that can do the handling. */
-    private Map<Class<? extends Throwable>, HandlerProxy> handlers
-            = new HashMap<Class<? extends Throwable>, HandlerProxy>();
+    private Map<Class<?>, HandlerProxy> handlers = new LinkedHashMap<Class<?>, HandlerProxy>();
+
+    /* The handler resolved for each exception class, rebuilt lazily when handlers are added. */
+    private volatile TypeIndex<HandlerProxy> handlerIndex;
+
+    /* The rate limiters of the quiet exception types, or null if there are none. */
+    private volatile TypeIndex<QuietLog> quietIndex;
 
     /**
      * Inner class that ties a class and method together an invokable object.
@@ -101,8 +166,12 @@ public class DefaultExceptionHandler implements ExceptionHandler {
      */
     protected static class HandlerProxy {
 
+        private static final MethodType HANDLER_TYPE = MethodType.methodType(Object.class,
+                Throwable.class, HttpServletRequest.class, HttpServletResponse.class);
+
         private Object handler;
         private Method handlerMethod;
+        private MethodHandle invoker;
 
         /**
          * Constructs a new HandlerProxy that will tie together the instance and
@@ -113,6 +182,27 @@ public class DefaultExceptionHandler implements ExceptionHandler {
         public HandlerProxy(Object handler, Method handlerMethod) {
             this.handler = handler;
             this.handlerMethod = handlerMethod;
+            this.invoker = createInvoker(handler, handlerMethod);
+        }
+
+        /**
+         * Creates a method handle, bound to the handler, that takes the
+         * throwable, request and response and returns the method's result (null
+         * for void methods). Returns null if the method cannot be unreflected,
+         * in which case it is invoked through reflection instead.
+         */
+        private static MethodHandle createInvoker(Object handler, Method handlerMethod) {
+            try {
+                if (!Modifier.isPublic(handlerMethod.getDeclaringClass().getModifiers())) {
+                    handlerMethod.setAccessible(true);
+                }
+                return MethodHandles.lookup().unreflect(handlerMethod).bindTo(handler)
+                        .asType(HANDLER_TYPE);
+            } catch (Exception e) {
+                log.debug("Exception handler method ", handlerMethod,
+                        " will be invoked through reflection: ", e);
+                return null;
+            }
         }
 
         /**
@@ -123,6 +213,23 @@ public class DefaultExceptionHandler implements ExceptionHandler {
          * @throws java.lang.Exception If an error occurs handling this exception
          */
         public void handle(Throwable t, HttpServletRequest req, HttpServletResponse res) throws Exception {
+            if (this.invoker != null) {
+                Object resolution;
+                try {
+                    resolution = (Object) this.invoker.invokeExact(t, req, res);
+                } catch (Exception e) {
+                    throw e;
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new StripesServletException(UNHANDLED_MESSAGE, e);
+                }
+                if (resolution instanceof Resolution) {
+                    ((Resolution) resolution).execute(req, res);
+                }
+                return;
+            }
+
             try {
                 Object resolution = handlerMethod.invoke(this.handler, t, req, res);
                 if (resolution != null && resolution instanceof Resolution) {
@@ -164,13 +271,7 @@ public class DefaultExceptionHandler implements ExceptionHandler {
             HttpServletResponse response) throws ServletException, IOException {
         try {
             Throwable actual = unwrap(throwable);
-            Class<?> type = actual.getClass();
-            HandlerProxy proxy = null;
-
-            while (type != null && proxy == null) {
-                proxy = this.handlers.get(type);
-                type = type.getSuperclass();
-            }
+            HandlerProxy proxy = getHandlerIndex().lookup(actual.getClass());
 
             if (proxy != null) {
                 proxy.handle(actual, request, response);
@@ -180,12 +281,36 @@ public class DefaultExceptionHandler implements ExceptionHandler {
                 if (resolution != null) {
                     resolution.execute(request, response);
                 }
+            } else if (actual instanceof RequestLimitExceededException) {
+                Resolution resolution = handle((RequestLimitExceededException) actual, request,
+                        response);
+                if (resolution != null) {
+                    resolution.execute(request, response);
+                }
+            } else if (actual instanceof SessionScopeConflictException) {
+                Resolution resolution = handle((SessionScopeConflictException) actual, request,
+                        response);
+                if (resolution != null) {
+                    resolution.execute(request, response);
+                }
             } else if (throwable instanceof SourcePageNotFoundException) {
                 Resolution resolution = handle((SourcePageNotFoundException) throwable, request,
                         response);
                 if (resolution != null) {
                     resolution.execute(request, response);
                 }
+            } else if (isQuietedNow(actual)) {
+                // An expected, high-volume exception whose stack traces have been
+                // logged often enough for now; end the request here, since the
+                // container would log the stack trace of a rethrown exception
+                log.debug("Unhandled exception caught by the Stripes default exception handler: ",
+                        actual);
+                if (!response.isCommitted()) {
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                } else {
+                    log.warn("Unhandled exception caught by the Stripes default exception handler ",
+                            "after the response was committed: ", actual);
+                }
             } else {
                 // If there's no sensible proxy, rethrow the original throwable,
                 // NOT the unwrapped one since they may add extra information
@@ -197,10 +322,65 @@ public class DefaultExceptionHandler implements ExceptionHandler {
         } catch (IOException ioe) {
             throw ioe;
         } catch (Throwable t) {
-            String message = "Unhandled exception in exception handler.";
-            log.error(t, message);
-            throw new StripesServletException(message, t);
+            log.error(t, UNHANDLED_MESSAGE);
+            throw new StripesServletException(UNHANDLED_MESSAGE, t);
+        }
+    }
+
+    /**
+     * Returns the index used to resolve the handler of an exception class,
+     * building it if handlers were added since it was last used.
+     */
+    private TypeIndex<HandlerProxy> getHandlerIndex() {
+        TypeIndex<HandlerProxy> index = this.handlerIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = this.handlerIndex;
+                if (index == null) {
+                    index = new TypeIndex<HandlerProxy>(this.handlers);
+                    this.handlerIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns true if the throwable is of a quiet exception type and its stack
+     * trace has already been logged as often as allowed in the current minute.
+     *
+     * @param throwable the unwrapped, unhandled throwable
+     * @return true if the throwable should not be logged with its stack trace
+     */
+    protected boolean isQuietedNow(Throwable throwable) {
+        TypeIndex<QuietLog> index = this.quietIndex;
+        if (index == null) {
+            return false;
+        }
+        QuietLog quietLog = index.lookup(throwable.getClass());
+        return quietLog != null && !quietLog.tryLog();
+    }
+
+    /**
+     * Sets the exception types whose unhandled instances are logged with their
+     * stack traces at most {@code limit} times a minute, replacing any set
+     * previously.
+     *
+     * @param limit the number of times a minute each type is logged
+     * @param types the exception types, which match their subclasses too
+     * @since Stripes 1.7
+     */
+    public void setQuietExceptions(int limit, Class<?>... types) {
+        if (types == null || types.length == 0) {
+            this.quietIndex = null;
+            return;
+        }
+
+        Map<Class<?>, QuietLog> logs = new LinkedHashMap<Class<?>, QuietLog>();
+        for (Class<?> type : types) {
+            logs.put(type, new QuietLog(type, limit));
         }
+        this.quietIndex = new TypeIndex<QuietLog>(logs);
     }
 
     /**
@@ -235,6 +415,47 @@ public class DefaultExceptionHandler implements ExceptionHandler {
         return new ValidationErrorReportResolution(exception.getActionBeanContext());
     }
 
+    /**
+     * A default handler for {@link RequestLimitExceededException}. That
+     * exception is thrown when a request breaches one of the configured
+     * {@link RequestLimits}, for example by submitting too many parameters or
+     * an oversized JSON body. Since such requests are most likely abusive, this
+     * method simply returns an {@link ErrorResolution} with the status code
+     * carried by the exception (413 or 400). Subclasses may override it to
+     * render a friendlier error page.
+     *
+     * @param exception The exception.
+     * @param request The servlet request.
+     * @param response The servlet response.
+     * @return An {@link ErrorResolution} with the status code of the exception
+     * @throws java.lang.Exception If an error occurs handling the exception
+     */
+    protected Resolution handle(RequestLimitExceededException exception,
+            HttpServletRequest request, HttpServletResponse response) throws Exception {
+        log.warn("Rejected request to ", request.getRequestURI(), ": ", exception.getMessage());
+        return new ErrorResolution(exception.getStatus(), exception.getMessage());
+    }
+
+    /**
+     * A default handler for {@link SessionScopeConflictException}, which is
+     * thrown when a request references a session scope ActionBean that another
+     * request of the same session is using and the bean's concurrency policy
+     * does not allow the request to wait. Returns an {@link ErrorResolution}
+     * with status 429 (Too Many Requests), which tells well behaved clients to
+     * retry later.
+     *
+     * @param exception The exception.
+     * @param request The servlet request.
+     * @param response The servlet response.
+     * @return An {@link ErrorResolution} with status 429
+     * @throws java.lang.Exception If an error occurs handling the exception
+     */
+    protected Resolution handle(SessionScopeConflictException exception,
+            HttpServletRequest request, HttpServletResponse response) throws Exception {
+        log.debug("Rejected request to ", request.getRequestURI(), ": ", exception.getMessage());
+        return new ErrorResolution(exception.getStatus(), exception.getMessage());
+    }
+
     /**
      * {@link FileUploadLimitExceededException} is notoriously difficult to
      * handle for several reasons:
@@ -408,6 +629,45 @@ public class DefaultExceptionHandler implements ExceptionHandler {
     public void init(Configuration configuration) throws Exception {
         this.configuration = configuration;
         addHandler(this);
+        initQuietExceptions();
+    }
+
+    /**
+     * Reads the quiet exception types and their log limit from the
+     * configuration. Class names that cannot be loaded are logged and ignored.
+     */
+    protected void initQuietExceptions() {
+        String[] names = StringUtil.standardSplit(
+                getConfiguration().getBootstrapPropertyResolver().getProperty(QUIET_EXCEPTIONS));
+        if (names == null || names.length == 0) {
+            return;
+        }
+
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        for (String name : names) {
+            try {
+                types.add(ReflectUtil.findClass(name));
+            } catch (ClassNotFoundException e) {
+                log.warn("Could not find quiet exception class ", name, " named in ",
+                        QUIET_EXCEPTIONS, ". It will be logged as usual.");
+            }
+        }
+
+        int limit = DEFAULT_QUIET_LOG_LIMIT;
+        String value = getConfiguration().getBootstrapPropertyResolver().getProperty(QUIET_LOG_LIMIT);
+        if (value != null) {
+            try {
+                limit = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.error("Did not understand value of configuration parameter ", QUIET_LOG_LIMIT,
+                        " You supplied: ", value, ". Default value of ", DEFAULT_QUIET_LOG_LIMIT,
+                        " will be used instead.");
+            }
+        }
+
+        setQuietExceptions(limit, types.toArray(new Class<?>[types.size()]));
+        log.info("Stack traces of unhandled ", types, " will be logged at most ", limit,
+                " times a minute.");
     }
 
     /**
@@ -434,12 +694,11 @@ public class DefaultExceptionHandler implements ExceptionHandler {
      * @param handler the handler instance being configured
      * @throws java.lang.Exception If an error occurs adding this handler.
      */
-    @SuppressWarnings("unchecked")
     protected void addHandler(Object handler) throws Exception {
         Method[] methods = handler.getClass().getMethods();
         for (Method method : methods) {
             // Check the method Signature
-            Class[] parameters = method.getParameterTypes();
+            Class<?>[] parameters = method.getParameterTypes();
             int mods = method.getModifiers();
 
             // Check all the reasons not to add it!
@@ -452,7 +711,8 @@ public class DefaultExceptionHandler implements ExceptionHandler {
             if (parameters.length != 3) {
                 continue;
             }
-            if (!Throwable.class.isAssignableFrom(parameters[0])) {
+            if (!Throwable.class.isAssignableFrom(parameters[0])
+                    && (!parameters[0].isInterface() || parameters[0].isAssignableFrom(Throwable.class))) {
                 continue;
             }
             if (!HttpServletRequest.class.equals(parameters[1])) {
@@ -467,7 +727,7 @@ public class DefaultExceptionHandler implements ExceptionHandler {
             }
 
             // And if we made it this far, add it!
-            Class<? extends Throwable> type = parameters[0];
+            Class<?> type = parameters[0];
             HandlerProxy proxy = new HandlerProxy(handler, method);
             HandlerProxy previous = handlers.get(type);
             if (previous != null) {
@@ -476,6 +736,7 @@ public class DefaultExceptionHandler implements ExceptionHandler {
                         "()' will be used instead of '", previous.getHandlerMethod().getName(), "()'.");
             }
             handlers.put(type, proxy);
+            this.handlerIndex = null;
 
             log.debug("Added exception handler '", handler.getClass().getSimpleName(), ".",
                     method.getName(), "()' for exception type: ", type);
@@ -509,4 +770,104 @@ public class DefaultExceptionHandler implements ExceptionHandler {
 
         return throwable;
     }
+
+    /**
+     * Resolves classes to the value registered for the closest of their types:
+     * the class itself, then the interfaces it implements, then the same for
+     * each super-class in turn. Resolutions are cached per class with a
+     * ClassValue holding only the position of the value. Caching the values
+     * themselves would make them reachable from the classes, and so would keep
+     * this web application's class loader alive through JDK exception classes.
+     */
+    private static final class TypeIndex<T> extends ClassValue<Integer> {
+
+        private final Map<Class<?>, Integer> positions = new HashMap<Class<?>, Integer>();
+        private final List<T> values = new ArrayList<T>();
+
+        TypeIndex(Map<Class<?>, T> registered) {
+            for (Map.Entry<Class<?>, T> entry : registered.entrySet()) {
+                this.positions.put(entry.getKey(), this.values.size());
+                this.values.add(entry.getValue());
+            }
+        }
+
+        T lookup(Class<?> type) {
+            int position = get(type);
+            return position < 0 ? null : this.values.get(position);
+        }
+
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                Integer position = this.positions.get(c);
+                if (position == null) {
+                    position = findInterface(c);
+                }
+                if (position != null) {
+                    return position;
+                }
+            }
+            return -1;
+        }
+
+        /* Breadth first search of the interfaces declared by a class and their super-interfaces. */
+        private Integer findInterface(Class<?> type) {
+            Deque<Class<?>> queue = new ArrayDeque<Class<?>>();
+            for (Class<?> iface : type.getInterfaces()) {
+                queue.add(iface);
+            }
+            while (!queue.isEmpty()) {
+                Class<?> iface = queue.remove();
+                Integer position = this.positions.get(iface);
+                if (position != null) {
+                    return position;
+                }
+                for (Class<?> parent : iface.getInterfaces()) {
+                    queue.add(parent);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Counts the stack traces logged for a quiet exception type in the current
+     * minute, and the exceptions suppressed once the limit was reached.
+     */
+    private static final class QuietLog {
+
+        private static final long WINDOW = TimeUnit.MINUTES.toMillis(1);
+
+        private final Class<?> type;
+        private final int limit;
+        private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+        private final AtomicInteger logged = new AtomicInteger();
+        private final AtomicInteger suppressed = new AtomicInteger();
+
+        QuietLog(Class<?> type, int limit) {
+            this.type = type;
+            this.limit = limit;
+        }
+
+        /* Returns true if one more stack trace may be logged in the current minute. */
+        boolean tryLog() {
+            long now = System.currentTimeMillis();
+            long start = this.windowStart.get();
+            if (now - start >= WINDOW && this.windowStart.compareAndSet(start, now)) {
+                this.logged.set(0);
+                int count = this.suppressed.getAndSet(0);
+                if (count > 0) {
+                    log.warn("Suppressed the stack traces of ", count, " unhandled ", this.type.getName(),
+                            " exceptions in the last ", TimeUnit.MILLISECONDS.toSeconds(now - start),
+                            " seconds.");
+                }
+            }
+
+            if (this.logged.incrementAndGet() <= this.limit) {
+                return true;
+            }
+            this.suppressed.incrementAndGet();
+            return false;
+        }
+    }
 }
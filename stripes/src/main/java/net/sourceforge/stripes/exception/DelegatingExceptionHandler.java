@@ -115,7 +115,8 @@ public class DelegatingExceptionHandler extends DefaultExceptionHandler {
 
     /**
      * Helper method to find implementations of AutoExceptionHandler in the
-     * packages specified in Configuration using the {@link ResolverUtil} class.
+     * packages specified in Configuration using
+     * {@link BootstrapPropertyResolver#findImplementations(Class, String...)}.
      *
      * @return a set of Class objects that represent subclasses of
      * AutoExceptionHandler
@@ -142,9 +143,7 @@ public class DelegatingExceptionHandler extends DefaultExceptionHandler {
         }
 
         if (packages != null && packages.length > 0) {
-            ResolverUtil<AutoExceptionHandler> resolver = new ResolverUtil<AutoExceptionHandler>();
-            resolver.findImplementations(AutoExceptionHandler.class, packages);
-            return resolver.getClasses();
+            return bootstrap.findImplementations(AutoExceptionHandler.class, packages);
         } else {
             return Collections.emptySet();
         }
@@ -104,7 +104,7 @@ public class DefaultFormatterFactory implements FormatterFactory {
      * @return Formatter an instance of a Formatter, or null
      */
     public Formatter<?> getFormatter(Class<?> clazz, Locale locale, String formatType, String formatPattern) {
-        Class<? extends Formatter<?>> formatterClass = cache.getHandler(clazz);
+        Class<? extends Formatter<?>> formatterClass = getFormatterClass(clazz);
         if (formatterClass != null) {
             try {
                 return getInstance(formatterClass, formatType, formatPattern, locale);
@@ -118,6 +118,18 @@ public class DefaultFormatterFactory implements FormatterFactory {
         }
     }
 
+    /**
+     * Returns the class of the Formatter that {@link #getFormatter} would
+     * instantiate for the specified class, without instantiating it.
+     *
+     * @param clazz the type of object being formatted
+     * @return the Formatter class, or null if there is none
+     * @since Stripes 1.7
+     */
+    public Class<? extends Formatter<?>> getFormatterClass(Class<?> clazz) {
+        return cache.getHandler(clazz);
+    }
+
     /**
      * Gets an instance of the Formatter class specified.
      *
@@ -61,7 +61,7 @@ public class StripesContainerInitializer implements ServletContainerInitializer
         LOADED_CLASSES = new HashSet<Class<?>>(c);
         INSTANCE = this;
         log.info(LOADED_CLASSES.size() + " classes loaded.");
-        if (log.getRealLog().isDebugEnabled()) {
+        if (log.isDebugEnabled()) {
             for (Class<?> clazz : LOADED_CLASSES) {
                 log.debug("  * " + clazz.getName());
             }
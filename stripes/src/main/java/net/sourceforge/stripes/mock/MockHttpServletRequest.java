@@ -149,12 +149,13 @@ public class MockHttpServletRequest implements HttpServletRequest {
 
     /**
      * Gets the named header as a long. Must have been set as a long with
-     * addHeader().
+     * addHeader(). Returns -1 if the header is not present.
      * @param name
      * @return 
      */
     public long getDateHeader(String name) {
-        return (Long) this.headers.get(name);
+        Long value = (Long) this.headers.get(name.toLowerCase());
+        return value == null ? -1 : value;
     }
 
     /**
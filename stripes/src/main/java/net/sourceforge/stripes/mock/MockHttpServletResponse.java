@@ -49,6 +49,7 @@ public class MockHttpServletResponse implements HttpServletResponse {
     private int contentLength;
     private String contentType;
     private String redirectUrl;
+    private boolean committed;
 
     /**
      *
@@ -135,6 +136,7 @@ public class MockHttpServletResponse implements HttpServletResponse {
     public void sendError(int status, String errorMessage) throws IOException {
         this.status = status;
         this.errorMessage = errorMessage;
+        this.committed = true;
     }
 
     /**
@@ -144,6 +146,7 @@ public class MockHttpServletResponse implements HttpServletResponse {
      */
     public void sendError(int status) throws IOException {
         this.status = status;
+        this.committed = true;
     }
 
     /**
@@ -155,6 +158,7 @@ public class MockHttpServletResponse implements HttpServletResponse {
     public void sendRedirect(String url) throws IOException {
         this.status = HttpServletResponse.SC_MOVED_TEMPORARILY;
         this.redirectUrl = url;
+        this.committed = true;
     }
 
     /**
@@ -392,10 +396,11 @@ public class MockHttpServletResponse implements HttpServletResponse {
     }
 
     /**
-     * Has no effect.
+     * Marks the response as committed.
      * @throws java.io.IOException
      */
     public void flushBuffer() throws IOException {
+        this.committed = true;
     }
 
     /**
@@ -406,11 +411,11 @@ public class MockHttpServletResponse implements HttpServletResponse {
     }
 
     /**
-     * Always returns true.
-     * @return 
+     * Returns true once sendError(), sendRedirect() or flushBuffer() has been called.
+     * @return whether the response has been committed
      */
     public boolean isCommitted() {
-        return true;
+        return this.committed;
     }
 
     /**
@@ -437,29 +442,41 @@ public class MockHttpServletResponse implements HttpServletResponse {
     }
 
     /**
+     * Returns the first value set for the named header as a String, or null if
+     * the header was not set.
      *
      * @param name
      * @return
      */
     public String getHeader(String name) {
-        return null;
+        List<Object> values = this.headers.get(name);
+        return values == null || values.isEmpty() ? null : String.valueOf(values.get(0));
     }
 
     /**
+     * Returns all values set for the named header as Strings.
      *
      * @param name
      * @return
      */
     public Collection<String> getHeaders(String name) {
-        return null;
+        List<String> strings = new ArrayList<String>();
+        List<Object> values = this.headers.get(name);
+        if (values != null) {
+            for (Object value : values) {
+                strings.add(String.valueOf(value));
+            }
+        }
+        return strings;
     }
 
     /**
+     * Returns the names of all headers that were set.
      *
      * @return
      */
     public Collection<String> getHeaderNames() {
-        return null;
+        return new ArrayList<String>(this.headers.keySet());
     }
 
     /**
@@ -18,13 +18,14 @@ import javax.servlet.ServletContext;
 import javax.servlet.http.HttpSession;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Simple mock implementation of HttpSession that implements most basic
- * operations.
+ * operations. Attributes are kept in a concurrent map, so a session may be
+ * shared by requests running on several threads.
  *
  * @author Tim Fennell
  * @since Stripes 1.1.1
@@ -35,7 +36,7 @@ public class MockHttpSession implements HttpSession {
     private long creationTime = System.currentTimeMillis();
     private String sessionId = String.valueOf(new Random().nextLong());
     private ServletContext context;
-    private Map<String, Object> attributes = new HashMap<String, Object>();
+    private Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
 
     /**
      * Default constructor which provides the session with access to the
@@ -110,12 +111,13 @@ public class MockHttpSession implements HttpSession {
     }
 
     /**
-     * Returns the value of the named attribute from an internal Map.
+     * Returns the value of the named attribute from an internal Map, or null
+     * if the name is null.
      * @param key
      * @return 
      */
     public Object getAttribute(String key) {
-        return this.attributes.get(key);
+        return key == null ? null : this.attributes.get(key);
     }
 
     /**
@@ -148,9 +150,16 @@ public class MockHttpSession implements HttpSession {
      * key.
      * @param key
      * @param value
+     * @throws IllegalArgumentException if the name is null
      */
     public void setAttribute(String key, Object value) {
-        this.attributes.put(key, value);
+        if (key == null) {
+            throw new IllegalArgumentException("Session attribute names must not be null");
+        } else if (value == null) {
+            this.attributes.remove(key);
+        } else {
+            this.attributes.put(key, value);
+        }
     }
 
     /**
@@ -168,7 +177,9 @@ public class MockHttpSession implements HttpSession {
      * @param key
      */
     public void removeAttribute(String key) {
-        this.attributes.remove(key);
+        if (key != null) {
+            this.attributes.remove(key);
+        }
     }
 
     /**
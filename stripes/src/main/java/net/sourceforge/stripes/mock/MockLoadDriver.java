@@ -0,0 +1,591 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.mock;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.controller.metrics.LatencyHistogram;
+import net.sourceforge.stripes.controller.metrics.LatencySummary;
+
+/**
+ * <p>
+ * Replays a weighted mix of scripted round trips against a single
+ * {@link MockServletContext} from many threads at once, and reports the
+ * throughput, the latency percentiles of each script and how much the threads
+ * were blocked on monitors. It makes it possible to load test Stripes and an
+ * application's ActionBeans in-process, without a servlet container:</p>
+ *
+ * <pre>
+ * MockLoadDriver.Report report = new MockLoadDriver(context)
+ *         .addScenario("view", 9, new MockLoadDriver.Scenario() {
+ *             public void run(MockLoadDriver.VirtualUser user) throws Exception {
+ *                 user.roundtrip(OrderActionBean.class).execute();
+ *             }
+ *         })
+ *         .addScenario("save", 1, saveScenario)
+ *         .setThreads(8)
+ *         .setUsers(64)
+ *         .setThinkTime(0, 5, TimeUnit.MILLISECONDS)
+ *         .setDuration(30, TimeUnit.SECONDS)
+ *         .run();
+ * </pre>
+ *
+ * <p>
+ * Each virtual user has its own {@link MockHttpSession}, which all of its
+ * round trips share (session affinity). Users are spread evenly over the
+ * threads; with fewer users than threads some users run on several threads at
+ * once, which is a way to exercise concurrent requests within one session.
+ * Exceptions thrown by scenarios are counted as errors and do not stop the
+ * run.</p>
+ *
+ * @since Stripes 1.7
+ */
+public class MockLoadDriver {
+
+    /**
+     * A script of one or more round trips, run repeatedly by the driver. The
+     * time a scenario takes is recorded as one latency sample.
+     */
+    public interface Scenario {
+
+        /**
+         * Runs the script as the user given.
+         *
+         * @param user the user the script runs as
+         * @throws Exception if the script fails; it is counted as an error
+         */
+        void run(VirtualUser user) throws Exception;
+    }
+
+    /**
+     * A simulated user, with a session of its own.
+     */
+    public static class VirtualUser {
+
+        private final int id;
+        private final MockServletContext context;
+        private final MockHttpSession session;
+
+        VirtualUser(int id, MockServletContext context) {
+            this.id = id;
+            this.context = context;
+            this.session = new MockHttpSession(context);
+        }
+
+        /**
+         * Returns the number of the user, from zero.
+         * @return
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the servlet context the user sends requests to.
+         * @return
+         */
+        public MockServletContext getContext() {
+            return context;
+        }
+
+        /**
+         * Returns the session of the user.
+         * @return
+         */
+        public MockHttpSession getSession() {
+            return session;
+        }
+
+        /**
+         * Creates a round trip to an ActionBean within the user's session.
+         *
+         * @param beanType the ActionBean to send the request to
+         * @return a new MockRoundtrip, ready to be executed
+         */
+        public MockRoundtrip roundtrip(Class<? extends ActionBean> beanType) {
+            return new MockRoundtrip(context, beanType, session);
+        }
+
+        /**
+         * Creates a round trip to a URL within the user's session.
+         *
+         * @param url the URL to send the request to, without the context path
+         * @return a new MockRoundtrip, ready to be executed
+         */
+        public MockRoundtrip roundtrip(String url) {
+            return new MockRoundtrip(context, url, session);
+        }
+    }
+
+    /**
+     * The outcome of a run.
+     */
+    public static class Report {
+
+        private final long elapsedNanos;
+        private final Map<String, LatencyHistogram> latencies;
+        private final Map<String, AtomicLong> errors;
+        private final List<Throwable> failures;
+        private final long blockedCount;
+        private final long blockedMillis;
+        private final long waitedCount;
+        private final long waitedMillis;
+
+        Report(long elapsedNanos, Map<String, LatencyHistogram> latencies,
+                Map<String, AtomicLong> errors, List<Throwable> failures,
+                long blockedCount, long blockedMillis, long waitedCount, long waitedMillis) {
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+            this.errors = errors;
+            this.failures = failures;
+            this.blockedCount = blockedCount;
+            this.blockedMillis = blockedMillis;
+            this.waitedCount = waitedCount;
+            this.waitedMillis = waitedMillis;
+        }
+
+        /**
+         * Returns the wall clock time the run took, excluding warm up.
+         * @return
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the number of scenarios run, including those that failed.
+         * @return
+         */
+        public long getCount() {
+            long count = 0;
+            for (LatencyHistogram histogram : latencies.values()) {
+                count += histogram.getCount();
+            }
+            return count;
+        }
+
+        /**
+         * Returns the number of scenarios that threw an exception.
+         * @return
+         */
+        public long getErrorCount() {
+            long count = 0;
+            for (AtomicLong scenarioErrors : errors.values()) {
+                count += scenarioErrors.get();
+            }
+            return count;
+        }
+
+        /**
+         * Returns the number of scenarios of the given name that threw an
+         * exception.
+         *
+         * @param scenario the name of the scenario
+         * @return the number of errors
+         */
+        public long getErrorCount(String scenario) {
+            AtomicLong count = errors.get(scenario);
+            return count == null ? 0 : count.get();
+        }
+
+        /**
+         * Returns the number of scenarios run per second.
+         * @return
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : getCount() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the latency histogram of a scenario.
+         *
+         * @param scenario the name of the scenario
+         * @return the histogram, or null if there is no such scenario
+         */
+        public LatencyHistogram getHistogram(String scenario) {
+            return latencies.get(scenario);
+        }
+
+        /**
+         * Returns the latencies of every scenario, in microseconds, keyed by
+         * scenario name.
+         * @return
+         */
+        public Map<String, LatencySummary> getLatencies() {
+            Map<String, LatencySummary> summaries = new LinkedHashMap<String, LatencySummary>();
+            for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+                summaries.put(entry.getKey(), entry.getValue().getSummary());
+            }
+            return summaries;
+        }
+
+        /**
+         * Returns the first few exceptions thrown by scenarios.
+         * @return
+         */
+        public List<Throwable> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns how many times the load threads blocked to enter a monitor.
+         * @return
+         */
+        public long getBlockedCount() {
+            return blockedCount;
+        }
+
+        /**
+         * Returns the total time the load threads spent blocked to enter a
+         * monitor, or -1 if the JVM does not measure it.
+         * @return
+         */
+        public long getBlockedMillis() {
+            return blockedMillis;
+        }
+
+        /**
+         * Returns how many times the load threads waited, including in think
+         * time and on java.util.concurrent locks.
+         * @return
+         */
+        public long getWaitedCount() {
+            return waitedCount;
+        }
+
+        /**
+         * Returns the total time the load threads spent waiting, or -1 if the
+         * JVM does not measure it.
+         * @return
+         */
+        public long getWaitedMillis() {
+            return waitedMillis;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%d scenarios in %.3fs, %.1f/s, %d errors, blocked %d times (%dms)%n",
+                    getCount(), elapsedNanos / 1e9, getThroughput(), getErrorCount(),
+                    blockedCount, blockedMillis));
+            for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+                LatencySummary summary = entry.getValue().getSummary();
+                out.append(String.format("  %-20s n=%d errors=%d mean=%.1fus p50=%.1fus p90=%.1fus"
+                        + " p99=%.1fus max=%.1fus%n", entry.getKey(), summary.getCount(),
+                        getErrorCount(entry.getKey()), summary.getMean(), summary.getP50(),
+                        summary.getP90(), summary.getP99(), summary.getMax()));
+            }
+            return out.toString();
+        }
+    }
+
+    /* The number of exceptions kept for the report. */
+    private static final int MAX_FAILURES = 10;
+
+    private final MockServletContext context;
+    private final List<String> names = new ArrayList<String>();
+    private final List<Scenario> scenarios = new ArrayList<Scenario>();
+    private final List<Integer> weights = new ArrayList<Integer>();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int users = -1;
+    private long minThinkNanos;
+    private long maxThinkNanos;
+    private long durationNanos;
+    private int iterations = 1000;
+    private int warmupIterations;
+
+    /**
+     * Constructs a driver that sends requests to the context given, which
+     * must already be configured with its filters and servlet.
+     *
+     * @param context the context to load
+     */
+    public MockLoadDriver(MockServletContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Adds a scenario to the mix. Each time a thread picks a scenario to run,
+     * the chance of picking this one is its weight divided by the sum of the
+     * weights of all scenarios.
+     *
+     * @param name the name the scenario is reported under
+     * @param weight the relative frequency of the scenario, more than zero
+     * @param scenario the scenario
+     * @return this driver
+     */
+    public MockLoadDriver addScenario(String name, int weight, Scenario scenario) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("The weight of scenario " + name + " must be positive");
+        }
+        this.names.add(name);
+        this.weights.add(weight);
+        this.scenarios.add(scenario);
+        return this;
+    }
+
+    /**
+     * Sets the number of threads sending requests; by default one per
+     * processor.
+     *
+     * @param threads the number of threads
+     * @return this driver
+     */
+    public MockLoadDriver setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the number of virtual users, and so of sessions; by default one per
+     * thread.
+     *
+     * @param users the number of users
+     * @return this driver
+     */
+    public MockLoadDriver setUsers(int users) {
+        this.users = users;
+        return this;
+    }
+
+    /**
+     * Sets the range of the random pause each thread takes between scenarios;
+     * by default there is none.
+     *
+     * @param min the shortest pause
+     * @param max the longest pause
+     * @param unit the unit of min and max
+     * @return this driver
+     */
+    public MockLoadDriver setThinkTime(long min, long max, TimeUnit unit) {
+        this.minThinkNanos = unit.toNanos(min);
+        this.maxThinkNanos = Math.max(this.minThinkNanos, unit.toNanos(max));
+        return this;
+    }
+
+    /**
+     * Makes every thread run scenarios for the time given, rather than for a
+     * number of iterations.
+     *
+     * @param duration the length of the run
+     * @param unit the unit of duration
+     * @return this driver
+     */
+    public MockLoadDriver setDuration(long duration, TimeUnit unit) {
+        this.durationNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Sets the number of scenarios each thread runs when no duration is set;
+     * 1000 by default.
+     *
+     * @param iterations the number of scenarios per thread
+     * @return this driver
+     */
+    public MockLoadDriver setIterations(int iterations) {
+        this.iterations = iterations;
+        return this;
+    }
+
+    /**
+     * Sets the number of scenarios each thread runs before measuring starts,
+     * to let the JIT compiler and Stripes' caches warm up; none by default.
+     *
+     * @param warmupIterations the number of unmeasured scenarios per thread
+     * @return this driver
+     */
+    public MockLoadDriver setWarmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+        return this;
+    }
+
+    /**
+     * Runs the load and waits for it to finish.
+     *
+     * @return the report of the run
+     * @throws InterruptedException if the calling thread is interrupted while
+     * waiting; the load threads are interrupted in turn
+     */
+    public Report run() throws InterruptedException {
+        if (scenarios.isEmpty()) {
+            throw new IllegalStateException("No scenarios have been added");
+        }
+
+        final VirtualUser[] virtualUsers = new VirtualUser[users > 0 ? users : threads];
+        for (int i = 0; i < virtualUsers.length; i++) {
+            virtualUsers[i] = new VirtualUser(i, context);
+        }
+
+        final Map<String, LatencyHistogram> latencies = new LinkedHashMap<String, LatencyHistogram>();
+        final Map<String, AtomicLong> errors = new LinkedHashMap<String, AtomicLong>();
+        for (String name : names) {
+            latencies.put(name, new LatencyHistogram());
+            errors.put(name, new AtomicLong());
+        }
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        final int[] cumulativeWeights = new int[weights.size()];
+        int totalWeight = 0;
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            totalWeight += weights.get(i);
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        boolean contention = threadBean.isThreadContentionMonitoringSupported();
+        boolean contentionWasEnabled = contention && threadBean.isThreadContentionMonitoringEnabled();
+        if (contention && !contentionWasEnabled) {
+            threadBean.setThreadContentionMonitoringEnabled(true);
+        }
+
+        final CountDownLatch warmedUp = new CountDownLatch(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[][] contentionAtStart = new long[threads][];
+        final long[][] contentionAtEnd = new long[threads][];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            final int weightSum = totalWeight;
+            workers[t] = new Thread("MockLoadDriver-" + t) {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < warmupIterations; i++) {
+                            runOnce(index, i, virtualUsers, cumulativeWeights, weightSum,
+                                    null, null, null);
+                        }
+                        contentionAtStart[index] = getContention(getId());
+                        warmedUp.countDown();
+                        start.await();
+
+                        long deadline = System.nanoTime() + durationNanos;
+                        for (int i = 0; durationNanos > 0 ? System.nanoTime() - deadline < 0
+                                : i < iterations; i++) {
+                            runOnce(index, warmupIterations + i, virtualUsers, cumulativeWeights,
+                                    weightSum, latencies, errors, failures);
+                        }
+                        contentionAtEnd[index] = getContention(getId());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        // Make sure a warm up failure cannot leave the run waiting forever
+                        warmedUp.countDown();
+                    }
+                }
+            };
+            workers[t].setDaemon(true);
+            workers[t].start();
+        }
+
+        long begin;
+        long end;
+        try {
+            warmedUp.await();
+            begin = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            end = System.nanoTime();
+        } catch (InterruptedException e) {
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            throw e;
+        } finally {
+            if (contention && !contentionWasEnabled) {
+                threadBean.setThreadContentionMonitoringEnabled(false);
+            }
+        }
+
+        long[] total = new long[4];
+        for (int t = 0; t < threads; t++) {
+            if (contentionAtStart[t] != null && contentionAtEnd[t] != null) {
+                for (int i = 0; i < total.length; i++) {
+                    total[i] += contentionAtEnd[t][i] - contentionAtStart[t][i];
+                }
+            }
+        }
+
+        return new Report(end - begin, latencies, errors, failures, total[0],
+                contention ? total[1] : -1, total[2], contention ? total[3] : -1);
+    }
+
+    /**
+     * Picks a user and a scenario and runs it, recording the outcome unless
+     * warming up (i.e. when latencies is null).
+     */
+    private void runOnce(int thread, int iteration, VirtualUser[] virtualUsers,
+            int[] cumulativeWeights, int totalWeight, Map<String, LatencyHistogram> latencies,
+            Map<String, AtomicLong> errors, List<Throwable> failures) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        VirtualUser user = virtualUsers[(int) ((thread + (long) iteration * threads) % virtualUsers.length)];
+
+        int pick = random.nextInt(totalWeight);
+        int index = 0;
+        while (cumulativeWeights[index] <= pick) {
+            index++;
+        }
+
+        long begin = System.nanoTime();
+        try {
+            scenarios.get(index).run(user);
+        } catch (Exception e) {
+            if (errors != null) {
+                errors.get(names.get(index)).incrementAndGet();
+                if (failures.size() < MAX_FAILURES) {
+                    failures.add(e);
+                }
+            }
+        }
+        if (latencies != null) {
+            latencies.get(names.get(index)).record(System.nanoTime() - begin);
+        }
+
+        if (maxThinkNanos > 0) {
+            long think = minThinkNanos + (maxThinkNanos > minThinkNanos
+                    ? random.nextLong(maxThinkNanos - minThinkNanos) : 0);
+            TimeUnit.NANOSECONDS.sleep(think);
+        }
+    }
+
+    /**
+     * Returns the blocked count, blocked time, waited count and waited time of
+     * a thread; times are zero when contention monitoring is not enabled.
+     */
+    private static long[] getContention(long threadId) {
+        ThreadInfo info = ManagementFactory.getThreadMXBean().getThreadInfo(threadId);
+        if (info == null) {
+            return new long[4];
+        }
+        return new long[]{
+            info.getBlockedCount(), Math.max(0, info.getBlockedTime()),
+            info.getWaitedCount(), Math.max(0, info.getWaitedTime())
+        };
+    }
+}
@@ -22,6 +22,8 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -43,8 +45,9 @@ import java.util.concurrent.TimeUnit;
  * it.</li>
  * <li>Forwards, includes and redirects are recorded for posterity, but not
  * processed.</li>
- * <li>It may or may not be thread safe (not a priority since it is mainly for
- * unit testing).</li>
+ * <li>Filters, servlets and listeners should be registered before requests
+ * are executed; once configured the context can serve requests from many
+ * threads at once (see {@link MockLoadDriver}).</li>
  * <li>You do your own session management (attach one to a request before
  * executing).</li>
  * </ul>
@@ -55,11 +58,11 @@ import java.util.concurrent.TimeUnit;
 public class MockServletContext implements ServletContext {
 
     private String contextName;
-    private Map<String, String> initParameters = new HashMap<String, String>();
-    private Map<String, Object> attributes = new HashMap<String, Object>();
-    private List<Filter> filters = new ArrayList<Filter>();
-    private List<ServletContextListener> listeners = new ArrayList<ServletContextListener>();
-    private HttpServlet servlet;
+    private Map<String, String> initParameters = new ConcurrentHashMap<String, String>();
+    private Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+    private List<Filter> filters = new CopyOnWriteArrayList<Filter>();
+    private List<ServletContextListener> listeners = new CopyOnWriteArrayList<ServletContextListener>();
+    private volatile HttpServlet servlet;
 
     /**
      * Simple constructor that creates a new mock ServletContext with the
@@ -243,9 +246,16 @@ public class MockServletContext implements ServletContext {
      * Adds an init parameter to the mock servlet context.
      * @param name
      * @param value
+     * @throws IllegalArgumentException if the name is null
      */
     public void addInitParameter(String name, String value) {
-        this.initParameters.put(name, value);
+        if (name == null) {
+            throw new IllegalArgumentException("Init parameter names must not be null");
+        } else if (value == null) {
+            this.initParameters.remove(name);
+        } else {
+            this.initParameters.put(name, value);
+        }
     }
 
     /**
@@ -253,7 +263,9 @@ public class MockServletContext implements ServletContext {
      * @param parameters
      */
     public void addAllInitParameters(Map<String, String> parameters) {
-        this.initParameters.putAll(parameters);
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            addInitParameter(entry.getKey(), entry.getValue());
+        }
     }
 
     /**
@@ -263,7 +275,7 @@ public class MockServletContext implements ServletContext {
      * @return 
      */
     public String getInitParameter(String name) {
-        return this.initParameters.get(name);
+        return name == null ? null : this.initParameters.get(name);
     }
 
     /**
@@ -282,7 +294,7 @@ public class MockServletContext implements ServletContext {
      * @return 
      */
     public Object getAttribute(String name) {
-        return this.attributes.get(name);
+        return name == null ? null : this.attributes.get(name);
     }
 
     /**
@@ -297,9 +309,16 @@ public class MockServletContext implements ServletContext {
      * Sets the supplied value for the attribute on the context.
      * @param name
      * @param value
+     * @throws IllegalArgumentException if the name is null
      */
     public void setAttribute(String name, Object value) {
-        this.attributes.put(name, value);
+        if (name == null) {
+            throw new IllegalArgumentException("Context attribute names must not be null");
+        } else if (value == null) {
+            this.attributes.remove(name);
+        } else {
+            this.attributes.put(name, value);
+        }
     }
 
     /**
@@ -307,7 +326,9 @@ public class MockServletContext implements ServletContext {
      * @param name
      */
     public void removeAttribute(String name) {
-        this.attributes.remove(name);
+        if (name != null) {
+            this.attributes.remove(name);
+        }
     }
 
     /**
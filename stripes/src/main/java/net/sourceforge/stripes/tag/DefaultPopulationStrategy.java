@@ -16,15 +16,12 @@ package net.sourceforge.stripes.tag;
 
 import net.sourceforge.stripes.action.ActionBean;
 import net.sourceforge.stripes.config.Configuration;
-import net.sourceforge.stripes.controller.ParameterName;
 import net.sourceforge.stripes.controller.StripesConstants;
 import net.sourceforge.stripes.exception.StripesJspException;
-import net.sourceforge.stripes.util.CryptoUtil;
 import net.sourceforge.stripes.util.Log;
 import net.sourceforge.stripes.util.bean.BeanUtil;
 import net.sourceforge.stripes.util.bean.ExpressionException;
 import net.sourceforge.stripes.validation.ValidationErrors;
-import net.sourceforge.stripes.validation.ValidationMetadata;
 
 /**
  * <p>
@@ -37,7 +34,14 @@ import net.sourceforge.stripes.validation.ValidationMetadata;
  * If there is no value in the request then an ActionBean bound to the current
  * form will be looked for. If the ActionBean is found and the value is non-null
  * it will be returned. If no value can be found in either place, null will
- * returned.
+ * returned.</p>
+ *
+ * <p>
+ * The values submitted for a field are recorded in the form's
+ * {@link FormFieldDescriptor} for the field, so the request is searched once
+ * per field name and form, however many tags share the name. The ActionBean
+ * is read for every tag, since a tag body may change it while the form
+ * renders.</p>
  *
  * @author Tim Fennell
  */
@@ -83,7 +87,17 @@ public class DefaultPopulationStrategy implements PopulationStrategy {
      */
     public Object getValue(InputTagSupport tag) throws StripesJspException {
         // Look first for something that the user submitted in the current request
-        Object value = getValuesFromRequest(tag);
+        Object value;
+        if (tag.getName() == null) {
+            value = getValuesFromRequest(tag);
+        } else {
+            // The request does not change while the form renders, so look once per name
+            FormFieldDescriptor descriptor = tag.getParentFormTag().getFieldDescriptor(tag.getName());
+            if (!descriptor.isSubmittedValuesLoaded()) {
+                descriptor.setSubmittedValues(getValuesFromRequest(tag));
+            }
+            value = descriptor.getSubmittedValues();
+        }
 
         // If that's not there, let's look on the ActionBean
         if (value == null) {
@@ -115,19 +129,7 @@ public class DefaultPopulationStrategy implements PopulationStrategy {
          * bind to is flagged as encrypted, then the value needs to be decrypted now.
          */
         if (value != null) {
-            // find the action bean class we're dealing with
-            Class<? extends ActionBean> beanClass = tag.getParentFormTag().getActionBeanClass();
-            if (beanClass != null) {
-                ValidationMetadata validate = config.getValidationMetadataProvider()
-                        .getValidationMetadata(beanClass, new ParameterName(tag.getName()));
-                if (validate != null && validate.encrypted()) {
-                    String[] copy = new String[value.length];
-                    for (int i = 0; i < copy.length; i++) {
-                        copy[i] = CryptoUtil.decrypt(value[i]);
-                    }
-                    value = copy;
-                }
-            }
+            value = tag.getParentFormTag().getFieldDescriptor(tag.getName()).getRequestValues(value);
         }
 
         return value;
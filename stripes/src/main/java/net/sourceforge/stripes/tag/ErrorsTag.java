@@ -139,6 +139,11 @@ public class ErrorsTag extends HtmlTagSupport implements BodyTag {
      */
     private boolean globalErrorsOnly;
 
+    /**
+     * The ValidationErrors the displayed errors were taken from
+     */
+    private ValidationErrors errors;
+
     /**
      * The collection of errors that match the filtering conditions
      */
@@ -170,6 +175,19 @@ public class ErrorsTag extends HtmlTagSupport implements BodyTag {
         return currentError;
     }
 
+    /**
+     * Returns the message for an error being displayed by this tag, localized
+     * through the ValidationErrors it came from so that messages, field names
+     * and templates shared by many errors are only looked up once.
+     *
+     * @param error the error to render
+     * @param locale the locale to render the message in
+     * @return the localized message
+     */
+    String getMessage(ValidationError error, Locale locale) {
+        return this.errors == null ? error.getMessage(locale) : this.errors.getMessage(error, locale);
+    }
+
     /**
      * Returns true if the error displayed is the first matching error.
      * @return 
@@ -327,6 +345,7 @@ public class ErrorsTag extends HtmlTagSupport implements BodyTag {
         // Make sure that after all this we really do have some errors
         if (this.allErrors != null && this.allErrors.size() > 0) {
             this.display = true;
+            this.errors = errors;
             this.errorIterator = this.allErrors.iterator();
             this.currentError = this.errorIterator.next(); // load up the first error
             return EVAL_BODY_BUFFERED;
@@ -407,7 +426,7 @@ public class ErrorsTag extends HtmlTagSupport implements BodyTag {
                 writer.write(header);
 
                 for (ValidationError fieldError : this.allErrors) {
-                    String message = fieldError.getMessage(locale);
+                    String message = getMessage(fieldError, locale);
                     if (message != null && message.length() > 0) {
                         writer.write(openElement);
                         writer.write(message);
@@ -424,6 +443,7 @@ public class ErrorsTag extends HtmlTagSupport implements BodyTag {
             // Reset the instance state in case the container decides to pool the tag
             this.display = false;
             this.nestedErrorTagPresent = false;
+            this.errors = null;
             this.allErrors = null;
             this.errorIterator = null;
             this.currentError = null;
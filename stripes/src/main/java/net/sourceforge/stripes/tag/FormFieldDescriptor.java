@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.tag;
+
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.format.Formatter;
+import net.sourceforge.stripes.format.FormatterFactory;
+import net.sourceforge.stripes.util.CryptoUtil;
+import net.sourceforge.stripes.validation.ValidationMetadata;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * <p>
+ * Holds everything an input tag needs to know about a single field of a form
+ * while the form is being rendered: the validation metadata of the ActionBean
+ * property the field binds to, whether the property is encrypted, its
+ * maxlength, the decrypted values submitted for the field and the last
+ * formatter used to format a value for it. It also remembers the values the
+ * {@link DefaultPopulationStrategy} found for the field in the request, so
+ * that tags sharing a name, such as checkboxes, do not repeat the lookup. The
+ * ActionBean is not cached here since it may change while the form
+ * renders.</p>
+ *
+ * <p>
+ * Descriptors are created and cached by the enclosing {@link FormTag}, one per
+ * field name, and are discarded when the form tag finishes rendering. This
+ * means that the lookups are performed once per field and per form rather than
+ * once per input tag, which matters a great deal for forms that render hundreds
+ * of inputs (e.g. inside loops).</p>
+ *
+ * @since Stripes 1.7
+ */
+public class FormFieldDescriptor {
+
+    private final Class<? extends ActionBean> beanClass;
+    private final String name;
+    private final ValidationMetadata validationMetadata;
+
+    /* Single entry formatter cache; inputs sharing a name usually format the same type. */
+    private Class<?> formatterInputType;
+    private Locale formatterLocale;
+    private String formatterType;
+    private String formatterPattern;
+    private Formatter<?> formatter;
+
+    /* Request values, as last supplied raw, and after decryption. */
+    private String[] rawValues;
+    private String[] decryptedValues;
+
+    /* Localized field name, looked up lazily. */
+    private boolean localizedNameLoaded;
+    private String localizedName;
+
+    /* Values submitted for the field in the request, looked up lazily. */
+    private boolean submittedValuesLoaded;
+    private String[] submittedValues;
+
+    /**
+     * Constructs a descriptor for the named field of a form.
+     *
+     * @param beanClass the ActionBean class the form submits to (may be null)
+     * @param name the name of the field as it appears on the page
+     * @param validationMetadata the validation metadata for the ActionBean
+     * property the field binds to (may be null)
+     */
+    public FormFieldDescriptor(Class<? extends ActionBean> beanClass, String name,
+            ValidationMetadata validationMetadata) {
+        this.beanClass = beanClass;
+        this.name = name;
+        this.validationMetadata = validationMetadata;
+    }
+
+    /**
+     * Returns the ActionBean class the form submits to, or null if unknown.
+     * @return the ActionBean class, or null
+     */
+    public Class<? extends ActionBean> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * Returns the name of the field as it appears on the page.
+     * @return the field name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the validation metadata of the property the field binds to, or
+     * null if there is none.
+     * @return the validation metadata, or null
+     */
+    public ValidationMetadata getValidationMetadata() {
+        return validationMetadata;
+    }
+
+    /**
+     * Returns true if the ActionBean property the field binds to is encrypted.
+     * @return true if the field is encrypted
+     */
+    public boolean isEncrypted() {
+        return validationMetadata != null && validationMetadata.encrypted();
+    }
+
+    /**
+     * Returns the maxlength declared in the validation metadata, or null if
+     * there is none.
+     * @return the declared maxlength, or null
+     */
+    public Integer getMaxlength() {
+        return validationMetadata == null ? null : validationMetadata.maxlength();
+    }
+
+    /**
+     * Returns a formatter for the type, locale, format type and format pattern
+     * provided. If the previous call to this method asked for the same combination then
+     * the same formatter is returned without consulting the factory.
+     *
+     * @param factory the factory used to look up formatters
+     * @param type the type of object being formatted
+     * @param locale the locale the form is being rendered in
+     * @param formatType the format type (allows nulls)
+     * @param formatPattern the format pattern (allows nulls)
+     * @return a Formatter or null if none is available for the type
+     */
+    public Formatter<?> getFormatter(FormatterFactory factory, Class<?> type, Locale locale,
+            String formatType, String formatPattern) {
+        if (type != this.formatterInputType
+                || !equal(locale, this.formatterLocale)
+                || !equal(formatType, this.formatterType)
+                || !equal(formatPattern, this.formatterPattern)) {
+            this.formatter = factory.getFormatter(type, locale, formatType, formatPattern);
+            this.formatterInputType = type;
+            this.formatterLocale = locale;
+            this.formatterType = formatType;
+            this.formatterPattern = formatPattern;
+        }
+
+        return this.formatter;
+    }
+
+    /**
+     * Returns the values supplied, decrypting them first if the field is
+     * encrypted. Decrypted values are remembered so that several inputs with
+     * the same name (e.g. checkboxes) decrypt the request values only once.
+     *
+     * @param values the values submitted in the request for this field
+     * @return the values, decrypted if necessary
+     */
+    public String[] getRequestValues(String[] values) {
+        if (values == null || !isEncrypted()) {
+            return values;
+        }
+
+        if (values != this.rawValues && !Arrays.equals(values, this.rawValues)) {
+            String[] copy = new String[values.length];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = CryptoUtil.decrypt(values[i]);
+            }
+            this.rawValues = values;
+            this.decryptedValues = copy;
+        }
+
+        return this.decryptedValues;
+    }
+
+    /**
+     * Returns true if the localized field name has been looked up already.
+     * @return true if the localized name has been looked up
+     */
+    public boolean isLocalizedNameLoaded() {
+        return localizedNameLoaded;
+    }
+
+    /**
+     * Returns the localized field name previously stored, which may be null.
+     * @return the localized field name, or null
+     */
+    public String getLocalizedName() {
+        return localizedName;
+    }
+
+    /**
+     * Stores the localized field name looked up for the field.
+     * @param localizedName the localized field name, possibly null
+     */
+    public void setLocalizedName(String localizedName) {
+        this.localizedName = localizedName;
+        this.localizedNameLoaded = true;
+    }
+
+    /**
+     * Returns true if the values submitted for the field have been looked up
+     * already.
+     * @return true if the submitted values have been looked up
+     */
+    public boolean isSubmittedValuesLoaded() {
+        return submittedValuesLoaded;
+    }
+
+    /**
+     * Returns the values submitted for the field previously stored, which may
+     * be null if the request has none.
+     * @return the submitted values, or null
+     */
+    public String[] getSubmittedValues() {
+        return submittedValues;
+    }
+
+    /**
+     * Stores the values submitted for the field in the request.
+     * @param submittedValues the submitted values, possibly null
+     */
+    public void setSubmittedValues(String[] submittedValues) {
+        this.submittedValues = submittedValues;
+        this.submittedValuesLoaded = true;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -19,12 +19,14 @@ import net.sourceforge.stripes.action.Wizard;
 import net.sourceforge.stripes.controller.StripesConstants;
 import net.sourceforge.stripes.controller.StripesFilter;
 import net.sourceforge.stripes.controller.ActionResolver;
+import net.sourceforge.stripes.controller.ParameterName;
 import net.sourceforge.stripes.exception.StripesJspException;
 import net.sourceforge.stripes.util.CryptoUtil;
 import net.sourceforge.stripes.util.HtmlUtil;
 import net.sourceforge.stripes.util.Log;
 import net.sourceforge.stripes.util.StringUtil;
 import net.sourceforge.stripes.util.UrlBuilder;
+import net.sourceforge.stripes.validation.ValidationMetadata;
 import net.sourceforge.stripes.validation.ValidationErrors;
 import net.sourceforge.stripes.validation.ValidationError;
 
@@ -96,6 +98,12 @@ public class FormTag extends HtmlTagSupport implements BodyTag, TryCatchFinally,
      */
     private Map<String, Class<?>> fieldsPresent = new HashMap<String, Class<?>>();
 
+    /**
+     * A map of field name to the render descriptor for that field, built lazily
+     * as input tags ask for them and discarded at the end of the tag.
+     */
+    private Map<String, FormFieldDescriptor> fieldDescriptors = new HashMap<String, FormFieldDescriptor>();
+
     /**
      * Sets the action for the form. If the form action begins with a slash, and
      * does not already contain the context path, then the context path of the
@@ -440,6 +448,7 @@ public class FormTag extends HtmlTagSupport implements BodyTag, TryCatchFinally,
             // can use tag pooling
             this.actionBeanClass = null;
             this.fieldsPresent.clear();
+            this.fieldDescriptors.clear();
             this.focusSet = false;
             this.urlBuilder = null;
         } catch (IOException ioe) {
@@ -463,6 +472,8 @@ public class FormTag extends HtmlTagSupport implements BodyTag, TryCatchFinally,
      * there is never any confusion about tag-parent hierarchies.
      */
     public void doFinally() {
+        // Never let descriptors (which hold decrypted values) outlive a failed render
+        this.fieldDescriptors.clear();
         try {
             getTagStack().pop();
         } catch (Throwable t) {
@@ -651,6 +662,19 @@ public class FormTag extends HtmlTagSupport implements BodyTag, TryCatchFinally,
         setFocusOnFieldIfRequired(tag);
     }
 
+    /**
+     * Used by the {@link WizardFieldsTag} to notify the form that a field
+     * carried forward in the wizard state has been included in the form, as
+     * a hidden field would have been.
+     *
+     * @param name the name of the field
+     */
+    void registerCarriedField(String name) {
+        if (!this.fieldsPresent.containsKey(name)) {
+            this.fieldsPresent.put(name, InputHiddenTag.class);
+        }
+    }
+
     /**
      * Checks to see if the field should receive focus either because it is the
      * named field for receiving focus, because it is the first field in the
@@ -685,6 +709,31 @@ public class FormTag extends HtmlTagSupport implements BodyTag, TryCatchFinally,
         }
     }
 
+    /**
+     * Returns the render descriptor for the named field, creating it on first
+     * use. The descriptor bundles the validation metadata, encryption flag,
+     * maxlength, decrypted request values and formatter for the field so that
+     * each is looked up once per form rather than once per input tag.
+     *
+     * @param name the name of the field as it appears on the page (may be null)
+     * @return the descriptor for the field, never null
+     */
+    public FormFieldDescriptor getFieldDescriptor(String name) {
+        FormFieldDescriptor descriptor = this.fieldDescriptors.get(name);
+        if (descriptor == null) {
+            Class<? extends ActionBean> beanClass = getActionBeanClass();
+            ValidationMetadata validation = null;
+            if (beanClass != null && name != null) {
+                validation = StripesFilter.getConfiguration().getValidationMetadataProvider()
+                        .getValidationMetadata(beanClass, new ParameterName(name));
+            }
+            descriptor = new FormFieldDescriptor(beanClass, name, validation);
+            this.fieldDescriptors.put(name, descriptor);
+        }
+
+        return descriptor;
+    }
+
     /**
      * Gets the set of all field names for which fields have been referred
      * within the form up until the point of calling this method. If this is
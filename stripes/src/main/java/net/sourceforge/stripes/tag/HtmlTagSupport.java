@@ -228,7 +228,7 @@ public abstract class HtmlTagSupport extends StripesTagSupport implements Dynami
     /**
      * For every attribute stored in the attributes map for this tag, writes out
      * the tag attributes in the form x="y". All attributes are HTML encoded
-     * before being written to the page to ensure that HTML special characters
+     * as they are written to the page to ensure that HTML special characters
      * are rendered properly.
      *
      * @param writer the JspWriter to write the open tag to
@@ -242,11 +242,11 @@ public abstract class HtmlTagSupport extends StripesTagSupport implements Dynami
                 continue;
             }
 
-            writer.print(" ");
-            writer.print(attr.getKey());
-            writer.print("=\"");
-            writer.print(HtmlUtil.encode(value));
-            writer.print("\"");
+            writer.write(' ');
+            writer.write(attr.getKey());
+            writer.write("=\"");
+            HtmlUtil.encode(value, writer);
+            writer.write('"');
         }
     }
 
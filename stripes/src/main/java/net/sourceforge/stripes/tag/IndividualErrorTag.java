@@ -62,7 +62,7 @@ public class IndividualErrorTag extends HtmlTagSupport {
             // Mode: sub-tag inside an errors tag
             try {
                 ValidationError error = parentErrorsTag.getCurrentError();
-                writer.write(error.getMessage(locale));
+                writer.write(parentErrorsTag.getMessage(error, locale));
             } catch (IOException ioe) {
                 JspException jspe = new JspException("IOException encountered while writing "
                         + "error tag to the JspWriter.", ioe);
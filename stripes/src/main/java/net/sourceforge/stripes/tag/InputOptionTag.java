@@ -155,15 +155,12 @@ public class InputOptionTag extends InputTagSupport implements BodyTag {
         }
 
         // Decide if the label will come from the body of the option, of the label attr
-        String actualLabel = getBodyContentAsString();
-        if (actualLabel == null) {
-            actualLabel = HtmlUtil.encode(this.label);
-        }
+        String bodyLabel = getBodyContentAsString();
 
         // If no explicit value attribute set, use the tag label as the value
         Object actualValue;
         if (this.value == null) {
-            actualValue = actualLabel;
+            actualValue = bodyLabel != null ? bodyLabel : HtmlUtil.encode(this.label);
         } else {
             actualValue = this.value;
         }
@@ -177,8 +174,10 @@ public class InputOptionTag extends InputTagSupport implements BodyTag {
         // And finally write the tag out to the page
         try {
             writeOpenTag(getPageContext().getOut(), "option");
-            if (actualLabel != null) {
-                getPageContext().getOut().write(actualLabel);
+            if (bodyLabel != null) {
+                getPageContext().getOut().write(bodyLabel);
+            } else {
+                HtmlUtil.encode(this.label, getPageContext().getOut());
             }
             writeCloseTag(getPageContext().getOut(), "option");
 
@@ -26,7 +26,7 @@ import javax.servlet.jsp.JspException;
 import javax.servlet.jsp.JspWriter;
 import java.util.Collection;
 import java.util.Locale;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.LinkedList;
 
@@ -404,7 +404,7 @@ public class InputOptionsCollectionTag extends HtmlTagSupport {
     @Override
     public int doEndTag() throws JspException {
         // Determine if we're going to be sorting the collection
-        List<Entry> sortedEntries = new LinkedList<Entry>(this.entries);
+        List<Entry> sortedEntries = new ArrayList<Entry>(this.entries);
         if (this.sort != null) {
             String[] props = StringUtil.standardSplit(this.sort);
             for (int i = 0; i < props.length; ++i) {
@@ -413,8 +413,7 @@ public class InputOptionsCollectionTag extends HtmlTagSupport {
                 }
             }
 
-            Collections.sort(sortedEntries,
-                    new BeanComparator(getPageContext().getRequest().getLocale(), props));
+            new BeanComparator(getPageContext().getRequest().getLocale(), props).sort(sortedEntries);
         }
 
         InputOptionTag tag = new InputOptionTag();
@@ -15,7 +15,6 @@
 package net.sourceforge.stripes.tag;
 
 import net.sourceforge.stripes.action.ActionBean;
-import net.sourceforge.stripes.controller.ParameterName;
 import net.sourceforge.stripes.controller.StripesConstants;
 import net.sourceforge.stripes.controller.StripesFilter;
 import net.sourceforge.stripes.exception.StripesJspException;
@@ -179,6 +178,26 @@ public abstract class InputTagSupport extends HtmlTagSupport implements TryCatch
      * @throws StripesJspException if an enclosing form tag cannot be found
      */
     public FormTag getParentFormTag() throws StripesJspException {
+        FormTag parent = findParentFormTag();
+
+        if (parent == null) {
+            throw new StripesJspException("InputTag of type [" + getClass().getName() + "] must be enclosed inside a "
+                    + "stripes form tag. If, for some reason, you do not wish to render a complete "
+                    + "form you may surround stripes input tags with <s:form partial=\"true\" ...> "
+                    + "which will provide support to the input tags but not render the <form> tag.");
+        }
+
+        return parent;
+    }
+
+    /**
+     * Locates the first non-partial enclosing stripes form tag, or returns null
+     * if the tag is not enclosed in one. Unlike {@link #getParentFormTag()}
+     * this does not throw an exception when there is no form tag.
+     *
+     * @return FormTag the enclosing form tag on the JSP, or null
+     */
+    protected FormTag findParentFormTag() {
         FormTag parent = getParentTag(FormTag.class);
 
         // find the first non-partial parent form tag
@@ -194,13 +213,6 @@ public abstract class InputTagSupport extends HtmlTagSupport implements TryCatch
             }
         }
 
-        if (parent == null) {
-            throw new StripesJspException("InputTag of type [" + getClass().getName() + "] must be enclosed inside a "
-                    + "stripes form tag. If, for some reason, you do not wish to render a complete "
-                    + "form you may surround stripes input tags with <s:form partial=\"true\" ...> "
-                    + "which will provide support to the input tags but not render the <form> tag.");
-        }
-
         return parent;
     }
 
@@ -262,7 +274,16 @@ public abstract class InputTagSupport extends HtmlTagSupport implements TryCatch
      */
     public String getLocalizedFieldName() throws StripesJspException {
         String name = getAttributes().get("name");
-        return getLocalizedFieldName(name);
+        FormTag form = findParentFormTag();
+        if (form == null) {
+            return getLocalizedFieldName(name);
+        }
+
+        FormFieldDescriptor descriptor = form.getFieldDescriptor(name);
+        if (!descriptor.isLocalizedNameLoaded()) {
+            descriptor.setLocalizedName(getLocalizedFieldName(name));
+        }
+        return descriptor.getLocalizedName();
     }
 
     /**
@@ -300,31 +321,47 @@ public abstract class InputTagSupport extends HtmlTagSupport implements TryCatch
     }
 
     /**
+     * Returns the render descriptor for the field this tag represents, as
+     * cached by the enclosing form tag. The field name is taken from this tag,
+     * or if it has none, from the nearest enclosing input tag that has one.
+     *
+     * @return the descriptor for this tag's field
+     * @throws StripesJspException if the enclosing form tag cannot be found
+     */
+    protected FormFieldDescriptor getFieldDescriptor() throws StripesJspException {
+        return getFieldDescriptor(getParentFormTag());
+    }
+
+    /**
+     * Returns the render descriptor for the field this tag represents from the
+     * form tag supplied.
+     *
+     * @param form the enclosing form tag
+     * @return the descriptor for this tag's field
+     */
+    private FormFieldDescriptor getFieldDescriptor(FormTag form) {
+        // ascend the tag stack until a tag name is found
+        String name = getName();
+        if (name == null) {
+            InputTagSupport tag = getParentTag(InputTagSupport.class);
+            while (name == null && tag != null) {
+                name = tag.getName();
+                tag = tag.getParentTag(InputTagSupport.class);
+            }
+        }
+
+        return form.getFieldDescriptor(name);
+    }
+
+    /**
+     * Returns the validation metadata for the ActionBean property this tag
+     * represents, or null if there is none.
      *
      * @return
      * @throws StripesJspException
      */
     protected ValidationMetadata getValidationMetadata() throws StripesJspException {
-        // find the action bean class we're dealing with
-        Class<? extends ActionBean> beanClass = getParentFormTag().getActionBeanClass();
-
-        if (beanClass != null) {
-            // ascend the tag stack until a tag name is found
-            String name = getName();
-            if (name == null) {
-                InputTagSupport tag = getParentTag(InputTagSupport.class);
-                while (name == null && tag != null) {
-                    name = tag.getName();
-                    tag = tag.getParentTag(InputTagSupport.class);
-                }
-            }
-
-            // check validation for encryption flag
-            return StripesFilter.getConfiguration().getValidationMetadataProvider()
-                    .getValidationMetadata(beanClass, new ParameterName(name));
-        } else {
-            return null;
-        }
+        return getFieldDescriptor().getValidationMetadata();
     }
 
     /**
@@ -358,19 +395,28 @@ public abstract class InputTagSupport extends HtmlTagSupport implements TryCatch
             return "";
         }
 
-        // format the value
+        // format the value, using the form's cached descriptor for the field if possible
         FormatterFactory factory = StripesFilter.getConfiguration().getFormatterFactory();
-        Formatter formatter = factory.getFormatter(input.getClass(),
-                getPageContext().getRequest().getLocale(),
-                this.formatType,
-                this.formatPattern);
+        Locale locale = getPageContext().getRequest().getLocale();
+        FormTag form = findParentFormTag();
+        FormFieldDescriptor descriptor = (form == null) ? null : getFieldDescriptor(form);
+
+        Formatter formatter;
+        if (descriptor == null) {
+            formatter = factory.getFormatter(input.getClass(), locale, this.formatType, this.formatPattern);
+        } else {
+            formatter = descriptor.getFormatter(factory, input.getClass(), locale,
+                    this.formatType, this.formatPattern);
+        }
         String formatted = (formatter == null) ? String.valueOf(input) : formatter.format(input);
 
         // encrypt the formatted value if required
         if (forOutput && formatted != null) {
             try {
-                ValidationMetadata validate = getValidationMetadata();
-                if (validate != null && validate.encrypted()) {
+                if (descriptor == null) {
+                    descriptor = getFieldDescriptor();
+                }
+                if (descriptor.isEncrypted()) {
                     formatted = CryptoUtil.encrypt(formatted);
                 }
             } catch (JspException e) {
@@ -20,7 +20,6 @@ import javax.servlet.jsp.tagext.BodyTag;
 import net.sourceforge.stripes.action.ActionBean;
 import net.sourceforge.stripes.exception.StripesJspException;
 import net.sourceforge.stripes.validation.Validate;
-import net.sourceforge.stripes.validation.ValidationMetadata;
 
 /**
  * <p>
@@ -91,16 +90,12 @@ public class InputTextTag extends InputTagSupport implements BodyTag {
      * property.
      *
      * @return 
-     * @throws StripesJspException if thrown by {@link #getValidationMetadata()}
+     * @throws StripesJspException if thrown by {@link #getFieldDescriptor()}
      */
     protected String getEffectiveMaxlength() throws StripesJspException {
         if (getMaxlength() == null) {
-            ValidationMetadata validation = getValidationMetadata();
-            if (validation != null && validation.maxlength() != null) {
-                return validation.maxlength().toString();
-            } else {
-                return null;
-            }
+            Integer maxlength = getFieldDescriptor().getMaxlength();
+            return maxlength == null ? null : maxlength.toString();
         } else {
             return getMaxlength();
         }
@@ -16,9 +16,9 @@ package net.sourceforge.stripes.tag;
 
 import net.sourceforge.stripes.action.ActionBean;
 import net.sourceforge.stripes.controller.StripesConstants;
-import net.sourceforge.stripes.controller.StripesFilter;
 import net.sourceforge.stripes.util.Log;
 import net.sourceforge.stripes.util.ReflectUtil;
+import net.sourceforge.stripes.util.UrlTemplate;
 
 import javax.servlet.jsp.JspException;
 import javax.servlet.jsp.PageContext;
@@ -254,7 +254,7 @@ public abstract class StripesTagSupport implements Tag {
     protected String getActionBeanUrl(Object nameOrClass) {
         Class<? extends ActionBean> beanType = getActionBeanType(nameOrClass);
         if (beanType != null) {
-            return StripesFilter.getConfiguration().getActionResolver().getUrlBinding(beanType);
+            return UrlTemplate.getUrlBinding(beanType);
         } else {
             return null;
         }
@@ -16,17 +16,25 @@ package net.sourceforge.stripes.tag;
 
 import static net.sourceforge.stripes.controller.StripesConstants.URL_KEY_FIELDS_PRESENT;
 
+import java.io.IOException;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.JspWriter;
 import javax.servlet.jsp.tagext.TryCatchFinally;
 
 import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.config.DefaultConfiguration;
 import net.sourceforge.stripes.controller.ActionResolver;
 import net.sourceforge.stripes.controller.StripesConstants;
 import net.sourceforge.stripes.controller.StripesFilter;
+import net.sourceforge.stripes.controller.WizardStateStore;
 import net.sourceforge.stripes.exception.StripesJspException;
 import net.sourceforge.stripes.exception.StripesServletException;
 import net.sourceforge.stripes.util.CryptoUtil;
@@ -44,6 +52,11 @@ import net.sourceforge.stripes.util.HtmlUtil;
  * scoping of ActionBeans, and without having to name all the parameters that
  * should be carried forward in the form.</p>
  *
+ * <p>
+ * If a {@link WizardStateStore} is configured the parameters are saved in the
+ * store instead, and a single hidden field holding the encrypted key of the
+ * saved state is written.</p>
+ *
  * @author Tim Fennell
  */
 public class WizardFieldsTag extends StripesTagSupport implements TryCatchFinally {
@@ -133,16 +146,24 @@ public class WizardFieldsTag extends StripesTagSupport implements TryCatchFinall
      * @throws net.sourceforge.stripes.exception.StripesJspException
      */
     protected void writeWizardFields(FormTag form) throws JspException, StripesJspException {
-        // Set up a hidden tag to do the writing for us
-        InputHiddenTag hidden = new InputHiddenTag();
-        hidden.setPageContext(getPageContext());
-        hidden.setParent(getParent());
-
         // Get the list of all parameters.
         Set<String> paramNames = getParamNames();
         // Figure out the list of parameters we should not include
         Set<String> excludes = getExcludes(form);
 
+        // Keep the parameters on the server if a store is configured
+        Configuration configuration = StripesFilter.getConfiguration();
+        WizardStateStore store = configuration instanceof DefaultConfiguration
+                ? ((DefaultConfiguration) configuration).getWizardStateStore() : null;
+        if (store != null && writeWizardState(form, store, paramNames, excludes)) {
+            return;
+        }
+
+        // Set up a hidden tag to do the writing for us
+        InputHiddenTag hidden = new InputHiddenTag();
+        hidden.setPageContext(getPageContext());
+        hidden.setParent(getParent());
+
         // Loop through the request parameters and output the values
         Class<? extends ActionBean> actionBeanType = form.getActionBeanClass();
         for (String name : paramNames) {
@@ -176,6 +197,62 @@ public class WizardFieldsTag extends StripesTagSupport implements TryCatchFinall
         }
     }
 
+    /**
+     * Saves the parameters that would otherwise be written as hidden fields in
+     * the {@link WizardStateStore}, and writes a single hidden field holding
+     * the encrypted key of the saved state. The values saved are those
+     * submitted in the request, and parameters that were present on the
+     * former page but not submitted are saved with an empty value. The names
+     * of the parameters are registered with the form, as the hidden fields
+     * would have been. Nothing is written if the store declines to save the
+     * parameters.
+     *
+     * @param form the enclosing form
+     * @param store the store in which to save the parameters
+     * @param paramNames the names of all parameters of the current request
+     * @param excludes the names of parameters that should not be carried
+     * forward
+     * @return true if the parameters were saved, or there were none, and false
+     * if they must be written as hidden fields instead
+     * @throws StripesJspException if the hidden field cannot be written
+     */
+    protected boolean writeWizardState(FormTag form, WizardStateStore store, Set<String> paramNames,
+            Set<String> excludes) throws StripesJspException {
+        HttpServletRequest request = (HttpServletRequest) getPageContext().getRequest();
+        Class<? extends ActionBean> actionBeanType = form.getActionBeanClass();
+        Map<String, String[]> state = new LinkedHashMap<String, String[]>();
+        for (String name : paramNames) {
+            if (!excludes.contains(name) && !isEventName(actionBeanType, name)) {
+                String[] values = request.getParameterValues(name);
+                state.put(name, values == null || values.length == 0 ? new String[]{""} : values);
+            }
+        }
+
+        if (state.isEmpty()) {
+            return true;
+        }
+
+        String key = store.save(request, state);
+        if (key == null) {
+            return false;
+        }
+        for (String name : state.keySet()) {
+            form.registerCarriedField(name);
+        }
+
+        try {
+            JspWriter out = getPageContext().getOut();
+            out.write("<input type=\"hidden\" name=\"");
+            out.write(StripesConstants.URL_KEY_WIZARD_STATE);
+            out.write("\" value=\"");
+            out.write(CryptoUtil.encrypt(key));
+            out.write(form.isXmlTags() ? "\" />" : "\">");
+        } catch (IOException e) {
+            throw new StripesJspException("Could not write the wizard state field.", e);
+        }
+        return true;
+    }
+
     /**
      * Returns all the submitted parameters in the current or the former
      * requests.
@@ -208,6 +285,7 @@ public class WizardFieldsTag extends StripesTagSupport implements TryCatchFinall
         excludes.add(StripesConstants.URL_KEY_FIELDS_PRESENT);
         excludes.add(StripesConstants.URL_KEY_EVENT_NAME);
         excludes.add(StripesConstants.URL_KEY_FLASH_SCOPE_ID);
+        excludes.add(StripesConstants.URL_KEY_WIZARD_STATE);
 
         // Use the submitted action bean to eliminate any event related parameters
         ServletRequest request = getPageContext().getRequest();
@@ -14,6 +14,8 @@
  */
 package net.sourceforge.stripes.util;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -33,7 +35,8 @@ public class HtmlUtil {
      * Replaces special HTML characters from the set {@literal [<, >, ", ', &]}
      * with their HTML escape codes. Note that because the escape codes are
      * multi-character that the returned String could be longer than the one
-     * passed in.
+     * passed in. If the fragment contains no special characters it is returned
+     * as is.
      *
      * @param fragment a String fragment that might have HTML special characters
      * in it
@@ -45,33 +48,105 @@ public class HtmlUtil {
             return null;
         }
 
+        int first = indexOfSpecial(fragment, 0);
+        if (first < 0) {
+            return fragment;
+        }
+
         StringBuilder builder = new StringBuilder(fragment.length() + 10); // a little wiggle room
-        char[] characters = fragment.toCharArray();
+        try {
+            encode(fragment, first, builder);
+        } catch (IOException e) {
+            // StringBuilder does not throw IOException
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the fragment to the supplied output, replacing special HTML
+     * characters as {@link #encode(String)} does. Nothing is allocated while
+     * doing so: runs of characters that need no escaping are written straight
+     * from the fragment, and a fragment without special characters is written
+     * in a single call. A null fragment writes nothing.
+     *
+     * @param fragment a String fragment that might have HTML special characters
+     * in it
+     * @param out the Writer, StringBuilder or other Appendable to write to
+     * @throws IOException if the output throws one
+     */
+    public static void encode(String fragment, Appendable out) throws IOException {
+        if (fragment != null) {
+            encode(fragment, indexOfSpecial(fragment, 0), out);
+        }
+    }
 
+    /**
+     * Writes the fragment to the output, escaping special characters from the
+     * index of the first one onwards.
+     */
+    private static void encode(String fragment, int first, Appendable out) throws IOException {
         // This loop used to also look for and replace single ticks with &apos; but it
         // turns out that it's not strictly necessary since Stripes uses double-quotes
         // around all form fields, and stupid IE6 will render &apos; verbatim instead
         // of as a single quote.
-        for (int i = 0; i < characters.length; ++i) {
-            switch (characters[i]) {
+        int start = 0;
+        for (int i = first; i >= 0; i = indexOfSpecial(fragment, start)) {
+            append(fragment, start, i, out);
+            switch (fragment.charAt(i)) {
                 case '<':
-                    builder.append("&lt;");
+                    out.append("&lt;");
                     break;
                 case '>':
-                    builder.append("&gt;");
+                    out.append("&gt;");
                     break;
                 case '"':
-                    builder.append("&quot;");
-                    break;
-                case '&':
-                    builder.append("&amp;");
+                    out.append("&quot;");
                     break;
                 default:
-                    builder.append(characters[i]);
+                    out.append("&amp;");
             }
+            start = i + 1;
         }
+        append(fragment, start, fragment.length(), out);
+    }
 
-        return builder.toString();
+    /**
+     * Returns the index of the first character at or after {@code from} that
+     * must be escaped, or -1 if there is none.
+     */
+    private static int indexOfSpecial(String fragment, int from) {
+        for (int i = from, length = fragment.length(); i < length; i++) {
+            char c = fragment.charAt(i);
+            if (c == '<' || c == '>' || c == '"' || c == '&') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends part of a String to the output. Writers are handed the String
+     * itself, since {@link Writer#append(CharSequence, int, int)} copies the
+     * subsequence into a new String.
+     *
+     * @param value the String to append from
+     * @param start the index of the first character to append
+     * @param end the index after the last character to append
+     * @param out the output
+     * @throws IOException if the output throws one
+     */
+    static void append(String value, int start, int end, Appendable out) throws IOException {
+        if (start >= end) {
+            return;
+        }
+
+        if (out instanceof Writer) {
+            ((Writer) out).write(value, start, end - start);
+        } else if (start == 0 && end == value.length()) {
+            out.append(value);
+        } else {
+            out.append(value, start, end);
+        }
     }
 
     /**
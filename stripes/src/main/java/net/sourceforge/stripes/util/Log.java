@@ -25,12 +25,50 @@ import org.apache.commons.logging.LogFactory;
  * only if logging is enabled for the level and channel being logged to, will
  * those arguments be toString()'d and appended together.</p>
  *
+ * <p>
+ * Calls with up to four message parts resolve to fixed-arity overloads, so
+ * that no array is allocated for the var-args when the level is disabled.
+ * Messages that are expensive to compute can be supplied as a
+ * {@link MessageSupplier}, which is only invoked if the level is enabled. The
+ * level of the underlying log is checked at most once every
+ * {@value #LEVEL_CHECK_INTERVAL} milliseconds, or after
+ * {@link #refreshLevels()} has been called.</p>
+ *
  * @author Tim Fennell
  */
 public final class Log {
 
+    /**
+     * A message that is computed only if it is going to be logged. Typically
+     * implemented by an anonymous or static nested class at the call site.
+     *
+     * @since Stripes 1.7
+     */
+    public interface MessageSupplier {
+
+        /**
+         * Computes the message.
+         *
+         * @return the message, which will be toString()'d
+         */
+        Object get();
+    }
+
+    /** The interval, in milliseconds, after which cached levels are checked again. */
+    public static final long LEVEL_CHECK_INTERVAL = 1000L;
+
+    private static final int TRACE = 0, DEBUG = 1, INFO = 2, WARN = 3, ERROR = 4, FATAL = 5, OFF = 6;
+
+    /* Incremented by refreshLevels() to make every Log check its level again. */
+    private static volatile int generation;
+
     private org.apache.commons.logging.Log realLog;
 
+    /* The lowest enabled level, and when and in which generation it was determined. */
+    private volatile int threshold;
+    private volatile long checkedAt;
+    private volatile int checkedGeneration;
+
     /**
      *
      * @return
@@ -67,6 +105,63 @@ public final class Log {
      */
     private Log(org.apache.commons.logging.Log realLog) {
         this.realLog = realLog;
+        refreshLevel();
+    }
+
+    /**
+     * Makes every Log check the levels of the underlying logging system again
+     * on next use. Should be called after changing log levels at runtime if
+     * the change must take effect immediately.
+     */
+    public static void refreshLevels() {
+        generation++;
+    }
+
+    /** Determines the lowest level enabled in the underlying log. */
+    private void refreshLevel() {
+        int level;
+        if (realLog.isTraceEnabled()) {
+            level = TRACE;
+        } else if (realLog.isDebugEnabled()) {
+            level = DEBUG;
+        } else if (realLog.isInfoEnabled()) {
+            level = INFO;
+        } else if (realLog.isWarnEnabled()) {
+            level = WARN;
+        } else if (realLog.isErrorEnabled()) {
+            level = ERROR;
+        } else if (realLog.isFatalEnabled()) {
+            level = FATAL;
+        } else {
+            level = OFF;
+        }
+
+        this.threshold = level;
+        this.checkedGeneration = generation;
+        this.checkedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Renders a single message part the way {@link StringUtil#combineParts(Object...)}
+     * would, so that the fixed-arity methods log the same as the var-args ones.
+     * A call only resolves to a single part method if the part is not
+     * statically an Object[], in which case the var-args method would have
+     * received it wrapped in an array, so arrays are rendered as one part.
+     */
+    private static Object single(Object part) {
+        if (part != null && part.getClass().isArray()) {
+            return StringUtil.combineParts(new Object[]{part});
+        }
+        return part;
+    }
+
+    /** Returns true if the level is enabled, checking the underlying log if the cache is stale. */
+    private boolean isEnabled(int level) {
+        if (checkedGeneration != generation
+                || System.currentTimeMillis() - checkedAt >= LEVEL_CHECK_INTERVAL) {
+            refreshLevel();
+        }
+        return level >= threshold;
     }
 
     /**
@@ -78,7 +173,7 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void fatal(Throwable throwable, Object... messageParts) {
-        if (this.realLog.isFatalEnabled()) {
+        if (isEnabled(FATAL)) {
             this.realLog.fatal(StringUtil.combineParts(messageParts), throwable);
         }
     }
@@ -92,7 +187,7 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void error(Throwable throwable, Object... messageParts) {
-        if (this.realLog.isErrorEnabled()) {
+        if (isEnabled(ERROR)) {
             this.realLog.error(StringUtil.combineParts(messageParts), throwable);
         }
     }
@@ -106,7 +201,7 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void warn(Throwable throwable, Object... messageParts) {
-        if (this.realLog.isWarnEnabled()) {
+        if (isEnabled(WARN)) {
             this.realLog.warn(StringUtil.combineParts(messageParts), throwable);
         }
     }
@@ -120,7 +215,7 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void info(Throwable throwable, Object... messageParts) {
-        if (this.realLog.isInfoEnabled()) {
+        if (isEnabled(INFO)) {
             this.realLog.info(StringUtil.combineParts(messageParts), throwable);
         }
     }
@@ -134,7 +229,7 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void debug(Throwable throwable, Object... messageParts) {
-        if (this.realLog.isDebugEnabled()) {
+        if (isEnabled(DEBUG)) {
             this.realLog.debug(StringUtil.combineParts(messageParts), throwable);
         }
     }
@@ -148,7 +243,7 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void trace(Throwable throwable, Object... messageParts) {
-        if (this.realLog.isTraceEnabled()) {
+        if (isEnabled(TRACE)) {
             this.realLog.trace(StringUtil.combineParts(messageParts), throwable);
         }
     }
@@ -161,7 +256,7 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void fatal(Object... messageParts) {
-        if (this.realLog.isFatalEnabled()) {
+        if (isEnabled(FATAL)) {
             this.realLog.fatal(StringUtil.combineParts(messageParts));
         }
     }
@@ -173,7 +268,7 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void error(Object... messageParts) {
-        if (this.realLog.isErrorEnabled()) {
+        if (isEnabled(ERROR)) {
             this.realLog.error(StringUtil.combineParts(messageParts));
         }
     }
@@ -185,7 +280,7 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void warn(Object... messageParts) {
-        if (this.realLog.isWarnEnabled()) {
+        if (isEnabled(WARN)) {
             this.realLog.warn(StringUtil.combineParts(messageParts));
         }
     }
@@ -197,7 +292,7 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void info(Object... messageParts) {
-        if (this.realLog.isInfoEnabled()) {
+        if (isEnabled(INFO)) {
             this.realLog.info(StringUtil.combineParts(messageParts));
         }
     }
@@ -209,7 +304,7 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void debug(Object... messageParts) {
-        if (this.realLog.isDebugEnabled()) {
+        if (isEnabled(DEBUG)) {
             this.realLog.debug(StringUtil.combineParts(messageParts));
         }
     }
@@ -221,8 +316,948 @@ public final class Log {
      * calling toString() to form the log message.
      */
     public final void trace(Object... messageParts) {
-        if (this.realLog.isTraceEnabled()) {
+        if (isEnabled(TRACE)) {
             this.realLog.trace(StringUtil.combineParts(messageParts));
         }
     }
+
+    // Level checks
+
+    /**
+     * Returns true if logging at level fatal is enabled. Useful to guard the
+     * computation of message parts that are expensive to produce.
+     *
+     * @return true if level fatal is enabled
+     */
+    public final boolean isFatalEnabled() {
+        return isEnabled(FATAL);
+    }
+
+    /**
+     * Returns true if logging at level error is enabled. Useful to guard the
+     * computation of message parts that are expensive to produce.
+     *
+     * @return true if level error is enabled
+     */
+    public final boolean isErrorEnabled() {
+        return isEnabled(ERROR);
+    }
+
+    /**
+     * Returns true if logging at level warn is enabled. Useful to guard the
+     * computation of message parts that are expensive to produce.
+     *
+     * @return true if level warn is enabled
+     */
+    public final boolean isWarnEnabled() {
+        return isEnabled(WARN);
+    }
+
+    /**
+     * Returns true if logging at level info is enabled. Useful to guard the
+     * computation of message parts that are expensive to produce.
+     *
+     * @return true if level info is enabled
+     */
+    public final boolean isInfoEnabled() {
+        return isEnabled(INFO);
+    }
+
+    /**
+     * Returns true if logging at level debug is enabled. Useful to guard the
+     * computation of message parts that are expensive to produce.
+     *
+     * @return true if level debug is enabled
+     */
+    public final boolean isDebugEnabled() {
+        return isEnabled(DEBUG);
+    }
+
+    /**
+     * Returns true if logging at level trace is enabled. Useful to guard the
+     * computation of message parts that are expensive to produce.
+     *
+     * @return true if level trace is enabled
+     */
+    public final boolean isTraceEnabled() {
+        return isEnabled(TRACE);
+    }
+
+    // Fixed-arity and lazy variants follow, they avoid allocating var-args arrays
+
+    /**
+     * Logs a Throwable at level fatal.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     */
+    public final void fatal(Throwable throwable) {
+        if (isEnabled(FATAL)) {
+            this.realLog.fatal("", throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and a message part at level fatal.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     */
+    public final void fatal(Throwable throwable, Object part1) {
+        if (isEnabled(FATAL)) {
+            this.realLog.fatal(String.valueOf(single(part1)), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 2 message parts at level fatal.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void fatal(Throwable throwable, Object part1, Object part2) {
+        if (isEnabled(FATAL)) {
+            this.realLog.fatal(StringUtil.combineParts(part1, part2), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 3 message parts at level fatal.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void fatal(Throwable throwable, Object part1, Object part2, Object part3) {
+        if (isEnabled(FATAL)) {
+            this.realLog.fatal(StringUtil.combineParts(part1, part2, part3), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 4 message parts at level fatal.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void fatal(Throwable throwable, Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(FATAL)) {
+            this.realLog.fatal(StringUtil.combineParts(part1, part2, part3, part4), throwable);
+        }
+    }
+
+    /**
+     * Logs a message part at level fatal.
+     *
+     * @param part1 a message part
+     */
+    public final void fatal(Object part1) {
+        if (isEnabled(FATAL)) {
+            this.realLog.fatal(String.valueOf(single(part1)));
+        }
+    }
+
+    /**
+     * Logs 2 message parts at level fatal.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void fatal(Object part1, Object part2) {
+        if (isEnabled(FATAL)) {
+            this.realLog.fatal(StringUtil.combineParts(part1, part2));
+        }
+    }
+
+    /**
+     * Logs 3 message parts at level fatal.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void fatal(Object part1, Object part2, Object part3) {
+        if (isEnabled(FATAL)) {
+            this.realLog.fatal(StringUtil.combineParts(part1, part2, part3));
+        }
+    }
+
+    /**
+     * Logs 4 message parts at level fatal.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void fatal(Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(FATAL)) {
+            this.realLog.fatal(StringUtil.combineParts(part1, part2, part3, part4));
+        }
+    }
+
+    /**
+     * Logs a lazily computed message at level fatal. The supplier is only
+     * invoked if the level is enabled.
+     *
+     * @param message supplies the message to log
+     */
+    public final void fatal(MessageSupplier message) {
+        if (isEnabled(FATAL)) {
+            this.realLog.fatal(String.valueOf(message.get()));
+        }
+    }
+
+    /**
+     * Logs a Throwable and a lazily computed message at level fatal. The
+     * supplier is only invoked if the level is enabled.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param message supplies the message to log
+     */
+    public final void fatal(Throwable throwable, MessageSupplier message) {
+        if (isEnabled(FATAL)) {
+            this.realLog.fatal(String.valueOf(message.get()), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable at level error.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     */
+    public final void error(Throwable throwable) {
+        if (isEnabled(ERROR)) {
+            this.realLog.error("", throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and a message part at level error.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     */
+    public final void error(Throwable throwable, Object part1) {
+        if (isEnabled(ERROR)) {
+            this.realLog.error(String.valueOf(single(part1)), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 2 message parts at level error.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void error(Throwable throwable, Object part1, Object part2) {
+        if (isEnabled(ERROR)) {
+            this.realLog.error(StringUtil.combineParts(part1, part2), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 3 message parts at level error.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void error(Throwable throwable, Object part1, Object part2, Object part3) {
+        if (isEnabled(ERROR)) {
+            this.realLog.error(StringUtil.combineParts(part1, part2, part3), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 4 message parts at level error.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void error(Throwable throwable, Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(ERROR)) {
+            this.realLog.error(StringUtil.combineParts(part1, part2, part3, part4), throwable);
+        }
+    }
+
+    /**
+     * Logs a message part at level error.
+     *
+     * @param part1 a message part
+     */
+    public final void error(Object part1) {
+        if (isEnabled(ERROR)) {
+            this.realLog.error(String.valueOf(single(part1)));
+        }
+    }
+
+    /**
+     * Logs 2 message parts at level error.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void error(Object part1, Object part2) {
+        if (isEnabled(ERROR)) {
+            this.realLog.error(StringUtil.combineParts(part1, part2));
+        }
+    }
+
+    /**
+     * Logs 3 message parts at level error.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void error(Object part1, Object part2, Object part3) {
+        if (isEnabled(ERROR)) {
+            this.realLog.error(StringUtil.combineParts(part1, part2, part3));
+        }
+    }
+
+    /**
+     * Logs 4 message parts at level error.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void error(Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(ERROR)) {
+            this.realLog.error(StringUtil.combineParts(part1, part2, part3, part4));
+        }
+    }
+
+    /**
+     * Logs a lazily computed message at level error. The supplier is only
+     * invoked if the level is enabled.
+     *
+     * @param message supplies the message to log
+     */
+    public final void error(MessageSupplier message) {
+        if (isEnabled(ERROR)) {
+            this.realLog.error(String.valueOf(message.get()));
+        }
+    }
+
+    /**
+     * Logs a Throwable and a lazily computed message at level error. The
+     * supplier is only invoked if the level is enabled.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param message supplies the message to log
+     */
+    public final void error(Throwable throwable, MessageSupplier message) {
+        if (isEnabled(ERROR)) {
+            this.realLog.error(String.valueOf(message.get()), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable at level warn.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     */
+    public final void warn(Throwable throwable) {
+        if (isEnabled(WARN)) {
+            this.realLog.warn("", throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and a message part at level warn.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     */
+    public final void warn(Throwable throwable, Object part1) {
+        if (isEnabled(WARN)) {
+            this.realLog.warn(String.valueOf(single(part1)), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 2 message parts at level warn.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void warn(Throwable throwable, Object part1, Object part2) {
+        if (isEnabled(WARN)) {
+            this.realLog.warn(StringUtil.combineParts(part1, part2), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 3 message parts at level warn.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void warn(Throwable throwable, Object part1, Object part2, Object part3) {
+        if (isEnabled(WARN)) {
+            this.realLog.warn(StringUtil.combineParts(part1, part2, part3), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 4 message parts at level warn.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void warn(Throwable throwable, Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(WARN)) {
+            this.realLog.warn(StringUtil.combineParts(part1, part2, part3, part4), throwable);
+        }
+    }
+
+    /**
+     * Logs a message part at level warn.
+     *
+     * @param part1 a message part
+     */
+    public final void warn(Object part1) {
+        if (isEnabled(WARN)) {
+            this.realLog.warn(String.valueOf(single(part1)));
+        }
+    }
+
+    /**
+     * Logs 2 message parts at level warn.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void warn(Object part1, Object part2) {
+        if (isEnabled(WARN)) {
+            this.realLog.warn(StringUtil.combineParts(part1, part2));
+        }
+    }
+
+    /**
+     * Logs 3 message parts at level warn.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void warn(Object part1, Object part2, Object part3) {
+        if (isEnabled(WARN)) {
+            this.realLog.warn(StringUtil.combineParts(part1, part2, part3));
+        }
+    }
+
+    /**
+     * Logs 4 message parts at level warn.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void warn(Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(WARN)) {
+            this.realLog.warn(StringUtil.combineParts(part1, part2, part3, part4));
+        }
+    }
+
+    /**
+     * Logs a lazily computed message at level warn. The supplier is only
+     * invoked if the level is enabled.
+     *
+     * @param message supplies the message to log
+     */
+    public final void warn(MessageSupplier message) {
+        if (isEnabled(WARN)) {
+            this.realLog.warn(String.valueOf(message.get()));
+        }
+    }
+
+    /**
+     * Logs a Throwable and a lazily computed message at level warn. The
+     * supplier is only invoked if the level is enabled.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param message supplies the message to log
+     */
+    public final void warn(Throwable throwable, MessageSupplier message) {
+        if (isEnabled(WARN)) {
+            this.realLog.warn(String.valueOf(message.get()), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable at level info.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     */
+    public final void info(Throwable throwable) {
+        if (isEnabled(INFO)) {
+            this.realLog.info("", throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and a message part at level info.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     */
+    public final void info(Throwable throwable, Object part1) {
+        if (isEnabled(INFO)) {
+            this.realLog.info(String.valueOf(single(part1)), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 2 message parts at level info.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void info(Throwable throwable, Object part1, Object part2) {
+        if (isEnabled(INFO)) {
+            this.realLog.info(StringUtil.combineParts(part1, part2), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 3 message parts at level info.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void info(Throwable throwable, Object part1, Object part2, Object part3) {
+        if (isEnabled(INFO)) {
+            this.realLog.info(StringUtil.combineParts(part1, part2, part3), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 4 message parts at level info.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void info(Throwable throwable, Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(INFO)) {
+            this.realLog.info(StringUtil.combineParts(part1, part2, part3, part4), throwable);
+        }
+    }
+
+    /**
+     * Logs a message part at level info.
+     *
+     * @param part1 a message part
+     */
+    public final void info(Object part1) {
+        if (isEnabled(INFO)) {
+            this.realLog.info(String.valueOf(single(part1)));
+        }
+    }
+
+    /**
+     * Logs 2 message parts at level info.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void info(Object part1, Object part2) {
+        if (isEnabled(INFO)) {
+            this.realLog.info(StringUtil.combineParts(part1, part2));
+        }
+    }
+
+    /**
+     * Logs 3 message parts at level info.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void info(Object part1, Object part2, Object part3) {
+        if (isEnabled(INFO)) {
+            this.realLog.info(StringUtil.combineParts(part1, part2, part3));
+        }
+    }
+
+    /**
+     * Logs 4 message parts at level info.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void info(Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(INFO)) {
+            this.realLog.info(StringUtil.combineParts(part1, part2, part3, part4));
+        }
+    }
+
+    /**
+     * Logs a lazily computed message at level info. The supplier is only
+     * invoked if the level is enabled.
+     *
+     * @param message supplies the message to log
+     */
+    public final void info(MessageSupplier message) {
+        if (isEnabled(INFO)) {
+            this.realLog.info(String.valueOf(message.get()));
+        }
+    }
+
+    /**
+     * Logs a Throwable and a lazily computed message at level info. The
+     * supplier is only invoked if the level is enabled.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param message supplies the message to log
+     */
+    public final void info(Throwable throwable, MessageSupplier message) {
+        if (isEnabled(INFO)) {
+            this.realLog.info(String.valueOf(message.get()), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable at level debug.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     */
+    public final void debug(Throwable throwable) {
+        if (isEnabled(DEBUG)) {
+            this.realLog.debug("", throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and a message part at level debug.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     */
+    public final void debug(Throwable throwable, Object part1) {
+        if (isEnabled(DEBUG)) {
+            this.realLog.debug(String.valueOf(single(part1)), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 2 message parts at level debug.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void debug(Throwable throwable, Object part1, Object part2) {
+        if (isEnabled(DEBUG)) {
+            this.realLog.debug(StringUtil.combineParts(part1, part2), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 3 message parts at level debug.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void debug(Throwable throwable, Object part1, Object part2, Object part3) {
+        if (isEnabled(DEBUG)) {
+            this.realLog.debug(StringUtil.combineParts(part1, part2, part3), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 4 message parts at level debug.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void debug(Throwable throwable, Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(DEBUG)) {
+            this.realLog.debug(StringUtil.combineParts(part1, part2, part3, part4), throwable);
+        }
+    }
+
+    /**
+     * Logs a message part at level debug.
+     *
+     * @param part1 a message part
+     */
+    public final void debug(Object part1) {
+        if (isEnabled(DEBUG)) {
+            this.realLog.debug(String.valueOf(single(part1)));
+        }
+    }
+
+    /**
+     * Logs 2 message parts at level debug.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void debug(Object part1, Object part2) {
+        if (isEnabled(DEBUG)) {
+            this.realLog.debug(StringUtil.combineParts(part1, part2));
+        }
+    }
+
+    /**
+     * Logs 3 message parts at level debug.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void debug(Object part1, Object part2, Object part3) {
+        if (isEnabled(DEBUG)) {
+            this.realLog.debug(StringUtil.combineParts(part1, part2, part3));
+        }
+    }
+
+    /**
+     * Logs 4 message parts at level debug.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void debug(Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(DEBUG)) {
+            this.realLog.debug(StringUtil.combineParts(part1, part2, part3, part4));
+        }
+    }
+
+    /**
+     * Logs a lazily computed message at level debug. The supplier is only
+     * invoked if the level is enabled.
+     *
+     * @param message supplies the message to log
+     */
+    public final void debug(MessageSupplier message) {
+        if (isEnabled(DEBUG)) {
+            this.realLog.debug(String.valueOf(message.get()));
+        }
+    }
+
+    /**
+     * Logs a Throwable and a lazily computed message at level debug. The
+     * supplier is only invoked if the level is enabled.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param message supplies the message to log
+     */
+    public final void debug(Throwable throwable, MessageSupplier message) {
+        if (isEnabled(DEBUG)) {
+            this.realLog.debug(String.valueOf(message.get()), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable at level trace.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     */
+    public final void trace(Throwable throwable) {
+        if (isEnabled(TRACE)) {
+            this.realLog.trace("", throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and a message part at level trace.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     */
+    public final void trace(Throwable throwable, Object part1) {
+        if (isEnabled(TRACE)) {
+            this.realLog.trace(String.valueOf(single(part1)), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 2 message parts at level trace.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void trace(Throwable throwable, Object part1, Object part2) {
+        if (isEnabled(TRACE)) {
+            this.realLog.trace(StringUtil.combineParts(part1, part2), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 3 message parts at level trace.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void trace(Throwable throwable, Object part1, Object part2, Object part3) {
+        if (isEnabled(TRACE)) {
+            this.realLog.trace(StringUtil.combineParts(part1, part2, part3), throwable);
+        }
+    }
+
+    /**
+     * Logs a Throwable and 4 message parts at level trace.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void trace(Throwable throwable, Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(TRACE)) {
+            this.realLog.trace(StringUtil.combineParts(part1, part2, part3, part4), throwable);
+        }
+    }
+
+    /**
+     * Logs a message part at level trace.
+     *
+     * @param part1 a message part
+     */
+    public final void trace(Object part1) {
+        if (isEnabled(TRACE)) {
+            this.realLog.trace(String.valueOf(single(part1)));
+        }
+    }
+
+    /**
+     * Logs 2 message parts at level trace.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     */
+    public final void trace(Object part1, Object part2) {
+        if (isEnabled(TRACE)) {
+            this.realLog.trace(StringUtil.combineParts(part1, part2));
+        }
+    }
+
+    /**
+     * Logs 3 message parts at level trace.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     */
+    public final void trace(Object part1, Object part2, Object part3) {
+        if (isEnabled(TRACE)) {
+            this.realLog.trace(StringUtil.combineParts(part1, part2, part3));
+        }
+    }
+
+    /**
+     * Logs 4 message parts at level trace.
+     *
+     * @param part1 a message part
+     * @param part2 a message part
+     * @param part3 a message part
+     * @param part4 a message part
+     */
+    public final void trace(Object part1, Object part2, Object part3, Object part4) {
+        if (isEnabled(TRACE)) {
+            this.realLog.trace(StringUtil.combineParts(part1, part2, part3, part4));
+        }
+    }
+
+    /**
+     * Logs a lazily computed message at level trace. The supplier is only
+     * invoked if the level is enabled.
+     *
+     * @param message supplies the message to log
+     */
+    public final void trace(MessageSupplier message) {
+        if (isEnabled(TRACE)) {
+            this.realLog.trace(String.valueOf(message.get()));
+        }
+    }
+
+    /**
+     * Logs a Throwable and a lazily computed message at level trace. The
+     * supplier is only invoked if the level is enabled.
+     *
+     * @param throwable an instance of Throwable that should be logged with
+     * stack trace
+     * @param message supplies the message to log
+     */
+    public final void trace(Throwable throwable, MessageSupplier message) {
+        if (isEnabled(TRACE)) {
+            this.realLog.trace(String.valueOf(message.get()), throwable);
+        }
+    }
 }
@@ -1,10 +1,10 @@
 package net.sourceforge.stripes.util;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.Arrays;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import net.sourceforge.stripes.exception.StripesRuntimeException;
@@ -24,13 +24,36 @@ public class StringUtil {
     private static final Pattern STANDARD_SPLIT = Pattern.compile("[\\s,]+");
 
     /**
-     * A regular expression that matches characters that are not explicitly
-     * allowed in the fragment part of a URI according to RFC 3986. This does
-     * not include the percent sign (%), which is actually allowed but only as
-     * an escape character for percent-encoded characters.
+     * The characters that are explicitly allowed in the fragment part of a URI
+     * according to RFC 3986, indexed by character. This does not include the
+     * percent sign (%), which is actually allowed but only as an escape
+     * character for percent-encoded characters.
      */
-    private static final Pattern URI_FRAGMENT_DISALLOWED_CHARACTERS = Pattern
-            .compile("[^\\p{Alnum}._~!$&'()*+,;=:@/?-]");
+    private static final boolean[] URI_FRAGMENT_ALLOWED = asciiSet("._~!$&'()*+,;=:@/?-");
+
+    /**
+     * The characters that {@link URLEncoder} leaves unchanged, indexed by
+     * character.
+     */
+    private static final boolean[] URL_SAFE = asciiSet(".-*_");
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /** Builds a lookup table of the ASCII letters and digits plus the characters supplied. */
+    private static boolean[] asciiSet(String extra) {
+        boolean[] set = new boolean[128];
+        for (char c = '0'; c <= '9'; c++) {
+            set[c] = true;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            set[c] = true;
+            set[Character.toUpperCase(c)] = true;
+        }
+        for (char c : extra.toCharArray()) {
+            set[c] = true;
+        }
+        return set;
+    }
 
     /**
      * Splits apart the input String on any whitespace and/or commas. Leading
@@ -70,17 +93,92 @@ public class StringUtil {
     /**
      * URL-encodes {@code value} using the UTF-8 charset. Using this method
      * eliminates the need for a try/catch since UTF-8 is guaranteed to exist.
+     * Values that need no encoding are returned as is.
      *
      * @param value
      * @return 
      * @see URLEncoder#encode(String, String)
      */
     public static String urlEncode(String value) {
+        int first = indexOfUrlUnsafe(value);
+        if (first < 0) {
+            return value;
+        }
+
+        StringBuilder buf = new StringBuilder(value.length() + 16);
         try {
-            return URLEncoder.encode(value, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new StripesRuntimeException("Unsupported encoding?  UTF-8?  That's unpossible.");
+            urlEncode(value, first, buf);
+        } catch (IOException e) {
+            // StringBuilder does not throw IOException
         }
+        return buf.toString();
+    }
+
+    /**
+     * URL-encodes {@code value} into the supplied output, producing the same
+     * result as {@link #urlEncode(String)} without creating intermediate
+     * Strings. A value that needs no encoding is written in a single call.
+     *
+     * @param value the value to encode
+     * @param out the Writer, StringBuilder or other Appendable to write to
+     * @throws IOException if the output throws one
+     */
+    public static void urlEncode(String value, Appendable out) throws IOException {
+        urlEncode(value, indexOfUrlUnsafe(value), out);
+    }
+
+    /** Encodes the value from the index of the first character that needs it. */
+    private static void urlEncode(String value, int first, Appendable out) throws IOException {
+        int start = 0;
+        int length = value.length();
+        for (int i = first; i >= 0 && i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 128 && URL_SAFE[c]) {
+                continue;
+            }
+
+            HtmlUtil.append(value, start, i, out);
+            if (c == ' ') {
+                out.append('+');
+            } else if (c < 0x80) {
+                appendEscaped(c, out);
+            } else if (c < 0x800) {
+                appendEscaped(0xC0 | (c >> 6), out);
+                appendEscaped(0x80 | (c & 0x3F), out);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEscaped(0xF0 | (codePoint >> 18), out);
+                appendEscaped(0x80 | ((codePoint >> 12) & 0x3F), out);
+                appendEscaped(0x80 | ((codePoint >> 6) & 0x3F), out);
+                appendEscaped(0x80 | (codePoint & 0x3F), out);
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates cannot be encoded, URLEncoder substitutes a '?'
+                appendEscaped('?', out);
+            } else {
+                appendEscaped(0xE0 | (c >> 12), out);
+                appendEscaped(0x80 | ((c >> 6) & 0x3F), out);
+                appendEscaped(0x80 | (c & 0x3F), out);
+            }
+            start = i + 1;
+        }
+        HtmlUtil.append(value, start, length, out);
+    }
+
+    /** Returns the index of the first character that must be URL encoded, or -1. */
+    private static int indexOfUrlUnsafe(String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 128 || !URL_SAFE[c]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Appends a byte as a percent sign followed by two upper case hex digits. */
+    private static void appendEscaped(int b, Appendable out) throws IOException {
+        out.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
     }
 
     /**
@@ -108,33 +206,62 @@ public class StringUtil {
      * @return The encoded string
      */
     public static String uriFragmentEncode(String value) {
-        Matcher matcher = URI_FRAGMENT_DISALLOWED_CHARACTERS.matcher(value);
-
-        StringBuilder buf = null;
-        int end = 0;
-        while (matcher.find()) {
-            if (buf == null) {
-                buf = new StringBuilder(value.length() * 2);
-            }
-
-            buf.append(value.substring(end, matcher.start())).append(
-                    String.format("%%%02X", (int) matcher.group().charAt(0)));
-            end = matcher.end();
-        }
+        int first = indexOfFragmentDisallowed(value, 0);
 
         // No match, return input unchanged
-        if (buf == null) {
+        if (first < 0) {
             return value;
         }
 
-        // Append tail
-        if (end < value.length()) {
-            buf.append(value.substring(end));
+        StringBuilder buf = new StringBuilder(value.length() * 2);
+        try {
+            uriFragmentEncode(value, first, buf);
+        } catch (IOException e) {
+            // StringBuilder does not throw IOException
         }
-
         return buf.toString();
     }
 
+    /**
+     * Encodes a URI fragment into the supplied output, producing the same
+     * result as {@link #uriFragmentEncode(String)} without creating
+     * intermediate Strings.
+     *
+     * @param value The string to encode
+     * @param out the Writer, StringBuilder or other Appendable to write to
+     * @throws IOException if the output throws one
+     */
+    public static void uriFragmentEncode(String value, Appendable out) throws IOException {
+        uriFragmentEncode(value, indexOfFragmentDisallowed(value, 0), out);
+    }
+
+    /** Encodes the fragment from the index of the first disallowed character. */
+    private static void uriFragmentEncode(String value, int first, Appendable out)
+            throws IOException {
+        int start = 0;
+        for (int i = first; i >= 0; i = indexOfFragmentDisallowed(value, start)) {
+            HtmlUtil.append(value, start, i, out);
+            char c = value.charAt(i);
+            out.append('%');
+            for (int shift = (c < 0x100 ? 4 : c < 0x1000 ? 8 : 12); shift >= 0; shift -= 4) {
+                out.append(HEX_DIGITS[(c >> shift) & 0xF]);
+            }
+            start = i + 1;
+        }
+        HtmlUtil.append(value, start, value.length(), out);
+    }
+
+    /** Returns the index of the first character not allowed in a URI fragment, or -1. */
+    private static int indexOfFragmentDisallowed(String value, int from) {
+        for (int i = from, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 128 || !URI_FRAGMENT_ALLOWED[c]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Return the specified URL or path string with the fragment part removed.
      * If the string does not contain a fragment then return the string
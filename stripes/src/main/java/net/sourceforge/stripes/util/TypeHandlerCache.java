@@ -15,9 +15,17 @@
 package net.sourceforge.stripes.util;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import net.sourceforge.stripes.controller.ObjectPostProcessor;
 import net.sourceforge.stripes.format.Formatter;
@@ -44,6 +52,25 @@ import net.sourceforge.stripes.validation.TypeConverter;
  * {@link #getDefaultHandler()}.
  * </p>
  * <p>
+ * The registered handlers are held in an immutable snapshot that is replaced
+ * whenever a handler is added, and the result of searching for a target type
+ * is stored against that type in a {@link ConcurrentHashMap}. Looking up a
+ * handler is therefore a map lookup followed by a single volatile read, with
+ * no locking. Adding a handler only discards the cached results for
+ * types that the new handler could apply to (subtypes of the new target type,
+ * or types carrying it if it is an annotation), rather than all results. The
+ * time spent resolving each type is recorded and can be read through
+ * {@link #getResolutionCosts()}.
+ * </p>
+ * <p>
+ * Subclasses written against the earlier, map-less search hooks
+ * ({@link #findHandler(Class)}, {@link #findInSuperclasses(Class)},
+ * {@link #findInInterfaces(Class, Class...)} and
+ * {@link #cacheHandler(Class, Object)}) keep working: if any of them is
+ * overridden, types are resolved through {@link #findHandler(Class)}. New code
+ * should override the variants that take the snapshot of handlers instead.
+ * </p>
+ * <p>
  * This class is used within Stripes to map {@link Formatter}s,
  * {@link TypeConverter}s and {@link ObjectPostProcessor}s to specific classes
  * and interfaces.
@@ -57,24 +84,44 @@ public class TypeHandlerCache<T> {
     private static final Log log = Log.getInstance(TypeHandlerCache.class);
 
     /**
-     * A direct map of target types to handlers.
+     * The result of resolving a handler for one target type: the handler (null
+     * if none besides the default one was found) and the time it took to
+     * resolve.
      */
-    private Map<Class<?>, T> handlers = new ConcurrentHashMap<Class<?>, T>();
+    private static final class Resolution<T> {
+
+        final T handler;
+        final long nanos;
+
+        Resolution(T handler, long nanos) {
+            this.handler = handler;
+            this.nanos = nanos;
+        }
+    }
 
     /**
-     * Cache of indirect type handler results, determined by examining a target
-     * type's implemented interfaces and superclasses.
+     * Immutable snapshot of the direct map of target types to handlers. It is
+     * replaced, never modified, when handlers are added.
      */
-    private Map<Class<?>, T> indirectCache = new ConcurrentHashMap<Class<?>, T>();
+    private volatile Map<Class<?>, T> handlers = Collections.emptyMap();
 
     /**
-     * Cache of classes that have been searched, yet no handler (besides the
-     * default one) could be found for them.
+     * Per-type slots holding the resolution for that type, or null if the type
+     * has not been resolved since it was last invalidated. Slots are never
+     * removed, only emptied, so that a type resolved again after being
+     * invalidated is always reachable from here.
      */
-    private Set<Class<?>> negativeCache = new ConcurrentHashSet<Class<?>>();
+    private final ConcurrentMap<Class<?>, AtomicReference<Resolution<T>>> resolved
+            = new ConcurrentHashMap<Class<?>, AtomicReference<Resolution<T>>>();
+
+    /** A live, writable view of the registered handlers. */
+    private final Map<Class<?>, T> handlersView = new HandlerMap();
+
+    /** True if a subclass overrides one of the deprecated search hooks. */
+    private final boolean legacyHooks = overridesLegacyHooks(getClass());
 
     private T defaultHandler;
-    private boolean searchHierarchy = true, searchAnnotations = true;
+    private volatile boolean searchHierarchy = true, searchAnnotations = true;
 
     /**
      * Get the default handler to return if no handler is found for a requested
@@ -114,6 +161,7 @@ public class TypeHandlerCache<T> {
      */
     public void setSearchHierarchy(boolean searchHierarchy) {
         this.searchHierarchy = searchHierarchy;
+        clearCache();
     }
 
     /**
@@ -132,30 +180,78 @@ public class TypeHandlerCache<T> {
      */
     public void setSearchAnnotations(boolean searchAnnotations) {
         this.searchAnnotations = searchAnnotations;
+        clearCache();
     }
 
     /**
      * Gets the (rather confusing) map of handlers. The map uses the target type
-     * as the key in the map, and the handler as the value.
+     * as the key in the map, and the handler as the value. The map is a live
+     * view: it always reflects the registered handlers, and putting or
+     * removing entries registers or unregisters handlers exactly as
+     * {@link #add(Class, Object)} and {@link #remove(Class)} do, discarding
+     * the affected cached resolutions.
      *
      * @return the map of classes to their handlers
      */
     public Map<Class<?>, T> getHandlers() {
-        return handlers;
+        return handlersView;
     }
 
     /**
      * Adds a handler to the set of registered handlers, overriding an existing
-     * handler if one was already registered for the target type. Calls
-     * {@link #clearCache()} because a new direct mapping can affect the
-     * indirect search results.
+     * handler if one was already registered for the target type. A new
+     * snapshot of the handlers is published and the cached results of the
+     * types the new handler could apply to are discarded; all other cached
+     * results remain valid.
      *
      * @param targetType The type for which a handler is requested.
      * @param handler The handler for the target type.
      */
-    public void add(Class<?> targetType, T handler) {
-        handlers.put(targetType, handler);
-        clearCache();
+    public synchronized void add(Class<?> targetType, T handler) {
+        Map<Class<?>, T> copy = new HashMap<Class<?>, T>(this.handlers);
+        copy.put(targetType, handler);
+        this.handlers = Collections.unmodifiableMap(copy);
+        invalidate(targetType);
+    }
+
+    /**
+     * Removes the handler registered directly for the target type, if there is
+     * one, and discards the cached results of the types it could have applied
+     * to.
+     *
+     * @param targetType The type whose handler should be removed.
+     * @return the handler that was registered for the type, or null
+     */
+    public synchronized T remove(Class<?> targetType) {
+        if (!this.handlers.containsKey(targetType)) {
+            return null;
+        }
+
+        Map<Class<?>, T> copy = new HashMap<Class<?>, T>(this.handlers);
+        T handler = copy.remove(targetType);
+        this.handlers = Collections.unmodifiableMap(copy);
+        invalidate(targetType);
+        return handler;
+    }
+
+    /**
+     * Discards the cached results of the types that a handler registered for
+     * the target type could apply to.
+     */
+    private void invalidate(Class<?> targetType) {
+        int invalidated = 0;
+        for (Map.Entry<Class<?>, AtomicReference<Resolution<T>>> entry : resolved.entrySet()) {
+            if (isAffectedBy(entry.getKey(), targetType)) {
+                if (entry.getValue().getAndSet(null) != null) {
+                    ++invalidated;
+                }
+            }
+        }
+
+        if (invalidated > 0) {
+            log.debug("Changing handler for ", targetType, " invalidated ", invalidated,
+                    " cached resolution(s)");
+        }
     }
 
     /**
@@ -166,7 +262,7 @@ public class TypeHandlerCache<T> {
      * returned from a call to {@link #getDefaultHandler()}.
      */
     public T getHandler(Class<?> targetType) {
-        T handler = findHandler(targetType);
+        T handler = resolve(targetType).handler;
 
         if (handler == null) {
             handler = getDefaultHandler();
@@ -177,52 +273,124 @@ public class TypeHandlerCache<T> {
         return handler;
     }
 
+    /**
+     * Returns the time, in nanoseconds, it took to resolve the handler for each
+     * type that has been resolved since it was last invalidated. Types that
+     * are expensive to resolve and are frequently invalidated are a sign that
+     * handlers are being added after the application has warmed up.
+     *
+     * @return a map of target types to resolution time in nanoseconds
+     */
+    public Map<Class<?>, Long> getResolutionCosts() {
+        Map<Class<?>, Long> costs = new HashMap<Class<?>, Long>();
+        for (Map.Entry<Class<?>, AtomicReference<Resolution<T>>> entry : resolved.entrySet()) {
+            Resolution<T> resolution = entry.getValue().get();
+            if (resolution != null) {
+                costs.put(entry.getKey(), resolution.nanos);
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Returns the cached resolution for the target type, resolving it against
+     * the current snapshot of handlers if there is none. If handlers are added
+     * while the type is being resolved then the result is discarded and the
+     * type resolved again.
+     */
+    private Resolution<T> resolve(Class<?> targetType) {
+        AtomicReference<Resolution<T>> slot = resolved.get(targetType);
+        if (slot == null) {
+            AtomicReference<Resolution<T>> created = new AtomicReference<Resolution<T>>();
+            slot = resolved.putIfAbsent(targetType, created);
+            if (slot == null) {
+                slot = created;
+            }
+        }
+        Resolution<T> resolution = slot.get();
+
+        while (resolution == null) {
+            Map<Class<?>, T> snapshot = this.handlers;
+            long start = System.nanoTime();
+            T handler = legacyHooks ? findHandler(targetType) : findHandler(snapshot, targetType);
+            resolution = new Resolution<T>(handler, System.nanoTime() - start);
+
+            if (slot.compareAndSet(null, resolution)) {
+                if (snapshot != this.handlers) {
+                    // Handlers were added concurrently; the result may be stale
+                    slot.compareAndSet(resolution, null);
+                }
+            }
+            resolution = slot.get();
+        }
+
+        return resolution;
+    }
+
+    /**
+     * Returns true if a handler registered for {@code addedType} could change
+     * the handler resolved for {@code resolvedType}.
+     */
+    private boolean isAffectedBy(Class<?> resolvedType, Class<?> addedType) {
+        if (addedType.isAssignableFrom(resolvedType)) {
+            return true;
+        } else if (addedType.isAnnotation()) {
+            for (Class<?> type = resolvedType; type != null; type = type.getSuperclass()) {
+                for (Annotation annotation : type.getAnnotations()) {
+                    if (annotation.annotationType() == addedType) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Search for a handler class that best matches the requested class, first
      * checking the specified class, then all the interfaces it implements, then
      * all its superclasses and the interfaces they implement, and finally all
-     * the superclasses of the interfaces implemented by {@code targetClass}.
+     * the superclasses of the interfaces implemented by {@code targetClass} and
+     * by each of its superclasses.
      *
+     * @param handlers The snapshot of handlers to search.
      * @param targetType The type for which a handler is requested.
      * @return the best applicable handler
      */
-    protected T findHandler(Class<?> targetType) {
-        T handler = findInSuperclasses(targetType);
+    protected T findHandler(Map<Class<?>, T> handlers, Class<?> targetType) {
+        T handler = findInSuperclasses(handlers, targetType);
 
-        if (handler == null) {
-            if (isSearchHierarchy()) {
-                handler = findInInterfaces(targetType, targetType.getInterfaces());
-            } else {
-                handler = cacheHandler(targetType, null);
+        if (isSearchHierarchy()) {
+            for (Class<?> type = targetType; handler == null && type != null;
+                    type = type.getSuperclass()) {
+                handler = findInInterfaces(handlers, type.getInterfaces());
             }
         }
 
-        return handler;
+        return cacheHandler(targetType, handler);
     }
 
     /**
-     * Called first by {@link #findHandler(Class)}. Search for a handler class
-     * that best matches the requested class, first checking the specified
-     * class, second all the interfaces it implements, third annotations. If no
-     * match is found, repeat the process for each superclass.
+     * Called first by {@link #findHandler(Map, Class)}. Search for a handler
+     * class that best matches the requested class, first checking the
+     * specified class, second all the interfaces it implements, third
+     * annotations. If no match is found, repeat the process for each
+     * superclass.
      *
+     * @param handlers The snapshot of handlers to search.
      * @param targetType The type for which a handler is requested.
      * @return the first applicable handler found or null if no match could be
      * found
      */
-    protected T findInSuperclasses(Class<?> targetType) {
+    protected T findInSuperclasses(Map<Class<?>, T> handlers, Class<?> targetType) {
         // Check for a known handler for the class
         T handler;
         if ((handler = handlers.get(targetType)) != null) {
             return handler;
-        } else if ((handler = indirectCache.get(targetType)) != null) {
-            return handler;
-        } else if (negativeCache.contains(targetType)) {
-            return null;
         } else if (targetType.isEnum()) {
-            handler = findInSuperclasses(Enum.class);
+            handler = findInSuperclasses(handlers, Enum.class);
             if (handler != null) {
-                return cacheHandler(targetType, handler);
+                return handler;
             }
         }
 
@@ -230,9 +398,7 @@ public class TypeHandlerCache<T> {
         if (isSearchHierarchy()) {
             for (Class<?> iface : targetType.getInterfaces()) {
                 if ((handler = handlers.get(iface)) != null) {
-                    return cacheHandler(targetType, handler);
-                } else if ((handler = indirectCache.get(iface)) != null) {
-                    return cacheHandler(targetType, handler);
+                    return handler;
                 }
             }
         }
@@ -240,9 +406,8 @@ public class TypeHandlerCache<T> {
         // Check for annotations
         if (isSearchAnnotations()) {
             for (Annotation annotation : targetType.getAnnotations()) {
-                Class<? extends Annotation> annotationType = annotation.annotationType();
-                if (handlers.containsKey(annotationType)) {
-                    return cacheHandler(targetType, handlers.get(annotationType));
+                if ((handler = handlers.get(annotation.annotationType())) != null) {
+                    return handler;
                 }
             }
         }
@@ -251,8 +416,8 @@ public class TypeHandlerCache<T> {
         if (isSearchHierarchy()) {
             Class<?> parent = targetType.getSuperclass();
             if (parent != null) {
-                if ((handler = findInSuperclasses(parent)) != null) {
-                    return cacheHandler(targetType, handler);
+                if ((handler = findInSuperclasses(handlers, parent)) != null) {
+                    return handler;
                 }
             }
         }
@@ -262,25 +427,23 @@ public class TypeHandlerCache<T> {
     }
 
     /**
-     * Called second by {@link #findHandler(Class)}, after
-     * {@link #findInSuperclasses(Class)} . Search for a handler that best
+     * Called second by {@link #findHandler(Map, Class)}, after
+     * {@link #findInSuperclasses(Map, Class)}. Search for a handler that best
      * matches the requested class by checking the superclasses of every
      * interface implemented by {@code targetClass}.
      *
-     * @param targetType The type for which a handler is requested.
+     * @param handlers The snapshot of handlers to search.
      * @param ifaces An array of interfaces to search
      * @return The first applicable handler found or null if no match could be
      * found
      */
-    protected T findInInterfaces(Class<?> targetType, Class<?>... ifaces) {
+    protected T findInInterfaces(Map<Class<?>, T> handlers, Class<?>... ifaces) {
         T handler;
         for (Class<?> iface : ifaces) {
             if ((handler = handlers.get(iface)) != null) {
-                return cacheHandler(targetType, handler);
-            } else if ((handler = indirectCache.get(iface)) != null) {
-                return cacheHandler(targetType, handler);
-            } else if ((handler = findInInterfaces(targetType, iface.getInterfaces())) != null) {
-                return cacheHandler(targetType, handler);
+                return handler;
+            } else if ((handler = findInInterfaces(handlers, iface.getInterfaces())) != null) {
+                return handler;
             }
         }
 
@@ -289,30 +452,192 @@ public class TypeHandlerCache<T> {
     }
 
     /**
-     * Cache an indirect handler mapping for the given target type.
+     * Search for a handler for the target type using the search hooks that do
+     * not take a snapshot of handlers. Only used when a subclass overrides one
+     * of these hooks.
+     *
+     * @param targetType The type for which a handler is requested.
+     * @return the best applicable handler
+     * @deprecated override {@link #findHandler(Map, Class)} instead
+     */
+    @Deprecated
+    protected T findHandler(Class<?> targetType) {
+        T handler = findInSuperclasses(targetType);
+
+        if (isSearchHierarchy()) {
+            for (Class<?> type = targetType; handler == null && type != null;
+                    type = type.getSuperclass()) {
+                handler = findInInterfaces(targetType, type.getInterfaces());
+            }
+        }
+
+        return cacheHandler(targetType, handler);
+    }
+
+    /**
+     * Delegates to {@link #findInSuperclasses(Map, Class)} with the current
+     * handlers.
+     *
+     * @param targetType The type for which a handler is requested.
+     * @return the first applicable handler found or null if no match could be
+     * found
+     * @deprecated override {@link #findInSuperclasses(Map, Class)} instead
+     */
+    @Deprecated
+    protected T findInSuperclasses(Class<?> targetType) {
+        return findInSuperclasses(this.handlers, targetType);
+    }
+
+    /**
+     * Delegates to {@link #findInInterfaces(Map, Class...)} with the current
+     * handlers.
      *
      * @param targetType The type for which a handler is requested.
-     * @param handler The handler
-     * @return The {@code targetType} parameter
+     * @param ifaces An array of interfaces to search
+     * @return The first applicable handler found or null if no match could be
+     * found
+     * @deprecated override {@link #findInInterfaces(Map, Class...)} instead
      */
+    @Deprecated
+    protected T findInInterfaces(Class<?> targetType, Class<?>... ifaces) {
+        return findInInterfaces(this.handlers, ifaces);
+    }
+
+    /**
+     * Records the handler found for the target type. Results are cached by
+     * {@link #getHandler(Class)} whether or not this is called, so this only
+     * remains as a hook for subclasses.
+     *
+     * @param targetType The type for which a handler is requested.
+     * @param handler The handler, or null if none was found
+     * @return The {@code handler} parameter
+     * @deprecated results are cached automatically
+     */
+    @Deprecated
     protected T cacheHandler(Class<?> targetType, T handler) {
         if (handler == null) {
             log.debug("Caching no handler for ", targetType);
-            negativeCache.add(targetType);
         } else {
             log.debug("Caching handler for ", targetType, " => ", handler);
-            indirectCache.put(targetType, handler);
         }
 
         return handler;
     }
 
     /**
-     * Clear the indirect cache. This is called by {@link #add(Class, Object)}.
+     * Returns true if the type, or a superclass below this one, overrides one
+     * of the deprecated search hooks that take a target type first.
+     */
+    private static boolean overridesLegacyHooks(Class<?> type) {
+        for (; type != null && type != TypeHandlerCache.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                String name = method.getName();
+                Class<?>[] params = method.getParameterTypes();
+                if (params.length > 0 && params[0] == Class.class
+                        && ("findHandler".equals(name) || "findInSuperclasses".equals(name)
+                        || "findInInterfaces".equals(name) || "cacheHandler".equals(name))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writable view of the registered handlers. Reads go to the current
+     * snapshot; writes, including those made through the entry, key and value
+     * views, are routed through {@link #add(Class, Object)} and
+     * {@link #remove(Class)} so that cached resolutions stay consistent.
+     */
+    private class HandlerMap extends AbstractMap<Class<?>, T> {
+
+        @Override
+        public Set<Map.Entry<Class<?>, T>> entrySet() {
+            return new AbstractSet<Map.Entry<Class<?>, T>>() {
+                @Override
+                public Iterator<Map.Entry<Class<?>, T>> iterator() {
+                    final Iterator<Map.Entry<Class<?>, T>> snapshot = handlers.entrySet().iterator();
+                    return new Iterator<Map.Entry<Class<?>, T>>() {
+                        private Map.Entry<Class<?>, T> last;
+
+                        public boolean hasNext() {
+                            return snapshot.hasNext();
+                        }
+
+                        public Map.Entry<Class<?>, T> next() {
+                            Map.Entry<Class<?>, T> entry = snapshot.next();
+                            last = new SimpleEntry<Class<?>, T>(entry) {
+                                private static final long serialVersionUID = 1L;
+
+                                @Override
+                                public T setValue(T value) {
+                                    TypeHandlerCache.this.add(getKey(), value);
+                                    return super.setValue(value);
+                                }
+                            };
+                            return last;
+                        }
+
+                        public void remove() {
+                            if (last == null) {
+                                throw new IllegalStateException();
+                            }
+                            TypeHandlerCache.this.remove(last.getKey());
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return handlers.size();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return handlers.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return handlers.containsKey(key);
+        }
+
+        @Override
+        public T get(Object key) {
+            return handlers.get(key);
+        }
+
+        @Override
+        public T put(Class<?> key, T value) {
+            T previous = handlers.get(key);
+            add(key, value);
+            return previous;
+        }
+
+        @Override
+        public T remove(Object key) {
+            return key instanceof Class ? TypeHandlerCache.this.remove((Class<?>) key) : null;
+        }
+
+        @Override
+        public void clear() {
+            for (Class<?> key : handlers.keySet()) {
+                TypeHandlerCache.this.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Discard all cached resolutions. This is called when the search flags
+     * change; adding handlers discards only the affected resolutions.
      */
     public void clearCache() {
-        log.debug("Clearing indirect cache and negative cache");
-        indirectCache.clear();
-        negativeCache.clear();
+        log.debug("Clearing all cached resolutions");
+        for (AtomicReference<Resolution<T>> slot : resolved.values()) {
+            slot.set(null);
+        }
     }
 }
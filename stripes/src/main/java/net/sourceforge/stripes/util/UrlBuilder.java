@@ -14,9 +14,9 @@
  */
 package net.sourceforge.stripes.util;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -25,15 +25,15 @@ import java.util.Map;
 import net.sourceforge.stripes.action.ActionBean;
 import net.sourceforge.stripes.action.DefaultHandler;
 import net.sourceforge.stripes.config.Configuration;
-import net.sourceforge.stripes.controller.ActionResolver;
-import net.sourceforge.stripes.controller.AnnotatedClassActionResolver;
 import net.sourceforge.stripes.controller.StripesFilter;
 import net.sourceforge.stripes.controller.UrlBinding;
 import net.sourceforge.stripes.controller.UrlBindingParameter;
 import net.sourceforge.stripes.exception.StripesRuntimeException;
 import net.sourceforge.stripes.exception.UrlBindingConflictException;
+import net.sourceforge.stripes.format.DefaultFormatterFactory;
 import net.sourceforge.stripes.format.Formatter;
 import net.sourceforge.stripes.format.FormatterFactory;
+import net.sourceforge.stripes.format.ObjectFormatter;
 import net.sourceforge.stripes.validation.ValidationMetadata;
 import net.sourceforge.stripes.validation.ValidationMetadataProvider;
 
@@ -86,6 +86,7 @@ public class UrlBuilder {
     private Parameter event;
     private List<Parameter> parameters = new ArrayList<Parameter>();
     private String url;
+    private UrlTemplate template;
 
     /**
      * Constructs a UrlBuilder with the path to a resource. Parameters can be
@@ -131,7 +132,7 @@ public class UrlBuilder {
         this(locale, isForPage);
         Configuration configuration = StripesFilter.getConfiguration();
         if (configuration != null) {
-            this.baseUrl = configuration.getActionResolver().getUrlBinding(beanType);
+            this.baseUrl = UrlTemplate.getUrlBinding(beanType);
         } else {
             throw new StripesRuntimeException("Unable to lookup URL binding for ActionBean class "
                     + "because there is no Configuration object available.");
@@ -331,7 +332,7 @@ public class UrlBuilder {
             return "";
         } else {
             Formatter formatter = getFormatter(value);
-            if (formatter == null) {
+            if (formatter == null || formatter.getClass() == ObjectFormatter.class) {
                 return value.toString();
             } else {
                 return formatter.format(value);
@@ -361,6 +362,13 @@ public class UrlBuilder {
             return null;
         }
 
+        // The default factory picks formatters by type alone, so there is no
+        // need to instantiate its ObjectFormatter only to call toString()
+        if (factory.getClass() == DefaultFormatterFactory.class
+                && ((DefaultFormatterFactory) factory).getFormatterClass(value.getClass()) == ObjectFormatter.class) {
+            return null;
+        }
+
         return factory.getFormatter(value.getClass(), locale, null, null);
     }
 
@@ -374,27 +382,21 @@ public class UrlBuilder {
      * @see ValidationMetadataProvider#getValidationMetadata(Class)
      */
     protected Map<String, ValidationMetadata> getValidationMetadata() {
-        Map<String, ValidationMetadata> validations = null;
-        Configuration configuration = StripesFilter.getConfiguration();
-        if (configuration != null) {
-            Class<? extends ActionBean> beanType = null;
-            try {
-                beanType = configuration.getActionResolver().getActionBeanType(this.baseUrl);
-            } catch (UrlBindingConflictException e) {
-                // This can be safely ignored
-            }
-
-            if (beanType != null) {
-                validations = configuration.getValidationMetadataProvider().getValidationMetadata(
-                        beanType);
-            }
-        }
+        return getTemplate().getValidationMetadata();
+    }
 
-        if (validations == null) {
-            validations = Collections.emptyMap();
+    /**
+     * Returns the compiled {@link UrlTemplate} for the base URL, which caches
+     * the URL binding, validation metadata and encoded parameter names shared
+     * by all URLs built to the same base URL.
+     *
+     * @return the template for the base URL
+     */
+    protected UrlTemplate getTemplate() {
+        if (template == null) {
+            template = UrlTemplate.getInstance(this.baseUrl);
         }
-
-        return validations;
+        return template;
     }
 
     /**
@@ -412,7 +414,8 @@ public class UrlBuilder {
         // lookup validation info for the bean class to find encrypted properties
         Map<String, ValidationMetadata> validations = getValidationMetadata();
 
-        StringBuilder buffer = new StringBuilder(256);
+        UrlTemplate template = getTemplate();
+        StringBuilder buffer = UrlTemplate.acquireBuffer();
         buffer.append(getBaseURL(this.baseUrl, parameters));
         boolean seenQuestionMark = buffer.indexOf("?") != -1;
         for (Parameter param : parameters) {
@@ -432,17 +435,24 @@ public class UrlBuilder {
             } else {
                 buffer.append(getParameterSeparator());
             }
-            buffer.append(StringUtil.urlEncode(param.name)).append('=');
+            buffer.append(template.encodeName(param.name)).append('=');
             if (param.value != null) {
                 ValidationMetadata validation = validations.get(param.name);
                 String formatted = format(param.value);
                 if (validation != null && validation.encrypted()) {
                     formatted = CryptoUtil.encrypt(formatted);
                 }
-                buffer.append(StringUtil.urlEncode(formatted));
+                try {
+                    StringUtil.urlEncode(formatted, buffer);
+                } catch (IOException e) {
+                    // StringBuilder does not throw IOException
+                }
             }
         }
-        return buffer.toString();
+
+        String url = buffer.toString();
+        UrlTemplate.releaseBuffer(buffer);
+        return url;
     }
 
     /**
@@ -464,19 +474,7 @@ public class UrlBuilder {
      * @see #UrlBuilder(Locale, String, boolean)
      */
     protected String getBaseURL(String baseUrl, Collection<Parameter> parameters) {
-        ActionResolver resolver = StripesFilter.getConfiguration().getActionResolver();
-        if (!(resolver instanceof AnnotatedClassActionResolver)) {
-            return baseUrl;
-        }
-
-        UrlBinding binding = null;
-        try {
-            binding = ((AnnotatedClassActionResolver) resolver).getUrlBindingFactory()
-                    .getBindingPrototype(baseUrl);
-        } catch (UrlBindingConflictException e) {
-            // This can be safely ignored
-        }
-
+        UrlBinding binding = getTemplate().getBinding();
         if (binding == null || binding.getParameters().size() == 0) {
             return baseUrl;
         }
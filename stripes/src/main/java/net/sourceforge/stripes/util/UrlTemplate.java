@@ -0,0 +1,264 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.controller.ActionResolver;
+import net.sourceforge.stripes.controller.AnnotatedClassActionResolver;
+import net.sourceforge.stripes.controller.StripesFilter;
+import net.sourceforge.stripes.controller.UrlBinding;
+import net.sourceforge.stripes.exception.UrlBindingConflictException;
+import net.sourceforge.stripes.validation.ValidationMetadata;
+
+/**
+ * <p>
+ * The compiled, reusable part of building URLs to a given base URL. Resolving
+ * the {@link UrlBinding} of a URL, the validation metadata used to find
+ * encrypted parameters and the URL encoded form of parameter names are the
+ * same for every URL built to the same base URL, so {@link UrlBuilder} looks
+ * them up once through a template instead of every time a link is
+ * rendered.</p>
+ *
+ * <p>
+ * Templates are cached per
+ * {@link Configuration} and the cache is discarded when the configuration
+ * changes. The number of cached templates is bounded since base URLs may be
+ * arbitrary strings supplied by pages.</p>
+ *
+ * @since Stripes 1.7
+ */
+public final class UrlTemplate {
+
+    /** Upper bound on cached templates and on cached names per template. */
+    private static final int MAX_ENTRIES = 1024;
+
+    /** Buffers larger than this are not kept for reuse. */
+    private static final int MAX_BUFFER_CAPACITY = 4096;
+
+    /* Templates and URL bindings for the configuration most recently seen. */
+    private static volatile Cache cache;
+
+    /* One spare buffer per thread, taken while in use so nested builds allocate their own. */
+    private static final ThreadLocal<StringBuilder[]> buffers = new ThreadLocal<StringBuilder[]>() {
+        @Override
+        protected StringBuilder[] initialValue() {
+            return new StringBuilder[1];
+        }
+    };
+
+    private static final class Cache {
+
+        final Configuration configuration;
+        final ConcurrentMap<String, UrlTemplate> templates = new ConcurrentHashMap<String, UrlTemplate>();
+        final ConcurrentMap<Class<?>, String> bindings = new ConcurrentHashMap<Class<?>, String>();
+
+        Cache(Configuration configuration) {
+            this.configuration = configuration;
+        }
+    }
+
+    private final String baseUrl;
+    private final UrlBinding binding;
+    private final Map<String, ValidationMetadata> validations;
+    private final ConcurrentMap<String, String> encodedNames = new ConcurrentHashMap<String, String>();
+
+    private UrlTemplate(Configuration configuration, String baseUrl) {
+        this.baseUrl = baseUrl;
+
+        UrlBinding prototype = null;
+        Map<String, ValidationMetadata> metadata = null;
+        if (configuration != null && baseUrl != null) {
+            ActionResolver resolver = configuration.getActionResolver();
+            if (resolver instanceof AnnotatedClassActionResolver) {
+                try {
+                    prototype = ((AnnotatedClassActionResolver) resolver).getUrlBindingFactory()
+                            .getBindingPrototype(baseUrl);
+                } catch (UrlBindingConflictException e) {
+                    // This can be safely ignored
+                }
+            }
+
+            Class<? extends ActionBean> beanType = null;
+            try {
+                beanType = resolver.getActionBeanType(baseUrl);
+            } catch (UrlBindingConflictException e) {
+                // This can be safely ignored
+            }
+
+            if (beanType != null) {
+                metadata = configuration.getValidationMetadataProvider().getValidationMetadata(
+                        beanType);
+            }
+        }
+
+        this.binding = prototype;
+        this.validations = metadata == null
+                ? Collections.<String, ValidationMetadata>emptyMap()
+                : metadata;
+    }
+
+    /** Returns the cache for the current configuration, replacing a stale one. */
+    private static Cache getCache() {
+        Configuration configuration = StripesFilter.getConfiguration();
+        Cache current = cache;
+        if (current == null || current.configuration != configuration) {
+            current = new Cache(configuration);
+            cache = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the template for the supplied base URL, compiling it on first
+     * use.
+     *
+     * @param baseUrl the path part of a URL, without anchor
+     * @return the template for the URL
+     */
+    public static UrlTemplate getInstance(String baseUrl) {
+        Cache current = getCache();
+        if (baseUrl == null) {
+            return new UrlTemplate(current.configuration, null);
+        }
+
+        UrlTemplate template = current.templates.get(baseUrl);
+        if (template == null) {
+            template = new UrlTemplate(current.configuration, baseUrl);
+            if (current.templates.size() >= MAX_ENTRIES) {
+                current.templates.clear();
+            }
+            current.templates.put(baseUrl, template);
+        }
+        return template;
+    }
+
+    /**
+     * Returns the URL binding of an ActionBean class as a String, as
+     * {@link ActionResolver#getUrlBinding(Class)} would, but without
+     * formatting the binding again on every call.
+     *
+     * @param beanType the ActionBean class
+     * @return the URL binding, or null if the class is not bound
+     */
+    public static String getUrlBinding(Class<? extends ActionBean> beanType) {
+        Cache current = getCache();
+        String binding = current.bindings.get(beanType);
+        if (binding == null && current.configuration != null) {
+            binding = current.configuration.getActionResolver().getUrlBinding(beanType);
+            if (binding != null) {
+                current.bindings.put(beanType, binding);
+            }
+        }
+        return binding;
+    }
+
+    /**
+     * Discards all cached templates, e.g. after URL bindings have been added
+     * at runtime.
+     */
+    public static void clearCache() {
+        cache = null;
+    }
+
+    /**
+     * Returns the base URL the template was compiled for.
+     * @return the base URL
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Returns the prototype of the URL binding matching the base URL, or null
+     * if there is none.
+     * @return the URL binding prototype, or null
+     */
+    public UrlBinding getBinding() {
+        return binding;
+    }
+
+    /**
+     * Returns the validation metadata of the ActionBean the base URL points to,
+     * keyed by property name. The map is empty if there is no such ActionBean.
+     * @return the validation metadata by property name
+     */
+    public Map<String, ValidationMetadata> getValidationMetadata() {
+        return validations;
+    }
+
+    /**
+     * Returns true if the named parameter must be encrypted.
+     *
+     * @param name the name of a parameter
+     * @return true if the ActionBean property is encrypted
+     */
+    public boolean isEncrypted(String name) {
+        ValidationMetadata validation = validations.get(name);
+        return validation != null && validation.encrypted();
+    }
+
+    /**
+     * Returns the URL encoded form of a parameter name.
+     *
+     * @param name the name of a parameter
+     * @return the encoded name
+     */
+    public String encodeName(String name) {
+        String encoded = encodedNames.get(name);
+        if (encoded == null) {
+            encoded = StringUtil.urlEncode(name);
+            if (encodedNames.size() < MAX_ENTRIES) {
+                encodedNames.put(name, encoded);
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * Returns an empty StringBuilder, reusing the calling thread's spare buffer
+     * if it is available.
+     *
+     * @return an empty buffer
+     */
+    static StringBuilder acquireBuffer() {
+        StringBuilder[] holder = buffers.get();
+        StringBuilder buffer = holder[0];
+        if (buffer == null) {
+            return new StringBuilder(256);
+        }
+        holder[0] = null;
+        buffer.setLength(0);
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquireBuffer()} for reuse by the
+     * calling thread.
+     *
+     * @param buffer the buffer, which must no longer be used by the caller
+     */
+    static void releaseBuffer(StringBuilder buffer) {
+        if (buffer.capacity() <= MAX_BUFFER_CAPACITY) {
+            buffers.get()[0] = buffer;
+        }
+    }
+}
@@ -14,8 +14,12 @@
  */
 package net.sourceforge.stripes.util.bean;
 
+import java.text.CollationKey;
 import java.text.Collator;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
 import java.util.Locale;
 
 /**
@@ -27,6 +31,12 @@ import java.util.Locale;
  * {@link Locale} aware {@link Collator} is used to to compare property
  * values.</p>
  *
+ * <p>
+ * When a whole list is to be sorted, {@link #sort(List)} should be preferred to
+ * {@code Collections.sort(list, comparator)}. It evaluates the properties of
+ * each bean only once, rather than twice per comparison, and compares Strings
+ * using {@link CollationKey}s computed once per bean.</p>
+ *
  * @author Tim Fennell
  * @since Stripes 1.5
  */
@@ -34,6 +44,7 @@ public class BeanComparator implements Comparator<Object> {
 
     private Locale locale;
     private PropertyExpression[] expressions;
+    private Collator collator;
 
     /**
      * Constructs a BeanComparator for comparing beans based on the supplied set
@@ -63,6 +74,20 @@ public class BeanComparator implements Comparator<Object> {
         }
     }
 
+    /**
+     * Returns the Collator used to compare Strings, creating it the first time.
+     * Collators synchronize their comparisons, so one can be shared by all the
+     * threads using this comparator.
+     */
+    private Collator getCollator() {
+        Collator c = this.collator;
+        if (c == null) {
+            c = Collator.getInstance(this.locale);
+            this.collator = c;
+        }
+        return c;
+    }
+
     /**
      * <p>
      * Compares two JavaBeans for order. Returns a negative integer, zero, or a
@@ -85,7 +110,6 @@ public class BeanComparator implements Comparator<Object> {
     @SuppressWarnings("unchecked")
     public int compare(Object o1, Object o2) {
         int retval = 0;
-        Collator collator = Collator.getInstance(this.locale);
 
         for (PropertyExpression expression : this.expressions) {
             PropertyExpressionEvaluation e1 = new PropertyExpressionEvaluation(expression, o1);
@@ -105,7 +129,7 @@ public class BeanComparator implements Comparator<Object> {
             } else {
                 String string1 = prop1.toString();
                 String string2 = prop2.toString();
-                retval = collator.compare(string1, string2);
+                retval = getCollator().compare(string1, string2);
             }
 
             if (retval != 0) {
@@ -115,4 +139,110 @@ public class BeanComparator implements Comparator<Object> {
 
         return retval;
     }
+
+    /**
+     * <p>
+     * Sorts a list of JavaBeans into the order defined by this comparator. The
+     * result is the same as that of
+     * {@code Collections.sort(beans, comparator)}, including stability, but the
+     * properties of each bean are evaluated once up front and Strings are
+     * compared using CollationKeys.</p>
+     *
+     * @param <T> the type of the beans
+     * @param beans the list to be sorted, which must be modifiable; may not
+     * contain nulls
+     * @throws ClassCastException if the types of the properties prevent them
+     * from being compared
+     * @since Stripes 1.7
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void sort(List<T> beans) {
+        if (beans.size() < 2) {
+            return;
+        }
+
+        SortKey[] keys = new SortKey[beans.size()];
+        int index = 0;
+        for (T bean : beans) {
+            Object[] values = new Object[this.expressions.length];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = new PropertyExpressionEvaluation(this.expressions[i], bean).getValue();
+            }
+            keys[index++] = new SortKey(bean, values);
+        }
+
+        final Collator c = getCollator();
+        Arrays.sort(keys, new Comparator<SortKey>() {
+            public int compare(SortKey key1, SortKey key2) {
+                return key1.compareTo(key2, c);
+            }
+        });
+
+        ListIterator<T> iterator = beans.listIterator();
+        for (SortKey key : keys) {
+            iterator.next();
+            iterator.set((T) key.bean);
+        }
+    }
+
+    /**
+     * A bean together with the values of the properties it is sorted by, and
+     * the CollationKeys of those values that are compared as Strings.
+     */
+    private static final class SortKey {
+
+        final Object bean;
+        final Object[] values;
+        CollationKey[] collationKeys;
+
+        SortKey(Object bean, Object[] values) {
+            this.bean = bean;
+            this.values = values;
+        }
+
+        /**
+         * Compares the values of two beans in the same way as
+         * {@link BeanComparator#compare(Object, Object)}.
+         */
+        @SuppressWarnings("unchecked")
+        int compareTo(SortKey other, Collator collator) {
+            int retval = 0;
+
+            for (int i = 0; i < this.values.length; ++i) {
+                Object prop1 = this.values[i];
+                Object prop2 = other.values[i];
+
+                if (prop1 == null && prop2 == null) {
+                    retval = 0;
+                } else if (prop1 == null) {
+                    retval = 1;
+                } else if (prop2 == null) {
+                    retval = -1;
+                } else if (!(prop1 instanceof String) && prop1 instanceof Comparable) {
+                    retval = ((Comparable) prop1).compareTo(prop2);
+                } else {
+                    retval = getCollationKey(i, collator).compareTo(other.getCollationKey(i, collator));
+                }
+
+                if (retval != 0) {
+                    break;
+                }
+            }
+
+            return retval;
+        }
+
+        /**
+         * Returns the CollationKey of a value, computing it the first time.
+         */
+        CollationKey getCollationKey(int i, Collator collator) {
+            if (this.collationKeys == null) {
+                this.collationKeys = new CollationKey[this.values.length];
+            }
+            if (this.collationKeys[i] == null) {
+                this.collationKeys[i] = collator.getCollationKey(this.values[i].toString());
+            }
+            return this.collationKeys[i];
+        }
+    }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.util.bean;
+
+/**
+ * Exception thrown when an expression contains more nodes than the maximum
+ * depth supplied to {@link PropertyExpression#getExpression(String, int)}.
+ *
+ * @since Stripes 1.7
+ */
+public class ExpressionDepthException extends ParseException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maxDepth;
+
+    /**
+     * Constructs an exception for an expression that is nested too deeply.
+     * @param expression the offending expression
+     * @param maxDepth the maximum number of nodes allowed
+     */
+    public ExpressionDepthException(String expression, int maxDepth) {
+        super(expression, "Expression has more than " + maxDepth + " nodes.");
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Fetches the maximum number of nodes that was exceeded.
+     * @return the maximum depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+}
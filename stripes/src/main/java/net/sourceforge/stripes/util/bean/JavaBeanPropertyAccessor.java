@@ -17,8 +17,13 @@ package net.sourceforge.stripes.util.bean;
 import net.sourceforge.stripes.util.ReflectUtil;
 
 import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Implementation of {@link PropertyAccessor} for reading JavaBean properties
@@ -26,11 +31,30 @@ import java.lang.reflect.Method;
  * PropertyDescriptor, but if no PropertyDescriptor is present then falls back
  * to attempting Field access for public fields.
  *
+ * <p>
+ * Setters of {@code int}, {@code long}, {@code double} and {@code boolean}
+ * properties can also be invoked without boxing the value, through the
+ * type-specific set methods, which call the setter through a method handle of
+ * the exact primitive type.</p>
+ *
  * @author Tim Fennell
  * @since Stripes 1.4
  */
 public class JavaBeanPropertyAccessor implements PropertyAccessor<Object> {
 
+    /*
+     * Method handles of primitive setters, keyed by the class declaring the
+     * setter and then by the setter method. Held in a ClassValue so that the
+     * handles do not keep the classes, and their class loaders, reachable.
+     */
+    private static final ClassValue<ConcurrentMap<Method, MethodHandle>> primitiveSetters
+            = new ClassValue<ConcurrentMap<Method, MethodHandle>>() {
+                @Override
+                protected ConcurrentMap<Method, MethodHandle> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<Method, MethodHandle>();
+                }
+            };
+
     /**
      * Fetches the specified property value from the bean if it exists.
      *
@@ -115,4 +139,147 @@ public class JavaBeanPropertyAccessor implements PropertyAccessor<Object> {
                     + "' on bean of type " + bean.getClass().getName() + " due to an exception.", e);
         }
     }
+
+    /**
+     * Sets an {@code int} property without boxing the value if the property
+     * has a public setter taking an {@code int}, otherwise behaves like
+     * {@link #setValue(NodeEvaluation, Object, Object)}.
+     *
+     * @param evaluation the current node evaluation
+     * @param bean the bean on to which to set the property
+     * @param value the value of the property
+     * @since Stripes 1.7
+     */
+    public void setInt(NodeEvaluation evaluation, Object bean, int value) {
+        MethodHandle setter = getPrimitiveSetter(evaluation, bean, Integer.TYPE);
+        if (setter == null) {
+            setValue(evaluation, bean, value);
+            return;
+        }
+
+        try {
+            setter.invokeExact(bean, value);
+        } catch (Throwable t) {
+            throw setterFailed(evaluation, bean, t);
+        }
+    }
+
+    /**
+     * Sets a {@code long} property without boxing the value if the property
+     * has a public setter taking a {@code long}, otherwise behaves like
+     * {@link #setValue(NodeEvaluation, Object, Object)}.
+     *
+     * @param evaluation the current node evaluation
+     * @param bean the bean on to which to set the property
+     * @param value the value of the property
+     * @since Stripes 1.7
+     */
+    public void setLong(NodeEvaluation evaluation, Object bean, long value) {
+        MethodHandle setter = getPrimitiveSetter(evaluation, bean, Long.TYPE);
+        if (setter == null) {
+            setValue(evaluation, bean, value);
+            return;
+        }
+
+        try {
+            setter.invokeExact(bean, value);
+        } catch (Throwable t) {
+            throw setterFailed(evaluation, bean, t);
+        }
+    }
+
+    /**
+     * Sets a {@code double} property without boxing the value if the property
+     * has a public setter taking a {@code double}, otherwise behaves like
+     * {@link #setValue(NodeEvaluation, Object, Object)}.
+     *
+     * @param evaluation the current node evaluation
+     * @param bean the bean on to which to set the property
+     * @param value the value of the property
+     * @since Stripes 1.7
+     */
+    public void setDouble(NodeEvaluation evaluation, Object bean, double value) {
+        MethodHandle setter = getPrimitiveSetter(evaluation, bean, Double.TYPE);
+        if (setter == null) {
+            setValue(evaluation, bean, value);
+            return;
+        }
+
+        try {
+            setter.invokeExact(bean, value);
+        } catch (Throwable t) {
+            throw setterFailed(evaluation, bean, t);
+        }
+    }
+
+    /**
+     * Sets a {@code boolean} property through a method handle if the property
+     * has a public setter taking a {@code boolean}, otherwise behaves like
+     * {@link #setValue(NodeEvaluation, Object, Object)}.
+     *
+     * @param evaluation the current node evaluation
+     * @param bean the bean on to which to set the property
+     * @param value the value of the property
+     * @since Stripes 1.7
+     */
+    public void setBoolean(NodeEvaluation evaluation, Object bean, boolean value) {
+        MethodHandle setter = getPrimitiveSetter(evaluation, bean, Boolean.TYPE);
+        if (setter == null) {
+            setValue(evaluation, bean, value);
+            return;
+        }
+
+        try {
+            setter.invokeExact(bean, value);
+        } catch (Throwable t) {
+            throw setterFailed(evaluation, bean, t);
+        }
+    }
+
+    /**
+     * Returns a method handle of type (Object, primitive)void for the setter of
+     * the property, or null if the property has no setter taking exactly that
+     * primitive type or the setter cannot be accessed through a method handle.
+     */
+    private MethodHandle getPrimitiveSetter(NodeEvaluation evaluation, Object bean, Class<?> type) {
+        if (bean == null) {
+            return null;
+        }
+
+        PropertyDescriptor pd = ReflectUtil.getPropertyDescriptor(bean.getClass(),
+                evaluation.getNode().getStringValue());
+        Method m = pd == null ? null : pd.getWriteMethod();
+        if (m == null || m.getParameterTypes()[0] != type) {
+            return null;
+        }
+
+        ConcurrentMap<Method, MethodHandle> setters = primitiveSetters.get(m.getDeclaringClass());
+        MethodHandle setter = setters.get(m);
+        if (setter == null) {
+            try {
+                setter = MethodHandles.publicLookup()
+                        .unreflect(ReflectUtil.findAccessibleMethod(m))
+                        .asType(MethodType.methodType(Void.TYPE, Object.class, type));
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+            setters.putIfAbsent(m, setter);
+        }
+        return setter;
+    }
+
+    /**
+     * Wraps an exception thrown by a primitive setter the same way as those
+     * thrown by {@link #setValue(NodeEvaluation, Object, Object)}.
+     */
+    private EvaluationException setterFailed(NodeEvaluation evaluation, Object bean, Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t instanceof EvaluationException) {
+            return (EvaluationException) t;
+        }
+        return new EvaluationException("Could not write value of property '"
+                + evaluation.getNode().getStringValue() + "' on bean of type "
+                + bean.getClass().getName() + " due to an exception.", t);
+    }
 }
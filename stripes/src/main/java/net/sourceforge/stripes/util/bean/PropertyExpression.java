@@ -59,12 +59,23 @@ public class PropertyExpression {
 
     private Node root;
     private Node leaf;
+    private int depth;
+    private int maxDepth;
 
     /**
      * Constructs a new expression by parsing the supplied String.
      */
     private PropertyExpression(String expression) throws ParseException {
+        this(expression, 0);
+    }
+
+    /**
+     * Constructs a new expression by parsing the supplied String, failing as
+     * soon as more than maxDepth nodes are found (if maxDepth is positive).
+     */
+    private PropertyExpression(String expression, int maxDepth) throws ParseException {
         this.source = expression;
+        this.maxDepth = maxDepth;
         parse(expression);
     }
 
@@ -78,6 +89,16 @@ public class PropertyExpression {
         return this.root;
     }
 
+    /**
+     * Returns the number of nodes in this expression. In an expression like
+     * 'foo.bar[2]' this would return 3.
+     *
+     * @return the number of nodes in the expression
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
     /**
      * Fetches the original 'source' of the expression - the String value that
      * was parsed to create the PropertyExpression object.
@@ -105,6 +126,31 @@ public class PropertyExpression {
         return parsed;
     }
 
+    /**
+     * Factory method for retrieving PropertyExpression objects for expression
+     * strings, refusing expressions with more than maxDepth nodes. Parsing
+     * stops as soon as the limit is passed, and expressions that are too deep
+     * are never cached, so this is the method to use for expressions that
+     * come from untrusted input such as request parameter names.
+     *
+     * @param expression the expression to fetch a PropertyExpression for
+     * @param maxDepth the maximum number of nodes, or zero or less for no limit
+     * @return PropertyExpression the parsed form of the expression passed in
+     * @throws ExpressionDepthException if the expression has too many nodes
+     */
+    public static PropertyExpression getExpression(String expression, int maxDepth)
+            throws ParseException {
+        PropertyExpression parsed = PropertyExpression.expressions.get(expression);
+        if (parsed == null) {
+            parsed = new PropertyExpression(expression, maxDepth);
+            PropertyExpression.expressions.put(expression, parsed);
+        } else if (maxDepth > 0 && parsed.depth > maxDepth) {
+            throw new ExpressionDepthException(expression, maxDepth);
+        }
+
+        return parsed;
+    }
+
     /**
      * Performs the internal parsing of the expression and stores the results in
      * a chain of nodes internally. Passes through the String a character at a
@@ -223,7 +269,12 @@ public class PropertyExpression {
      * determine
      * @param bracketed True if {@code nodeValue} was inside square brackets.
      */
-    private void addNode(String nodeValue, Object typedValue, boolean bracketed) {
+    private void addNode(String nodeValue, Object typedValue, boolean bracketed)
+            throws ExpressionDepthException {
+        if (this.maxDepth > 0 && this.depth >= this.maxDepth) {
+            throw new ExpressionDepthException(this.source, this.maxDepth);
+        }
+
         // Determine the primitive/wrapper type of the node
         if (typedValue != null) {
             // skip ahead
@@ -246,6 +297,7 @@ public class PropertyExpression {
         }
 
         Node node = new Node(nodeValue, typedValue, bracketed);
+        ++this.depth;
 
         // Attach the node at the appropriate point in the expression
         if (this.root == null) {
@@ -641,8 +641,135 @@ public class PropertyExpressionEvaluation {
      * @throws EvaluationException if intermediate null properties cannot be
      * instantiated
      */
-    @SuppressWarnings("unchecked")
     public void setValue(Object propertyValue) throws EvaluationException {
+        setLeafValue(getLeafTarget(), propertyValue);
+    }
+
+    /**
+     * Sets the value of an {@code int} expression. Behaves like
+     * {@link #setValue(Object)}, except that for JavaBean properties with an
+     * {@code int} setter the value is passed to the setter without boxing.
+     *
+     * @param propertyValue the value to be set for the property of the bean
+     * @throws EvaluationException if intermediate null properties cannot be
+     * instantiated
+     * @since Stripes 1.7
+     */
+    public void setInt(int propertyValue) throws EvaluationException {
+        Object nodeValue = getLeafTarget();
+        PropertyAccessor<?> accessor = this.leaf.getType().getPropertyAccessor();
+        if (accessor instanceof JavaBeanPropertyAccessor) {
+            ((JavaBeanPropertyAccessor) accessor).setInt(this.leaf, nodeValue, propertyValue);
+        } else {
+            setLeafValue(nodeValue, propertyValue);
+        }
+    }
+
+    /**
+     * Sets the value of a {@code long} expression. Behaves like
+     * {@link #setValue(Object)}, except that for JavaBean properties with a
+     * {@code long} setter the value is passed to the setter without boxing.
+     *
+     * @param propertyValue the value to be set for the property of the bean
+     * @throws EvaluationException if intermediate null properties cannot be
+     * instantiated
+     * @since Stripes 1.7
+     */
+    public void setLong(long propertyValue) throws EvaluationException {
+        Object nodeValue = getLeafTarget();
+        PropertyAccessor<?> accessor = this.leaf.getType().getPropertyAccessor();
+        if (accessor instanceof JavaBeanPropertyAccessor) {
+            ((JavaBeanPropertyAccessor) accessor).setLong(this.leaf, nodeValue, propertyValue);
+        } else {
+            setLeafValue(nodeValue, propertyValue);
+        }
+    }
+
+    /**
+     * Sets the value of a {@code double} expression. Behaves like
+     * {@link #setValue(Object)}, except that for JavaBean properties with a
+     * {@code double} setter the value is passed to the setter without boxing.
+     *
+     * @param propertyValue the value to be set for the property of the bean
+     * @throws EvaluationException if intermediate null properties cannot be
+     * instantiated
+     * @since Stripes 1.7
+     */
+    public void setDouble(double propertyValue) throws EvaluationException {
+        Object nodeValue = getLeafTarget();
+        PropertyAccessor<?> accessor = this.leaf.getType().getPropertyAccessor();
+        if (accessor instanceof JavaBeanPropertyAccessor) {
+            ((JavaBeanPropertyAccessor) accessor).setDouble(this.leaf, nodeValue, propertyValue);
+        } else {
+            setLeafValue(nodeValue, propertyValue);
+        }
+    }
+
+    /**
+     * Sets the value of a {@code boolean} expression. Behaves like
+     * {@link #setValue(Object)}, except that for JavaBean properties with a
+     * {@code boolean} setter the setter is invoked through a method handle.
+     *
+     * @param propertyValue the value to be set for the property of the bean
+     * @throws EvaluationException if intermediate null properties cannot be
+     * instantiated
+     * @since Stripes 1.7
+     */
+    public void setBoolean(boolean propertyValue) throws EvaluationException {
+        Object nodeValue = getLeafTarget();
+        PropertyAccessor<?> accessor = this.leaf.getType().getPropertyAccessor();
+        if (accessor instanceof JavaBeanPropertyAccessor) {
+            ((JavaBeanPropertyAccessor) accessor).setBoolean(this.leaf, nodeValue, propertyValue);
+        } else {
+            setLeafValue(nodeValue, propertyValue);
+        }
+    }
+
+    /**
+     * Sets an int, long, double or boolean JavaBean property to its default
+     * value without boxing. Returns false, having done nothing, for other
+     * types and properties.
+     */
+    private boolean setPrimitiveDefault(Class<?> type, Object nodeValue) {
+        PropertyAccessor<?> accessor = this.leaf.getType().getPropertyAccessor();
+        if (!type.isPrimitive() || !(accessor instanceof JavaBeanPropertyAccessor)) {
+            return false;
+        }
+
+        JavaBeanPropertyAccessor beanAccessor = (JavaBeanPropertyAccessor) accessor;
+        if (type == Integer.TYPE) {
+            beanAccessor.setInt(this.leaf, nodeValue, 0);
+        } else if (type == Long.TYPE) {
+            beanAccessor.setLong(this.leaf, nodeValue, 0L);
+        } else if (type == Double.TYPE) {
+            beanAccessor.setDouble(this.leaf, nodeValue, 0.0);
+        } else if (type == Boolean.TYPE) {
+            beanAccessor.setBoolean(this.leaf, nodeValue, false);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sets the leaf property on the object returned by getLeafTarget().
+     */
+    @SuppressWarnings("unchecked")
+    private void setLeafValue(Object nodeValue, Object propertyValue) throws EvaluationException {
+        this.leaf.getType().getPropertyAccessor().setValue(this.leaf, nodeValue, propertyValue);
+    }
+
+    /**
+     * Walks the expression up to, but not including, the leaf node, creating
+     * and linking in any null intermediate values, and returns the object on
+     * which the leaf property is to be set.
+     *
+     * @return the object holding the leaf property
+     * @throws EvaluationException if intermediate null properties cannot be
+     * instantiated
+     */
+    @SuppressWarnings("unchecked")
+    private Object getLeafTarget() throws EvaluationException {
         Object nodeValue = this.bean;
         for (NodeEvaluation node = this.root; node != this.leaf && nodeValue != null; node = node.getNext()) {
             PropertyAccessor accessor = node.getType().getPropertyAccessor();
@@ -655,7 +782,7 @@ public class PropertyExpressionEvaluation {
             }
         }
 
-        this.leaf.getType().getPropertyAccessor().setValue(this.leaf, nodeValue, propertyValue);
+        return nodeValue;
     }
 
     /**
@@ -725,8 +852,10 @@ public class PropertyExpressionEvaluation {
                 }
             } else {
                 try {
-                    Object nvl = ReflectUtil.getDefaultValue(leafType);
-                    this.leaf.getType().getPropertyAccessor().setValue(this.leaf, nodeValue, nvl);
+                    if (!setPrimitiveDefault(leafType, nodeValue)) {
+                        Object nvl = ReflectUtil.getDefaultValue(leafType);
+                        this.leaf.getType().getPropertyAccessor().setValue(this.leaf, nodeValue, nvl);
+                    }
                 } catch (RuntimeException re) {
                     throw re;
                 } catch (Exception e) {
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.validation;
+
+import java.util.Collection;
+
+/**
+ * <p>
+ * Optional extension of {@link TypeConverter} for converters that can convert
+ * all the values of a multi-valued parameter in one call. It is used by the
+ * property binder when binding into arrays and collections, and lets
+ * converters of primitive types produce a primitive array directly instead of
+ * one boxed object per value. This matters when binding parameters with
+ * thousands of values, such as the ids of the rows checked in a list.</p>
+ *
+ * <p>
+ * The array returned holds the converted values of the non-null, non-empty
+ * inputs, in order, omitting those that could not be converted. Its component
+ * type is the primitive type corresponding to {@code T}. For each input that
+ * cannot be converted a ValidationError is added to {@code errors}, with its
+ * field value set to that input.</p>
+ *
+ * @param <T> the (wrapper) type the converter converts to
+ * @since Stripes 1.7
+ */
+public interface BatchTypeConverter<T> extends TypeConverter<T> {
+
+    /**
+     * Converts the inputs into an array of the primitive type corresponding to
+     * {@code T}.
+     *
+     * @param inputs the values supplied for a single parameter
+     * @param errors a collection to which errors are added for the inputs that
+     * cannot be converted
+     * @return a primitive array holding the converted values
+     */
+    Object convertAll(String[] inputs, Collection<ValidationError> errors);
+}
@@ -14,6 +14,7 @@
  */
 package net.sourceforge.stripes.validation;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Locale;
@@ -38,7 +39,7 @@ import java.util.Locale;
  *
  * @author Tim Fennell
  */
-public class BooleanTypeConverter implements TypeConverter<Boolean> {
+public class BooleanTypeConverter implements BatchTypeConverter<Boolean> {
 
     private static final Collection<String> truths = new HashSet<String>();
 
@@ -66,6 +67,46 @@ public class BooleanTypeConverter implements TypeConverter<Boolean> {
             Class<? extends Boolean> targetType,
             Collection<ValidationError> errors) {
 
+        return isTrue(input);
+    }
+
+    /**
+     * Converts all the inputs into a boolean[]. Unless this class has been
+     * extended, in which case each input goes through
+     * {@link #convert(String, Class, Collection)}, the values are converted
+     * without creating Boolean objects.
+     *
+     * @param inputs the values to convert
+     * @param errors the collection errors are added to
+     * @return the converted values
+     */
+    public boolean[] convertAll(String[] inputs, Collection<ValidationError> errors) {
+        boolean plain = getClass() == BooleanTypeConverter.class;
+        boolean[] values = new boolean[inputs.length];
+        int count = 0;
+
+        for (String input : inputs) {
+            if (input == null || input.length() == 0) {
+                continue;
+            }
+
+            if (plain) {
+                values[count++] = isTrue(input);
+            } else {
+                Boolean converted = NumberTypeConverterSupport.convertOne(this, input, Boolean.class, errors);
+                if (converted != null) {
+                    values[count++] = converted;
+                }
+            }
+        }
+
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Applies the rules laid out in the class level javadoc.
+     */
+    private static boolean isTrue(String input) {
         boolean retval = false;
 
         for (String truth : truths) {
@@ -22,15 +22,23 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import net.sourceforge.stripes.action.ActionBean;
 import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.controller.ActionResolver;
 import net.sourceforge.stripes.controller.ParameterName;
 import net.sourceforge.stripes.exception.StripesRuntimeException;
 import net.sourceforge.stripes.util.Log;
@@ -44,12 +52,26 @@ import net.sourceforge.stripes.util.ReflectUtil;
  * implementation looks first at the property's read method (getter), then its
  * write method (setter), and finally at the field itself.
  *
+ * <p>
+ * Unless the {@value #PRECOMPUTE} configuration property is set to false, the
+ * metadata of every ActionBean known to the {@link ActionResolver} is loaded in
+ * parallel during {@link #init(Configuration)}, so that the first request to
+ * each ActionBean does not pay for scanning its annotations. Metadata is held
+ * in immutable tables that are shared by all threads.</p>
+ *
  * @author Ben Gunter, Freddy Daoud
  * @since Stripes 1.5
  */
 public class DefaultValidationMetadataProvider implements ValidationMetadataProvider {
 
     private static final Log log = Log.getInstance(DefaultValidationMetadataProvider.class);
+
+    /**
+     * Configuration property that, when set to false, disables loading the
+     * metadata of all ActionBeans during initialization.
+     */
+    public static final String PRECOMPUTE = "ValidationMetadataProvider.Precompute";
+
     private Configuration configuration;
 
     /**
@@ -58,10 +80,69 @@ public class DefaultValidationMetadataProvider implements ValidationMetadataProv
     private final Map<Class<?>, Map<String, ValidationMetadata>> cache = new ConcurrentHashMap<Class<?>, Map<String, ValidationMetadata>>();
 
     /**
-     * Currently does nothing except store a reference to {@code configuration}.
+     * Stores a reference to {@code configuration} and, unless disabled, loads
+     * the validation metadata of all the ActionBeans known to the configured
+     * {@link ActionResolver}.
      */
     public void init(Configuration configuration) throws Exception {
         this.configuration = configuration;
+
+        String precompute = configuration.getBootstrapPropertyResolver().getProperty(PRECOMPUTE);
+        ActionResolver resolver = configuration.getActionResolver();
+        if (resolver != null && !"false".equalsIgnoreCase(precompute)) {
+            precompute(resolver.getActionBeanClasses());
+        }
+    }
+
+    /**
+     * Loads the validation metadata of the classes supplied using as many
+     * threads as there are processors, and waits for all of them to finish.
+     * Classes whose metadata cannot be loaded are logged and skipped; the error
+     * will surface again when the class is first used.
+     *
+     * @param beanTypes the classes to load the validation metadata of
+     */
+    protected void precompute(Collection<Class<? extends ActionBean>> beanTypes) {
+        if (beanTypes == null || beanTypes.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int threads = Math.min(beanTypes.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "stripes-validation-metadata");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            Map<Class<?>, Future<?>> futures = new HashMap<Class<?>, Future<?>>();
+            for (final Class<? extends ActionBean> beanType : beanTypes) {
+                futures.put(beanType, executor.submit(new Callable<Object>() {
+                    public Object call() {
+                        return getValidationMetadata(beanType);
+                    }
+                }));
+            }
+
+            for (Map.Entry<Class<?>, Future<?>> entry : futures.entrySet()) {
+                try {
+                    entry.getValue().get();
+                } catch (ExecutionException e) {
+                    log.warn(e.getCause(), "Could not load validation metadata for ",
+                            entry.getKey().getName(), " during initialization");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.debug("Loaded validation metadata for ", beanTypes.size(), " ActionBeans in ",
+                (System.nanoTime() - start) / 1000000, "ms");
     }
 
     /**
@@ -98,7 +179,7 @@ public class DefaultValidationMetadataProvider implements ValidationMetadataProv
      * well.
      *
      * @param beanType a class
-     * @return A map of (possibly nested) property names to
+     * @return An immutable map of (possibly nested) property names to
      * {@link ValidationMetadata} for the property.
      * @throws StripesRuntimeException if conflicts are found in the validation
      * annotations
@@ -150,7 +231,7 @@ public class DefaultValidationMetadataProvider implements ValidationMetadataProv
             }
         }
 
-        return Collections.unmodifiableMap(meta);
+        return new ValidationMetadataTable(meta);
     }
 
     /**
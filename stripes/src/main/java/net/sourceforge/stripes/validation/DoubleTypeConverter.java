@@ -14,6 +14,8 @@
  */
 package net.sourceforge.stripes.validation;
 
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
 import java.util.Collection;
 
 /**
@@ -21,7 +23,7 @@ import java.util.Collection;
  *
  * @author Tim Fennell
  */
-public class DoubleTypeConverter extends NumberTypeConverterSupport implements TypeConverter<Double> {
+public class DoubleTypeConverter extends NumberTypeConverterSupport implements BatchTypeConverter<Double> {
 
     /**
      * Converts the input to an object of type Double.
@@ -38,4 +40,61 @@ public class DoubleTypeConverter extends NumberTypeConverterSupport implements T
 
         return retval;
     }
+
+    /**
+     * Converts all the inputs into a double[]. Plain digits, with a decimal
+     * point if that is the separator of the locale, are parsed directly;
+     * anything else, and all input if this class has been extended, goes
+     * through {@link #convert(String, Class, Collection)}.
+     *
+     * @param inputs the values to convert
+     * @param errors the collection errors are added to
+     * @return the converted values
+     */
+    public double[] convertAll(String[] inputs, Collection<ValidationError> errors) {
+        boolean plain = getClass() == DoubleTypeConverter.class;
+        boolean pointSeparator = plain
+                && DecimalFormatSymbols.getInstance(getLocale()).getDecimalSeparator() == '.';
+        double[] values = new double[inputs.length];
+        int count = 0;
+
+        for (String input : inputs) {
+            if (input == null || input.length() == 0) {
+                continue;
+            }
+
+            if (plain && isPlainDecimal(input, pointSeparator)) {
+                values[count++] = Double.parseDouble(input);
+            } else {
+                Double converted = convertOne(this, input, Double.class, errors);
+                if (converted != null) {
+                    values[count++] = converted;
+                }
+            }
+        }
+
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Returns true if the input is up to 18 ASCII digits, optionally with one
+     * decimal point between digits when the point is the decimal separator.
+     */
+    private static boolean isPlainDecimal(String input, boolean pointSeparator) {
+        int length = input.length();
+        if (length == 0 || length > 18) {
+            return false;
+        }
+
+        boolean point = false;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (c == '.' && pointSeparator && !point && i > 0 && i < length - 1) {
+                point = true;
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -14,6 +14,7 @@
  */
 package net.sourceforge.stripes.validation;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.text.NumberFormat;
 
@@ -22,7 +23,7 @@ import java.text.NumberFormat;
  *
  * @author Tim Fennell
  */
-public class IntegerTypeConverter extends NumberTypeConverterSupport implements TypeConverter<Integer> {
+public class IntegerTypeConverter extends NumberTypeConverterSupport implements BatchTypeConverter<Integer> {
 
     /**
      *
@@ -51,6 +52,39 @@ public class IntegerTypeConverter extends NumberTypeConverterSupport implements
         return retval;
     }
 
+    /**
+     * Converts all the inputs into an int[]. Plain digits are parsed directly;
+     * anything else, and all input if this class has been extended, goes
+     * through {@link #convert(String, Class, Collection)}.
+     *
+     * @param inputs the values to convert
+     * @param errors the collection errors are added to
+     * @return the converted values
+     */
+    public int[] convertAll(String[] inputs, Collection<ValidationError> errors) {
+        boolean plain = getClass() == IntegerTypeConverter.class;
+        int[] values = new int[inputs.length];
+        int count = 0;
+
+        for (String input : inputs) {
+            if (input == null || input.length() == 0) {
+                continue;
+            }
+
+            long value = plain ? parseDigits(input) : -1;
+            if (value >= 0 && value <= Integer.MAX_VALUE) {
+                values[count++] = (int) value;
+            } else {
+                Integer converted = convertOne(this, input, Integer.class, errors);
+                if (converted != null) {
+                    values[count++] = converted;
+                }
+            }
+        }
+
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
     /**
      * Overridden to return integer instances instead.
      * @return 
@@ -163,6 +163,14 @@ public class LocalizableError extends SimpleError {
         return result;
     }
 
+    /**
+     * The template of the message is looked up using the message key.
+     */
+    @Override
+    Object getTemplateSource() {
+        return this.messageKey;
+    }
+
     /**
      *
      * @return
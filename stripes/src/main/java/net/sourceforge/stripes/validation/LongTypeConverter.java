@@ -14,6 +14,7 @@
  */
 package net.sourceforge.stripes.validation;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.text.NumberFormat;
 
@@ -22,7 +23,7 @@ import java.text.NumberFormat;
  *
  * @author Tim Fennell
  */
-public class LongTypeConverter extends NumberTypeConverterSupport implements TypeConverter<Long> {
+public class LongTypeConverter extends NumberTypeConverterSupport implements BatchTypeConverter<Long> {
 
     /**
      *
@@ -43,6 +44,39 @@ public class LongTypeConverter extends NumberTypeConverterSupport implements Typ
         return retval;
     }
 
+    /**
+     * Converts all the inputs into a long[]. Plain digits are parsed directly;
+     * anything else, and all input if this class has been extended, goes
+     * through {@link #convert(String, Class, Collection)}.
+     *
+     * @param inputs the values to convert
+     * @param errors the collection errors are added to
+     * @return the converted values
+     */
+    public long[] convertAll(String[] inputs, Collection<ValidationError> errors) {
+        boolean plain = getClass() == LongTypeConverter.class;
+        long[] values = new long[inputs.length];
+        int count = 0;
+
+        for (String input : inputs) {
+            if (input == null || input.length() == 0) {
+                continue;
+            }
+
+            long value = plain ? parseDigits(input) : -1;
+            if (value >= 0) {
+                values[count++] = value;
+            } else {
+                Long converted = convertOne(this, input, Long.class, errors);
+                if (converted != null) {
+                    values[count++] = converted;
+                }
+            }
+        }
+
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
     /**
      * Overridden to return integer instances instead.
      * @return 
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.validation;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Caches the work of localizing the errors held by one {@link ValidationErrors}
+ * instance: localized field names, message templates, compiled
+ * {@link MessageFormat}s and finished messages. Errors of the same kind on many
+ * rows of a form share field names and templates, so each bundle lookup and
+ * each pattern compilation happens once per request instead of once per error.
+ * The cache lives only as long as the errors, so changes to resource bundles
+ * are picked up by the next request.
+ *
+ * <p>
+ * Only the error classes shipped with Stripes are cached, since the inputs to
+ * their messages are known; all other errors are asked for their message
+ * directly. Instances are not thread-safe.</p>
+ *
+ * @since Stripes 1.7
+ */
+final class MessageCache {
+
+    private final Map<List<Object>, String> messages = new HashMap<List<Object>, String>();
+    private final Map<List<Object>, Object> fieldNames = new HashMap<List<Object>, Object>();
+    private final Map<List<Object>, String> templates = new HashMap<List<Object>, String>();
+    private final Map<List<Object>, MessageFormat> formats = new HashMap<List<Object>, MessageFormat>();
+
+    /**
+     * Returns true if the messages of the error can be cached.
+     */
+    static boolean isCacheable(ValidationError error) {
+        Class<?> type = error.getClass();
+        return type == SimpleError.class || type == LocalizableError.class
+                || type == ScopedLocalizableError.class;
+    }
+
+    /**
+     * Returns the message of the error in the locale supplied.
+     *
+     * @param error the error
+     * @param locale the locale to localize the message in
+     * @return the localized message
+     */
+    String getMessage(ValidationError error, Locale locale) {
+        if (!isCacheable(error)) {
+            return error.getMessage(locale);
+        }
+
+        SimpleError simpleError = (SimpleError) error;
+        simpleError.resolveFieldName(locale, this);
+
+        List<Object> key = simpleError.getMessageCacheKey(locale);
+        String message = this.messages.get(key);
+        if (message == null) {
+            message = simpleError.getMessage(locale, this);
+            this.messages.put(key, message);
+        }
+        return message;
+    }
+
+    /**
+     * Returns the cached localized field name for the key, or null if there is
+     * none.
+     */
+    Object getFieldName(List<Object> key) {
+        return this.fieldNames.get(key);
+    }
+
+    /**
+     * Returns true if a localized field name is cached for the key.
+     */
+    boolean hasFieldName(List<Object> key) {
+        return this.fieldNames.containsKey(key);
+    }
+
+    /**
+     * Caches a localized field name.
+     */
+    void putFieldName(List<Object> key, Object fieldName) {
+        this.fieldNames.put(key, fieldName);
+    }
+
+    /**
+     * Returns the cached template for the key, or null if there is none.
+     */
+    String getTemplate(List<Object> key) {
+        return this.templates.get(key);
+    }
+
+    /**
+     * Caches a template.
+     */
+    void putTemplate(List<Object> key, String template) {
+        this.templates.put(key, template);
+    }
+
+    /**
+     * Formats the parameters using the template supplied, compiling the
+     * template only the first time it is used in the locale.
+     */
+    String format(String template, Locale locale, Object[] parameters) {
+        List<Object> key = Arrays.<Object>asList(template, locale);
+        MessageFormat format = this.formats.get(key);
+        if (format == null) {
+            format = new MessageFormat(template, locale);
+            this.formats.put(key, format);
+        }
+        return format.format(parameters, new StringBuffer(), null).toString();
+    }
+}
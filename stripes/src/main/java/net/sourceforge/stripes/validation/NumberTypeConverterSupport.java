@@ -16,6 +16,7 @@ package net.sourceforge.stripes.validation;
 
 import java.text.NumberFormat;
 import java.text.ParsePosition;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Locale;
 import java.util.Currency;
@@ -97,6 +98,54 @@ public class NumberTypeConverterSupport {
         return null;
     }
 
+    /**
+     * Parses input made up only of ASCII digits, at most 18 of them, which
+     * every locale's NumberFormat parses to the same value. Used to convert
+     * large numbers of plain ids quickly, and without boxing.
+     *
+     * @param input the String as input by the user
+     * @return the value of the digits, or -1 if the input is not of that form
+     * and must be parsed with {@link #parse(String, Collection)} instead
+     */
+    protected static long parseDigits(String input) {
+        int length = input.length();
+        if (length == 0 || length > 18) {
+            return -1;
+        }
+
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Converts one value with the error checking of the single value convert()
+     * method, adding any errors to the errors of the whole batch with their
+     * field value set.
+     *
+     * @param converter the converter to use
+     * @param input the value to convert
+     * @param type the type to convert to
+     * @param errors the errors of the whole batch
+     * @return the converted value, or null if it could not be converted
+     */
+    static <T> T convertOne(TypeConverter<T> converter, String input, Class<T> type,
+            Collection<ValidationError> errors) {
+        Collection<ValidationError> valueErrors = new ArrayList<ValidationError>(1);
+        T value = converter.convert(input, type, valueErrors);
+        for (ValidationError error : valueErrors) {
+            error.setFieldValue(input);
+            errors.add(error);
+        }
+        return valueErrors.isEmpty() ? value : null;
+    }
+
     /**
      * Pre-processes the String to give the NumberFormats a better shot at
      * parsing the input. The default implementation trims the String for
@@ -16,6 +16,7 @@ package net.sourceforge.stripes.validation;
 
 import net.sourceforge.stripes.localization.LocalizationUtility;
 
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.MissingResourceException;
 
@@ -81,6 +82,14 @@ public class ScopedLocalizableError extends LocalizableError {
         this.key = key;
     }
 
+    /**
+     * The template of the message is looked up using the scope and key.
+     */
+    @Override
+    Object getTemplateSource() {
+        return Arrays.asList(this.defaultScope, this.key);
+    }
+
     /**
      * Get the default scope that was passed into the constructor.
      *
@@ -19,6 +19,8 @@ import net.sourceforge.stripes.action.ActionBean;
 import net.sourceforge.stripes.localization.LocalizationUtility;
 import net.sourceforge.stripes.util.Log;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -139,6 +141,69 @@ public class SimpleError extends SimpleMessage implements ValidationError {
         }
     }
 
+    /**
+     * Resolves the localized field name through the cache supplied, so that
+     * errors on the same field share a single lookup.
+     */
+    void resolveFieldName(Locale locale, MessageCache cache) {
+        List<Object> key = Arrays.<Object>asList(this.fieldNameKey, this.actionPath, this.beanclass, locale);
+        if (cache.hasFieldName(key)) {
+            getReplacementParameters()[0] = cache.getFieldName(key);
+        } else {
+            resolveFieldName(locale);
+            cache.putFieldName(key, getReplacementParameters()[0]);
+        }
+    }
+
+    /**
+     * Produces the message through the cache supplied, looking the template up
+     * and compiling it only if no error sharing the template has done so. The
+     * field name must have been resolved already.
+     */
+    String getMessage(Locale locale, MessageCache cache) {
+        List<Object> key = getTemplateCacheKey(locale);
+        String template = cache.getTemplate(key);
+        if (template == null) {
+            template = getMessageTemplate(locale);
+            cache.putTemplate(key, template);
+        }
+        return cache.format(template, locale, getReplacementParameters());
+    }
+
+    /**
+     * Returns the values, other than the locale and the replacement
+     * parameters, that determine the template of the message.
+     */
+    Object getTemplateSource() {
+        return getMessage();
+    }
+
+    /**
+     * Returns a key identifying the template of the message in the locale.
+     */
+    List<Object> getTemplateCacheKey(Locale locale) {
+        return Arrays.<Object>asList(getClass(), locale, getTemplateSource(), this.fieldNameKey,
+                this.actionPath, this.beanclass);
+    }
+
+    /**
+     * Returns a key identifying the message in the locale: the template key
+     * plus all replacement parameters except the field name, which is derived
+     * from the template key.
+     */
+    List<Object> getMessageCacheKey(Locale locale) {
+        Object[] parameters = getReplacementParameters();
+        Object[] key = new Object[parameters.length + 5];
+        key[0] = getClass();
+        key[1] = locale;
+        key[2] = getTemplateSource();
+        key[3] = this.fieldNameKey;
+        key[4] = this.actionPath;
+        key[5] = this.beanclass;
+        System.arraycopy(parameters, 1, key, 6, parameters.length - 1);
+        return Arrays.asList(key);
+    }
+
     /**
      * Sets the name of the form field in error. This is the programmatic name,
      * and hence probably not the name that the user sees.
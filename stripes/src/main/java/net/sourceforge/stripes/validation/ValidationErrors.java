@@ -17,8 +17,9 @@ package net.sourceforge.stripes.validation;
 import net.sourceforge.stripes.controller.ParameterName;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Container class for ValidationErrors that are tied to form fields. All of the
@@ -26,12 +27,21 @@ import java.util.List;
  * number of utility methods which are design to make it easier to interact with
  * the data.
  *
+ * <p>
+ * Fields are kept in the order in which their first error was added. Messages
+ * should be rendered through {@link #getMessage(ValidationError, Locale)},
+ * which shares field name and template lookups between the errors held, so
+ * that forms with many row-level errors render quickly.</p>
+ *
  * @author Tim Fennell
  */
-public class ValidationErrors extends HashMap<String, List<ValidationError>> {
+public class ValidationErrors extends LinkedHashMap<String, List<ValidationError>> {
 
     private static final long serialVersionUID = 1L;
 
+    /* Localization work shared between the errors, created on first use. */
+    private transient MessageCache messageCache;
+
     /**
      * Key that is used to store global (i.e. non-field specific) errors.
      */
@@ -126,6 +136,28 @@ public class ValidationErrors extends HashMap<String, List<ValidationError>> {
         return super.put(field, errors);
     }
 
+    /**
+     * Returns the message of an error in the locale supplied. Equivalent to
+     * {@code error.getMessage(locale)}, except that for the error classes
+     * supplied with Stripes the localized field names, the message templates
+     * and their compiled formats are cached, and shared by all errors held by
+     * this instance.
+     *
+     * @param error an error, usually one held by this instance
+     * @param locale the locale to localize the message in
+     * @return the localized message
+     * @since Stripes 1.7
+     */
+    public String getMessage(ValidationError error, Locale locale) {
+        if (!MessageCache.isCacheable(error)) {
+            return error.getMessage(locale);
+        }
+        if (this.messageCache == null) {
+            this.messageCache = new MessageCache();
+        }
+        return this.messageCache.getMessage(error, locale);
+    }
+
     /**
      * Returns true if there are field-specific errors present, and false if
      * there are only global errors, or no errors at all.
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.validation;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map of property names to {@link ValidationMetadata}, used by
+ * {@link DefaultValidationMetadataProvider} to hold the validation metadata of
+ * a class once it has been loaded. Property names are kept in a sorted array
+ * that is searched with a binary search, so the table holds no per-entry
+ * objects, can safely be shared between threads without copying, and iterates
+ * in the order of the property names.
+ *
+ * @since Stripes 1.7
+ */
+final class ValidationMetadataTable extends AbstractMap<String, ValidationMetadata> {
+
+    private final String[] names;
+    private final ValidationMetadata[] values;
+
+    /**
+     * Constructs a table holding the same entries as the supplied map.
+     *
+     * @param meta a map of property names to validation metadata
+     */
+    ValidationMetadataTable(Map<String, ValidationMetadata> meta) {
+        this.names = meta.keySet().toArray(new String[meta.size()]);
+        Arrays.sort(this.names);
+        this.values = new ValidationMetadata[this.names.length];
+        for (int i = 0; i < this.names.length; i++) {
+            this.values[i] = meta.get(this.names[i]);
+        }
+    }
+
+    /**
+     * Returns the index of the named property, or a negative number if there
+     * is no such property.
+     */
+    private int indexOf(Object name) {
+        return name instanceof String ? Arrays.binarySearch(this.names, name) : -1;
+    }
+
+    @Override
+    public ValidationMetadata get(Object name) {
+        int index = indexOf(name);
+        return index < 0 ? null : this.values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return indexOf(name) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return this.names.length;
+    }
+
+    @Override
+    public Set<Map.Entry<String, ValidationMetadata>> entrySet() {
+        return new AbstractSet<Map.Entry<String, ValidationMetadata>>() {
+            @Override
+            public Iterator<Map.Entry<String, ValidationMetadata>> iterator() {
+                return new Iterator<Map.Entry<String, ValidationMetadata>>() {
+                    private int next;
+
+                    public boolean hasNext() {
+                        return this.next < names.length;
+                    }
+
+                    public Map.Entry<String, ValidationMetadata> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = this.next++;
+                        return new SimpleImmutableEntry<String, ValidationMetadata>(
+                                names[index], values[index]);
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return names.length;
+            }
+        };
+    }
+}
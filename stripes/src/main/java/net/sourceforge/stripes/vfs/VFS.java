@@ -51,7 +51,7 @@ public abstract class VFS {
     /**
      * Singleton instance.
      */
-    private static VFS instance;
+    private static volatile VFS instance;
 
     /**
      * Get the singleton {@link VFS} instance. If no {@link VFS} implementation
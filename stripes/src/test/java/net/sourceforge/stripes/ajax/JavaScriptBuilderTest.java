@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.ajax;
+
+import java.io.StringWriter;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the JavaScriptBuilder, evaluating the generated JavaScript where a
+ * script engine is available.
+ */
+public class JavaScriptBuilderTest {
+
+    public static class Node {
+
+        private String name;
+        private Node next;
+        private List<Node> children = new ArrayList<Node>();
+        private String secret = "hidden";
+
+        public Node() {
+        }
+
+        public Node(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+        public Node getNext() { return next; }
+        public void setNext(Node next) { this.next = next; }
+        public List<Node> getChildren() { return children; }
+        public String getSecret() { return secret; }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Node;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+    }
+
+    public static class Broken {
+
+        public String getName() { return "ok"; }
+
+        public List<String> getItems() {
+            return new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    if (index > 0) {
+                        throw new IllegalStateException("Not loaded");
+                    }
+                    return "first";
+                }
+
+                @Override
+                public int size() {
+                    return 2;
+                }
+            };
+        }
+
+        public Node getNode() { return new Node("n"); }
+    }
+
+    private static String build(Object root, Object... excludes) {
+        StringWriter out = new StringWriter();
+        JavaScriptBuilder builder = new JavaScriptBuilder(root, excludes);
+        builder.setRootVariableName("root");
+        builder.build(out);
+        return out.toString();
+    }
+
+    private static Object eval(String script, String expression) throws Exception {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("JavaScript");
+        if (engine == null) {
+            return null;
+        }
+        engine.eval(script);
+        return engine.eval(expression);
+    }
+
+    @Test(groups = "fast")
+    public void testEqualObjectsAreKeptApart() throws Exception {
+        Node root = new Node("root");
+        root.getChildren().add(new Node("a"));
+        root.getChildren().add(new Node("b"));
+
+        String js = build(root);
+        Assert.assertTrue(js.contains("name:\"a\""), js);
+        Assert.assertTrue(js.contains("name:\"b\""), js);
+        Assert.assertTrue(js.startsWith("var root;\n"), js);
+        Assert.assertTrue(js.endsWith("root;\n"), js);
+
+        Object name = eval(js, "root.children[1].name");
+        if (name != null) {
+            Assert.assertEquals(name.toString(), "b");
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testCycles() throws Exception {
+        Node a = new Node("a");
+        Node b = new Node("b");
+        a.setNext(b);
+        b.setNext(a);
+        a.getChildren().add(a);
+
+        String js = build(a);
+        // a, b and their two child lists, each declared exactly once
+        Assert.assertEquals(js.split("var _sj_").length - 1, 4, js);
+
+        Object name = eval(js, "root.next.next.children[0].next.name");
+        if (name != null) {
+            Assert.assertEquals(name.toString(), "b");
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testExclusions() throws Exception {
+        Node root = new Node("root");
+        root.setNext(new Node("next"));
+        root.getChildren().add(new Node("child"));
+
+        String js = build(root, "secret", "next.name", "children[0]");
+        Assert.assertTrue(js.contains("var _sj_1 = {name:\"root\"};"), js);
+        Assert.assertFalse(js.contains("\"next\""), js);
+        Assert.assertFalse(js.contains("\"child\""), js);
+        Assert.assertTrue(js.contains("[null]"), js);
+
+        js = build(root, List.class);
+        Assert.assertFalse(js.contains("children"), js);
+        Assert.assertFalse(js.contains("\"child\""), js);
+    }
+
+    @Test(groups = "fast")
+    public void testMapsAndEscaping() throws Exception {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("text", "a \"quoted\"\n\\ line\u0001");
+        map.put("node", new Node("n"));
+
+        String js = build(map);
+        Assert.assertTrue(js.contains("\"text\":\"a \\\"quoted\\\"\\n\\\\ line\\u0001\""), js);
+        Assert.assertTrue(js.contains("[\"node\"] = _sj_"), js);
+        Assert.assertEquals(JavaScriptBuilder.quote("x\ty"), "\"x\\ty\"");
+        Assert.assertEquals(JavaScriptBuilder.quote(null), "\"\"");
+    }
+
+    @Test(groups = "fast")
+    public void testScalarRoot() throws Exception {
+        Assert.assertEquals(build("hello"), "\"hello\";\n");
+        Assert.assertEquals(build(42), "42;\n");
+    }
+
+    @Test(groups = "fast")
+    public void testFailedPropertiesAreSkipped() throws Exception {
+        String js = build(new Broken());
+        Assert.assertTrue(js.contains("name:\"ok\""), js);
+        Assert.assertFalse(js.contains("first"), js);
+        Assert.assertFalse(js.contains(".items"), js);
+        Assert.assertTrue(js.contains(".node = _sj_"), js);
+
+        Object name = eval(js, "root.node.name");
+        if (name != null) {
+            Assert.assertEquals(name.toString(), "n");
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testScalarAsStringOverride() throws Exception {
+        StringWriter out = new StringWriter();
+        JavaScriptBuilder builder = new JavaScriptBuilder(new Node("root")) {
+            @Override
+            public String getScalarAsString(Object in) {
+                return in instanceof String ? "'" + in + "'" : super.getScalarAsString(in);
+            }
+        };
+        builder.setRootVariableName("root");
+        builder.build(out);
+        Assert.assertTrue(out.toString().contains("name:'root'"), out.toString());
+    }
+}
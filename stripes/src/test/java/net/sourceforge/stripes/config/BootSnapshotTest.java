@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.config;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Set;
+
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.controller.AnnotatedClassActionResolver;
+import net.sourceforge.stripes.mock.MockFilterConfig;
+import net.sourceforge.stripes.mock.MockServletContext;
+import net.sourceforge.stripes.util.ResolverUtil;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that scan results are saved to and restored from a boot snapshot.
+ */
+public class BootSnapshotTest {
+
+    private static final String PACKAGE = "net.sourceforge.stripes.action";
+
+    private static BootstrapPropertyResolver createResolver(File file) {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.setServletContext(new MockServletContext("test"));
+        filterConfig.addInitParameter(BootSnapshot.FILE, file.getPath());
+        filterConfig.addInitParameter(AnnotatedClassActionResolver.PACKAGES, PACKAGE);
+        return new BootstrapPropertyResolver(filterConfig);
+    }
+
+    @Test(groups = "fast")
+    public void testSnapshot() throws Exception {
+        File file = File.createTempFile("stripes-boot", ".snapshot");
+        file.delete();
+        try {
+            Set<Class<? extends ActionBean>> expected = new ResolverUtil<ActionBean>()
+                    .findImplementations(ActionBean.class, PACKAGE).getClasses();
+            Assert.assertFalse(expected.isEmpty());
+
+            // First boot scans and writes the snapshot
+            BootstrapPropertyResolver first = createResolver(file);
+            Assert.assertEquals(first.findImplementations(ActionBean.class, PACKAGE), expected);
+            first.getBootSnapshot().save();
+            Assert.assertTrue(file.isFile());
+
+            // Second boot reads it, and has nothing new to write
+            Assert.assertTrue(file.setLastModified(0));
+            BootstrapPropertyResolver second = createResolver(file);
+            Assert.assertEquals(second.findImplementations(ActionBean.class, PACKAGE), expected);
+            second.getBootSnapshot().save();
+            Assert.assertEquals(file.lastModified(), 0L);
+
+            // A scan that is not in the snapshot is added to it
+            BootstrapPropertyResolver third = createResolver(file);
+            third.findImplementations(ActionBean.class, PACKAGE, "net.sourceforge.stripes.mock");
+            third.getBootSnapshot().save();
+            Assert.assertTrue(file.lastModified() > 0L);
+
+            // A damaged snapshot is ignored
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(new byte[]{1, 2, 3, 4, 5});
+            out.close();
+            BootstrapPropertyResolver fourth = createResolver(file);
+            Assert.assertEquals(fourth.findImplementations(ActionBean.class, PACKAGE), expected);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testClassOfWrongTypeCausesScan() throws Exception {
+        File file = File.createTempFile("stripes-boot", ".snapshot");
+        try {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+            out.writeInt(0x53425331);
+            out.writeUTF(BootSnapshot.fingerprint(loader, Collections.singleton(PACKAGE)));
+            out.writeInt(1);
+            out.writeUTF(ActionBean.class.getName() + ':' + PACKAGE);
+            out.writeInt(1);
+            out.writeUTF(String.class.getName());
+            out.close();
+
+            Set<Class<? extends ActionBean>> found = createResolver(file)
+                    .findImplementations(ActionBean.class, PACKAGE);
+            Assert.assertFalse(found.isEmpty());
+            Assert.assertFalse(found.contains(String.class));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testNoSnapshotByDefault() {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.setServletContext(new MockServletContext("test"));
+        Assert.assertNull(new BootstrapPropertyResolver(filterConfig).getBootSnapshot());
+    }
+
+    @Test(groups = "fast")
+    public void testFingerprint() throws Exception {
+        ClassLoader loader = getClass().getClassLoader();
+        Set<String> packages = Collections.singleton(PACKAGE);
+        Assert.assertEquals(BootSnapshot.fingerprint(loader, packages),
+                BootSnapshot.fingerprint(loader, packages));
+        Assert.assertNotEquals(BootSnapshot.fingerprint(loader, packages),
+                BootSnapshot.fingerprint(loader, Collections.singleton("net.sourceforge.stripes.mock")));
+    }
+
+    @Test(groups = "fast")
+    public void testLocationThatCannotBeFingerprinted() throws Exception {
+        final URL vfs = new URL(null, "vfs:/content/app.war/WEB-INF/classes/" + PACKAGE.replace('.', '/'),
+                new URLStreamHandler() {
+                    @Override
+                    protected URLConnection openConnection(URL url) throws IOException {
+                        throw new IOException("Not readable in this test");
+                    }
+                });
+        ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                return name.equals(PACKAGE.replace('.', '/')) ? Collections.enumeration(
+                        Collections.singleton(vfs)) : super.getResources(name);
+            }
+        };
+        Assert.assertNull(BootSnapshot.fingerprint(loader, Collections.singleton(PACKAGE)));
+
+        File file = File.createTempFile("stripes-boot", ".snapshot");
+        file.delete();
+        try {
+            BootSnapshot snapshot = new BootSnapshot(file, loader);
+            snapshot.findImplementations(ActionBean.class, PACKAGE);
+            snapshot.save();
+            Assert.assertFalse(file.exists());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.config;
+
+import java.util.Map;
+
+import net.sourceforge.stripes.StripesTestFixture;
+import net.sourceforge.stripes.controller.LifecycleStage;
+import net.sourceforge.stripes.mock.MockFilterConfig;
+import net.sourceforge.stripes.mock.MockServletContext;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that the staged bootstrap of the configuration produces the same
+ * components as the sequential one.
+ */
+public class StagedBootstrapTest {
+
+    private static RuntimeConfiguration createConfiguration(boolean staged) {
+        Map<String, String> params = StripesTestFixture.getDefaultFilterParams();
+        params.put(RuntimeConfiguration.STAGED_BOOTSTRAP, String.valueOf(staged));
+
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addAllInitParameters(params);
+        MockServletContext context = StripesTestFixture.createServletContext();
+        try {
+            filterConfig.setServletContext(context);
+            RuntimeConfiguration configuration = new RuntimeConfiguration();
+            configuration.setBootstrapPropertyResolver(new BootstrapPropertyResolver(filterConfig));
+            configuration.init();
+            return configuration;
+        } finally {
+            context.close();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testStagedBootstrap() {
+        RuntimeConfiguration sequential = createConfiguration(false);
+        RuntimeConfiguration staged = createConfiguration(true);
+
+        Assert.assertEquals(staged.getObjectFactory().getClass(), sequential.getObjectFactory().getClass());
+        Assert.assertEquals(staged.getActionResolver().getActionBeanClasses(),
+                sequential.getActionResolver().getActionBeanClasses());
+        Assert.assertEquals(staged.getLocalePicker().getClass(), sequential.getLocalePicker().getClass());
+        Assert.assertNotNull(staged.getActionBeanPropertyBinder());
+        Assert.assertNotNull(staged.getActionBeanContextFactory());
+        Assert.assertNotNull(staged.getTypeConverterFactory());
+        Assert.assertNotNull(staged.getLocalizationBundleFactory());
+        Assert.assertNotNull(staged.getFormatterFactory());
+        Assert.assertNotNull(staged.getTagErrorRendererFactory());
+        Assert.assertNotNull(staged.getPopulationStrategy());
+        Assert.assertNotNull(staged.getValidationMetadataProvider());
+        for (LifecycleStage stage : LifecycleStage.values()) {
+            Assert.assertEquals(staged.getInterceptors(stage).size(),
+                    sequential.getInterceptors(stage).size(), stage.name());
+        }
+
+        // Deferred until first use, then kept
+        Assert.assertNotNull(staged.getExceptionHandler());
+        Assert.assertSame(staged.getExceptionHandler(), staged.getExceptionHandler());
+        Assert.assertEquals(staged.getExceptionHandler().getClass(),
+                sequential.getExceptionHandler().getClass());
+        Assert.assertNotNull(staged.getMultipartWrapperFactory());
+        Assert.assertSame(staged.getMultipartWrapperFactory(), staged.getMultipartWrapperFactory());
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sourceforge.stripes.FilterEnabledTestBase;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.ActionBeanContext;
+import net.sourceforge.stripes.action.DefaultHandler;
+import net.sourceforge.stripes.action.HandlesEvent;
+import net.sourceforge.stripes.action.Poolable;
+import net.sourceforge.stripes.action.ResettableActionBean;
+import net.sourceforge.stripes.action.Resolution;
+import net.sourceforge.stripes.action.StreamingResolution;
+import net.sourceforge.stripes.action.UrlBinding;
+import net.sourceforge.stripes.mock.MockRoundtrip;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that {@link Poolable} ActionBeans are reused across requests and reset
+ * between them.
+ */
+public class ActionBeanPoolTest extends FilterEnabledTestBase {
+
+    @Poolable(maxIdle = 1)
+    @UrlBinding("/test/Pooled.action")
+    public static class PooledActionBean implements ResettableActionBean {
+
+        static final AtomicInteger created = new AtomicInteger();
+
+        private ActionBeanContext context;
+        private String name;
+        private final List<String> tags = new ArrayList<String>();
+        private int[] scores = {1, 2};
+        private final StringBuilder notes = new StringBuilder();
+        private final int instance = created.incrementAndGet();
+
+        public ActionBeanContext getContext() {
+            return context;
+        }
+
+        public void setContext(ActionBeanContext context) {
+            this.context = context;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public int[] getScores() {
+            return scores;
+        }
+
+        public void setScores(int[] scores) {
+            this.scores = scores;
+        }
+
+        public void reset() {
+            notes.setLength(0);
+        }
+
+        @DefaultHandler
+        public Resolution show() {
+            String output = instance + ":" + name + ":" + tags + ":" + scores[0] + scores[1] + ":"
+                    + notes;
+            tags.add("seen");
+            scores[0] = 9;
+            notes.append("seen");
+            return new StreamingResolution("text/plain", output);
+        }
+
+        @HandlesEvent("flash")
+        public Resolution flash() {
+            FlashScope.getCurrent(context.getRequest(), true).put(this);
+            return show();
+        }
+
+        @HandlesEvent("remember")
+        public Resolution remember() {
+            context.getRequest().getSession().setAttribute(
+                    StripesFilter.getConfiguration().getActionResolver().getUrlBinding(getClass()), this);
+            return show();
+        }
+    }
+
+    @Poolable
+    @UrlBinding("/test/Unresettable.action")
+    public static class UnresettableActionBean implements ActionBean {
+
+        static final AtomicInteger created = new AtomicInteger();
+
+        private ActionBeanContext context;
+        private final int instance = created.incrementAndGet();
+
+        public ActionBeanContext getContext() {
+            return context;
+        }
+
+        public void setContext(ActionBeanContext context) {
+            this.context = context;
+        }
+
+        @DefaultHandler
+        public Resolution show() {
+            return new StreamingResolution("text/plain", String.valueOf(instance));
+        }
+    }
+
+    private ActionBeanPool getPool() {
+        return ((AnnotatedClassActionResolver) StripesFilter.getConfiguration().getActionResolver())
+                .getActionBeanPool();
+    }
+
+    private String execute(String name) throws Exception {
+        return execute(name, "show");
+    }
+
+    private String execute(String name, String event) throws Exception {
+        MockRoundtrip trip = new MockRoundtrip(getMockServletContext(), PooledActionBean.class);
+        if (name != null) {
+            trip.setParameter("name", name);
+            trip.setParameter("tags[0]", "bound");
+        }
+        trip.execute(event);
+        Assert.assertNull(trip.getRequest().getAttribute(StripesConstants.REQ_ATTR_ACTION_BEAN));
+        return trip.getOutputString();
+    }
+
+    private static String instanceOf(String output) {
+        return output.substring(0, output.indexOf(':'));
+    }
+
+    @Test(groups = "fast")
+    public void testPooledBeanIsReusedAndReset() throws Exception {
+        String first = execute("Fred");
+        String instance = instanceOf(first);
+        Assert.assertEquals(first, instance + ":Fred:[bound]:12:");
+
+        // Same instance, with the name, the list and the array restored, and the notes reset
+        Assert.assertEquals(execute(null), instance + ":null:[]:12:");
+        Assert.assertEquals(execute("Barney"), instance + ":Barney:[bound]:12:");
+        Assert.assertEquals(getPool().getIdleCount(PooledActionBean.class), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testReferencedBeanIsNotPooled() throws Exception {
+        for (String event : new String[] { "flash", "remember" }) {
+            String kept = instanceOf(execute("Fred", event));
+            Assert.assertFalse(instanceOf(execute(null)).equals(kept), event);
+            Assert.assertFalse(instanceOf(execute(null)).equals(kept), event);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testUnresettableBeanIsNotPooled() throws Exception {
+        MockRoundtrip trip = new MockRoundtrip(getMockServletContext(), UnresettableActionBean.class);
+        trip.execute();
+        String first = trip.getOutputString();
+
+        // Not pooled, so the bean stays in the request
+        Assert.assertNotNull(trip.getActionBean(UnresettableActionBean.class));
+
+        trip = new MockRoundtrip(getMockServletContext(), UnresettableActionBean.class);
+        trip.execute();
+        Assert.assertFalse(trip.getOutputString().equals(first));
+        Assert.assertEquals(getPool().getIdleCount(UnresettableActionBean.class), 0);
+    }
+}
@@ -170,6 +170,58 @@ public class BasicBindingTests extends FilterEnabledTestBase {
         Assert.assertTrue(Arrays.equals(bean.getIntArray(), new int[]{100, 200, 30017}));
     }
 
+    @Test(groups = "fast")
+    public void bindLargeIntArray() throws Exception {
+        String[] values = new String[10000];
+        int[] expected = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = String.valueOf(i * 7);
+            expected[i] = i * 7;
+        }
+        values[5] = "1,234";
+        expected[5] = 1234;
+
+        MockRoundtrip trip = getRoundtrip();
+        trip.addParameter("intArray", values);
+        trip.execute();
+
+        TestActionBean bean = trip.getActionBean(TestActionBean.class);
+        Assert.assertTrue(Arrays.equals(bean.getIntArray(), expected));
+    }
+
+    @Test(groups = "fast")
+    public void bindIntArrayWithInvalidValue() throws Exception {
+        MockRoundtrip trip = getRoundtrip();
+        trip.addParameter("intArray", "100", "junk", "99999999999");
+        trip.execute();
+
+        TestActionBean bean = trip.getActionBean(TestActionBean.class);
+        Assert.assertNull(bean.getIntArray());
+        Assert.assertEquals(trip.getValidationErrors().get("intArray").size(), 2);
+        Assert.assertEquals(trip.getValidationErrors().get("intArray").get(0).getFieldValue(), "junk");
+        Assert.assertEquals(trip.getValidationErrors().get("intArray").get(1).getFieldValue(), "99999999999");
+    }
+
+    @Test(groups = "fast")
+    public void bindPrimitiveInt() throws Exception {
+        MockRoundtrip trip = getRoundtrip();
+        trip.addParameter("testBean.intProperty", "1,024");
+        trip.execute();
+
+        TestActionBean bean = trip.getActionBean(TestActionBean.class);
+        Assert.assertEquals(bean.getTestBean().getIntProperty(), 1024);
+    }
+
+    @Test(groups = "fast")
+    public void bindPrimitiveBoolean() throws Exception {
+        MockRoundtrip trip = getRoundtrip();
+        trip.addParameter("testBean.booleanProperty", "on");
+        trip.execute();
+
+        TestActionBean bean = trip.getActionBean(TestActionBean.class);
+        Assert.assertTrue(bean.getTestBean().isBooleanProperty());
+    }
+
     @Test(groups = "fast")
     public void bindNonExistentProperty() throws Exception {
         // Should get logged but otherwise ignored...not blow up
@@ -0,0 +1,212 @@
+package net.sourceforge.stripes.controller;
+
+import java.util.Collections;
+import javax.servlet.http.HttpServletResponse;
+
+import net.sourceforge.stripes.FilterEnabledTestBase;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.ActionBeanContext;
+import net.sourceforge.stripes.action.DefaultHandler;
+import net.sourceforge.stripes.action.HandlesEvent;
+import net.sourceforge.stripes.action.HttpCache;
+import net.sourceforge.stripes.action.Resolution;
+import net.sourceforge.stripes.action.StreamingResolution;
+import net.sourceforge.stripes.action.UrlBinding;
+import net.sourceforge.stripes.config.DefaultConfiguration;
+import net.sourceforge.stripes.controller.HttpResponseCache.CachedResponse;
+import net.sourceforge.stripes.controller.HttpResponseCache.Header;
+import net.sourceforge.stripes.mock.MockHttpSession;
+import net.sourceforge.stripes.mock.MockRoundtrip;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the server-side response cache driven by {@link HttpCache#server()}.
+ */
+@UrlBinding("/HttpCacheInterceptorTests.action")
+public class HttpCacheInterceptorTests extends FilterEnabledTestBase implements ActionBean {
+
+    private static int invocations;
+    private MockHttpSession session;
+
+    private ActionBeanContext context;
+    private String name;
+
+    public ActionBeanContext getContext() {
+        return context;
+    }
+
+    public void setContext(ActionBeanContext context) {
+        this.context = context;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @DefaultHandler
+    @HttpCache(server = true, vary = "Accept")
+    public Resolution hello() {
+        ++invocations;
+        return new StreamingResolution("text/plain", "Hello " + name);
+    }
+
+    @HandlesEvent("forbidden")
+    @HttpCache(server = true, allow = false)
+    public Resolution forbidden() {
+        ++invocations;
+        return new StreamingResolution("text/plain", "Hello " + name);
+    }
+
+    @HandlesEvent("uncached")
+    public Resolution uncached() {
+        ++invocations;
+        return new StreamingResolution("text/plain", "Hello " + name);
+    }
+
+    private MockRoundtrip get(String event, String name) throws Exception {
+        MockRoundtrip trip = new MockRoundtrip(getMockServletContext(), getClass(), session);
+        trip.getRequest().setMethod("GET");
+        trip.getRequest().addHeader("Accept", "text/plain");
+        trip.setParameter("name", name);
+        return trip;
+    }
+
+    @BeforeMethod(alwaysRun = true)
+    public void reset() {
+        invocations = 0;
+        session = new MockHttpSession(getMockServletContext());
+        HttpResponseCache.getInstance().invalidateAll();
+    }
+
+    @Test(groups = "fast")
+    public void testResponseIsServedFromCache() throws Exception {
+        MockRoundtrip trip = get("hello", "Stripes");
+        trip.execute();
+        Assert.assertEquals(trip.getOutputString(), "Hello Stripes");
+        String etag = trip.getResponse().getHeader("ETag");
+        Assert.assertNotNull(etag);
+        Assert.assertTrue(etag.startsWith("\""));
+
+        trip = get("hello", "Stripes");
+        trip.execute();
+        Assert.assertEquals(trip.getOutputString(), "Hello Stripes");
+        Assert.assertEquals(trip.getResponse().getHeader("ETag"), etag);
+        Assert.assertEquals(trip.getResponse().getHeader("Vary"), "Accept");
+        Assert.assertNull(trip.getActionBean(getClass()).getName(), "Binding was not skipped");
+        Assert.assertEquals(invocations, 1);
+
+        trip = get("hello", "Other");
+        trip.execute();
+        Assert.assertEquals(trip.getOutputString(), "Hello Other");
+        Assert.assertEquals(invocations, 2);
+
+        trip = get("uncached", "Stripes");
+        trip.execute("uncached");
+        trip = get("uncached", "Stripes");
+        trip.execute("uncached");
+        Assert.assertEquals(invocations, 4);
+    }
+
+    @Test(groups = "fast")
+    public void testConditionalGet() throws Exception {
+        MockRoundtrip trip = get("hello", "Stripes");
+        trip.execute();
+        String etag = trip.getResponse().getHeader("ETag");
+
+        trip = get("hello", "Stripes");
+        trip.getRequest().addHeader("If-None-Match", "\"other\", " + etag);
+        trip.execute();
+        Assert.assertEquals(trip.getResponse().getStatus(), HttpServletResponse.SC_NOT_MODIFIED);
+        Assert.assertEquals(trip.getOutputBytes().length, 0);
+        Assert.assertEquals(invocations, 1);
+    }
+
+    @Test(groups = "fast")
+    public void testInvalidation() throws Exception {
+        get("hello", "Stripes").execute();
+        Assert.assertEquals(HttpResponseCache.getInstance().size(), 1);
+        Assert.assertEquals(HttpResponseCache.getInstance().invalidate(getClass(), "other"), 0);
+        Assert.assertEquals(HttpResponseCache.getInstance().invalidate(getClass()), 1);
+
+        get("hello", "Stripes").execute();
+        Assert.assertEquals(invocations, 2);
+    }
+
+    @Test(groups = "fast")
+    public void testResponseIsNotSharedBetweenSessions() throws Exception {
+        get("hello", "Stripes").execute();
+        get("hello", "Stripes").execute();
+        Assert.assertEquals(invocations, 1);
+
+        session = new MockHttpSession(getMockServletContext());
+        get("hello", "Stripes").execute();
+        Assert.assertEquals(invocations, 2);
+    }
+
+    @Test(groups = "fast")
+    public void testAllowFalseDisablesServerCache() throws Exception {
+        get("forbidden", "Stripes").execute("forbidden");
+        get("forbidden", "Stripes").execute("forbidden");
+        Assert.assertEquals(invocations, 2);
+        Assert.assertEquals(HttpResponseCache.getInstance().size(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testDefaultTtlIsFinite() throws Exception {
+        get("hello", "Stripes").execute();
+        HttpResponseCache cache = HttpResponseCache.getInstance();
+        Assert.assertEquals(cache.getDefaultTtl(), HttpResponseCache.DEFAULT_TTL * 1000L);
+
+        CachedResponse cached = new CachedResponse(getClass(),
+                "hello", HttpServletResponse.SC_OK, "text/plain",
+                Collections.<Header>emptyList(), new byte[0],
+                cache.getDefaultTtl());
+        Assert.assertTrue(cached.isFresh(System.currentTimeMillis()));
+        Assert.assertFalse(cached.isFresh(System.currentTimeMillis() + cache.getDefaultTtl() + 1000));
+    }
+
+    @Test(groups = "fast")
+    public void testCacheIsBounded() throws Exception {
+        HttpResponseCache cache = new HttpResponseCache(10, 1024);
+        for (int i = 0; i < 25; i++) {
+            cache.put("key" + i, new CachedResponse(getClass(), "hello",
+                    HttpServletResponse.SC_OK, "text/plain",
+                    Collections.<Header>emptyList(), new byte[0],
+                    cache.getDefaultTtl()));
+            Assert.assertTrue(cache.size() <= 10);
+        }
+        Assert.assertNotNull(cache.get("key24"));
+    }
+
+    @Test(groups = "fast")
+    public void testCacheIsBoundedBySize() throws Exception {
+        HttpResponseCache cache = new HttpResponseCache(100, 1024, HttpResponseCache.DEFAULT_TTL, 4096);
+        for (int i = 0; i < 25; i++) {
+            cache.put("key" + i, new CachedResponse(getClass(), "hello",
+                    HttpServletResponse.SC_OK, "text/plain",
+                    Collections.<Header>emptyList(), new byte[1000],
+                    cache.getDefaultTtl()));
+            Assert.assertTrue(cache.getTotalSize() <= 4096);
+        }
+        Assert.assertNotNull(cache.get("key24"));
+        Assert.assertNull(cache.get("key0"));
+        Assert.assertEquals(cache.getTotalSize(), cache.size() * 1000L);
+
+        cache.invalidate(getClass());
+        Assert.assertEquals(cache.getTotalSize(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testCachePerConfiguration() throws Exception {
+        HttpResponseCache cache = HttpResponseCache.getInstance(StripesFilter.getConfiguration());
+        Assert.assertSame(HttpResponseCache.getInstance(), cache);
+        Assert.assertNotSame(HttpResponseCache.getInstance(
+                new DefaultConfiguration()), cache);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sourceforge.stripes.FilterEnabledTestBase;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.ActionBeanContext;
+import net.sourceforge.stripes.action.ForwardResolution;
+import net.sourceforge.stripes.action.UrlBinding;
+import net.sourceforge.stripes.config.DefaultConfiguration;
+import net.sourceforge.stripes.exception.ActionBeanNotFoundException;
+import net.sourceforge.stripes.mock.MockHttpServletRequest;
+import net.sourceforge.stripes.mock.MockHttpServletResponse;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the handling of URLs to which no ActionBean is bound by the
+ * NameBasedActionResolver: the lookup that does not throw, the cached search
+ * for default views and the exception thrown when all else fails.
+ */
+public class NameBasedActionResolverNotFoundTest extends FilterEnabledTestBase {
+
+    /** A resource that is on the classpath, and so is found by the mock servlet context. */
+    private static final String VIEW = "/net/sourceforge/stripes/controller/NameBasedActionResolverNotFoundTest.class";
+
+    @UrlBinding("/found/Bound.action")
+    public static class BoundActionBean implements ActionBean {
+
+        private ActionBeanContext context;
+
+        public void setContext(ActionBeanContext context) {
+            this.context = context;
+        }
+
+        public ActionBeanContext getContext() {
+            return context;
+        }
+    }
+
+    private final AtomicInteger searches = new AtomicInteger();
+
+    private final NameBasedActionResolver resolver = new NameBasedActionResolver() {
+        @Override
+        protected Set<Class<? extends ActionBean>> findClasses() {
+            Set<Class<? extends ActionBean>> classes = new HashSet<Class<? extends ActionBean>>();
+            classes.add(BoundActionBean.class);
+            return classes;
+        }
+
+        @Override
+        protected List<String> getFindViewAttempts(String urlBinding) {
+            searches.incrementAndGet();
+            if (urlBinding.startsWith("/view/")) {
+                return Collections.singletonList(VIEW);
+            }
+            return super.getFindViewAttempts(urlBinding);
+        }
+    };
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        resolver.init(StripesFilter.getConfiguration());
+    }
+
+    private ActionBeanContext createContext() {
+        MockHttpServletRequest request = new MockHttpServletRequest("/test", "/unknown");
+        ActionBeanContext context = new ActionBeanContext();
+        context.setRequest(request);
+        context.setResponse(new MockHttpServletResponse());
+        context.setServletContext(getMockServletContext());
+        return context;
+    }
+
+    @Test(groups = "fast")
+    public void testFindActionBean() throws Exception {
+        ActionBeanContext context = createContext();
+        Assert.assertTrue(resolver.findActionBean(context, "/found/Bound.action") instanceof BoundActionBean);
+        Assert.assertNull(resolver.findActionBean(context, "/missing/Nothing.action"));
+
+        ActionBean bean = resolver.findActionBean(context, "/view/Page.action");
+        Assert.assertTrue(bean instanceof DefaultViewActionBean);
+        Assert.assertSame(bean.getContext(), context);
+    }
+
+    @Test(groups = "fast")
+    public void testNotFoundException() throws Exception {
+        try {
+            resolver.getActionBean(createContext(), "/missing/Other.action");
+            Assert.fail("Expected an ActionBeanNotFoundException");
+        } catch (ActionBeanNotFoundException e) {
+            Assert.assertTrue(e.getMessage().contains("[/missing/Other.action]"), e.getMessage());
+            Assert.assertTrue(e.getMessage().contains("/found/Bound.action"), e.getMessage());
+            Assert.assertSame(e.getMessage(), e.getMessage());
+        }
+
+        Assert.assertEquals(new ActionBeanNotFoundException("plain").getMessage(), "plain");
+    }
+
+    @Test(groups = "fast")
+    public void testViewCache() throws Exception {
+        DefaultConfiguration configuration = (DefaultConfiguration) StripesFilter.getConfiguration();
+
+        searches.set(0);
+        Assert.assertEquals(((ForwardResolution) resolver.findView("/view/Cached.action")).getPath(), VIEW);
+        Assert.assertEquals(((ForwardResolution) resolver.findView("/view/Cached.action")).getPath(), VIEW);
+        Assert.assertNull(resolver.findView("/missing/Cached.action"));
+        Assert.assertNull(resolver.findView("/missing/Cached.action"));
+        Assert.assertEquals(searches.get(), 2);
+
+        boolean debugMode = configuration.isDebugMode();
+        try {
+            configuration.setDebugMode(true);
+            searches.set(0);
+            resolver.findView("/missing/Cached.action");
+            resolver.findView("/missing/Cached.action");
+            Assert.assertEquals(searches.get(), 2);
+        } finally {
+            configuration.setDebugMode(debugMode);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testViewCacheIsBounded() throws Exception {
+        int urls = NameBasedActionResolver.DEFAULT_VIEW_CACHE_SIZE * 2 + 1;
+        searches.set(0);
+        for (int i = 0; i < urls; i++) {
+            Assert.assertNull(resolver.findView("/crawl/Page" + i + ".action"));
+        }
+        Assert.assertEquals(searches.get(), urls);
+
+        resolver.findView("/crawl/Page" + (urls - 1) + ".action");
+        Assert.assertEquals(searches.get(), urls);
+    }
+}
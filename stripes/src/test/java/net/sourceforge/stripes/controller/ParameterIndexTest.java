@@ -0,0 +1,66 @@
+package net.sourceforge.stripes.controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link ParameterIndex}.
+ */
+public class ParameterIndexTest {
+
+    @Test(groups = "fast")
+    public void testMergeAndOrder() {
+        Map<String, String[]> uri = new LinkedHashMap<String, String[]>();
+        uri.put("id", new String[]{"1"});
+        uri.put("event", new String[]{""});
+
+        Map<String, String[]> request = new LinkedHashMap<String, String[]>();
+        request.put("items[0].name", new String[]{"a"});
+        request.put("id", new String[]{"2"});
+        request.put("name", new String[]{"x"});
+
+        ParameterIndex index = new ParameterIndex(uri, request);
+        Assert.assertEquals(index.get("id"), new String[]{"1", "2"});
+        Assert.assertEquals(index.get("name"), new String[]{"x"});
+        Assert.assertNull(index.get("missing"));
+        Assert.assertEquals(new ArrayList<String>(index.getParameters().keySet()),
+                Arrays.asList("id", "event", "items[0].name", "name"));
+
+        List<String> sorted = new ArrayList<String>();
+        for (ParameterName name : index.getSortedParameters().keySet()) {
+            sorted.add(name.getName());
+        }
+        Assert.assertEquals(sorted, Arrays.asList("id", "name", "event", "items[0].name"));
+        Assert.assertEquals(index.getSortedParameters().lastKey().getStrippedName(), "items.name");
+
+        Assert.assertTrue(index.isBuiltFrom(request));
+        request.put("other", new String[]{"y"});
+        Assert.assertFalse(index.isBuiltFrom(request));
+        Assert.assertFalse(index.isBuiltFrom(new LinkedHashMap<String, String[]>()));
+    }
+
+    @Test(groups = "fast")
+    public void testSharedParameterNames() {
+        ParameterName first = ParameterIndex.getParameterName("rows[3].value");
+        Assert.assertSame(ParameterIndex.getParameterName("rows[3].value"), first);
+        Assert.assertTrue(first.isIndexed());
+        Assert.assertEquals(first.getStrippedName(), "rows.value");
+        Assert.assertFalse(ParameterIndex.getParameterName("plain").isIndexed());
+    }
+
+    @Test(groups = "fast")
+    public void testSharedParameterNamesAreNotFrozen() {
+        // Random names beyond the bound must not stop new names from being shared
+        for (int i = 0; i <= ParameterIndex.MAX_SHARED_NAMES; i++) {
+            ParameterIndex.getParameterName("random" + i);
+        }
+        ParameterName name = ParameterIndex.getParameterName("customer.address[0].city");
+        Assert.assertSame(ParameterIndex.getParameterName("customer.address[0].city"), name);
+    }
+}
@@ -0,0 +1,167 @@
+package net.sourceforge.stripes.controller;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+import javax.servlet.http.HttpServletResponse;
+
+import net.sourceforge.stripes.FilterEnabledTestBase;
+import net.sourceforge.stripes.StripesTestFixture;
+import net.sourceforge.stripes.controller.json.JsonContentTypeRequestWrapper;
+import net.sourceforge.stripes.mock.MockHttpServletRequest;
+import net.sourceforge.stripes.mock.MockRoundtrip;
+import net.sourceforge.stripes.mock.MockServletContext;
+import net.sourceforge.stripes.test.TestActionBean;
+import net.sourceforge.stripes.util.bean.ExpressionDepthException;
+import net.sourceforge.stripes.util.bean.PropertyExpression;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that the {@link RequestLimits} are enforced while requests are parsed
+ * and bound.
+ */
+public class RequestLimitsTest extends FilterEnabledTestBase {
+
+    private JsonContentTypeRequestWrapper parse(String json, RequestLimits limits)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("", "/test");
+        request.setRequestBody(json);
+        request.setCharacterEncoding(Charset.defaultCharset().name());
+        JsonContentTypeRequestWrapper wrapper = new JsonContentTypeRequestWrapper(limits);
+        wrapper.build(request);
+        return wrapper;
+    }
+
+    private void assertLimit(String json, RequestLimits limits, String limit, int status)
+            throws Exception {
+        try {
+            parse(json, limits);
+            Assert.fail("Expected " + limit + " to be exceeded");
+        } catch (RequestLimitExceededException e) {
+            Assert.assertEquals(e.getLimit(), limit);
+            Assert.assertEquals(e.getStatus(), status);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testJsonWithinLimits() throws Exception {
+        JsonContentTypeRequestWrapper wrapper = parse(
+                "{ \"a\" : { \"b\" : [1, 2.50, true], \"c\" : null }, \"d\" : \"x\" }",
+                new RequestLimits(10, 3, 10, 100, 20));
+        Assert.assertEquals(wrapper.getParameterValues("a.b[1]"), new String[]{"2.50"});
+        Assert.assertEquals(wrapper.getParameterValues("a.b[2]"), new String[]{"true"});
+        Assert.assertEquals(wrapper.getParameterValues("a.c"), new String[]{"null"});
+        Assert.assertEquals(wrapper.getParameterValues("d"), new String[]{"x"});
+    }
+
+    @Test(groups = "fast")
+    public void testJsonLimits() throws Exception {
+        String json = "{ \"a\" : { \"b\" : [1, 2, 3] }, \"c\" : \"x\" }";
+        assertLimit(json, new RequestLimits(3, 0, 0, 0, 0),
+                RequestLimits.MAX_PARAMETERS, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        assertLimit(json, new RequestLimits(0, 2, 0, 0, 0),
+                RequestLimits.MAX_EXPRESSION_DEPTH, HttpServletResponse.SC_BAD_REQUEST);
+        assertLimit(json, new RequestLimits(0, 0, 0, 20, 0),
+                RequestLimits.MAX_JSON_BYTES, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        assertLimit(json, new RequestLimits(0, 0, 0, 0, 8),
+                RequestLimits.MAX_JSON_TOKENS, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        parse(json, new RequestLimits(0, 0, 0, 0, 0));
+    }
+
+    @Test(groups = "fast")
+    public void testJsonLimitCountsBytes() throws Exception {
+        String json = "{ \"d\" : \"\u00e9\u00e9\u00e9\u00e9\u00e9\" }";
+        int bytes = json.getBytes().length;
+        parse(json, new RequestLimits(0, 0, 0, bytes, 0));
+        assertLimit(json, new RequestLimits(0, 0, 0, bytes - 1, 0),
+                RequestLimits.MAX_JSON_BYTES, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+    }
+
+    @Test(groups = "fast")
+    public void testLimitsAreOffByDefault() throws Exception {
+        RequestLimits limits = RequestLimits.DEFAULTS;
+        Assert.assertTrue(limits.getMaxParameters() <= 0);
+        Assert.assertTrue(limits.getMaxExpressionDepth() <= 0);
+        Assert.assertTrue(limits.getMaxListIndex() <= 0);
+        Assert.assertTrue(limits.getMaxJsonBytes() <= 0);
+        Assert.assertTrue(limits.getMaxJsonTokens() <= 0);
+
+        MockServletContext context = StripesTestFixture.createServletContext();
+        try {
+            MockRoundtrip trip = new MockRoundtrip(context, TestActionBean.class);
+            trip.addParameter("listOfLongs[20000]", "1");
+            trip.execute();
+            TestActionBean bean = trip.getActionBean(TestActionBean.class);
+            Assert.assertEquals(bean.getListOfLongs().size(), 20001);
+        } finally {
+            context.close();
+        }
+    }
+
+    /** Creates a servlet context whose configuration limits depth and List indexes. */
+    private MockServletContext createLimitedContext() {
+        Map<String, String> params = StripesTestFixture.getDefaultFilterParams();
+        params.put(RequestLimits.MAX_EXPRESSION_DEPTH, "32");
+        params.put(RequestLimits.MAX_LIST_INDEX, "100");
+        return new MockServletContext("test")
+                .addFilter(StripesFilter.class, "StripesFilter", params)
+                .setServlet(DispatcherServlet.class, "StripesDispatcher", null);
+    }
+
+    @Test(groups = "fast")
+    public void testExpressionDepth() throws Exception {
+        Assert.assertEquals(PropertyExpression.getExpression("limitsA[1].b", 3).getDepth(), 3);
+        try {
+            PropertyExpression.getExpression("limitsA[1].b.c", 3);
+            Assert.fail("Expected the expression to be too deep");
+        } catch (ExpressionDepthException e) {
+            Assert.assertEquals(e.getMaxDepth(), 3);
+        }
+        try {
+            PropertyExpression.getExpression("limitsA[1].b", 2);
+            Assert.fail("Expected the cached expression to be too deep");
+        } catch (ExpressionDepthException e) {
+            Assert.assertEquals(e.getMaxDepth(), 2);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testDeepParameterNameIsRejected() throws Exception {
+        char[] dots = new char[32 * 2];
+        Arrays.fill(dots, 'a');
+        for (int i = 1; i < dots.length; i += 2) {
+            dots[i] = '.';
+        }
+
+        MockServletContext context = createLimitedContext();
+        try {
+            MockRoundtrip trip = new MockRoundtrip(context, TestActionBean.class);
+            trip.addParameter("singleString", "ok");
+            trip.addParameter(new String(dots) + "a", "deep");
+            trip.execute();
+            Assert.assertEquals(trip.getResponse().getStatus(), HttpServletResponse.SC_BAD_REQUEST);
+        } finally {
+            context.close();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testLargeListIndexIsRejected() throws Exception {
+        MockServletContext context = createLimitedContext();
+        try {
+            MockRoundtrip trip = new MockRoundtrip(context, TestActionBean.class);
+            trip.addParameter("listOfLongs[100]", "1");
+            trip.execute();
+            TestActionBean bean = trip.getActionBean(TestActionBean.class);
+            Assert.assertEquals(bean.getListOfLongs().size(), 101);
+
+            trip = new MockRoundtrip(context, TestActionBean.class);
+            trip.addParameter("listOfLongs[101]", "1");
+            trip.execute();
+            Assert.assertEquals(trip.getResponse().getStatus(), HttpServletResponse.SC_BAD_REQUEST);
+        } finally {
+            context.close();
+        }
+    }
+}
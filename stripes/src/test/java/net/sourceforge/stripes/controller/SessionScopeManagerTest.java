@@ -0,0 +1,205 @@
+package net.sourceforge.stripes.controller;
+
+import java.io.Serializable;
+import java.util.Collections;
+import javax.servlet.http.HttpSessionActivationListener;
+import javax.servlet.http.HttpSessionEvent;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.ActionBeanContext;
+import net.sourceforge.stripes.action.SessionScope;
+import net.sourceforge.stripes.mock.MockHttpServletRequest;
+import net.sourceforge.stripes.mock.MockHttpSession;
+import net.sourceforge.stripes.mock.MockServletContext;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the concurrency policies and passivation of session scope ActionBeans
+ * managed by {@link SessionScopeManager}.
+ */
+public class SessionScopeManagerTest {
+
+    public static class Bean implements ActionBean, Serializable {
+        private static final long serialVersionUID = 1L;
+        private ActionBeanContext context;
+        int counter;
+
+        public ActionBeanContext getContext() { return context; }
+        public void setContext(ActionBeanContext context) { this.context = context; }
+    }
+
+    @SessionScope
+    public static class SharedBean extends Bean {
+        private static final long serialVersionUID = 1L;
+    }
+
+    @SessionScope(concurrency = SessionScope.Concurrency.SERIALIZE)
+    public static class SerializedBean extends Bean {
+        private static final long serialVersionUID = 1L;
+    }
+
+    @SessionScope(concurrency = SessionScope.Concurrency.REJECT)
+    public static class RejectingBean extends Bean {
+        private static final long serialVersionUID = 1L;
+    }
+
+    @SessionScope(concurrency = SessionScope.Concurrency.CLONE)
+    public static class ClonedBean extends Bean {
+        private static final long serialVersionUID = 1L;
+    }
+
+    @SessionScope(passivate = true)
+    public static class PassivatedBean extends Bean {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private MockHttpSession session;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setUp() {
+        session = new MockHttpSession(new MockServletContext("test"));
+    }
+
+    private MockHttpServletRequest newRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("/test", "/bean.action");
+        request.setSession(session);
+        return request;
+    }
+
+    private SessionScopeManager.Lease acquire(SessionScopeManager manager,
+            MockHttpServletRequest request, Class<? extends Bean> type) {
+        return manager.acquire(request, "/bean.action", type.getAnnotation(SessionScope.class));
+    }
+
+    @Test(groups = "fast")
+    public void testSerializedAccess() throws Exception {
+        SessionScopeManager manager = new SessionScopeManager(50);
+        MockHttpServletRequest first = newRequest();
+        SessionScopeManager.Lease lease = acquire(manager, first, SerializedBean.class);
+        Assert.assertNull(lease.getBean());
+        lease.setBean(new SerializedBean());
+        Assert.assertSame(session.getAttribute("/bean.action"), lease.getBean());
+
+        // The same request may reference the bean again, e.g. from a forwarded page
+        Assert.assertSame(acquire(manager, first, SerializedBean.class), lease);
+
+        try {
+            acquire(manager, newRequest(), SerializedBean.class);
+            Assert.fail("Expected the second request to time out");
+        } catch (SessionScopeConflictException e) {
+            Assert.assertEquals(e.getStatus(), 429);
+        }
+
+        SessionScopeManager.releaseLeases(first, 0);
+        Assert.assertEquals(SessionScopeManager.getLeaseCount(first), 0);
+        MockHttpServletRequest second = newRequest();
+        Assert.assertSame(acquire(manager, second, SerializedBean.class).getBean(),
+                session.getAttribute("/bean.action"));
+        SessionScopeManager.releaseLeases(second, 0);
+    }
+
+    @Test(groups = "fast")
+    public void testSharedAccessByDefault() throws Exception {
+        SessionScopeManager manager = new SessionScopeManager(50);
+        MockHttpServletRequest first = newRequest();
+        SharedBean bean = new SharedBean();
+        acquire(manager, first, SharedBean.class).setBean(bean);
+
+        MockHttpServletRequest second = newRequest();
+        Assert.assertSame(acquire(manager, second, SharedBean.class).getBean(), bean);
+        Assert.assertEquals(Collections.list(session.getAttributeNames()).size(), 1,
+                "No lock should be stored for an unguarded bean");
+        SessionScopeManager.releaseLeases(first, 0);
+        SessionScopeManager.releaseLeases(second, 0);
+    }
+
+    @Test(groups = "fast")
+    public void testLocksArePerSession() throws Exception {
+        SessionScopeManager manager = new SessionScopeManager(50);
+        MockHttpServletRequest first = newRequest();
+        acquire(manager, first, SerializedBean.class).setBean(new SerializedBean());
+        Assert.assertEquals(Collections.list(session.getAttributeNames()).size(), 2);
+
+        // Another session's bean bound to the same path is not blocked
+        MockHttpSession mine = session;
+        session = new MockHttpSession(new MockServletContext("test"));
+        MockHttpServletRequest other = newRequest();
+        Assert.assertNull(acquire(manager, other, SerializedBean.class).getBean());
+        SessionScopeManager.releaseLeases(other, 0);
+
+        session = mine;
+        SessionScopeManager.releaseLeases(first, 0);
+    }
+
+    @Test(groups = "fast")
+    public void testRejectedAccess() throws Exception {
+        SessionScopeManager manager = new SessionScopeManager(0);
+        MockHttpServletRequest first = newRequest();
+        acquire(manager, first, RejectingBean.class).setBean(new RejectingBean());
+
+        try {
+            acquire(manager, newRequest(), RejectingBean.class);
+            Assert.fail("Expected the second request to be rejected");
+        } catch (SessionScopeConflictException e) {
+            Assert.assertEquals(e.getBindingPath(), "/bean.action");
+        }
+        SessionScopeManager.releaseLeases(first, 0);
+    }
+
+    @Test(groups = "fast")
+    public void testClonedAccess() throws Exception {
+        SessionScopeManager manager = new SessionScopeManager(0);
+        ClonedBean shared = new ClonedBean();
+        session.setAttribute("/bean.action", shared);
+
+        MockHttpServletRequest first = newRequest();
+        MockHttpServletRequest second = newRequest();
+        Bean one = (Bean) acquire(manager, first, ClonedBean.class).getBean();
+        Bean two = (Bean) acquire(manager, second, ClonedBean.class).getBean();
+        Assert.assertNotSame(one, shared);
+        Assert.assertNotSame(two, shared);
+        Assert.assertNotSame(one, two);
+
+        one.counter = 1;
+        SessionScopeManager.releaseLeases(first, 0);
+        Assert.assertSame(session.getAttribute("/bean.action"), one);
+        SessionScopeManager.releaseLeases(second, 0);
+        Assert.assertSame(session.getAttribute("/bean.action"), two);
+    }
+
+    @Test(groups = "fast")
+    public void testPassivation() throws Exception {
+        SessionScopeManager manager = new SessionScopeManager(0);
+        MockHttpServletRequest request = newRequest();
+        PassivatedBean bean = new PassivatedBean();
+        bean.counter = 42;
+        acquire(manager, request, PassivatedBean.class).setBean(bean);
+        SessionScopeManager.releaseLeases(request, 0);
+
+        // Nothing is serialized while the session stays in memory
+        Assert.assertSame(session.getAttribute("/bean.action"), bean);
+        request = newRequest();
+        Assert.assertSame(acquire(manager, request, PassivatedBean.class).getBean(), bean);
+        SessionScopeManager.releaseLeases(request, 0);
+        Assert.assertSame(session.getAttribute("/bean.action"), bean);
+
+        // The container passivating the session compresses the bean
+        for (String name : Collections.list(session.getAttributeNames())) {
+            Object value = session.getAttribute(name);
+            if (value instanceof HttpSessionActivationListener) {
+                ((HttpSessionActivationListener) value).sessionWillPassivate(new HttpSessionEvent(session));
+            }
+        }
+        Object stored = session.getAttribute("/bean.action");
+        Assert.assertTrue(stored instanceof SessionScopeManager.PassivatedActionBean);
+        Assert.assertTrue(((SessionScopeManager.PassivatedActionBean) stored).getSize() > 0);
+
+        request = newRequest();
+        Bean restored = (Bean) acquire(manager, request, PassivatedBean.class).getBean();
+        Assert.assertNotSame(restored, bean);
+        Assert.assertEquals(restored.counter, 42);
+        Assert.assertSame(session.getAttribute("/bean.action"), restored);
+        SessionScopeManager.releaseLeases(request, 0);
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.controller;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpSession;
+
+import net.sourceforge.stripes.StripesTestFixture;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.ActionBeanContext;
+import net.sourceforge.stripes.action.DefaultHandler;
+import net.sourceforge.stripes.action.Resolution;
+import net.sourceforge.stripes.action.StreamingResolution;
+import net.sourceforge.stripes.action.UrlBinding;
+import net.sourceforge.stripes.action.Wizard;
+import net.sourceforge.stripes.config.DefaultConfiguration;
+import net.sourceforge.stripes.config.RuntimeConfiguration;
+import net.sourceforge.stripes.mock.MockHttpServletRequest;
+import net.sourceforge.stripes.mock.MockHttpSession;
+import net.sourceforge.stripes.mock.MockRoundtrip;
+import net.sourceforge.stripes.mock.MockServletContext;
+import net.sourceforge.stripes.util.CryptoUtil;
+import net.sourceforge.stripes.util.HtmlUtil;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the {@link MemoryWizardStateStore} and for the restoring of wizard
+ * state into requests.
+ */
+public class WizardStateStoreTest {
+
+    @Wizard
+    @UrlBinding("/test/WizardState.action")
+    public static class WizardStateActionBean implements ActionBean {
+
+        private ActionBeanContext context;
+        private String name;
+        private List<Integer> numbers;
+
+        public ActionBeanContext getContext() {
+            return context;
+        }
+
+        public void setContext(ActionBeanContext context) {
+            this.context = context;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<Integer> getNumbers() {
+            return numbers;
+        }
+
+        public void setNumbers(List<Integer> numbers) {
+            this.numbers = numbers;
+        }
+
+        @DefaultHandler
+        public Resolution next() {
+            return new StreamingResolution("text/plain", "ok");
+        }
+    }
+
+    private static Map<String, String[]> parameters(String... namesAndValues) {
+        Map<String, String[]> parameters = new LinkedHashMap<String, String[]>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            parameters.put(namesAndValues[i], namesAndValues[i + 1].split(","));
+        }
+        return parameters;
+    }
+
+    private static MockHttpServletRequest request(MockHttpSession session) {
+        MockHttpServletRequest request = new MockHttpServletRequest("/test", "/test/WizardState.action");
+        request.setSession(session);
+        return request;
+    }
+
+    private static MockHttpServletRequest request() {
+        return request(new MockHttpSession(new MockServletContext("test")));
+    }
+
+    @Test(groups = "fast")
+    public void testSaveAndLoad() {
+        MemoryWizardStateStore store = new MemoryWizardStateStore();
+        store.init(10, 60);
+
+        MockHttpServletRequest request = request();
+        Map<String, String[]> parameters = parameters("name", "Fred", "numbers", "1,2");
+        String key = store.save(request, parameters);
+        parameters.get("name")[0] = "changed";
+
+        Map<String, String[]> loaded = store.load(request, key);
+        Assert.assertEquals(loaded.keySet(), parameters.keySet());
+        Assert.assertEquals(loaded.get("name"), new String[]{"Fred"});
+        Assert.assertEquals(loaded.get("numbers"), new String[]{"1", "2"});
+
+        // Loading again, e.g. after going back a step, still works
+        Assert.assertNotNull(store.load(request, key));
+        Assert.assertNotEquals(store.save(request, parameters), key);
+        Assert.assertNull(store.load(request, "unknown"));
+    }
+
+    @Test(groups = "fast")
+    public void testStateBelongsToSession() {
+        MemoryWizardStateStore store = new MemoryWizardStateStore();
+        store.init(10, 60);
+
+        MockHttpServletRequest request = request();
+        String key = store.save(request, parameters("name", "Fred"));
+        Assert.assertNotNull(store.load(request, key));
+        Assert.assertNull(store.load(request(), key));
+        Assert.assertNull(store.load(request(null), key));
+        Assert.assertNull(store.save(request(null), parameters("name", "Fred")));
+    }
+
+    @Test(groups = "fast")
+    public void testStateSurvivesSessionIdChange() {
+        MemoryWizardStateStore store = new MemoryWizardStateStore();
+        store.init(10, 60);
+
+        final String[] id = {"before-login"};
+        MockHttpSession session = new MockHttpSession(new MockServletContext("test")) {
+            @Override
+            public String getId() {
+                return id[0];
+            }
+        };
+        String key = store.save(request(session), parameters("name", "Fred"));
+
+        // As done by HttpServletRequest.changeSessionId() on login
+        id[0] = "after-login";
+        Assert.assertEquals(store.load(request(session), key).get("name"), new String[]{"Fred"});
+        Assert.assertNull(store.load(request(), key));
+    }
+
+    @Test(groups = "fast")
+    public void testNoSessionIsCreated() {
+        MemoryWizardStateStore store = new MemoryWizardStateStore();
+        store.init(10, 60);
+
+        // A request that would create a session if asked to
+        final MockHttpSession created = new MockHttpSession(new MockServletContext("test"));
+        MockHttpServletRequest request = new MockHttpServletRequest("/test", "/test/WizardState.action") {
+            @Override
+            public HttpSession getSession() {
+                return getSession(true);
+            }
+
+            @Override
+            public HttpSession getSession(boolean create) {
+                HttpSession session = super.getSession(create);
+                if (session == null && create) {
+                    setSession(created);
+                    session = created;
+                }
+                return session;
+            }
+        };
+
+        Assert.assertNull(store.save(request, parameters("name", "Fred")));
+        Assert.assertNull(request.getSession(false));
+        Assert.assertEquals(store.size(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testSessionBounds() {
+        MemoryWizardStateStore store = new MemoryWizardStateStore();
+        store.init(100, 2, 10, 60);
+
+        MockHttpServletRequest request = request();
+        String first = store.save(request, parameters("a", "1"));
+        String second = store.save(request, parameters("a", "2"));
+        String third = store.save(request, parameters("a", "3"));
+        Assert.assertNull(store.load(request, first));
+        Assert.assertNotNull(store.load(request, second));
+        Assert.assertNotNull(store.load(request, third));
+
+        // Other sessions are not affected
+        MockHttpServletRequest other = request();
+        Assert.assertNotNull(store.save(other, parameters("a", "1")));
+        Assert.assertNotNull(store.load(request, third));
+        Assert.assertEquals(store.size(), 3);
+
+        // States that are too large are refused
+        Assert.assertNull(store.save(request, parameters("name", "abcdefghijk")));
+    }
+
+    @Test(groups = "fast")
+    public void testBounds() throws Exception {
+        MemoryWizardStateStore store = new MemoryWizardStateStore();
+        store.init(2, 60);
+
+        MockHttpServletRequest request = request();
+        MockHttpServletRequest other = request();
+        String first = store.save(other, parameters("a", "1"));
+        String second = store.save(request, parameters("a", "2"));
+        store.load(other, first);
+        String third = store.save(request, parameters("a", "3"));
+
+        Assert.assertEquals(store.size(), 2);
+        Assert.assertNotNull(store.load(other, first));
+        Assert.assertNull(store.load(request, second));
+        Assert.assertNotNull(store.load(request, third));
+
+        // Expired states are dropped even when a live one was used less recently
+        store.init(10, 1);
+        String old = store.save(request, parameters("a", "1"));
+        Thread.sleep(700);
+        store.save(other, parameters("a", "2"));
+        Assert.assertNotNull(store.load(request, old));
+        Thread.sleep(700);
+        store.save(other, parameters("a", "3"));
+        Assert.assertEquals(store.size(), 2);
+        Assert.assertNull(store.load(request, old));
+
+        store.init(10, 0);
+        String expiring = store.save(request, parameters("a", "1"));
+        Thread.sleep(5);
+        Assert.assertNull(store.load(request, expiring));
+        store.save(request, parameters("a", "2"));
+        Assert.assertEquals(store.size(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testRestoreWizardState() throws Exception {
+        Map<String, String> params = StripesTestFixture.getDefaultFilterParams();
+        params.put(RuntimeConfiguration.WIZARD_STATE_STORE, MemoryWizardStateStore.class.getName());
+        MockServletContext context = new MockServletContext("wizard")
+                .addFilter(StripesFilter.class, "StripesFilter", params)
+                .setServlet(DispatcherServlet.class, "StripesDispatcher", null);
+        try {
+            WizardStateStore store = ((DefaultConfiguration) StripesFilter.getConfiguration())
+                    .getWizardStateStore();
+            Assert.assertTrue(store instanceof MemoryWizardStateStore);
+            MockHttpSession session = new MockHttpSession(context);
+            String key = store.save(request(session), parameters("name", "Fred", "numbers", "1,2,3"));
+
+            MockRoundtrip trip = new MockRoundtrip(context, WizardStateActionBean.class, session);
+            trip.setParameter(StripesConstants.URL_KEY_WIZARD_STATE, CryptoUtil.encrypt(key));
+            trip.setParameter(StripesConstants.URL_KEY_FIELDS_PRESENT,
+                    CryptoUtil.encrypt(HtmlUtil.combineValues(Arrays.asList("name", "numbers"))));
+            trip.setParameter("name", "Barney");
+            trip.execute();
+
+            WizardStateActionBean bean = trip.getActionBean(WizardStateActionBean.class);
+            Assert.assertEquals(trip.getValidationErrors().size(), 0);
+            Assert.assertEquals(bean.getName(), "Barney");
+            Assert.assertEquals(bean.getNumbers(), Arrays.asList(1, 2, 3));
+
+            trip = new MockRoundtrip(context, WizardStateActionBean.class);
+            trip.setParameter(StripesConstants.URL_KEY_WIZARD_STATE, CryptoUtil.encrypt("unknown"));
+            try {
+                trip.execute();
+                Assert.fail("Expected the unknown wizard state to be rejected");
+            } catch (Exception e) {
+                Assert.assertTrue(String.valueOf(e.getMessage()).contains("wizard state"), e.toString());
+            }
+
+            // Another session cannot use the key
+            trip = new MockRoundtrip(context, WizardStateActionBean.class);
+            trip.setParameter(StripesConstants.URL_KEY_WIZARD_STATE, CryptoUtil.encrypt(key));
+            try {
+                trip.execute();
+                Assert.fail("Expected the wizard state of another session to be rejected");
+            } catch (Exception e) {
+                Assert.assertTrue(String.valueOf(e.getMessage()).contains("wizard state"), e.toString());
+            }
+        } finally {
+            context.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package net.sourceforge.stripes.controller.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.sourceforge.stripes.StripesTestFixture;
+import net.sourceforge.stripes.action.ForwardResolution;
+import net.sourceforge.stripes.controller.DispatcherServlet;
+import net.sourceforge.stripes.controller.LifecycleStage;
+import net.sourceforge.stripes.controller.StripesFilter;
+import net.sourceforge.stripes.mock.MockRoundtrip;
+import net.sourceforge.stripes.mock.MockServletContext;
+import net.sourceforge.stripes.test.TestActionBean;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the {@link LatencyHistogram} and the {@link RequestMetrics} sink.
+ */
+public class RequestMetricsTest {
+
+    @Test(groups = "fast")
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getValueAtPercentile(50), 0);
+
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        Assert.assertEquals(histogram.getCount(), 1000);
+        Assert.assertEquals(histogram.getMax(), 1000000);
+        Assert.assertEquals(histogram.getMean(), 500500.0, 0.001);
+        assertWithin(histogram.getValueAtPercentile(50), 500000);
+        assertWithin(histogram.getValueAtPercentile(99), 990000);
+        Assert.assertEquals(histogram.getValueAtPercentile(100), 1000000);
+
+        histogram.reset();
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getMax(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testHistogramBuckets() {
+        long previous = -1;
+        for (long value = 0; value < (1L << 42); value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.indexOf(value);
+            Assert.assertTrue(LatencyHistogram.upperBoundOf(index) >= value, "Value " + value);
+            Assert.assertTrue(index > 0 ? LatencyHistogram.upperBoundOf(index - 1) < value : true,
+                    "Value " + value);
+            Assert.assertTrue(index >= previous, "Value " + value);
+            previous = index;
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testRequestMetrics() throws Exception {
+        Map<String, String> params = StripesTestFixture.getDefaultFilterParams();
+        params.put(Metrics.ENABLED, "true");
+        MockServletContext context = new MockServletContext("metrics")
+                .addFilter(StripesFilter.class, "StripesFilter", params)
+                .setServlet(DispatcherServlet.class, "StripesDispatcher", null);
+        ObjectName name;
+        try {
+            RequestMetrics metrics = (RequestMetrics) Metrics.getSink(StripesFilter.getConfiguration());
+            Assert.assertNotNull(metrics);
+
+            MockRoundtrip trip = new MockRoundtrip(context, TestActionBean.class);
+            trip.execute();
+
+            trip = new MockRoundtrip(context, TestActionBean.class);
+            trip.setParameter("singleLong", "not a number");
+            trip.execute();
+            Assert.assertEquals(trip.getValidationErrors().size(), 1);
+
+            Assert.assertEquals(metrics.getRequestCount(), 2);
+            Assert.assertEquals(metrics.getStageHistogram(LifecycleStage.RequestInit).getCount(), 2);
+            Assert.assertEquals(metrics.getStageHistogram(LifecycleStage.EventHandling).getCount(), 1);
+            Assert.assertEquals(metrics.getActionBeanHistogram(TestActionBean.class).getCount(), 2);
+            Assert.assertEquals(metrics.getEventHistogram(TestActionBean.class, "doNothing").getCount(), 2);
+
+            Map<String, Long> counters = metrics.getCounters();
+            Assert.assertEquals(counters.get(RequestMetrics.BINDING_AND_VALIDATION_ERRORS), Long.valueOf(1));
+            Assert.assertEquals(counters.get(RequestMetrics.CUSTOM_VALIDATION_ERRORS), Long.valueOf(0));
+            Assert.assertEquals(counters.get(RequestMetrics.CONVERTER_FAILURES), Long.valueOf(1));
+            Assert.assertEquals(counters.get(RequestMetrics.CONVERTER_FAILURES + ":java.lang.Long"),
+                    Long.valueOf(1));
+            Assert.assertEquals(counters.get(RequestMetrics.RESOLUTIONS + ":"
+                    + ForwardResolution.class.getName()), Long.valueOf(1));
+
+            name = metrics.getObjectName();
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Assert.assertTrue(server.isRegistered(name));
+            Assert.assertEquals(server.getAttribute(name, "RequestCount"), 2L);
+            Assert.assertNotNull(server.getAttribute(name, "StageLatencies"));
+
+            server.invoke(name, "reset", null, null);
+            Assert.assertEquals(metrics.getRequestCount(), 0);
+        } finally {
+            context.close();
+        }
+
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        Assert.assertTrue(Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKETS,
+                "Expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,170 @@
+package net.sourceforge.stripes.controller.multipart;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.Iterator;
+
+import net.sourceforge.stripes.action.FileBean;
+import net.sourceforge.stripes.controller.FileUploadLimitExceededException;
+import net.sourceforge.stripes.mock.MockHttpServletRequest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the {@link StreamingMultipartWrapper}.
+ */
+public class StreamingMultipartWrapperTest {
+
+    private static final String BOUNDARY = "----StripesTestBoundary";
+
+    private static String body(String... parts) {
+        StringBuilder body = new StringBuilder("preamble to be ignored\r\n");
+        for (String part : parts) {
+            body.append("--").append(BOUNDARY).append("\r\n").append(part).append("\r\n");
+        }
+        return body.append("--").append(BOUNDARY).append("--\r\n").toString();
+    }
+
+    private static String field(String name, String value) {
+        return "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value;
+    }
+
+    private static String file(String name, String filename, String content) {
+        return "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n" + content;
+    }
+
+    private static MockHttpServletRequest request(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("", "/upload.action");
+        request.setMethod("POST");
+        request.addHeader("Content-Type", "multipart/form-data; boundary=" + BOUNDARY);
+        request.setRequestBody(body);
+        return request;
+    }
+
+    private static String read(FileBean file) throws IOException {
+        Reader in = new InputStreamReader(file.getInputStream(), "UTF-8");
+        StringBuilder out = new StringBuilder();
+        char[] buffer = new char[3];
+        for (int count; (count = in.read(buffer)) >= 0;) {
+            out.append(buffer, 0, count);
+        }
+        in.close();
+        return out.toString();
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        java.util.Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test(groups = "fast")
+    public void testBufferedParsing() throws Exception {
+        String big = repeat('x', 20000);
+        StreamingMultipartWrapper wrapper = new StreamingMultipartWrapper();
+        wrapper.build(request(body(field("a", "1"), file("small", "C:\\docs\\small.txt", "hello\r\nworld"),
+                field("a", "2"), file("big", "big.txt", big), file("empty", "", ""), field("b", ""))),
+                new File(System.getProperty("java.io.tmpdir")), 1024 * 1024);
+
+        Assert.assertEquals(wrapper.getParameterValues("a"), new String[]{"1", "2"});
+        Assert.assertEquals(wrapper.getParameterValues("b"), new String[]{""});
+        Assert.assertEquals(Collections.list(wrapper.getFileParameterNames()).size(), 2);
+        Assert.assertNull(wrapper.getFileParameterValue("empty"));
+
+        FileBean small = wrapper.getFileParameterValue("small");
+        Assert.assertEquals(small.getFileName(), "small.txt");
+        Assert.assertEquals(small.getContentType(), "text/plain");
+        Assert.assertEquals(small.getSize(), 12);
+        Assert.assertEquals(read(small), "hello\r\nworld");
+
+        FileBean large = wrapper.getFileParameterValue("big");
+        Assert.assertEquals(large.getSize(), big.length());
+        Assert.assertEquals(read(large), big);
+        large.delete();
+    }
+
+    @Test(groups = "fast")
+    public void testStreamingParsing() throws Exception {
+        StreamingMultipartWrapper wrapper = new StreamingMultipartWrapper();
+        wrapper.setStreaming(true);
+        wrapper.build(request(body(field("id", "42"), file("one", "one.txt", "first"),
+                file("two", "two.txt", "second"), field("after", "x"), file("three", "three.txt", "third"))),
+                null, 1024 * 1024);
+
+        Assert.assertEquals(wrapper.getParameterValues("id"), new String[]{"42"});
+        Assert.assertNull(wrapper.getParameterValues("after"));
+        Assert.assertFalse(wrapper.getFileParameterNames().hasMoreElements());
+
+        Iterator<FileBean> parts = wrapper.getFileParts();
+        FileBean one = parts.next();
+        Assert.assertEquals(one.getFileName(), "one.txt");
+        Assert.assertEquals(read(one), "first");
+        Assert.assertEquals(one.getSize(), 5);
+
+        // skip the second part without reading it
+        Assert.assertEquals(parts.next().getFileName(), "two.txt");
+
+        FileBean three = parts.next();
+        Assert.assertEquals(read(three), "third");
+        Assert.assertFalse(parts.hasNext());
+        Assert.assertEquals(wrapper.getParameterValues("after"), new String[]{"x"});
+    }
+
+    @Test(groups = "fast")
+    public void testDelimiterAcrossReads() throws Exception {
+        // Content that starts the delimiter again and again, arriving one byte per read
+        String content = "a\r\n-b\r\n--c\r\n--" + BOUNDARY.substring(0, 10) + "d\r\n" + repeat('e', 300);
+        byte[] body = body(field("x", content), field("y", "2")).getBytes("UTF-8");
+        InputStream trickle = new java.io.ByteArrayInputStream(body) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+
+        MultipartStream stream = new MultipartStream(trickle, BOUNDARY, 64, -1);
+        Assert.assertTrue(stream.nextPart());
+        Assert.assertEquals(stream.readHeaders().size(), 1);
+        InputStream in = stream.getPartStream();
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        byte[] chunk = new byte[7];
+        for (int count; (count = in.read(chunk)) >= 0;) {
+            out.write(chunk, 0, count);
+        }
+        Assert.assertEquals(out.toString("UTF-8"), content);
+
+        Assert.assertTrue(stream.nextPart());
+        stream.readHeaders();
+        Assert.assertEquals(stream.getPartStream().read(), '2');
+        Assert.assertEquals(stream.getPartStream().read(), -1);
+        Assert.assertFalse(stream.nextPart());
+    }
+
+    @Test(groups = "fast", expectedExceptions = FileUploadLimitExceededException.class)
+    public void testMaxPostSize() throws Exception {
+        new StreamingMultipartWrapper().build(request(body(file("big", "big.txt", repeat('x', 5000)))),
+                null, 1000);
+    }
+
+    @Test(groups = "fast")
+    public void testStreamedPartCanOnlyBeReadOnce() throws Exception {
+        StreamingMultipartWrapper wrapper = new StreamingMultipartWrapper();
+        wrapper.setStreaming(true);
+        wrapper.build(request(body(file("one", "one.txt", "first"))), null, -1);
+
+        FileBean one = wrapper.getFileParts().next();
+        InputStream in = one.getInputStream();
+        in.close();
+        try {
+            one.getInputStream();
+            Assert.fail("Expected the second read to fail");
+        } catch (IOException expected) {
+        }
+    }
+}
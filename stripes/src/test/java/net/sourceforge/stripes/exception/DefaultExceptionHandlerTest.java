@@ -0,0 +1,119 @@
+package net.sourceforge.stripes.exception;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.sourceforge.stripes.StripesTestFixture;
+import net.sourceforge.stripes.action.ErrorResolution;
+import net.sourceforge.stripes.action.Resolution;
+import net.sourceforge.stripes.mock.MockHttpServletRequest;
+import net.sourceforge.stripes.mock.MockHttpServletResponse;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the resolution of handler methods by DefaultExceptionHandler and the
+ * rate limited logging of quiet exceptions.
+ */
+public class DefaultExceptionHandlerTest {
+
+    public interface DownstreamFailure {
+    }
+
+    public static class DownstreamException extends RuntimeException implements DownstreamFailure {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    public static class DownstreamTimeoutException extends DownstreamException {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    public static class TestHandler extends DefaultExceptionHandler {
+
+        String handledBy;
+
+        public void handleRuntime(RuntimeException e, HttpServletRequest req, HttpServletResponse res) {
+            this.handledBy = "runtime";
+        }
+
+        public Resolution handleDownstream(DownstreamFailure e, HttpServletRequest req, HttpServletResponse res) {
+            this.handledBy = "downstream";
+            return new ErrorResolution(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+
+        public void handleTimeout(DownstreamTimeoutException e, HttpServletRequest req, HttpServletResponse res) {
+            this.handledBy = "timeout";
+        }
+    }
+
+    private MockHttpServletRequest request() {
+        return new MockHttpServletRequest("/test", "/Test.action");
+    }
+
+    @Test(groups = "fast")
+    public void testHandlerResolution() throws Exception {
+        TestHandler handler = new TestHandler();
+        handler.init(StripesTestFixture.getDefaultConfiguration());
+
+        handler.handle(new IllegalStateException(), request(), new MockHttpServletResponse());
+        Assert.assertEquals(handler.handledBy, "runtime");
+
+        // The interface of the class is preferred over the handler of its super-class
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        handler.handle(new DownstreamException(), request(), response);
+        Assert.assertEquals(handler.handledBy, "downstream");
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+        handler.handle(new DownstreamTimeoutException(), request(), new MockHttpServletResponse());
+        Assert.assertEquals(handler.handledBy, "timeout");
+
+        // Wrapped exceptions are unwrapped before resolving their handler
+        handler.handle(new ServletException(new DownstreamException()), request(),
+                new MockHttpServletResponse());
+        Assert.assertEquals(handler.handledBy, "downstream");
+    }
+
+    @Test(groups = "fast")
+    public void testQuietExceptions() throws Exception {
+        DefaultExceptionHandler handler = new DefaultExceptionHandler();
+        handler.init(StripesTestFixture.getDefaultConfiguration());
+        handler.setQuietExceptions(1, DownstreamException.class);
+
+        DownstreamTimeoutException cause = new DownstreamTimeoutException();
+        Assert.assertSame(handleUnhandled(handler, cause).getCause(), cause);
+
+        // Beyond the limit the request is ended without rethrowing the exception
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        handler.handle(new DownstreamTimeoutException(), request(), response);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+
+        // Also when it arrives wrapped by the container or an earlier stage
+        response = new MockHttpServletResponse();
+        handler.handle(new ServletException(new DownstreamTimeoutException()), request(), response);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+
+        // A committed response can no longer carry the error status
+        response = new MockHttpServletResponse();
+        response.flushBuffer();
+        handler.handle(new DownstreamTimeoutException(), request(), response);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+
+        // Other exception types are unaffected
+        IllegalStateException other = new IllegalStateException();
+        Assert.assertSame(handleUnhandled(handler, other).getCause(), other);
+    }
+
+    private StripesServletException handleUnhandled(DefaultExceptionHandler handler, Throwable t)
+            throws Exception {
+        try {
+            handler.handle(t, request(), new MockHttpServletResponse());
+        } catch (StripesServletException e) {
+            return e;
+        }
+        Assert.fail("Expected the exception to be rethrown");
+        return null;
+    }
+}
@@ -0,0 +1,96 @@
+package net.sourceforge.stripes.mock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sourceforge.stripes.FilterEnabledTestBase;
+import net.sourceforge.stripes.test.TestActionBean;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the {@link MockLoadDriver}.
+ */
+public class TestMockLoadDriver extends FilterEnabledTestBase {
+
+    @Test(groups = "fast")
+    public void testConcurrentRoundtrips() throws Exception {
+        MockLoadDriver.Report report = new MockLoadDriver(getMockServletContext())
+                .addScenario("bind", 3, new MockLoadDriver.Scenario() {
+                    public void run(MockLoadDriver.VirtualUser user) throws Exception {
+                        MockRoundtrip trip = user.roundtrip(TestActionBean.class);
+                        trip.setParameter("singleLong", String.valueOf(user.getId()));
+                        trip.execute();
+                        Assert.assertEquals(trip.getActionBean(TestActionBean.class).getSingleLong(),
+                                Long.valueOf(user.getId()));
+                    }
+                })
+                .addScenario("fail", 1, new MockLoadDriver.Scenario() {
+                    public void run(MockLoadDriver.VirtualUser user) throws Exception {
+                        throw new IllegalStateException("Scripted failure");
+                    }
+                })
+                .setThreads(4)
+                .setIterations(50)
+                .setWarmupIterations(5)
+                .run();
+
+        Assert.assertEquals(report.getCount(), 200);
+        Assert.assertEquals(report.getHistogram("bind").getCount()
+                + report.getHistogram("fail").getCount(), 200);
+        Assert.assertEquals(report.getErrorCount("bind"), 0);
+        Assert.assertEquals(report.getErrorCount("fail"), report.getHistogram("fail").getCount());
+        Assert.assertEquals(report.getErrorCount(), report.getErrorCount("fail"));
+        Assert.assertTrue(report.getThroughput() > 0);
+        Assert.assertTrue(report.getFailures().size() <= 10);
+        if (report.getErrorCount() > 0) {
+            Assert.assertEquals(report.getFailures().get(0).getMessage(), "Scripted failure");
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testSessionAffinity() throws Exception {
+        final ConcurrentMap<Integer, MockHttpSession> sessions
+                = new ConcurrentHashMap<Integer, MockHttpSession>();
+        final AtomicInteger mismatches = new AtomicInteger();
+        MockLoadDriver.Report report = new MockLoadDriver(getMockServletContext())
+                .addScenario("session", 1, new MockLoadDriver.Scenario() {
+                    public void run(MockLoadDriver.VirtualUser user) throws Exception {
+                        MockHttpSession previous = sessions.putIfAbsent(user.getId(), user.getSession());
+                        if (previous != null && previous != user.getSession()) {
+                            mismatches.incrementAndGet();
+                        }
+                        MockRoundtrip trip = user.roundtrip(TestActionBean.class);
+                        trip.execute();
+                        if (trip.getRequest().getSession() != user.getSession()) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                })
+                .setThreads(3)
+                .setUsers(6)
+                .setIterations(20)
+                .run();
+
+        Assert.assertEquals(report.getErrorCount(), 0);
+        Assert.assertEquals(sessions.size(), 6);
+        Assert.assertEquals(mismatches.get(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testNullAttributeNames() throws Exception {
+        MockServletContext context = new MockServletContext("nulls");
+        MockHttpSession session = new MockHttpSession(context);
+        Assert.assertNull(session.getAttribute(null));
+        session.removeAttribute(null);
+        Assert.assertNull(context.getAttribute(null));
+        Assert.assertNull(context.getInitParameter(null));
+        context.removeAttribute(null);
+
+        session.setAttribute("name", "value");
+        session.setAttribute("name", null);
+        Assert.assertNull(session.getAttribute("name"));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.tag;
+
+import java.util.Locale;
+
+import net.sourceforge.stripes.FilterEnabledTestBase;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.config.Configuration;
+import net.sourceforge.stripes.format.Formatter;
+import net.sourceforge.stripes.format.FormatterFactory;
+import net.sourceforge.stripes.format.NumberFormatter;
+import net.sourceforge.stripes.util.CryptoUtil;
+import net.sourceforge.stripes.validation.ValidationMetadata;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the caching done by {@link FormFieldDescriptor} and the per-form
+ * descriptor cache in {@link FormTag}.
+ */
+public class FormFieldDescriptorTest extends FilterEnabledTestBase {
+
+    /** Formatter factory that counts how often it is asked for a formatter. */
+    private static class CountingFormatterFactory implements FormatterFactory {
+        int lookups;
+
+        public void init(Configuration configuration) throws Exception {
+        }
+
+        public Formatter<?> getFormatter(Class<?> clazz, Locale locale, String formatType, String formatPattern) {
+            lookups++;
+            return new NumberFormatter();
+        }
+
+        public void add(Class<?> targetType, Class<? extends Formatter<?>> formatterClass) {
+        }
+    }
+
+    /** Form tag that does not need a page context to find its ActionBean class. */
+    private static class TestFormTag extends FormTag {
+        @Override
+        protected Class<? extends ActionBean> getActionBeanClass() {
+            return null;
+        }
+    }
+
+    @Test(groups = "fast")
+    public void formatterIsReusedForSameRequest() {
+        CountingFormatterFactory factory = new CountingFormatterFactory();
+        FormFieldDescriptor descriptor = new FormFieldDescriptor(null, "amount", null);
+
+        Formatter<?> first = descriptor.getFormatter(factory, Double.class, Locale.US, null, null);
+        Formatter<?> second = descriptor.getFormatter(factory, Double.class, Locale.US, null, null);
+        Assert.assertSame(second, first);
+        Assert.assertEquals(factory.lookups, 1);
+    }
+
+    @Test(groups = "fast")
+    public void formatterIsLookedUpAgainWhenRequestChanges() {
+        CountingFormatterFactory factory = new CountingFormatterFactory();
+        FormFieldDescriptor descriptor = new FormFieldDescriptor(null, "amount", null);
+
+        descriptor.getFormatter(factory, Double.class, Locale.US, null, null);
+        descriptor.getFormatter(factory, Integer.class, Locale.US, null, null);
+        Assert.assertEquals(factory.lookups, 2);
+        descriptor.getFormatter(factory, Integer.class, Locale.US, "currency", null);
+        Assert.assertEquals(factory.lookups, 3);
+        descriptor.getFormatter(factory, Integer.class, Locale.US, "currency", "#,##0");
+        Assert.assertEquals(factory.lookups, 4);
+        descriptor.getFormatter(factory, Integer.class, Locale.US, "currency", "#,##0");
+        Assert.assertEquals(factory.lookups, 4);
+        descriptor.getFormatter(factory, Integer.class, Locale.GERMANY, "currency", "#,##0");
+        Assert.assertEquals(factory.lookups, 5);
+    }
+
+    @Test(groups = "fast")
+    public void plainRequestValuesAreReturnedAsIs() {
+        FormFieldDescriptor descriptor = new FormFieldDescriptor(null, "name", null);
+        String[] values = {"a", "b"};
+        Assert.assertSame(descriptor.getRequestValues(values), values);
+    }
+
+    @Test(groups = "fast")
+    public void decryptedRequestValuesAreCached() {
+        FormFieldDescriptor descriptor = new FormFieldDescriptor(null, "secret",
+                new ValidationMetadata("secret").encrypted(true));
+        String[] values = {CryptoUtil.encrypt("one"), CryptoUtil.encrypt("two")};
+
+        String[] decrypted = descriptor.getRequestValues(values);
+        Assert.assertEquals(decrypted, new String[]{"one", "two"});
+        Assert.assertSame(descriptor.getRequestValues(values), decrypted);
+        Assert.assertSame(descriptor.getRequestValues(values.clone()), decrypted);
+
+        String[] other = {CryptoUtil.encrypt("three")};
+        Assert.assertEquals(descriptor.getRequestValues(other), new String[]{"three"});
+    }
+
+    @Test(groups = "fast")
+    public void missingSubmittedValuesAreRemembered() {
+        FormFieldDescriptor descriptor = new FormFieldDescriptor(null, "name", null);
+        Assert.assertFalse(descriptor.isSubmittedValuesLoaded());
+
+        descriptor.setSubmittedValues(null);
+        Assert.assertTrue(descriptor.isSubmittedValuesLoaded());
+        Assert.assertNull(descriptor.getSubmittedValues());
+
+        String[] values = {"a"};
+        descriptor.setSubmittedValues(values);
+        Assert.assertSame(descriptor.getSubmittedValues(), values);
+    }
+
+    @Test(groups = "fast")
+    public void formTagReusesDescriptorPerName() {
+        FormTag form = new TestFormTag();
+        FormFieldDescriptor descriptor = form.getFieldDescriptor("name");
+        Assert.assertSame(form.getFieldDescriptor("name"), descriptor);
+        Assert.assertNotSame(form.getFieldDescriptor("other"), descriptor);
+        Assert.assertEquals(descriptor.getName(), "name");
+    }
+
+    @Test(groups = "fast")
+    public void formTagDropsDescriptorsInFinally() {
+        FormTag form = new TestFormTag();
+        FormFieldDescriptor descriptor = form.getFieldDescriptor("name");
+        descriptor.setSubmittedValues(new String[]{"value"});
+
+        form.doFinally();
+        FormFieldDescriptor fresh = form.getFieldDescriptor("name");
+        Assert.assertNotSame(fresh, descriptor);
+        Assert.assertFalse(fresh.isSubmittedValuesLoaded());
+    }
+}
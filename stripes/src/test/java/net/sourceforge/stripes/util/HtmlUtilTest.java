@@ -18,6 +18,8 @@ package net.sourceforge.stripes.util;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.StringWriter;
+import java.net.URLEncoder;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
@@ -61,4 +63,38 @@ public class HtmlUtilTest {
         Assert.assertNotNull(values);
         Assert.assertEquals(values.size(), 0);
     }
+
+    @Test(groups = "fast")
+    public void testEncode() throws Exception {
+        String clean = "nothing to see here";
+        Assert.assertSame(HtmlUtil.encode(clean), clean);
+        Assert.assertNull(HtmlUtil.encode(null));
+        Assert.assertEquals(HtmlUtil.encode("<a href=\"x?a=1&b=2\">'</a>"),
+                "&lt;a href=&quot;x?a=1&amp;b=2&quot;&gt;'&lt;/a&gt;");
+
+        StringWriter writer = new StringWriter();
+        HtmlUtil.encode("a<b", writer);
+        HtmlUtil.encode(null, writer);
+        HtmlUtil.encode(clean, writer);
+        Assert.assertEquals(writer.toString(), "a&lt;b" + clean);
+    }
+
+    @Test(groups = "fast")
+    public void testUrlEncodeMatchesUrlEncoder() throws Exception {
+        String[] values = {"", "plain", "a b", "x&y=z", "caf\u00e9", "\u4e2d\u6587",
+            "\ud83d\ude00", "lone\ud800", "~*.-_"};
+        for (String value : values) {
+            String expected = URLEncoder.encode(value, "UTF-8");
+            Assert.assertEquals(StringUtil.urlEncode(value), expected);
+
+            StringBuilder buffer = new StringBuilder("?");
+            StringUtil.urlEncode(value, buffer);
+            Assert.assertEquals(buffer.toString(), "?" + expected);
+        }
+
+        Assert.assertEquals(StringUtil.uriFragmentEncode("a b#c"), "a%20b%23c");
+        StringWriter writer = new StringWriter();
+        StringUtil.uriFragmentEncode("top?x=1", writer);
+        Assert.assertEquals(writer.toString(), "top?x=1");
+    }
 }
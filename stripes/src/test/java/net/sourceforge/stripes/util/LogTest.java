@@ -0,0 +1,177 @@
+package net.sourceforge.stripes.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the fixed-arity and lazy overloads of {@link Log}, and for the
+ * caching of the enabled level.
+ */
+public class LogTest {
+
+    /** Collects the events logged to the logger it is attached to. */
+    private static class CapturingAppender extends AppenderSkeleton {
+
+        final List<LoggingEvent> events = new ArrayList<LoggingEvent>();
+
+        @Override
+        protected void append(LoggingEvent event) {
+            events.add(event);
+        }
+
+        public void close() {
+        }
+
+        public boolean requiresLayout() {
+            return false;
+        }
+
+        String message(int index) {
+            return events.get(index).getRenderedMessage();
+        }
+
+        Throwable throwable(int index) {
+            return events.get(index).getThrowableInformation() == null ? null
+                    : events.get(index).getThrowableInformation().getThrowable();
+        }
+    }
+
+    private Logger logger;
+    private CapturingAppender appender;
+
+    @BeforeMethod(alwaysRun = true)
+    public void attachAppender() {
+        this.logger = Logger.getLogger(LogTest.class);
+        this.appender = new CapturingAppender();
+        this.logger.addAppender(this.appender);
+        this.logger.setAdditivity(false);
+        this.logger.setLevel(Level.DEBUG);
+        Log.refreshLevels();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void detachAppender() {
+        this.logger.removeAppender(this.appender);
+        this.logger.setAdditivity(true);
+        this.logger.setLevel(null);
+        Log.refreshLevels();
+    }
+
+    @Test(groups = "fast")
+    public void testFixedArity() {
+        Log log = Log.getInstance(LogTest.class);
+        log.debug("one");
+        log.debug("one", 2);
+        log.info("one", 2, null);
+        log.warn("one", 2, null, '4');
+        log.error("one", 2, null, '4', 5L);
+
+        Assert.assertEquals(appender.events.size(), 5);
+        Assert.assertEquals(appender.message(0), "one");
+        Assert.assertEquals(appender.message(1), "one2");
+        Assert.assertEquals(appender.message(2), "one2null");
+        Assert.assertEquals(appender.message(3), "one2null4");
+        Assert.assertEquals(appender.message(4), "one2null45");
+        Assert.assertEquals(appender.events.get(3).getLevel(), Level.WARN);
+    }
+
+    @Test(groups = "fast")
+    public void testArrayParts() {
+        Log log = Log.getInstance(LogTest.class);
+
+        // An Object[] is still passed as the var-args array itself
+        Object[] parts = {"a", 1, "b"};
+        log.debug(parts);
+        Assert.assertEquals(appender.message(0), "a1b");
+
+        // Arrays that are not statically Object[] are rendered as a single part
+        Object part = parts;
+        log.debug(part);
+        Assert.assertEquals(appender.message(1), "[a, 1, b]");
+        log.debug(new int[]{1, 2});
+        Assert.assertEquals(appender.message(2), "[1, 2]");
+        log.debug("values ", new String[]{"x", "y"});
+        Assert.assertEquals(appender.message(3), "values [x, y]");
+
+        IllegalStateException e = new IllegalStateException();
+        log.error(e, parts);
+        Assert.assertEquals(appender.message(4), "a1b");
+        Assert.assertSame(appender.throwable(4), e);
+        log.error(e, part);
+        Assert.assertEquals(appender.message(5), "[a, 1, b]");
+    }
+
+    @Test(groups = "fast")
+    public void testThrowables() {
+        Log log = Log.getInstance(LogTest.class);
+        IllegalStateException e = new IllegalStateException("broken");
+
+        // A single Throwable logs the same as it did through the var-args method
+        log.error(e);
+        log.error(e, new Object[0]);
+        log.warn(e);
+        Assert.assertEquals(appender.message(0), appender.message(1));
+        Assert.assertSame(appender.throwable(0), e);
+        Assert.assertEquals(appender.message(2), appender.message(1));
+        Assert.assertSame(appender.throwable(2), e);
+
+        log.warn(e, "failed ", 1, " time");
+        Assert.assertEquals(appender.message(3), "failed 1 time");
+        Assert.assertSame(appender.throwable(3), e);
+    }
+
+    @Test(groups = "fast")
+    public void testMessageSupplier() {
+        Log log = Log.getInstance(LogTest.class);
+        final int[] calls = {0};
+        Log.MessageSupplier supplier = new Log.MessageSupplier() {
+            public Object get() {
+                return "computed " + (++calls[0]);
+            }
+        };
+
+        log.trace(supplier);
+        Assert.assertEquals(calls[0], 0);
+        Assert.assertTrue(appender.events.isEmpty());
+
+        log.debug(supplier);
+        Assert.assertEquals(calls[0], 1);
+        Assert.assertEquals(appender.message(0), "computed 1");
+    }
+
+    @Test(groups = "fast")
+    public void testLevelCache() throws Exception {
+        long checkedAt = System.currentTimeMillis();
+        Log log = Log.getInstance(LogTest.class);
+        Assert.assertTrue(log.isDebugEnabled());
+        Assert.assertFalse(log.isTraceEnabled());
+
+        // A change is not seen until the levels are refreshed...
+        logger.setLevel(Level.TRACE);
+        boolean traceEnabled = log.isTraceEnabled();
+        if (System.currentTimeMillis() - checkedAt < Log.LEVEL_CHECK_INTERVAL) {
+            Assert.assertFalse(traceEnabled);
+        }
+        Log.refreshLevels();
+        Assert.assertTrue(log.isTraceEnabled());
+        log.trace("traced");
+        Assert.assertEquals(appender.message(0), "traced");
+
+        // ...or the check interval has passed
+        logger.setLevel(Level.WARN);
+        Thread.sleep(Log.LEVEL_CHECK_INTERVAL + 10);
+        Assert.assertFalse(log.isInfoEnabled());
+        Assert.assertTrue(log.isWarnEnabled());
+        log.info("dropped");
+        Assert.assertEquals(appender.events.size(), 1);
+    }
+}
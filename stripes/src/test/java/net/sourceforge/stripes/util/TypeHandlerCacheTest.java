@@ -0,0 +1,141 @@
+package net.sourceforge.stripes.util;
+
+import java.io.Serializable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link TypeHandlerCache}.
+ */
+public class TypeHandlerCacheTest {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public static @interface Marker {
+    }
+
+    @Marker
+    public static class Annotated {
+    }
+
+    public static class AnnotatedChild extends Annotated {
+    }
+
+    public static enum Color {
+        RED
+    }
+
+    @Test(groups = "fast")
+    public void testResolution() {
+        TypeHandlerCache<String> cache = new TypeHandlerCache<String>();
+        cache.setDefaultHandler("default");
+        cache.add(Number.class, "number");
+        cache.add(Serializable.class, "serializable");
+        cache.add(Marker.class, "marker");
+        cache.add(Enum.class, "enum");
+
+        Assert.assertEquals(cache.getHandler(Integer.class), "number");
+        Assert.assertEquals(cache.getHandler(String.class), "serializable");
+        Assert.assertEquals(cache.getHandler(AnnotatedChild.class), "marker");
+        Assert.assertEquals(cache.getHandler(Color.class), "enum");
+        Assert.assertEquals(cache.getHandler(Object.class), "default");
+        Assert.assertEquals(cache.getHandler(Object.class), "default");
+    }
+
+    @Test(groups = "fast")
+    public void testDirectOnly() {
+        TypeHandlerCache<String> cache = new TypeHandlerCache<String>();
+        cache.setSearchHierarchy(false);
+        cache.add(Number.class, "number");
+        cache.add(Enum.class, "enum");
+
+        Assert.assertNull(cache.getHandler(Integer.class));
+        Assert.assertEquals(cache.getHandler(Number.class), "number");
+        Assert.assertEquals(cache.getHandler(Color.class), "enum");
+    }
+
+    @Test(groups = "fast")
+    public void testTargetedInvalidation() {
+        TypeHandlerCache<String> cache = new TypeHandlerCache<String>();
+        cache.setDefaultHandler("default");
+        cache.add(Object.class, "object");
+
+        Assert.assertEquals(cache.getHandler(Integer.class), "object");
+        Assert.assertEquals(cache.getHandler(String.class), "object");
+        Assert.assertEquals(cache.getHandler(Annotated.class), "object");
+        Assert.assertEquals(cache.getResolutionCosts().size(), 3);
+
+        // Only Integer is a Number, so only its resolution is discarded
+        cache.add(Number.class, "number");
+        Assert.assertEquals(cache.getResolutionCosts().keySet().size(), 2);
+        Assert.assertFalse(cache.getResolutionCosts().containsKey(Integer.class));
+        Assert.assertEquals(cache.getHandler(Integer.class), "number");
+        Assert.assertEquals(cache.getHandler(String.class), "object");
+
+        // Annotation handlers discard the types carrying the annotation
+        cache.add(Marker.class, "marker");
+        Assert.assertFalse(cache.getResolutionCosts().containsKey(Annotated.class));
+        Assert.assertTrue(cache.getResolutionCosts().containsKey(String.class));
+        Assert.assertEquals(cache.getHandler(Annotated.class), "marker");
+
+        for (long nanos : cache.getResolutionCosts().values()) {
+            Assert.assertTrue(nanos >= 0 && nanos < TimeUnit.SECONDS.toNanos(10));
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testHandlerMapIsWritable() {
+        TypeHandlerCache<String> cache = new TypeHandlerCache<String>();
+        cache.setDefaultHandler("default");
+        cache.getHandlers().put(Object.class, "object");
+        Assert.assertEquals(cache.getHandler(Integer.class), "object");
+
+        cache.getHandlers().put(Number.class, "number");
+        Assert.assertEquals(cache.getHandler(Integer.class), "number");
+        Assert.assertEquals(cache.getHandlers().get(Number.class), "number");
+
+        Assert.assertEquals(cache.getHandlers().remove(Number.class), "number");
+        Assert.assertEquals(cache.getHandler(Integer.class), "object");
+
+        // The entry, key and value views write through as well
+        cache.getHandlers().put(Number.class, "number");
+        for (Map.Entry<Class<?>, String> entry : cache.getHandlers().entrySet()) {
+            if (entry.getKey() == Number.class) {
+                entry.setValue("changed");
+            }
+        }
+        Assert.assertEquals(cache.getHandler(Integer.class), "changed");
+        Assert.assertTrue(cache.getHandlers().keySet().remove(Number.class));
+        Assert.assertEquals(cache.getHandler(Integer.class), "object");
+        cache.getHandlers().values().remove("object");
+        Assert.assertEquals(cache.getHandler(Integer.class), "default");
+
+        cache.getHandlers().put(Object.class, "object");
+        cache.getHandlers().clear();
+        Assert.assertTrue(cache.getHandlers().isEmpty());
+        Assert.assertEquals(cache.getHandler(Integer.class), "default");
+    }
+
+    @Test(groups = "fast")
+    @SuppressWarnings("deprecation")
+    public void testLegacyHooksAreCalled() {
+        final int[] calls = new int[1];
+        TypeHandlerCache<String> cache = new TypeHandlerCache<String>() {
+            @Override
+            protected String findInSuperclasses(Class<?> targetType) {
+                ++calls[0];
+                return targetType == Integer.class ? "legacy" : super.findInSuperclasses(targetType);
+            }
+        };
+        cache.add(Number.class, "number");
+
+        Assert.assertEquals(cache.getHandler(Integer.class), "legacy");
+        Assert.assertEquals(cache.getHandler(Long.class), "number");
+        Assert.assertEquals(cache.getHandler(Integer.class), "legacy");
+        Assert.assertEquals(calls[0], 2);
+    }
+}
@@ -21,6 +21,7 @@ import java.util.Map;
 
 import net.sourceforge.stripes.FilterEnabledTestBase;
 import net.sourceforge.stripes.StripesTestFixture;
+import net.sourceforge.stripes.format.Formatter;
 import net.sourceforge.stripes.mock.MockServletContext;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -156,4 +157,54 @@ public class UrlBuilderTest extends FilterEnabledTestBase {
         Assert.assertTrue(result.contains("one=three"));
         Assert.assertTrue(result.contains("one=four"));
     }
+
+    @Test(groups = "fast")
+    public void testTemplateIsShared() throws Exception {
+        String path = "/templates/page.jsp";
+        UrlTemplate template = UrlTemplate.getInstance(path);
+        Assert.assertSame(UrlTemplate.getInstance(path), template);
+        Assert.assertNull(template.getBinding());
+        Assert.assertEquals(template.encodeName("a b"), "a+b");
+
+        // Repeated builds against the cached template must produce identical URLs
+        for (int i = 0; i < 3; i++) {
+            UrlBuilder builder = new UrlBuilder(Locale.getDefault(), path, true);
+            builder.addParameter("a b", i, "x&y");
+            Assert.assertEquals(builder.toString(),
+                    "/templates/page.jsp?a+b=" + i + "&amp;a+b=x%26y");
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testOverriddenFormatterIsUsed() throws Exception {
+        String path = "/templates/formatted.jsp";
+        Assert.assertEquals(new UrlBuilder(Locale.getDefault(), path, false)
+                .addParameter("n", 42).toString(), path + "?n=42");
+
+        // A subclass building against the same shared template still gets its formatter
+        UrlBuilder builder = new UrlBuilder(Locale.getDefault(), path, false) {
+            @Override
+            @SuppressWarnings("rawtypes")
+            protected Formatter getFormatter(Object value) {
+                return new Formatter<Object>() {
+                    public void setFormatType(String formatType) {
+                    }
+
+                    public void setFormatPattern(String formatPattern) {
+                    }
+
+                    public void setLocale(Locale locale) {
+                    }
+
+                    public void init() {
+                    }
+
+                    public String format(Object input) {
+                        return "#" + input;
+                    }
+                };
+            }
+        };
+        Assert.assertEquals(builder.addParameter("n", 42).toString(), path + "?n=%2342");
+    }
 }
@@ -8,6 +8,9 @@ import net.sourceforge.stripes.test.TestEnum;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Random;
 
 /**
  * Test cases for the BeanComparator class that sorts lists of JavaBeans based
@@ -124,4 +127,45 @@ public class BeanComparatorTest {
         Assert.assertEquals(beans.get(3).getNestedBean().getEnumProperty(), TestEnum.Eight);
         Assert.assertEquals(beans.get(4).getNestedBean().getEnumProperty(), TestEnum.Ninth);
     }
+
+    @Test(groups = "fast")
+    public void testKeyExtractionSortMatchesComparator() throws Exception {
+        String[] strings = {"apple", "Apple", "\u00e9clair", "eclair", "zebra", null, "banana", "Banana"};
+        Random random = new Random(42);
+        List<TestBean> beans = new ArrayList<TestBean>();
+        for (int i = 0; i < 200; ++i) {
+            TestBean bean = new TestBean();
+            bean.setStringProperty(strings[random.nextInt(strings.length)]);
+            bean.setLongProperty(random.nextInt(4) == 0 ? null : Long.valueOf(random.nextInt(5)));
+            bean.setIntProperty(i);
+            beans.add(bean);
+        }
+
+        BeanComparator comparator = new BeanComparator(Locale.FRENCH, "longProperty", "stringProperty");
+        List<TestBean> expected = new ArrayList<TestBean>(beans);
+        Collections.sort(expected, comparator);
+        List<TestBean> actual = new LinkedList<TestBean>(beans);
+        comparator.sort(actual);
+
+        Assert.assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            Assert.assertSame(actual.get(i), expected.get(i), "Mismatch at index " + i);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testKeyExtractionSortPutsNullsLast() throws Exception {
+        List<TestBean> beans = new ArrayList<TestBean>();
+        for (String s : new String[]{null, "b", null, "a"}) {
+            TestBean bean = new TestBean();
+            bean.setStringProperty(s);
+            beans.add(bean);
+        }
+
+        new BeanComparator("stringProperty").sort(beans);
+        Assert.assertEquals(beans.get(0).getStringProperty(), "a");
+        Assert.assertEquals(beans.get(1).getStringProperty(), "b");
+        Assert.assertNull(beans.get(2).getStringProperty());
+        Assert.assertNull(beans.get(3).getStringProperty());
+    }
 }
@@ -274,6 +274,34 @@ public class PropertyExpressionEvaluationTests extends FilterEnabledTestBase {
         Assert.assertEquals(false, root.isBooleanProperty());
     }
 
+    @Test(groups = "fast")
+    public void testSetPrimitiveInt() throws Exception {
+        TestBean root = new TestBean();
+        PropertyExpression expr = PropertyExpression.getExpression("intProperty");
+        new PropertyExpressionEvaluation(expr, root).setInt(42);
+        Assert.assertEquals(root.getIntProperty(), 42);
+    }
+
+    @Test(groups = "fast")
+    public void testSetPrimitiveBooleanThenNull() throws Exception {
+        TestBean root = new TestBean();
+        PropertyExpression expr = PropertyExpression.getExpression("booleanProperty");
+        PropertyExpressionEvaluation eval = new PropertyExpressionEvaluation(expr, root);
+        eval.setBoolean(true);
+        Assert.assertTrue(root.isBooleanProperty());
+        eval.setToNull();
+        Assert.assertFalse(root.isBooleanProperty());
+    }
+
+    /** Wrapper typed properties fall back to the boxed setter. */
+    @Test(groups = "fast")
+    public void testSetPrimitiveOnWrapperProperty() throws Exception {
+        TestBean root = new TestBean();
+        PropertyExpression expr = PropertyExpression.getExpression("longProperty");
+        new PropertyExpressionEvaluation(expr, root).setLong(7L);
+        Assert.assertEquals(root.getLongProperty(), Long.valueOf(7L));
+    }
+
     /**
      * Tests a bug whereby the Introspector/PropertyDescriptor returns
      * inaccessible methods for getKey() and getValue() on all the JDK
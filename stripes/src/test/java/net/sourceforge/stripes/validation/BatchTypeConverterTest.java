@@ -0,0 +1,68 @@
+package net.sourceforge.stripes.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the conversion of whole value arrays by the number type converters.
+ */
+public class BatchTypeConverterTest {
+
+    @Test(groups = "fast")
+    public void testIntegers() {
+        IntegerTypeConverter converter = new IntegerTypeConverter();
+        converter.setLocale(Locale.US);
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+
+        int[] values = converter.convertAll(
+                new String[]{"1", "", "2,500", null, "-7", "x", "3000000000"}, errors);
+        Assert.assertTrue(Arrays.equals(values, new int[]{1, 2500, -7}));
+        Assert.assertEquals(errors.size(), 2);
+        Assert.assertEquals(errors.get(0).getFieldValue(), "x");
+        Assert.assertEquals(errors.get(1).getFieldValue(), "3000000000");
+    }
+
+    @Test(groups = "fast")
+    public void testLongs() {
+        LongTypeConverter converter = new LongTypeConverter();
+        converter.setLocale(Locale.US);
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+
+        long[] values = converter.convertAll(
+                new String[]{"3000000000", "9223372036854775807", "(12)"}, errors);
+        Assert.assertTrue(Arrays.equals(values, new long[]{3000000000L, Long.MAX_VALUE, -12L}));
+        Assert.assertTrue(errors.isEmpty());
+    }
+
+    @Test(groups = "fast")
+    public void testDoubles() {
+        DoubleTypeConverter converter = new DoubleTypeConverter();
+        converter.setLocale(Locale.GERMANY);
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+
+        double[] values = converter.convertAll(new String[]{"12", "1,5", "1.000", "abc"}, errors);
+        Assert.assertTrue(Arrays.equals(values, new double[]{12, 1.5, 1000}));
+        Assert.assertEquals(errors.size(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testSubclassesConvertEachValue() {
+        IntegerTypeConverter converter = new IntegerTypeConverter() {
+            @Override
+            public Integer convert(String input, Class<? extends Integer> targetType,
+                    Collection<ValidationError> errors) {
+                return super.convert(input, targetType, errors) + 1;
+            }
+        };
+        converter.setLocale(Locale.US);
+
+        int[] values = converter.convertAll(new String[]{"1", "2"}, new ArrayList<ValidationError>());
+        Assert.assertTrue(Arrays.equals(values, new int[]{2, 3}));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 Stripes Framework.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.stripes.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.stripes.FilterEnabledTestBase;
+import net.sourceforge.stripes.action.ActionBean;
+import net.sourceforge.stripes.action.ActionBeanContext;
+import net.sourceforge.stripes.controller.ParameterName;
+import net.sourceforge.stripes.controller.StripesFilter;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the tables of validation metadata built by the
+ * DefaultValidationMetadataProvider.
+ */
+public class DefaultValidationMetadataProviderTest extends FilterEnabledTestBase {
+
+    public static class Address {
+
+        private String city, zip;
+
+        public String getCity() { return city; }
+        public void setCity(String city) { this.city = city; }
+        public String getZip() { return zip; }
+        public void setZip(String zip) { this.zip = zip; }
+    }
+
+    public static class Bean implements ActionBean {
+
+        private ActionBeanContext context;
+
+        @Validate(required = true, on = "save")
+        public String name;
+
+        @Validate(maxlength = 5)
+        public String code;
+
+        @ValidateNestedProperties({
+            @Validate(field = "zip", mask = "\\d+"),
+            @Validate(field = "city", required = true)
+        })
+        public Address address;
+
+        public ActionBeanContext getContext() { return context; }
+        public void setContext(ActionBeanContext context) { this.context = context; }
+    }
+
+    @Test(groups = "fast")
+    public void testTable() {
+        ValidationMetadataProvider provider = StripesFilter.getConfiguration().getValidationMetadataProvider();
+        Map<String, ValidationMetadata> meta = provider.getValidationMetadata(Bean.class);
+
+        List<String> names = new ArrayList<String>(meta.keySet());
+        Assert.assertEquals(names, Arrays.asList("address.city", "address.zip", "code", "name"));
+        Assert.assertEquals(meta.size(), 4);
+        Assert.assertTrue(meta.containsKey("code"));
+        Assert.assertFalse(meta.containsKey("address"));
+        Assert.assertNull(meta.get("missing"));
+        Assert.assertNull(meta.get(1));
+        Assert.assertEquals(meta.get("code").maxlength(), Integer.valueOf(5));
+        Assert.assertTrue(meta.get("name").requiredOn("save"));
+        Assert.assertFalse(meta.get("name").requiredOn("cancel"));
+        Assert.assertTrue(provider.getValidationMetadata(Bean.class, new ParameterName("address.city"))
+                .required());
+        Assert.assertSame(provider.getValidationMetadata(Bean.class), meta);
+    }
+
+    @Test(groups = "fast", expectedExceptions = UnsupportedOperationException.class)
+    public void testTableIsImmutable() {
+        StripesFilter.getConfiguration().getValidationMetadataProvider()
+                .getValidationMetadata(Bean.class).remove("code");
+    }
+}
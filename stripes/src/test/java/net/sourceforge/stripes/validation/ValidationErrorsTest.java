@@ -0,0 +1,77 @@
+package net.sourceforge.stripes.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import net.sourceforge.stripes.FilterEnabledTestBase;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the ordering of ValidationErrors and for the cached rendering of
+ * error messages through {@link ValidationErrors#getMessage(ValidationError, Locale)}.
+ */
+public class ValidationErrorsTest extends FilterEnabledTestBase {
+
+    @Test(groups = "fast")
+    public void testFieldsKeepInsertionOrder() {
+        ValidationErrors errors = new ValidationErrors();
+        errors.add("zebra", new SimpleError("z"));
+        errors.add("apple", new SimpleError("a"));
+        errors.addGlobalError(new SimpleError("g"));
+        errors.add("mango", new SimpleError("m"));
+
+        List<String> keys = new ArrayList<String>(errors.keySet());
+        Assert.assertEquals(keys.get(0), "zebra");
+        Assert.assertEquals(keys.get(1), "apple");
+        Assert.assertEquals(keys.get(2), ValidationErrors.GLOBAL_ERROR);
+        Assert.assertEquals(keys.get(3), "mango");
+    }
+
+    @Test(groups = "fast")
+    public void testRowErrorsShareTemplates() {
+        ValidationErrors errors = new ValidationErrors();
+        for (int i = 0; i < 50; i++) {
+            LocalizableError error = new LocalizableError("validation.minlength.valueTooShort", 5);
+            error.setFieldName("rows[" + i + "].name");
+            error.setFieldValue("v" + i);
+            error.setActionPath("/test/ValidationErrorsTest.action");
+            errors.add(error.getFieldName(), error);
+        }
+
+        for (List<ValidationError> list : errors.values()) {
+            for (ValidationError error : list) {
+                String message = errors.getMessage(error, Locale.US);
+                Assert.assertEquals(message, error.getMessage(Locale.US));
+                Assert.assertTrue(message.contains("5"), message);
+            }
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testScopedAndSimpleErrors() {
+        ValidationErrors errors = new ValidationErrors();
+
+        ScopedLocalizableError scoped = new ScopedLocalizableError("validation.required", "valueNotPresent");
+        scoped.setFieldName("username");
+        scoped.setActionPath("/test/ValidationErrorsTest.action");
+        scoped.setBeanclass(ValidationFlowTest.class);
+        errors.add("username", scoped);
+
+        SimpleError first = new SimpleError("Value {1} of {0} is wrong");
+        first.setFieldName("age");
+        first.setFieldValue("12");
+        errors.add("age", first);
+
+        SimpleError second = new SimpleError("Value {1} of {0} is wrong");
+        second.setFieldName("age");
+        second.setFieldValue("99");
+        errors.add("age", second);
+
+        Assert.assertEquals(errors.getMessage(scoped, Locale.US), scoped.getMessage(Locale.US));
+        Assert.assertEquals(errors.getMessage(first, Locale.US), first.getMessage(Locale.US));
+        Assert.assertEquals(errors.getMessage(second, Locale.US), second.getMessage(Locale.US));
+        Assert.assertFalse(errors.getMessage(first, Locale.US).equals(errors.getMessage(second, Locale.US)));
+    }
+}